@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2016 IBM Corporation and others.
+ * Copyright (c) 2004, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12632,4 +12632,22 @@ public class AST2CPPTests extends AST2CPPTestBase {
 		helper.assertVariableValue("waldo4", 0);
 		helper.assertVariableValue("waldo5", 0);
 	}
+
+	public void testLookupOfReopenedNamespace() throws Exception {
+		StringBuilder code = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			code.append("namespace ns { int f" + i + "(); }\n");
+		}
+		IASTTranslationUnit tu = parse(code.toString(), CPP);
+		NameCollector col = new NameCollector();
+		tu.accept(col);
+		ICPPNamespace ns = (ICPPNamespace) col.getName(0).resolveBinding();
+		for (IASTName name : col.nameList) {
+			assertNotNull(name.resolveBinding());
+		}
+		// All definitions of the namespace resolve to the same binding, it is found only once.
+		IBinding[] bindings = tu.getScope().getBindings(new IScope.ScopeLookupData("ns".toCharArray(), tu));
+		assertEquals(1, bindings.length);
+		assertSame(ns, bindings[0]);
+	}
 }
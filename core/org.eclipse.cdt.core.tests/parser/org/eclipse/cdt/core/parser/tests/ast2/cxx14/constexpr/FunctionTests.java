@@ -261,4 +261,12 @@ public class FunctionTests extends TestBase {
 	//	    .m(21).m(22).m(23).m(24).m(25).m(26).m(27).m(28).m(29).m(30);
 	public void testLongCallChain_505606() throws Exception {
 	}
-}
\ No newline at end of file
+
+	// constexpr int fib(int n) { return n < 2 ? n : fib(n - 1) + fib(n - 2); }
+
+	// constexpr int x = fib(25);
+	public void testResultsOfCallsAreReused() throws Exception {
+		// Without reusing the results of identical calls the evaluation exceeds the step limit.
+		assertEvaluationEquals(75025);
+	}
+}
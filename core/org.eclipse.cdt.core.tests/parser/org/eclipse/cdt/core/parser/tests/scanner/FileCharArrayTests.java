@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 Wind River Systems, Inc. and others.
+ * Copyright (c) 2010, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,6 +23,7 @@ import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
 import org.eclipse.cdt.internal.core.parser.scanner.AbstractCharArray;
 import org.eclipse.cdt.internal.core.parser.scanner.FileCharArray;
 import org.eclipse.cdt.internal.core.parser.scanner.LazyCharArray;
+import org.eclipse.cdt.internal.core.parser.scanner.MappedCharArray;
 
 public class FileCharArrayTests extends BaseTestCase {
 	
@@ -84,6 +85,41 @@ public class FileCharArrayTests extends BaseTestCase {
 
 	}
 
+	public void testMapped() throws IOException {
+		final int charSize= LazyCharArray.CHUNK_SIZE*3+1;
+		createFile(true, charSize);
+
+		AbstractCharArray decoded;
+		AbstractCharArray mapped;
+		FileInputStream inputStream = new FileInputStream(fFile);
+		try {
+			decoded = FileCharArray.create(fFile.getPath(), "utf-8", inputStream);
+			mapped = MappedCharArray.create(inputStream.getChannel(), fFile.length(), "utf-8");
+		} finally {
+			inputStream.close();
+		}
+		assertNotNull(mapped);
+		checkContent(mapped, 0, charSize);
+		assertEquals(charSize, mapped.getLength());
+		assertEquals(decoded.getContentsHash(), mapped.getContentsHash());
+
+		char[] chunk= mapped.getChunk(charSize-1);
+		int chunkOffset= mapped.getChunkOffset(charSize-1);
+		assertEquals(charSize, chunkOffset + chunk.length);
+		assertEquals((charSize-1) % 127, chunk[charSize-1-chunkOffset]);
+		assertNull(mapped.getChunk(charSize));
+
+		// Content other than ASCII is not mapped.
+		fFile.delete();
+		createFile(false, charSize);
+		inputStream = new FileInputStream(fFile);
+		try {
+			assertNull(MappedCharArray.create(inputStream.getChannel(), fFile.length(), "utf-8"));
+		} finally {
+			inputStream.close();
+		}
+	}
+
 	public void checkContent(AbstractCharArray charArray, int from, int to) {
 		for (int i = from; i < to; i++) {
 			assertEquals(i % 127, charArray.get(i));
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.core.parser.tests.scanner;
+
+import org.eclipse.cdt.core.parser.IPreprocessorDirective;
+import org.eclipse.cdt.core.parser.Keywords;
+import org.eclipse.cdt.core.parser.util.CharArrayIntMap;
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.cdt.internal.core.parser.scanner.CharArray;
+import org.eclipse.cdt.internal.core.parser.scanner.IncludeGuardDetection;
+import org.eclipse.cdt.internal.core.parser.scanner.Lexer.LexerOptions;
+
+import junit.framework.TestSuite;
+
+/**
+ * Tests for the cache of include guards shared between translation units.
+ */
+public class IncludeGuardDetectionTests extends BaseTestCase {
+	private static final LexerOptions DEFAULT_OPTIONS = new LexerOptions();
+
+	private long fHits;
+	private long fMisses;
+
+	public static TestSuite suite() {
+		return suite(IncludeGuardDetectionTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fHits = IncludeGuardDetection.getCacheHits();
+		fMisses = IncludeGuardDetection.getCacheMisses();
+	}
+
+	private static CharArrayIntMap createKeywords() {
+		CharArrayIntMap ppKeywords = new CharArrayIntMap(40, -1);
+		Keywords.addKeywordsPreprocessor(ppKeywords);
+		return ppKeywords;
+	}
+
+	private String detect(String content, LexerOptions options, CharArrayIntMap ppKeywords) {
+		char[] guard = IncludeGuardDetection.detectIncludeGuardCached(new CharArray(content), options, ppKeywords);
+		return guard == null ? null : new String(guard);
+	}
+
+	private void assertCacheAccess(int hits, int misses) {
+		assertEquals(hits, IncludeGuardDetection.getCacheHits() - fHits);
+		assertEquals(misses, IncludeGuardDetection.getCacheMisses() - fMisses);
+	}
+
+	public void testHitsForSameContent() throws Exception {
+		String content = "#ifndef CACHE_TEST_H1\n#define CACHE_TEST_H1\nint x;\n#endif\n";
+		assertEquals("CACHE_TEST_H1", detect(content, DEFAULT_OPTIONS, createKeywords()));
+		assertCacheAccess(0, 1);
+		assertEquals("CACHE_TEST_H1", detect(content, DEFAULT_OPTIONS, createKeywords()));
+		assertCacheAccess(1, 1);
+
+		// Files without a guard are cached, too.
+		String unguarded = "#ifndef CACHE_TEST_H2\n#define CACHE_TEST_H2\n#endif\nint x;\n";
+		assertNull(detect(unguarded, DEFAULT_OPTIONS, createKeywords()));
+		assertNull(detect(unguarded, DEFAULT_OPTIONS, createKeywords()));
+		assertCacheAccess(2, 2);
+	}
+
+	public void testMissesForDifferentContent() throws Exception {
+		assertEquals("CACHE_TEST_H3", detect("#ifndef CACHE_TEST_H3\n#define CACHE_TEST_H3\n#endif\n",
+				DEFAULT_OPTIONS, createKeywords()));
+		assertEquals("CACHE_TEST_H4", detect("#ifndef CACHE_TEST_H4\n#define CACHE_TEST_H4\n#endif\n",
+				DEFAULT_OPTIONS, createKeywords()));
+		assertCacheAccess(0, 2);
+	}
+
+	public void testMissesForDifferentOptions() throws Exception {
+		String content = "#ifndef CACHE_TEST$H5\n#define CACHE_TEST$H5\n#endif\n";
+		assertEquals("CACHE_TEST$H5", detect(content, DEFAULT_OPTIONS, createKeywords()));
+		LexerOptions noDollar = (LexerOptions) DEFAULT_OPTIONS.clone();
+		noDollar.fSupportDollarInIdentifiers = false;
+		assertEquals("CACHE_TEST", detect(content, noDollar, createKeywords()));
+		assertCacheAccess(0, 2);
+	}
+
+	public void testMissesForDifferentKeywords() throws Exception {
+		String content = "#ifnotdef CACHE_TEST_H6\n#define CACHE_TEST_H6\n#endif\n";
+		assertNull(detect(content, DEFAULT_OPTIONS, createKeywords()));
+		CharArrayIntMap additional = createKeywords();
+		additional.put("ifnotdef".toCharArray(), IPreprocessorDirective.ppIfndef);
+		assertEquals("CACHE_TEST_H6", detect(content, DEFAULT_OPTIONS, additional));
+		assertCacheAccess(0, 2);
+		assertEquals("CACHE_TEST_H6", detect(content, DEFAULT_OPTIONS, additional));
+		assertNull(detect(content, DEFAULT_OPTIONS, createKeywords()));
+		assertCacheAccess(2, 2);
+	}
+}
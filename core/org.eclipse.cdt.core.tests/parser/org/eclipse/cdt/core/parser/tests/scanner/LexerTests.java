@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -384,6 +384,38 @@ public class LexerTests extends BaseTestCase {
 		eof();
 	}
 
+	public void testRuns() throws Exception {
+		init("/* a **/b/* ***\\\n/c");
+		comment("/* a **/");
+		id("b");
+		comment("/* ***\\\n/");
+		id("c");
+		eof();
+
+		init("abc??/\ndef \t\f ghi // x??/\ny\u00e4?\n z");
+		id("abcdef");
+		ws();
+		id("ghi");
+		comment("// x??/\ny\u00e4?");
+		nl();
+		ws();
+		id("z");
+		eof();
+
+		StringBuilder buf= new StringBuilder();
+		for (int i= 0; i < 100; i++) {
+			buf.append("a_Z9");
+		}
+		final String longId= buf.toString();
+		init(longId + "  \t  " + longId + "\u00e4 " + longId + "$");
+		id(longId);
+		ws();
+		id(longId + "\u00e4");
+		ws();
+		id(longId + "$");
+		eof();
+	}
+
 	public void testHeaderName() throws Exception {
 		init("p\"'/*//\\\"");
 		fLexer.setInsideIncludeDirective(true);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2015 IBM Corporation and others.
+ * Copyright (c) 2004, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,9 +15,13 @@ package org.eclipse.cdt.core.parser.tests.scanner;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.eclipse.cdt.core.dom.ast.IASTPreprocessorMacroDefinition;
+import org.eclipse.cdt.core.dom.ast.IMacroBinding;
 import org.eclipse.cdt.core.parser.IProblem;
 import org.eclipse.cdt.core.parser.IToken;
 import org.eclipse.cdt.core.parser.ParserLanguage;
+import org.eclipse.cdt.internal.core.parser.scanner.LocationMap;
+import org.eclipse.cdt.internal.core.parser.scanner.MacroExpansionCache;
 
 import junit.framework.TestSuite;
 
@@ -1381,4 +1385,65 @@ public class PreprocessorTests extends PreprocessorTestsBase {
 		validateProblem(0, IProblem.SCANNER_CONSTANT_WITH_BAD_SUFFIX, "ASDF");
 		validateProblem(1, IProblem.SCANNER_CONSTANT_WITH_BAD_SUFFIX, "xU");
 	}
+
+	private void validateAdd(String arg, String one) throws Exception {
+		validateToken(IToken.tLPAREN);
+		validateToken(IToken.tLPAREN);
+		validateIdentifier("a");
+		validateToken(IToken.tRPAREN);
+		validateToken(IToken.tPLUS);
+		validateToken(IToken.tLPAREN);
+		validateIdentifier(arg);
+		validateToken(IToken.tRPAREN);
+		validateToken(IToken.tPLUS);
+		validateInteger(one);
+		validateToken(IToken.tRPAREN);
+	}
+
+	// #define ONE 1
+	// #define ADD(x, y) ((x) + (y) + ONE)
+	// ADD(a, b) ADD(a, b)
+	// ADD(a, c)
+	// #undef ONE
+	// #define ONE 2
+	// ADD(a, b)
+	public void testReuseOfMacroExpansions() throws Exception {
+		initializeScanner();
+		validateAdd("b", "1");
+		validateAdd("b", "1");
+		validateAdd("c", "1");
+		validateAdd("b", "2");
+		validateEOF();
+		validateProblemCount(0);
+
+		MacroExpansionCache cache= ((LocationMap) fLocationResolver).getMacroExpansionCache();
+		assertEquals(4, cache.getExpansionCount("ADD".toCharArray()));
+		assertEquals(1, cache.getHitCount("ADD".toCharArray()));
+
+		// The nested expansions are reported for the reused expansion, too.
+		List<IMacroBinding> ones= new ArrayList<>();
+		for (IASTPreprocessorMacroDefinition def : fLocationResolver.getMacroDefinitions()) {
+			if (def.getName().toString().equals("ONE"))
+				ones.add((IMacroBinding) def.getName().getBinding());
+		}
+		assertEquals(2, ones.size());
+		// Three expansions and the #undef.
+		assertEquals(4, fLocationResolver.getReferences(ones.get(0)).length);
+		assertEquals(1, fLocationResolver.getReferences(ones.get(1)).length);
+	}
+
+	// #define ID x
+	// x y ID x
+	public void testIdentifiersShareTheirImage() throws Exception {
+		initializeScanner();
+		IToken x1= fScanner.nextToken();
+		IToken y= fScanner.nextToken();
+		IToken x2= fScanner.nextToken();
+		IToken x3= fScanner.nextToken();
+		validateEOF();
+		assertEquals("x", x1.getImage());
+		assertEquals("y", y.getImage());
+		assertSame(x1.getCharImage(), x2.getCharImage());
+		assertSame(x1.getCharImage(), x3.getCharImage());
+	}
 }
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.index.tests;
+
+import java.util.regex.Pattern;
+
+import org.eclipse.cdt.core.dom.ILinkage;
+import org.eclipse.cdt.core.index.IndexFilter;
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.cdt.internal.core.index.CIndex;
+import org.eclipse.cdt.internal.core.index.IIndexFragment;
+import org.eclipse.cdt.internal.core.index.IIndexFragmentBinding;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import junit.framework.Test;
+
+/**
+ * Tests for querying an index that consists of multiple fragments.
+ */
+public class CIndexTests extends BaseTestCase {
+	private static class RecordingFragment extends EmptyIndexFragment {
+		int fQueries;
+		Thread fThread;
+		IndexFilter fFilter;
+		IProgressMonitor fMonitor;
+		boolean fCanceled;
+
+		private synchronized IIndexFragmentBinding[] record(IndexFilter filter, IProgressMonitor monitor) {
+			fQueries++;
+			fThread= Thread.currentThread();
+			fFilter= filter;
+			fMonitor= monitor;
+			fCanceled= monitor != null && monitor.isCanceled();
+			return IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
+		}
+
+		@Override
+		public IIndexFragmentBinding[] findBindings(Pattern[] patterns, boolean isFullyQualified,
+				IndexFilter filter, IProgressMonitor monitor) throws CoreException {
+			return record(filter, monitor);
+		}
+
+		@Override
+		public IIndexFragmentBinding[] findBindings(char[] name, boolean filescope, IndexFilter filter,
+				IProgressMonitor monitor) throws CoreException {
+			return record(filter, monitor);
+		}
+
+		@Override
+		public IIndexFragmentBinding[] findBindingsForPrefix(char[] prefix, boolean filescope,
+				IndexFilter filter, IProgressMonitor monitor) throws CoreException {
+			return record(filter, monitor);
+		}
+	}
+
+	private RecordingFragment fFragment1;
+	private RecordingFragment fFragment2;
+	private CIndex fIndex;
+
+	public static Test suite() {
+		return suite(CIndexTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fFragment1= new RecordingFragment();
+		fFragment2= new RecordingFragment();
+		fIndex= new CIndex(new IIndexFragment[] { fFragment1, fFragment2 });
+		fIndex.acquireReadLock();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fIndex.releaseReadLock();
+		super.tearDown();
+	}
+
+	public void testPatternQueryOfTwoFragments() throws Exception {
+		IndexFilter filter= IndexFilter.getFilter(ILinkage.CPP_LINKAGE_ID);
+		NullProgressMonitor monitor= new NullProgressMonitor();
+		monitor.setCanceled(true);
+		fIndex.findBindings(Pattern.compile("a.*"), false, filter, monitor);
+		fIndex.findBindingsForPrefix("a".toCharArray(), true, filter, monitor);
+
+		for (RecordingFragment fragment : new RecordingFragment[] { fFragment1, fFragment2 }) {
+			assertEquals(2, fragment.fQueries);
+			// Each fragment has its own filter and monitor, cancellation is forwarded.
+			assertNotSame(filter, fragment.fFilter);
+			assertNotSame(monitor, fragment.fMonitor);
+			assertTrue(fragment.fCanceled);
+		}
+		assertNotSame(fFragment1.fFilter, fFragment2.fFilter);
+		assertNotSame(fFragment1.fMonitor, fFragment2.fMonitor);
+	}
+
+	public void testNameQueryOfTwoFragments() throws Exception {
+		IndexFilter filter= IndexFilter.getFilter(ILinkage.CPP_LINKAGE_ID);
+		fIndex.findBindings("a".toCharArray(), true, filter, null);
+
+		// Lookups by name may depend on the state of the calling thread.
+		assertEquals(1, fFragment1.fQueries);
+		assertEquals(1, fFragment2.fQueries);
+		assertSame(Thread.currentThread(), fFragment1.fThread);
+		assertSame(Thread.currentThread(), fFragment2.fThread);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2012 Symbian Software Ltd. and others.
+ * Copyright (c) 2007, 2017 Symbian Software Ltd. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -115,6 +115,16 @@ public class EmptyIndexFragment implements IIndexFragment {
 		return 0;
 	}
 
+	@Override
+	public long getResultCacheHits() {
+		return 0;
+	}
+
+	@Override
+	public long getResultCacheMisses() {
+		return 0;
+	}
+
 	@Override
 	@Deprecated
 	public IIndexFragmentFile getFile(int linkageID, IIndexFileLocation location)
@@ -144,6 +154,11 @@ public class EmptyIndexFragment implements IIndexFragment {
 		return 0;
 	}
 
+	@Override
+	public long getModificationCount() {
+		return 0;
+	}
+
 	@Override
 	public IIndexLinkage[] getLinkages() {
 		return IIndexLinkage.EMPTY_INDEX_LINKAGE_ARRAY;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2016 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -2615,4 +2615,48 @@ public class IndexBugsTests extends BaseTestCase {
 		}
 	}
 
+	//	struct Shared { int field; };
+	//	void sharedFunction(Shared* s);
+	public void testParallelParsing() throws Exception {
+		checkParallelParsing(IndexerPreferences.KEY_PARSER_THREADS, "4",
+				String.valueOf(IndexerPreferences.DEFAULT_PARSER_THREADS));
+	}
+
+	//	struct Shared { int field; };
+	//	void sharedFunction(Shared* s);
+	public void testParallelRebuild() throws Exception {
+		checkParallelParsing(IndexerPreferences.KEY_REBUILD_PARSER_THREADS, "-1",
+				String.valueOf(IndexerPreferences.DEFAULT_REBUILD_PARSER_THREADS));
+	}
+
+	private void checkParallelParsing(String key, String value, String defaultValue) throws Exception {
+		final int sourceCount= 20;
+		IndexerPreferences.set(fCProject.getProject(), key, value);
+		try {
+			String header= getContentsForTest(1)[0];
+			IFile sharedHeader= TestSourceReader.createFile(fCProject.getProject(), "shared.h", header);
+			for (int i = 0; i < sourceCount; i++) {
+				TestSourceReader.createFile(fCProject.getProject(), "source" + i + ".cpp",
+						"#include \"shared.h\"\nvoid function" + i + "(Shared* s) { sharedFunction(s); }\n");
+			}
+			CCorePlugin.getIndexManager().reindex(fCProject);
+			waitForIndexer();
+			fIndex.acquireReadLock();
+			try {
+				for (int i = 0; i < sourceCount; i++) {
+					IIndexBinding[] bindings= fIndex.findBindings(("function" + i).toCharArray(), IndexFilter.ALL, npm());
+					assertEquals(1, bindings.length);
+				}
+				IIndexBinding[] bindings= fIndex.findBindings("sharedFunction".toCharArray(), IndexFilter.ALL, npm());
+				assertEquals(1, bindings.length);
+				assertEquals(sourceCount, fIndex.findReferences(bindings[0]).length);
+				IIndexFile[] files= fIndex.getFiles(IndexLocationFactory.getWorkspaceIFL(sharedHeader));
+				assertEquals(1, files.length);
+			} finally {
+				fIndex.releaseReadLock();
+			}
+		} finally {
+			IndexerPreferences.set(fCProject.getProject(), key, defaultValue);
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2012 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,8 @@
 package org.eclipse.cdt.internal.index.tests;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Pattern;
 
 import org.eclipse.cdt.core.CCorePlugin;
@@ -28,6 +30,11 @@ import org.eclipse.cdt.core.testplugin.CTestPlugin;
 import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
 import org.eclipse.cdt.core.testplugin.util.TestSourceReader;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.CPPVisitor;
+import org.eclipse.cdt.internal.core.index.CIndex;
+import org.eclipse.cdt.internal.core.index.IIndexFragment;
+import org.eclipse.cdt.internal.core.index.IIndexFragmentBinding;
+import org.eclipse.cdt.internal.core.pdom.PDOM;
+import org.eclipse.cdt.internal.core.pdom.dom.PDOMBinding;
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
@@ -141,6 +148,117 @@ public class IndexNamesTests extends BaseTestCase {
 		}
 	}
 
+	// class A {};
+	// class B : public A {};
+	// class C : A {
+	//    A a;
+	// };
+	//
+	// void main() {
+	//    A a;
+	// };
+	public void testBaseSpecifiers() throws Exception {
+		waitForIndexer();
+		String content= getComment();
+		IFile file= createFile(getProject().getProject(), "test.cpp", content);
+		waitUntilFileIsIndexed(file, 4000);
+
+		fIndex.acquireReadLock();
+		try {
+			IIndexBinding[] aBS= fIndex.findBindings(getPattern("A"), true, IndexFilter.ALL, npm());
+			assertLength(1, aBS);
+			IIndexBinding aB= aBS[0];
+
+			IIndexName[] refs= fIndex.findReferences(aB);
+			assertLength(4, refs);
+
+			IIndexName[] bases= fIndex.findNames(aB, IIndex.FIND_REFERENCES | IIndexFragment.FIND_BASE_SPECIFIERS_ONLY);
+			assertLength(2, bases);
+			for (IIndexName base : bases) {
+				assertTrue(base.isBaseSpecifier());
+				assertName("A", base);
+			}
+			String sub1= new String(bases[0].getEnclosingDefinition().toCharArray());
+			String sub2= new String(bases[1].getEnclosingDefinition().toCharArray());
+			assertTrue(sub1.equals("B") && sub2.equals("C") || sub1.equals("C") && sub2.equals("B"));
+		} finally {
+			fIndex.releaseReadLock();
+		}
+	}
+
+	// int var;
+	//
+	// void f() {
+	//    var=1;
+	//    var=2;
+	//    var=3;
+	// };
+	public void testVisitNames() throws Exception {
+		waitForIndexer();
+		String content= getComment();
+		IFile file= createFile(getProject().getProject(), "test.cpp", content);
+		waitUntilFileIsIndexed(file, 4000);
+
+		fIndex.acquireReadLock();
+		try {
+			IIndexBinding[] varBS= fIndex.findBindings(getPattern("var"), true, IndexFilter.ALL, npm());
+			assertLength(1, varBS);
+			IIndexBinding varB= varBS[0];
+
+			IIndexName[] names= fIndex.findNames(varB, IIndex.FIND_ALL_OCCURRENCES);
+			assertLength(4, names);
+			final List<IIndexName> visited= new ArrayList<>();
+			assertTrue(fIndex.findNames(varB, IIndex.FIND_ALL_OCCURRENCES, visited::add));
+			assertEquals(names.length, visited.size());
+			for (int i = 0; i < names.length; i++) {
+				assertEquals(names[i].getNodeOffset(), visited.get(i).getNodeOffset());
+			}
+
+			visited.clear();
+			assertFalse(fIndex.findNames(varB, IIndex.FIND_ALL_OCCURRENCES, name -> {
+				visited.add(name);
+				return visited.size() < 2;
+			}));
+			assertEquals(2, visited.size());
+		} finally {
+			fIndex.releaseReadLock();
+		}
+	}
+
+	// class A {};
+	// A a1;
+	// A a2;
+	// void f(A a);
+
+	// class A {};
+	// A a1;
+	public void testReferenceCount() throws Exception {
+		waitForIndexer();
+		CharSequence[] contents= TestSourceReader.getContentsForTest(
+				CTestPlugin.getDefault().getBundle(), "parser", getClass(), getName(), 2);
+		IFile file= createFile(getProject().getProject(), "test.cpp", contents[0].toString());
+		waitUntilFileIsIndexed(file, 4000);
+		assertEquals(3, getReferenceCount("A"));
+
+		// References are no longer counted once they are removed with the names of the file.
+		file= createFile(getProject().getProject(), "test.cpp", contents[1].toString());
+		waitUntilFileIsIndexed(file, 4000);
+		assertEquals(1, getReferenceCount("A"));
+	}
+
+	private int getReferenceCount(String name) throws Exception {
+		fIndex.acquireReadLock();
+		try {
+			PDOM pdom= (PDOM) ((CIndex) fIndex).getFragments()[0];
+			IIndexFragmentBinding[] bindings= pdom.findBindings(new char[][] { name.toCharArray() },
+					IndexFilter.ALL, npm());
+			assertLength(1, bindings);
+			return ((PDOMBinding) bindings[0]).getReferenceCount();
+		} finally {
+			fIndex.releaseReadLock();
+		}
+	}
+
 	private void assertName(String name, IIndexName iname) {
 		assertEquals(name, new String(iname.toCharArray()));
 	}
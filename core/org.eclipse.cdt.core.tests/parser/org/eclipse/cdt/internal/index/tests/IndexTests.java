@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2016 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -37,6 +37,7 @@ public class IndexTests extends TestSuite {
 		suite.addTest(IndexProviderManagerTest.suite());
 		suite.addTest(IndexMultiVariantHeaderTest.suite());
 		suite.addTest(IndexMultiFileTest.suite());
+		suite.addTest(CIndexTests.suite());
 
 		// C++14 index test suites
 		suite.addTestSuite(ReturnTypeDeductionIndexTests.class);
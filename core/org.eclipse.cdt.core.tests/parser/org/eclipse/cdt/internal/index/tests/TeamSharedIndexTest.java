@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2012 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,21 +12,31 @@ package org.eclipse.cdt.internal.index.tests;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.dom.IPDOMManager;
 import org.eclipse.cdt.core.dom.ast.IBinding;
 import org.eclipse.cdt.core.dom.ast.IVariable;
 import org.eclipse.cdt.core.index.IIndex;
+import org.eclipse.cdt.core.index.IIndexFile;
 import org.eclipse.cdt.core.index.IIndexManager;
 import org.eclipse.cdt.core.index.IndexFilter;
+import org.eclipse.cdt.core.index.IndexLocationFactory;
 import org.eclipse.cdt.core.model.CoreModel;
 import org.eclipse.cdt.core.model.ICProject;
 import org.eclipse.cdt.core.testplugin.CProjectHelper;
 import org.eclipse.cdt.core.testplugin.util.TestSourceReader;
+import org.eclipse.cdt.internal.core.pdom.Checksums;
+import org.eclipse.cdt.internal.core.pdom.TeamPDOMImportOperation;
 import org.eclipse.cdt.internal.core.pdom.indexer.IndexerPreferences;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
@@ -374,4 +384,113 @@ public class TeamSharedIndexTest extends IndexTestBase {
 		checkVariable(prj, "b", 1);
 		checkVariable(prj, "c", 1);
 	}
+
+	public void testExportWithTouchedFilesFake() throws Exception {
+		String prjName= "__testExportWithTouchedFilesFake__";
+		ICProject prj= createProject(prjName);
+		// More files than threads verifying their checksums.
+		final int fileCount= 24;
+		for (int i = 0; i < fileCount; i++) {
+			TestSourceReader.createFile(prj.getProject(), "f" + i + ".cpp", "int f" + i + ";");
+		}
+		waitForIndexer(prj);
+		String loc= IndexerPreferences.getIndexImportLocation(prj.getProject());
+		checkVariable(prj, "f0", 1);
+
+		// export the project.
+		fPDOMManager.export(prj, loc, 0, npm());
+		waitForIndexer(prj);
+
+		// set indexer to the fake one.
+		fPDOMManager.setIndexerId(prj, FakeIndexer.ID);
+		IndexerPreferences.setScope(prj.getProject(), IndexerPreferences.SCOPE_PROJECT_SHARED);
+		new ProjectScope(prj.getProject()).getNode(CCorePlugin.PLUGIN_ID).flush();
+		waitForIndexer(prj);
+
+		// Every file gets a new timestamp, every fourth one a new content.
+		for (int i = 0; i < fileCount; i++) {
+			final IFile file = prj.getProject().getFile("f" + i + ".cpp");
+			final File location = file.getLocation().toFile();
+			final long lm= location.lastModified();
+			if (i % 4 == 0) {
+				file.setContents(new ByteArrayInputStream(("int g" + i + ";").getBytes()), true, false, npm());
+			}
+			location.setLastModified(lm + 2000);
+		}
+		deleteAndWait(prj);
+		unregisterProject(prj);
+
+		// import project
+		prj = recreateProject(prjName);
+		registerProject(prj);
+
+		// The timestamps in the index are corrected only for the files with an unchanged content.
+		IIndex index= fPDOMManager.getIndex(prj);
+		index.acquireReadLock();
+		try {
+			for (int i = 0; i < fileCount; i++) {
+				final IFile file = prj.getProject().getFile("f" + i + ".cpp");
+				IIndexFile[] ifiles= index.getFiles(IndexLocationFactory.getWorkspaceIFL(file));
+				assertEquals(1, ifiles.length);
+				assertEquals(file.getName(), i % 4 != 0, file.getLocalTimeStamp() == ifiles[0].getTimestamp());
+			}
+		} finally {
+			index.releaseReadLock();
+		}
+	}
+
+	public void testChecksumsOnMultipleThreads() throws Exception {
+		MessageDigest md= Checksums.getDefaultAlgorithm();
+		Map<String, Object> checksums= new HashMap<>();
+		Checksums.putAlgorithm(checksums, md);
+
+		File[] tempFiles= new File[40];
+		File[] files= new File[tempFiles.length];
+		byte[][] expected= new byte[files.length][];
+		try {
+			for (int i = 0; i < files.length; i++) {
+				files[i]= tempFiles[i]= File.createTempFile("teamChecksum", ".cpp");
+				Files.write(files[i].toPath(), ("int f" + i + ";").getBytes(StandardCharsets.UTF_8));
+				expected[i]= Checksums.computeChecksum(md, files[i]);
+				if (i % 3 == 0) {
+					Files.write(files[i].toPath(), ("int g" + i + ";").getBytes(StandardCharsets.UTF_8));
+				}
+			}
+
+			// A thread that fails while hashing an unchanged file must not change the result.
+			final int failing= 1;
+			files[failing]= new FailingFile(tempFiles[failing]);
+			boolean[] sequential= TeamPDOMImportOperation.checkUnchanged(checksums, files, expected, 1, npm());
+			files[failing]= new FailingFile(tempFiles[failing]);
+			boolean[] parallel= TeamPDOMImportOperation.checkUnchanged(checksums, files, expected, 8, npm());
+			for (int i = 0; i < files.length; i++) {
+				assertEquals(i % 3 != 0, sequential[i]);
+				assertEquals(sequential[i], parallel[i]);
+			}
+		} finally {
+			for (File file : tempFiles) {
+				if (file != null) {
+					file.delete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * A file whose path cannot be obtained the first time, such that the thread hashing it fails.
+	 */
+	private static class FailingFile extends File {
+		private final AtomicBoolean fFailed= new AtomicBoolean();
+
+		FailingFile(File file) {
+			super(file.getPath());
+		}
+
+		@Override
+		public String getPath() {
+			if (fFailed.compareAndSet(false, true))
+				throw new IllegalStateException("Simulated failure of a thread computing checksums");
+			return super.getPath();
+		}
+	}
 }
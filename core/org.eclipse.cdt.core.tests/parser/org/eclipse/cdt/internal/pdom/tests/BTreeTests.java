@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2016 Symbian Software Systems and others.
+ * Copyright (c) 2006, 2017 Symbian Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -24,6 +24,8 @@ import org.eclipse.cdt.internal.core.pdom.db.BTree;
 import org.eclipse.cdt.internal.core.pdom.db.ChunkCache;
 import org.eclipse.cdt.internal.core.pdom.db.Database;
 import org.eclipse.cdt.internal.core.pdom.db.IBTreeComparator;
+import org.eclipse.cdt.internal.core.pdom.db.IBTreeKeyComparator;
+import org.eclipse.cdt.internal.core.pdom.db.IBTreeKeyVisitor;
 import org.eclipse.cdt.internal.core.pdom.db.IBTreeVisitor;
 import org.eclipse.core.runtime.CoreException;
 
@@ -41,6 +43,7 @@ public class BTreeTests extends BaseTestCase {
 	protected BTree btree;
 	protected int rootRecord;
 	protected IBTreeComparator comparator;
+	protected boolean useInlineKeys;
 
 	public static Test suite() {
 		return suite(BTreeTests.class);
@@ -53,7 +56,7 @@ public class BTreeTests extends BaseTestCase {
 		db = new Database(dbFile, new ChunkCache(), 0, false);
 		db.setExclusiveLock();
 		rootRecord = Database.DATA_AREA;
-		comparator = new BTMockRecordComparator();
+		comparator = useInlineKeys ? new BTMockRecordKeyComparator() : new BTMockRecordComparator();
 		btree = new BTree(db, rootRecord, degree, comparator);
 	}
 
@@ -68,6 +71,11 @@ public class BTreeTests extends BaseTestCase {
 		sortedMirrorTest(8);
 	}
 
+	public void testInlineKeysBySortedSetMirror() throws Exception {
+		useInlineKeys = true;
+		sortedMirrorTest(4);
+	}
+
 	/**
 	 * Test random (but reproducible via known seed) sequences of insertions/deletions
 	 * and use TreeSet as a reference implementation to check behaviour against.
@@ -179,6 +187,9 @@ public class BTreeTests extends BaseTestCase {
 
 		assertBTreeMatchesSortedSet("[Trial end] ", btree, expected);
 		assertBTreeInvariantsHold("[Trial end]");
+		for (Object value : expected) {
+			assertRecordFound("[Trial end] ", ((Integer) value).intValue());
+		}
 
 		finish();
 	}
@@ -217,6 +228,42 @@ public class BTreeTests extends BaseTestCase {
 		});
 	}
 
+	public void assertRecordFound(final String msg, final int value) throws CoreException {
+		final long key = getMockKey(value);
+		final int[] found = new int[1];
+		btree.accept(new IBTreeKeyVisitor() {
+			@Override
+			public long getMinKey() {
+				return key;
+			}
+
+			@Override
+			public long getMaxKey() {
+				return key;
+			}
+
+			@Override
+			public int compare(long record) throws CoreException {
+				return Integer.compare(db.getInt(record), value);
+			}
+
+			@Override
+			public boolean visit(long record) throws CoreException {
+				found[0]++;
+				return true;
+			}
+		});
+		assertEquals(msg + "Lookup of " + value, 1, found[0]);
+	}
+
+	/**
+	 * Returns a key that is shared by many values, such that the comparator is still needed
+	 * to order records with equal keys.
+	 */
+	static long getMockKey(int value) {
+		return value >>> 16;
+	}
+
 	private static class BTMockRecord {
 		public static final int VALUE_PTR = 0;
 		public static final int RECORD_SIZE = Database.INT_SIZE;
@@ -255,4 +302,11 @@ public class BTreeTests extends BaseTestCase {
 			return db.getInt(record1) - db.getInt(record2);
 		}
 	}
+
+	private class BTMockRecordKeyComparator extends BTMockRecordComparator implements IBTreeKeyComparator {
+		@Override
+		public long getKey(long record) throws CoreException {
+			return getMockKey(db.getInt(record));
+		}
+	}
 }
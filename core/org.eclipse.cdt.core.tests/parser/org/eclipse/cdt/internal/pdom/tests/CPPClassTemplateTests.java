@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2013 Symbian Software Systems and others.
+ * Copyright (c) 2007, 2017 Symbian Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -35,9 +35,13 @@ import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateTypeParameter;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPVariable;
 import org.eclipse.cdt.core.index.IndexFilter;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPBasicType;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPTemplateTypeArgument;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.ClassTypeHelper;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.ICPPInstanceCache;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.ICPPDeferredClassInstance;
 import org.eclipse.cdt.internal.core.index.IIndexFragmentBinding;
+import org.eclipse.cdt.internal.core.pdom.dom.PDOMNamedNode;
+import org.eclipse.cdt.internal.core.pdom.dom.cpp.IPDOMCPPTemplateParameter;
 
 import junit.framework.Test;
 
@@ -531,6 +535,47 @@ public class CPPClassTemplateTests extends PDOMInlineCodeTestBase {
 		assertNull(templateParameterTofCT.getDefault());
 		assertEquals(0, templateParameterTofCT.getTemplateNestingLevel());
 	}
+
+	// template<typename T> class A {};
+	// A<int> a;
+	public void testInstancesSurviveEvictionFromResultCache() throws Exception {
+		ICPPClassTemplate a= (ICPPClassTemplate) pdom.findBindings(new char[][] {{'A'}}, IndexFilter.ALL_DECLARED, npm())[0];
+		ICPPTemplateArgument[] intArgs= { new CPPTemplateTypeArgument(CPPBasicType.INT) };
+		ICPPTemplateArgument[] charArgs= { new CPPTemplateTypeArgument(CPPBasicType.CHAR) };
+		ICPPTemplateInstance stored= ((ICPPInstanceCache) a).getInstance(intArgs);
+		assertNotNull(stored);
+		// Instances created while resolving the names of an AST are added the same way.
+		((ICPPInstanceCache) a).addInstance(charArgs, stored);
+
+		// Fill the result cache until the least recently used entries are evicted.
+		for (int i= 0; i < 1 << 20; i++) {
+			pdom.putCachedResult(new Object(), "value");
+		}
+		assertSame(stored, ((ICPPInstanceCache) a).getInstance(intArgs));
+		assertSame(stored, ((ICPPInstanceCache) a).getInstance(charArgs));
+	}
+
+	// template<typename T> class A {};
+	// template<typename T> class B {};
+	public void testDeleteTemplateParameterWithSharedName() throws Exception {
+		ICPPClassTemplate a= (ICPPClassTemplate) pdom.findBindings(new char[][] {{'A'}}, IndexFilter.ALL_DECLARED, npm())[0];
+		ICPPClassTemplate b= (ICPPClassTemplate) pdom.findBindings(new char[][] {{'B'}}, IndexFilter.ALL_DECLARED, npm())[0];
+		PDOMNamedNode ta= (PDOMNamedNode) a.getTemplateParameters()[0];
+		PDOMNamedNode tb= (PDOMNamedNode) b.getTemplateParameters()[0];
+		// Both parameters refer to the same record of the string pool.
+		assertEquals(ta.getDBName().getRecord(), tb.getDBName().getRecord());
+
+		pdom.acquireWriteLock(1, npm());
+		try {
+			((IPDOMCPPTemplateParameter) ta).forceDelete(ta.getLinkage());
+			// Reuse the blocks that have just been freed.
+			pdom.getDB().newString("U".toCharArray());
+		} finally {
+			pdom.releaseWriteLock(1, true);
+		}
+		assertEquals("T", tb.getDBName().getString());
+		assertEquals("T", new String(PDOMNamedNode.getDBName(pdom.getDB(), tb.getRecord()).getChars()));
+	}
 	
 	
 	
@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.pdom.tests;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.cdt.core.testplugin.CTestPlugin;
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.cdt.internal.core.pdom.db.ChunkCache;
+import org.eclipse.cdt.internal.core.pdom.db.Database;
+import org.eclipse.core.runtime.CoreException;
+
+import junit.framework.Test;
+
+/**
+ * Tests for the {@link ChunkCache} class.
+ */
+public class ChunkCacheTests extends BaseTestCase {
+	private final List<Database> fDatabases = new ArrayList<>();
+
+	public static Test suite() {
+		return suite(ChunkCacheTests.class);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		for (Database db : fDatabases) {
+			db.setExclusiveLock();
+			db.close();
+			db.getLocation().delete();
+		}
+		fDatabases.clear();
+		super.tearDown();
+	}
+
+	/**
+	 * Creates a database with a record in each of the given number of chunks and opens it for
+	 * reading with the given cache. The value of each record is its index.
+	 */
+	private long[] createDatabase(int chunks, ChunkCache cache, Database[] result) throws Exception {
+		File file = CTestPlugin.getDefault().getStateLocation()
+				.append(getName() + fDatabases.size() + System.currentTimeMillis() + ".dat").toFile();
+		Database db = new Database(file, new ChunkCache(), 0, false);
+		db.setExclusiveLock();
+		long[] records = new long[chunks];
+		for (int i = 0; i < chunks; i++) {
+			records[i] = db.malloc(Database.MAX_MALLOC_SIZE);
+			db.putInt(records[i], i);
+		}
+		db.flush();
+		db.close();
+
+		db = new Database(file, cache, 0, false);
+		fDatabases.add(db);
+		db.setLocked(true);
+		result[0] = db;
+		return records;
+	}
+
+	private void readAll(Database db, long[] records) throws CoreException {
+		for (int i = 0; i < records.length; i++) {
+			assertEquals(i, db.getInt(records[i]));
+		}
+	}
+
+	public void testCounters() throws Exception {
+		ChunkCache cache = new ChunkCache(16 * Database.CHUNK_SIZE);
+		Database[] db = new Database[1];
+		long[] records = createDatabase(32, cache, db);
+
+		readAll(db[0], records);
+		assertEquals(0, cache.getHits());
+		assertEquals(32, cache.getMisses());
+		assertEquals(16, cache.getEvictions());
+		assertEquals(32, db[0].getCacheMisses());
+
+		assertEquals(31, db[0].getInt(records[31]));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, db[0].getCacheHits());
+
+		cache.resetCounters();
+		db[0].resetCacheCounters();
+		assertEquals(0, cache.getHits());
+		assertEquals(0, cache.getMisses());
+		assertEquals(0, cache.getEvictions());
+		assertEquals(0, db[0].getCacheHits());
+		assertEquals(0, db[0].getCacheMisses());
+	}
+
+	public void testStripes() throws Exception {
+		assertEquals(1, new ChunkCache(16 * Database.CHUNK_SIZE).getStripeCount());
+		assertEquals(16, new ChunkCache(4096 * Database.CHUNK_SIZE).getStripeCount());
+
+		// Concurrent readers of a database that does not fit into the cache.
+		final ChunkCache cache = new ChunkCache(256 * Database.CHUNK_SIZE);
+		assertEquals(4, cache.getStripeCount());
+		assertEquals(256 * Database.CHUNK_SIZE, cache.getMaxSize());
+		final Database[] db = new Database[1];
+		final long[] records = createDatabase(1000, cache, db);
+		final Throwable[] failure = new Throwable[1];
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int repeat = 0; repeat < 5; repeat++) {
+							readAll(db[0], records);
+						}
+					} catch (Throwable e) {
+						failure[0] = e;
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (failure[0] != null) {
+			throw new AssertionError(failure[0]);
+		}
+		final long accesses = threads.length * 5 * records.length;
+		assertEquals(accesses, cache.getHits() + cache.getMisses());
+		assertEquals(accesses, db[0].getCacheHits() + db[0].getCacheMisses());
+		assertTrue(cache.getEvictions() >= cache.getMisses() - 256);
+	}
+
+	public void testQuota() throws Exception {
+		ChunkCache cache = new ChunkCache(256 * Database.CHUNK_SIZE);
+		Database[] small = new Database[1];
+		long[] smallRecords = createDatabase(100, cache, small);
+		Database[] large = new Database[1];
+		long[] largeRecords = createDatabase(1000, cache, large);
+
+		// Without a quota the large database replaces the chunks of the small one.
+		readAll(small[0], smallRecords);
+		readAll(large[0], largeRecords);
+		small[0].resetCacheCounters();
+		readAll(small[0], smallRecords);
+		assertTrue(small[0].getCacheMisses() > 0);
+
+		// With a quota the large database replaces its own chunks.
+		cache.setMaxSizePerDatabase(128 * Database.CHUNK_SIZE);
+		readAll(small[0], smallRecords);
+		readAll(large[0], largeRecords);
+		readAll(large[0], largeRecords);
+		small[0].resetCacheCounters();
+		readAll(small[0], smallRecords);
+		assertEquals(0, small[0].getCacheMisses());
+		assertEquals(smallRecords.length, small[0].getCacheHits());
+	}
+
+	public void testAdaptiveSizing() throws Exception {
+		ChunkCache cache = new ChunkCache(4096 * Database.CHUNK_SIZE);
+		final long maxSize = cache.getMaxSize();
+		assertEquals(maxSize, cache.getCurrentMaxSize());
+
+		// The cache shrinks while the heap is getting full, down to a minimum size.
+		cache.adaptToHeapOccupancy(0.9);
+		assertEquals(maxSize * 3 / 4, cache.getCurrentMaxSize());
+		for (int i = 0; i < 10; i++) {
+			cache.adaptToHeapOccupancy(0.9);
+		}
+		final long minSize = cache.getCurrentMaxSize();
+		assertEquals(1024 * Database.CHUNK_SIZE, minSize);
+
+		// A shrunk cache evicts chunks to stay within its limit.
+		Database[] db = new Database[1];
+		long[] records = createDatabase(2048, cache, db);
+		readAll(db[0], records);
+		assertEquals(1024, cache.getEvictions());
+
+		// Medium occupancy keeps the size, low occupancy lets the cache grow back.
+		cache.adaptToHeapOccupancy(0.7);
+		assertEquals(minSize, cache.getCurrentMaxSize());
+		cache.adaptToHeapOccupancy(0.5);
+		assertTrue(cache.getCurrentMaxSize() > minSize);
+		for (int i = 0; i < 10; i++) {
+			cache.adaptToHeapOccupancy(0.5);
+		}
+		assertEquals(maxSize, cache.getCurrentMaxSize());
+		cache.resetCounters();
+		readAll(db[0], records);
+		readAll(db[0], records);
+		assertEquals(0, cache.getEvictions());
+	}
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2017 QNX Software Systems and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.pdom.tests;
+
+import java.io.File;
+import java.util.regex.Pattern;
+
+import org.eclipse.cdt.core.dom.IPDOMManager;
+import org.eclipse.cdt.core.index.IIndexBinding;
+import org.eclipse.cdt.core.index.IIndexLocationConverter;
+import org.eclipse.cdt.core.index.IndexFilter;
+import org.eclipse.cdt.core.index.ResourceContainerRelativeLocationConverter;
+import org.eclipse.cdt.core.model.ICProject;
+import org.eclipse.cdt.core.model.LanguageManager;
+import org.eclipse.cdt.core.testplugin.CProjectHelper;
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.cdt.core.testplugin.util.TestSourceReader;
+import org.eclipse.cdt.internal.core.CCoreInternals;
+import org.eclipse.cdt.internal.core.index.IIndexFragmentBinding;
+import org.eclipse.cdt.internal.core.pdom.PDOM;
+import org.eclipse.cdt.internal.core.pdom.db.ChunkCache;
+import org.eclipse.cdt.internal.core.pdom.db.Database;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+/**
+ * Compares the query performance of a PDOM accessed through positional reads with the one
+ * of a PDOM accessed through memory-mapped segments.
+ *
+ * n.b. this is intentionally not added to any test suite
+ */
+public class DatabaseBackendBenchmark extends BaseTestCase {
+	private static final int HEADER_COUNT = 200;
+	private static final int CLASSES_PER_HEADER = 50;
+	private static final int REPETITIONS = 5;
+
+	private ICProject cproject;
+	private File pdomFile;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		cproject= CProjectHelper.createCCProject("DatabaseBackendBenchmark" + System.currentTimeMillis(),
+				"bin", IPDOMManager.ID_FAST_INDEXER);
+		StringBuilder source= new StringBuilder();
+		for (int h = 0; h < HEADER_COUNT; h++) {
+			StringBuilder header= new StringBuilder();
+			header.append("namespace ns").append(h).append(" {\n");
+			for (int c = 0; c < CLASSES_PER_HEADER; c++) {
+				header.append("struct Type").append(c).append(" { int field; void method(int); };\n");
+				header.append("void function").append(c).append("(Type").append(c).append("* p);\n");
+			}
+			header.append("}\n");
+			TestSourceReader.createFile(cproject.getProject(), "header" + h + ".h", header.toString());
+			source.append("#include \"header").append(h).append(".h\"\n");
+		}
+		for (int h = 0; h < HEADER_COUNT; h++) {
+			TestSourceReader.createFile(cproject.getProject(), "source" + h + ".cpp",
+					source + "void user" + h + "() { ns" + h + "::function0(0); }\n");
+		}
+		CCoreInternals.getPDOMManager().reindex(cproject);
+		waitForIndexer(cproject);
+
+		pdomFile= nonExistentTempFile("benchmark", ".pdom");
+		IIndexLocationConverter converter= new ResourceContainerRelativeLocationConverter(cproject.getProject());
+		CCoreInternals.getPDOMManager().exportProjectPDOM(cproject, pdomFile, converter, null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (pdomFile != null) {
+			pdomFile.delete();
+		}
+		if (cproject != null) {
+			cproject.getProject().delete(IResource.FORCE | IResource.ALWAYS_DELETE_PROJECT_CONTENT,
+					new NullProgressMonitor());
+		}
+		super.tearDown();
+	}
+
+	public void testCompareBackends() throws Exception {
+		int expected= runQueries(false);
+		assertEquals(expected, runQueries(true));
+		assertEquals(expected, runQueries(false));
+		assertEquals(expected, runQueries(true));
+	}
+
+	private int runQueries(boolean useMappedIO) throws Exception {
+		String oldValue= System.setProperty(Database.MAPPED_IO_PROPERTY, String.valueOf(useMappedIO));
+		PDOM pdom;
+		try {
+			// A small cache makes sure that the queries fault in chunks from the file.
+			pdom= new PDOM(pdomFile, new ResourceContainerRelativeLocationConverter(cproject.getProject()),
+					new ChunkCache(1024 * 1024), LanguageManager.getInstance().getPDOMLinkageFactoryMappings());
+		} finally {
+			if (oldValue == null) {
+				System.clearProperty(Database.MAPPED_IO_PROPERTY);
+			} else {
+				System.setProperty(Database.MAPPED_IO_PROPERTY, oldValue);
+			}
+		}
+		assertEquals(useMappedIO, pdom.getDB().isMemoryMapped());
+
+		int count= 0;
+		long start= System.nanoTime();
+		pdom.acquireReadLock();
+		try {
+			for (int i = 0; i < REPETITIONS; i++) {
+				IIndexBinding[] all= pdom.findBindings(Pattern.compile(".*"), false, IndexFilter.ALL, npm());
+				count+= all.length;
+				IIndexFragmentBinding[] types= pdom.findBindingsForPrefix("Type".toCharArray(), false,
+						IndexFilter.ALL, npm());
+				count+= types.length;
+				for (IIndexFragmentBinding binding : pdom.findBindings("function1".toCharArray(), false,
+						IndexFilter.ALL, npm())) {
+					count+= pdom.findNames(binding, PDOM.FIND_ALL_OCCURRENCES).length;
+				}
+			}
+			long time= (System.nanoTime() - start) / 1000000;
+			System.out.println("Database backend " + (useMappedIO ? "mapped" : "positional") + ": " + time +
+					" ms, " + pdom.getDB().getCacheMisses() + " chunk reads, " + pdomFile.length() + " bytes.");
+			pdom.getDB().setExclusiveLock();	// The pdom is all ours.
+			pdom.close();
+		} finally {
+			pdom.releaseReadLock();
+		}
+		return count;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2014 QNX Software Systems
+ * Copyright (c) 2005, 2017 QNX Software Systems
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -41,8 +41,8 @@ public class DatabaseTest extends BaseTestCase {
 	@Override
 	protected void setUp() throws Exception {
 		super.setUp();
-		db = new Database(getTestDir().append(getName() + System.currentTimeMillis() + ".dat").toFile(),
-				new ChunkCache(), 0, false);
+		db = openDatabase(getTestDir().append(getName() + System.currentTimeMillis() + ".dat").toFile(),
+				new ChunkCache());
 		db.setExclusiveLock();
 
 		// Allocate all database chunks up to TEST_OFFSET.
@@ -69,6 +69,10 @@ public class DatabaseTest extends BaseTestCase {
 		return path;
 	}
 
+	protected Database openDatabase(File file, ChunkCache cache) throws CoreException {
+		return new Database(file, cache, 0, false);
+	}
+
 	@Override
 	protected void tearDown() throws Exception {
 		db.close();
@@ -142,6 +146,136 @@ public class DatabaseTest extends BaseTestCase {
 		assertEquals(mem2, mem1);
 	}
 
+	public void testJournal() throws Exception {
+		File file = getTestDir().append(getName() + System.currentTimeMillis() + ".dat").toFile();
+		// A small cache makes sure that chunks are written to the journal before the commit.
+		Database journaled = openJournaledDatabase(file, new ChunkCache(64 * 1024));
+		assertTrue(journaled.isJournaled());
+		journaled.setExclusiveLock();
+		long committed = journaled.malloc(4);
+		journaled.putInt(committed, 1);
+		journaled.flush();
+
+		journaled.beginBatch();
+		journaled.putInt(committed, 2);
+		long[] records = new long[1000];
+		for (int i = 0; i < records.length; i++) {
+			records[i] = journaled.malloc(Database.MAX_MALLOC_SIZE);
+			journaled.putInt(records[i], i);
+		}
+		journaled.giveUpExclusiveLock(true);
+		assertEquals(2, journaled.getInt(committed));
+		for (int i = 0; i < records.length; i++) {
+			assertEquals(i, journaled.getInt(records[i]));
+		}
+
+		// Opening the file while the batch is not committed simulates a crash.
+		Database reopened = new Database(file, new ChunkCache(), 0, false);
+		reopened.setExclusiveLock();
+		assertEquals(1, reopened.getInt(committed));
+		assertTrue(reopened.getSizeBytes() < (long) records.length * Database.CHUNK_SIZE);
+		reopened.close();
+
+		journaled.endBatch();
+		journaled.flush();
+		journaled.setExclusiveLock();
+		journaled.close();
+
+		reopened = openJournaledDatabase(file, new ChunkCache());
+		reopened.setExclusiveLock();
+		assertEquals(2, reopened.getInt(committed));
+		for (int i = 0; i < records.length; i++) {
+			assertEquals(i, reopened.getInt(records[i]));
+		}
+		reopened.close();
+		file.delete();
+	}
+
+	public void testBatchWithoutJournal() throws Exception {
+		assertFalse(db.isJournaled());
+		db.setExclusiveLock();
+		db.beginBatch();
+		assertFalse(db.isBatchOpen());
+		long mem = db.malloc(4);
+		db.putInt(mem, 1);
+		db.giveUpExclusiveLock(true);
+		db.endBatch();
+
+		// The change has been flushed although a batch was requested.
+		Database reopened = new Database(db.getLocation(), new ChunkCache(), 0, false);
+		reopened.setExclusiveLock();
+		assertEquals(1, reopened.getInt(mem));
+		reopened.close();
+		db.setExclusiveLock();
+	}
+
+	public void testCompressed() throws Exception {
+		long[] records = new long[1000];
+		for (int i = 0; i < records.length; i++) {
+			records[i] = db.malloc(Database.MAX_MALLOC_SIZE);
+			db.putRecPtr(records[i], db.newString("name" + i).getRecord());
+		}
+		db.flush();
+		assertFalse(Database.isCompressed(db.getLocation()));
+
+		File compressedFile = getTestDir().append(getName() + System.currentTimeMillis() + ".cdat").toFile();
+		File decompressedFile = getTestDir().append(getName() + System.currentTimeMillis() + ".ddat").toFile();
+		try {
+			Database.compress(db.getLocation(), compressedFile);
+			assertTrue(Database.isCompressed(compressedFile));
+			assertTrue(compressedFile.length() * 4 < db.getLocation().length());
+
+			try {
+				new Database(compressedFile, new ChunkCache(), 0, false);
+				fail("Compressed database must not be opened for writing");
+			} catch (CoreException e) {
+				// Expected.
+			}
+
+			// A small cache makes sure that chunks are evicted and decompressed again.
+			Database compressed = new Database(compressedFile, new ChunkCache(64 * 1024), 0, true);
+			assertTrue(compressed.isCompressed());
+			compressed.setLocked(true);
+			assertEquals(db.getVersion(), compressed.getVersion());
+			for (int repeat = 0; repeat < 2; repeat++) {
+				for (int i = 0; i < records.length; i++) {
+					assertEquals("name" + i, compressed.getString(compressed.getRecPtr(records[i])).getString());
+				}
+			}
+			compressed.setLocked(false);
+			compressed.setExclusiveLock();
+			compressed.close();
+			// The decompressor is released, but the database still reports its format.
+			assertTrue(compressed.isCompressed());
+			assertTrue(Database.isCompressed(compressedFile));
+
+			Database.decompress(compressedFile, decompressedFile);
+			assertEquals(db.getLocation().length(), decompressedFile.length());
+			Database decompressed = new Database(decompressedFile, new ChunkCache(), 0, false);
+			decompressed.setExclusiveLock();
+			for (int i = 0; i < records.length; i++) {
+				assertEquals("name" + i, decompressed.getString(decompressed.getRecPtr(records[i])).getString());
+			}
+			decompressed.close();
+		} finally {
+			compressedFile.delete();
+			decompressedFile.delete();
+		}
+	}
+
+	private Database openJournaledDatabase(File file, ChunkCache cache) throws CoreException {
+		String oldValue = System.setProperty(Database.JOURNAL_PROPERTY, Boolean.TRUE.toString());
+		try {
+			return new Database(file, cache, 0, false);
+		} finally {
+			if (oldValue == null) {
+				System.clearProperty(Database.JOURNAL_PROPERTY);
+			} else {
+				System.setProperty(Database.JOURNAL_PROPERTY, oldValue);
+			}
+		}
+	}
+
 	private static class FindVisitor implements IBTreeVisitor {
 		private Database db;
 		private String key;
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.pdom.tests;
+
+import java.io.File;
+
+import org.eclipse.cdt.internal.core.pdom.db.ChunkCache;
+import org.eclipse.cdt.internal.core.pdom.db.Database;
+import org.eclipse.core.runtime.CoreException;
+
+import junit.framework.Test;
+
+/**
+ * Runs the tests for the {@link Database} class with the file accessed through memory-mapped
+ * segments.
+ */
+public class MappedDatabaseTest extends DatabaseTest {
+
+	public static Test suite() {
+		return suite(MappedDatabaseTest.class);
+	}
+
+	@Override
+	protected Database openDatabase(File file, ChunkCache cache) throws CoreException {
+		return new Database(file, cache, 0, false, true);
+	}
+
+	public void testGrowAndClear() throws Exception {
+		File file = getTestDir().append(getName() + System.currentTimeMillis() + ".dat").toFile();
+		try {
+			// A small cache makes sure that chunks are evicted and read back from the mappings.
+			Database mapped = openDatabase(file, new ChunkCache(64 * 1024));
+			assertTrue(mapped.isMemoryMapped());
+			mapped.setExclusiveLock();
+			long[] records = new long[1000];
+			for (int i = 0; i < records.length; i++) {
+				records[i] = mapped.malloc(Database.MAX_MALLOC_SIZE);
+				mapped.putInt(records[i], i);
+				if (i % 100 == 0) {
+					mapped.flush();
+				}
+			}
+			mapped.flush();
+			for (int i = 0; i < records.length; i++) {
+				assertEquals(i, mapped.getInt(records[i]));
+				mapped.putInt(records[i], -i);
+			}
+			mapped.flush();
+			mapped.close();
+
+			Database reopened = new Database(file, new ChunkCache(), 0, false, false);
+			reopened.setExclusiveLock();
+			for (int i = 0; i < records.length; i++) {
+				assertEquals(-i, reopened.getInt(records[i]));
+			}
+			reopened.close();
+
+			mapped = openDatabase(file, new ChunkCache(64 * 1024));
+			mapped.setExclusiveLock();
+			mapped.clear(1);
+			for (int i = 0; i < records.length; i++) {
+				records[i] = mapped.malloc(Database.MAX_MALLOC_SIZE);
+				mapped.putInt(records[i], 2 * i);
+			}
+			mapped.flush();
+			for (int i = 0; i < records.length; i++) {
+				assertEquals(2 * i, mapped.getInt(records[i]));
+			}
+			mapped.close();
+
+			reopened = new Database(file, new ChunkCache(), 0, false, false);
+			reopened.setExclusiveLock();
+			assertEquals(1, reopened.getVersion());
+			for (int i = 0; i < records.length; i++) {
+				assertEquals(2 * i, reopened.getInt(records[i]));
+			}
+			reopened.close();
+		} finally {
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.pdom.tests;
+
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.cdt.core.dom.ILinkage;
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.cdt.internal.core.pdom.PDOMResultCache;
+
+import junit.framework.Test;
+
+public class PDOMResultCacheTests extends BaseTestCase {
+
+	public static Test suite() {
+		return suite(PDOMResultCacheTests.class);
+	}
+
+	public void testReplace() throws Exception {
+		PDOMResultCache cache = new PDOMResultCache(1000);
+		assertEquals("a", cache.put(1L, "a", false, PDOMResultCache.TRANSIENT));
+		assertEquals("a", cache.put(1L, "b", false, PDOMResultCache.TRANSIENT));
+		assertEquals("c", cache.put(1L, "c", true, PDOMResultCache.TRANSIENT));
+		assertEquals("c", cache.get(1L));
+		cache.put(1L, null, false, PDOMResultCache.TRANSIENT);
+		assertNull(cache.get(1L));
+	}
+
+	public void testSelectiveInvalidation() throws Exception {
+		PDOMResultCache cache = new PDOMResultCache(1000);
+		cache.put("ast", "transient", true, PDOMResultCache.TRANSIENT);
+		cache.put("c", "c", true, ILinkage.C_LINKAGE_ID);
+		cache.put("cpp", "cpp", true, ILinkage.CPP_LINKAGE_ID);
+
+		cache.clearTransient();
+		assertNull(cache.get("ast"));
+		assertEquals("c", cache.get("c"));
+		assertEquals("cpp", cache.get("cpp"));
+
+		cache.clearLinkage(ILinkage.CPP_LINKAGE_ID);
+		assertEquals("c", cache.get("c"));
+		assertNull(cache.get("cpp"));
+
+		cache.clear();
+		assertNull(cache.get("c"));
+		assertEquals(0, cache.size());
+	}
+
+	public void testEviction() throws Exception {
+		final int maxWeight = 1600;
+		PDOMResultCache cache = new PDOMResultCache(maxWeight);
+		for (long i = 0; i < 10 * maxWeight; i++) {
+			cache.put(i, "value", true, ILinkage.CPP_LINKAGE_ID);
+			// Keep the first entry in use.
+			assertNotNull(cache.get(0L));
+		}
+		assertTrue(cache.size() <= maxWeight);
+		assertTrue(cache.getEvictions() > 0);
+		assertEquals("value", cache.get(0L));
+
+		// Arrays weigh their length.
+		cache.clear();
+		cache.put(1L, new Object[maxWeight], true, ILinkage.CPP_LINKAGE_ID);
+		assertNull(cache.get(1L));
+
+		// Maps weigh their size.
+		Map<Integer, String> map = new HashMap<>();
+		for (int i = 0; i < maxWeight; i++) {
+			map.put(i, "value");
+		}
+		cache.put(2L, map, true, ILinkage.CPP_LINKAGE_ID);
+		assertNull(cache.get(2L));
+		cache.put(2L, Collections.singletonMap(1, "value"), true, ILinkage.CPP_LINKAGE_ID);
+		assertNotNull(cache.get(2L));
+
+		// References weigh their referent.
+		cache.put(3L, new SoftReference<>(new long[maxWeight]), true, PDOMResultCache.TRANSIENT);
+		assertNull(cache.get(3L));
+		cache.put(3L, new SoftReference<>(new long[1]), true, PDOMResultCache.TRANSIENT);
+		assertNotNull(cache.get(3L));
+	}
+
+	public void testIdentityCachesArePinned() throws Exception {
+		final int maxWeight = 1600;
+		PDOMResultCache cache = new PDOMResultCache(maxWeight);
+		Object instances = new Object();
+		assertSame(instances, cache.put("instances", instances, false, PDOMResultCache.TRANSIENT));
+		for (long i = 0; i < 10 * maxWeight; i++) {
+			cache.put(i, "value", true, PDOMResultCache.TRANSIENT);
+		}
+		assertTrue(cache.getEvictions() > 0);
+
+		// The entry survives the eviction, a second cache for the same key is not accepted.
+		assertSame(instances, cache.get("instances"));
+		assertSame(instances, cache.put("instances", new Object(), false, PDOMResultCache.TRANSIENT));
+
+		// Pinned entries are dropped with the other transient entries.
+		cache.clearTransient();
+		assertNull(cache.get("instances"));
+		assertEquals(0, cache.size());
+	}
+
+	public void testCounters() throws Exception {
+		PDOMResultCache cache = new PDOMResultCache(1000);
+		cache.put(1L, "a", true, PDOMResultCache.TRANSIENT);
+		cache.get(1L);
+		cache.get(1L);
+		cache.get(2L);
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		cache.resetCounters();
+		assertEquals(0, cache.getHits());
+		assertEquals(0, cache.getMisses());
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2015 IBM Corporation and others.
+ * Copyright (c) 2007, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -287,6 +287,54 @@ public class PDOMSearchTest extends PDOMTestBase {
 		assertEquals(offset("main.cpp", "int var;") + 4, loc.getNodeOffset()); // character offset
 	}
 
+	public void testPatternsWithFragments() throws Exception {
+		IBinding[] fields = pdom.findBindings(Pattern.compile(".*lass1[xy]"), false, INDEX_FILTER, NULL_MONITOR);
+		assertEquals(2, fields.length);
+		Arrays.sort(fields, BINDING_COMPARATOR);
+		assertEquals("namespace1::Class1::class1x", getQualifiedName(fields[0]));
+		assertEquals("namespace1::Class1::class1y", getQualifiedName(fields[1]));
+
+		fields = pdom.findBindings(Pattern.compile("CLASS1.", Pattern.CASE_INSENSITIVE), false, INDEX_FILTER, NULL_MONITOR);
+		assertEquals(2, fields.length);
+
+		// Escapes of more than one character are not part of a fragment.
+		fields = pdom.findBindings(Pattern.compile("\\x63lass1[xy]"), false, INDEX_FILTER, NULL_MONITOR);
+		assertEquals(2, fields.length);
+		fields = pdom.findBindings(Pattern.compile("cl\\u0061ss1[xy]"), false, INDEX_FILTER, NULL_MONITOR);
+		assertEquals(2, fields.length);
+		fields = pdom.findBindings(Pattern.compile("class\\d\\w"), false, INDEX_FILTER, NULL_MONITOR);
+		assertEquals(2, fields.length);
+
+		Pattern[] patterns = { Pattern.compile("namespace."), Pattern.compile("Class.*") };
+		IBinding[] classes = pdom.findBindings(patterns, true, INDEX_FILTER, NULL_MONITOR);
+		assertEquals(2, classes.length);
+		Arrays.sort(classes, BINDING_COMPARATOR);
+		assertEquals("namespace1::Class1", getQualifiedName(classes[0]));
+		assertEquals("namespace1::Class2", getQualifiedName(classes[1]));
+
+		classes = pdom.findBindings(patterns, false, INDEX_FILTER, NULL_MONITOR);
+		assertEquals(3, classes.length);
+
+		patterns = new Pattern[] { Pattern.compile("ns1"), Pattern.compile("ns2"), Pattern.compile("Cla+ss3") };
+		classes = pdom.findBindings(patterns, true, INDEX_FILTER, NULL_MONITOR);
+		assertEquals(1, classes.length);
+		assertEquals("ns1::ns2::Class3", getQualifiedName(classes[0]));
+	}
+
+	public void testCamelCaseContentAssist() throws Exception {
+		IBinding[] bindings = pdom.findBindingsForContentAssist("gFN".toCharArray(), true, INDEX_FILTER, NULL_MONITOR);
+		assertEquals(4, bindings.length);
+		// Prefix matches come first, then the names with the fewest segments.
+		assertEquals("gfnPrefix", bindings[0].getName());
+		assertEquals("getFileName", bindings[1].getName());
+		assertEquals("get_file_name", bindings[2].getName());
+		assertEquals("getTheFileName", bindings[3].getName());
+
+		bindings = pdom.findBindingsForContentAssist("gTFi".toCharArray(), true, INDEX_FILTER, NULL_MONITOR);
+		assertEquals(1, bindings.length);
+		assertEquals("getTheFileName", bindings[0].getName());
+	}
+
 	/**
 	 * Returns the fully qualified name for a given binding.
 	 */
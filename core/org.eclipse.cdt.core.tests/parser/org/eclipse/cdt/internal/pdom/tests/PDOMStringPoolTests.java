@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2017 QNX Software Systems and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.pdom.tests;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.cdt.internal.core.pdom.db.ChunkCache;
+import org.eclipse.cdt.internal.core.pdom.db.Database;
+import org.eclipse.cdt.internal.core.pdom.db.PDOMStringPool;
+
+import junit.framework.Test;
+
+public class PDOMStringPoolTests extends BaseTestCase {
+	protected File dbFile;
+	protected Database db;
+	protected PDOMStringPool pool;
+
+	public static Test suite() {
+		return suite(PDOMStringPoolTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		dbFile = File.createTempFile("pdomstringpooltest", "db");
+		db = new Database(dbFile, new ChunkCache(), 0, false);
+		db.setExclusiveLock();
+		pool = new PDOMStringPool(db, Database.DATA_AREA);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		db.close();
+		dbFile.deleteOnExit();
+		super.tearDown();
+	}
+
+	public void testInternAndRelease() throws Exception {
+		long a1 = pool.intern("vector".toCharArray());
+		long b = pool.intern("Vector".toCharArray());
+		long a2 = pool.intern("vector".toCharArray());
+		assertTrue(a1 != 0);
+		assertTrue(a1 != b);
+		assertEquals(a1, a2);
+		assertEquals("vector", db.getString(a1).getString());
+
+		// The string survives until its last reference is released.
+		pool.release(a1);
+		assertEquals(a1, pool.intern("vector".toCharArray()));
+		pool.release(a1);
+		pool.release(a2);
+		assertEquals("Vector", db.getString(b).getString());
+
+		// Strings that are not part of the pool can be released, too.
+		pool.release(db.newString("vector").getRecord());
+		pool.release(db.newString("Vector").getRecord());
+		assertEquals(b, pool.intern("Vector".toCharArray()));
+	}
+
+	public void testLongStrings() throws Exception {
+		char[] chars = new char[Database.CHUNK_SIZE];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) ('a' + i % 26);
+		}
+		long rec = pool.intern(chars);
+		assertEquals(rec, pool.intern(chars.clone()));
+		assertEquals(new String(chars), db.getString(rec).getString());
+		pool.release(rec);
+		pool.release(rec);
+	}
+
+	public void testRepeatedNames() throws Exception {
+		final int names = 1000;
+		final int repetitions = 20;
+		db.flush();
+		final long initialSize = db.getSizeBytes();
+		for (int r = 0; r < repetitions; r++) {
+			for (int i = 0; i < names; i++) {
+				pool.intern(("std_name_" + i).toCharArray());
+			}
+		}
+		db.flush();
+		final long pooledSize = db.getSizeBytes() - initialSize;
+		assertEquals((long) names * (repetitions - 1), pool.getHits());
+		// Without hash collisions the content is compared only for the hits, once while
+		// searching the B-tree and once when visiting the found entry.
+		assertEquals(2 * pool.getHits(), pool.getContentCompares());
+
+		final long sizeBefore = db.getSizeBytes();
+		for (int r = 0; r < repetitions; r++) {
+			for (int i = 0; i < names; i++) {
+				db.newString("std_name_" + i);
+			}
+		}
+		db.flush();
+		final long unpooledSize = db.getSizeBytes() - sizeBefore;
+		assertTrue(pooledSize + " >= " + unpooledSize, pooledSize * 4 < unpooledSize);
+	}
+
+	public void testFindCandidates() throws Exception {
+		pool = createPoolWithTrigrams();
+		long vector = pool.intern("vector".toCharArray());
+		pool.intern("Vector3".toCharArray());
+		pool.intern("victor".toCharArray());
+		pool.intern("ve".toCharArray());
+
+		assertEquals("[vector, Vector3]", candidates("vec"));
+		assertEquals("[vector, Vector3]", candidates("ECTO"));
+		assertEquals("[Vector3]", candidates("vec", "or3"));
+		assertEquals("[vector, Vector3, victor]", candidates("tor"));
+		assertEquals("[]", candidates("vector", "ictor"));
+		assertEquals("[]", candidates("xyz"));
+
+		// The trigrams are removed with the last reference to the string.
+		pool.intern("vector".toCharArray());
+		pool.release(vector);
+		assertEquals("[vector, Vector3]", candidates("vec"));
+		pool.release(vector);
+		assertEquals("[Vector3]", candidates("vec"));
+	}
+
+	public void testRepeatedTrigrams() throws Exception {
+		pool = createPoolWithTrigrams();
+		long rec = pool.intern("aaaaaa".toCharArray());
+		assertEquals("[aaaaaa]", candidates("aaa"));
+		pool.release(rec);
+		assertEquals("[]", candidates("aaa"));
+	}
+
+	public void testStringsThatAreNotSearchable() throws Exception {
+		pool = createPoolWithTrigrams();
+		long param = pool.intern("index".toCharArray(), false);
+		assertEquals("[]", candidates("dex"));
+		assertEquals("[]", initials("in"));
+
+		// A searchable reference adds the keys, they are kept until the last reference is released.
+		long binding = pool.intern("index".toCharArray(), true);
+		assertEquals(param, binding);
+		pool.intern("index".toCharArray(), true);
+		assertEquals("[index]", candidates("dex"));
+		pool.release(binding);
+		pool.release(binding);
+		assertEquals("[index]", candidates("dex"));
+		pool.release(param);
+		assertEquals("[]", candidates("dex"));
+
+		// The pooled string is shared no matter whether it is searchable.
+		long other = pool.intern("indexOf".toCharArray(), false);
+		assertEquals(other, pool.intern("indexOf".toCharArray()));
+		assertEquals("[indexOf]", candidates("dex"));
+		assertEquals("[indexOf]", initials("io"));
+		pool.release(other);
+		pool.release(other);
+		assertEquals("[]", candidates("dex"));
+		assertEquals("[]", initials("io"));
+	}
+
+	public void testFindCandidatesForInitials() throws Exception {
+		pool = createPoolWithTrigrams();
+		long getFileName = pool.intern("getFileName".toCharArray());
+		pool.intern("get_file_name".toCharArray());
+		pool.intern("FileGetName".toCharArray());
+		pool.intern("gfn".toCharArray());
+		long manyInitials = pool.intern("A_B_C_D_E_F_G_H_I_J".toCharArray());
+
+		assertEquals("gfn", new String(PDOMStringPool.getInitials("getFileName".toCharArray())));
+		assertEquals("gfn", new String(PDOMStringPool.getInitials("get_file_name".toCharArray())));
+		assertEquals("[getFileName, get_file_name, A_B_C_D_E_F_G_H_I_J]", initials("gfn"));
+		assertEquals("[getFileName, get_file_name, FileGetName, A_B_C_D_E_F_G_H_I_J]", initials("gn"));
+		assertEquals("[FileGetName, A_B_C_D_E_F_G_H_I_J]", initials("fg"));
+
+		pool.release(getFileName);
+		assertEquals("[get_file_name, A_B_C_D_E_F_G_H_I_J]", initials("gfn"));
+		pool.release(manyInitials);
+		assertEquals("[get_file_name]", initials("gfn"));
+	}
+
+	private String initials(String initials) throws Exception {
+		return toString(pool.findCandidatesForInitials(initials.toCharArray()));
+	}
+
+	private PDOMStringPool createPoolWithTrigrams() {
+		return new PDOMStringPool(db, Database.DATA_AREA + Database.PTR_SIZE,
+				Database.DATA_AREA + 2 * Database.PTR_SIZE);
+	}
+
+	private String candidates(String... fragments) throws Exception {
+		char[][] chars = new char[fragments.length][];
+		for (int i = 0; i < fragments.length; i++) {
+			chars[i] = fragments[i].toCharArray();
+		}
+		return toString(pool.findCandidates(chars));
+	}
+
+	private static String toString(List<char[]> candidates) {
+		List<String> result = new ArrayList<>();
+		for (char[] candidate : candidates) {
+			result.add(new String(candidate));
+		}
+		return result.toString();
+	}
+}
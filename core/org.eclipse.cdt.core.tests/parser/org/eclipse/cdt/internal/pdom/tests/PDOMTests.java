@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2014 QNX Software Systems and others.
+ * Copyright (c) 2006, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -25,6 +25,8 @@ public class PDOMTests extends TestSuite {
 		TestSuite suite = new PDOMTests();
 
 		suite.addTest(DatabaseTest.suite());
+		suite.addTest(MappedDatabaseTest.suite());
+		suite.addTest(ChunkCacheTests.suite());
 		suite.addTest(DBPropertiesTests.suite());
 		suite.addTest(PDOMCBugsTest.suite());
 		suite.addTest(PDOMCPPBugsTest.suite());
@@ -40,6 +42,8 @@ public class PDOMTests extends TestSuite {
 		suite.addTest(OverloadsWithinCommonHeaderTests.suite());
 		suite.addTest(BTreeTests.suite());
 		suite.addTest(PDOMStringSetTests.suite());
+		suite.addTest(PDOMStringPoolTests.suite());
+		suite.addTest(PDOMResultCacheTests.suite());
 		suite.addTest(PDOMTagIndexTests.suite());
 		suite.addTest(FilesOnReindexTests.suite());
 		suite.addTest(GeneratePDOMApplicationTest.suite());
@@ -0,0 +1,5 @@
+int getFileName();
+int get_file_name();
+int getTheFileName();
+int gfnPrefix;
+int getFile();
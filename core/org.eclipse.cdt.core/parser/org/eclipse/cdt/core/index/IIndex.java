@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -138,6 +138,15 @@ public interface IIndex {
 	 */
 	public long getLastWriteAccess();
 
+	/**
+	 * Returns the number of modifications made to the index. Other than the timestamp returned
+	 * by {@link #getLastWriteAccess()} the number changes with every modification, such that
+	 * it can be used to reliably detect modifications that happen while the read lock on the
+	 * index is released.
+	 * @since 6.4
+	 */
+	public long getModificationCount();
+
 	/**
 	 * @deprecated Use {@link #getFile(int, IIndexFileLocation, ISignificantMacros)} or
 	 *     {@link #getFiles(int, IIndexFileLocation)}.
@@ -401,6 +410,21 @@ public interface IIndex {
 	 */
 	public IIndexName[] findNames(IBinding binding, int flags) throws CoreException;
 
+	/**
+	 * Passes all names that resolve to the given binding to a visitor, in the order they would
+	 * be returned by {@link #findNames(IBinding, int)}. Other than that method this one does not
+	 * collect the names, such that the caller can process them as they are found or stop the
+	 * search early.
+	 *
+	 * @param binding a binding for which names are searched for
+	 * @param flags the same flags as for {@link #findNames(IBinding, int)}
+	 * @param visitor the visitor to pass the names to
+	 * @return {@code false} if the visitor stopped the search, {@code true} otherwise
+	 * @throws CoreException
+	 * @since 6.4
+	 */
+	public boolean findNames(IBinding binding, int flags, IIndexNameVisitor visitor) throws CoreException;
+
 	/**
 	 * Searches for all references that resolve to the given binding.
 	 * This is fully equivalent to
@@ -0,0 +1,23 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.core.index;
+
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * Visitor for the names found by {@link IIndex#findNames(org.eclipse.cdt.core.dom.ast.IBinding, int, IIndexNameVisitor)}.
+ * The names passed to the visitor are valid only as long as the read lock on the index is held.
+ * @since 6.4
+ */
+public interface IIndexNameVisitor {
+	/**
+	 * Visits a name.
+	 * @return {@code false} to stop the search, {@code true} to continue with the next name.
+	 */
+	boolean visit(IIndexName name) throws CoreException;
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2015 IBM Corporation and others.
+ * Copyright (c) 2004, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -265,11 +265,24 @@ abstract public class CPPScope implements ICPPASTInternalScope {
 	    if (obj != null) {
 	        if (obj instanceof ObjectSet<?>) {
 	        	ObjectSet<?> os= (ObjectSet<?>) obj;
+	        	result= new IBinding[os.size()];
+	        	int count= 0;
         		for (int j = 0; j < os.size(); j++) {
-        			result= addCandidate(os.keyAt(j), lookup, result);
+        			Object candidate= os.keyAt(j);
+        			// All definitions of a namespace resolve to the same binding. In generated code
+        			// a namespace may be reopened thousands of times, add its binding only once.
+        			if (count > 0 && candidate instanceof IASTName &&
+        					getSimpleName((IASTName) candidate).getPreBinding() == result[count - 1]) {
+        				continue;
+        			}
+        			IBinding binding= getCandidateBinding(candidate, lookup);
+        			if (binding != null)
+        				result[count++]= binding;
         		}
 	        } else {
-	        	result = addCandidate(obj, lookup, result);
+	        	IBinding binding= getCandidateBinding(obj, lookup);
+	        	if (binding != null)
+	        		result= new IBinding[] { binding };
 	        }
 	    }
 	    return ArrayUtil.trim(result);
@@ -284,36 +297,34 @@ abstract public class CPPScope implements ICPPASTInternalScope {
 		}
 	}
 
-	private IBinding[] addCandidate(Object candidate, ScopeLookupData lookup, IBinding[] result) {
+	private IBinding getCandidateBinding(Object candidate, ScopeLookupData lookup) {
 		final IASTNode point = lookup.getLookupPoint();
 		if (!lookup.isIgnorePointOfDeclaration()) {
 			IASTTranslationUnit tu= point.getTranslationUnit();
 			if (!CPPSemantics.declaredBefore(candidate, point, tu != null && tu.getIndex() != null)) {
 				if (!isInsideClassScope(this) || !LookupData.checkWholeClassScope(lookup.getLookupName()))
-					return result;
+					return null;
 			}
 		}
 
-		IBinding binding;
 		if (candidate instanceof IASTName) {
 			final IASTName candName= (IASTName) candidate;
-			IASTName simpleName= candName.getLastName();
-			if (simpleName instanceof ICPPASTTemplateId) {
-				simpleName= ((ICPPASTTemplateId) simpleName).getTemplateName();
-			}
+			IASTName simpleName= getSimpleName(candName);
 			if (lookup.isResolve() && candName != point && simpleName != point) {
 				candName.resolvePreBinding();  // Make sure to resolve the template-id
-				binding = simpleName.resolvePreBinding();
-			} else {
-				binding = simpleName.getPreBinding();
+				return simpleName.resolvePreBinding();
 			}
-		} else {
-			binding= (IBinding) candidate;
+			return simpleName.getPreBinding();
 		}
+		return (IBinding) candidate;
+	}
 
-		if (binding != null)
-			result = ArrayUtil.append(result, binding);
-		return result;
+	private static IASTName getSimpleName(IASTName candName) {
+		IASTName simpleName= candName.getLastName();
+		if (simpleName instanceof ICPPASTTemplateId) {
+			simpleName= ((ICPPASTTemplateId) simpleName).getTemplateName();
+		}
+		return simpleName;
 	}
 
 	@Override
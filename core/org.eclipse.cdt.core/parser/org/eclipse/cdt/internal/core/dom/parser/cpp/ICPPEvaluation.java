@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2012, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2012, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -83,12 +83,18 @@ public interface ICPPEvaluation {
 	 * Keeps track of state during a constexpr evaluation.
 	 */
 	public final class ConstexprEvaluationContext {
+		/**
+		 * System property for changing the maximum number of steps of a constexpr evaluation.
+		 */
+		public static final String MAX_STEPS_PROPERTY = "org.eclipse.cdt.core.parser.constexprEvaluationSteps"; //$NON-NLS-1$
+
 		/**
 		 * The maximum number of steps allowed in a single constexpr evaluation.
 		 * This is used to prevent a buggy constexpr function from causing the
-		 * IDE to hang.
+		 * IDE to hang. When the limit is reached the evaluation is abandoned
+		 * and the result is incomplete.
 		 */
-		public static final int MAX_CONSTEXPR_EVALUATION_STEPS = 1024;
+		public static final int MAX_CONSTEXPR_EVALUATION_STEPS = Integer.getInteger(MAX_STEPS_PROPERTY, 1024);
 
 		private int fStepsPerformed;
 
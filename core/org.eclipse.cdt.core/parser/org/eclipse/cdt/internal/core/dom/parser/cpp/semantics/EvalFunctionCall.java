@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2012, 2016 Wind River Systems, Inc. and others.
+ * Copyright (c) 2012, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,6 +19,7 @@ import static org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.SemanticUti
 import static org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.SemanticUtil.TDEF;
 
 import java.util.Arrays;
+import java.util.Map;
 
 import org.eclipse.cdt.core.dom.ast.IASTExpression.ValueCategory;
 import org.eclipse.cdt.core.dom.ast.IASTNode;
@@ -36,9 +37,12 @@ import org.eclipse.cdt.core.dom.ast.cpp.ICPPReferenceType;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPSpecialization;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateInstance;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateParameterMap;
+import org.eclipse.cdt.core.parser.util.CharArrayUtils;
 import org.eclipse.cdt.internal.core.dom.parser.CompositeValue;
 import org.eclipse.cdt.internal.core.dom.parser.DependentValue;
 import org.eclipse.cdt.internal.core.dom.parser.ITypeMarshalBuffer;
+import org.eclipse.cdt.internal.core.dom.parser.IntegralValue;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPASTTranslationUnit;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPFunction;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.ICPPEvaluation;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.ICPPExecution;
@@ -306,6 +310,29 @@ public final class EvalFunctionCall extends CPPDependentEvaluation {
 		if (!function.isConstexpr())
 			return EvalFixed.INCOMPLETE;
 
+		Map<Object, ICPPEvaluation> cache = null;
+		CallKey key = null;
+		if (getImplicitThis() == null && areAllFixed(fArguments, 1)) {
+			IASTNode point = CPPSemantics.getCurrentLookupPoint();
+			if (point != null && point.getTranslationUnit() instanceof CPPASTTranslationUnit) {
+				cache = ((CPPASTTranslationUnit) point.getTranslationUnit()).getConstexprCallCache();
+				key = CallKey.create(function, fArguments);
+			}
+		}
+		if (key != null) {
+			ICPPEvaluation result = cache.get(key);
+			if (result != null)
+				return copyOf(result);
+			result = computeFunctionBody(function, context);
+			if (isReusable(result)) {
+				cache.put(key, copyOf(result));
+			}
+			return result;
+		}
+		return computeFunctionBody(function, context);
+	}
+
+	private ICPPEvaluation computeFunctionBody(ICPPFunction function, ConstexprEvaluationContext context) {
 		ActivationRecord record = createActivationRecord(function.getParameters(), fArguments, 
 				getImplicitThis());
 		ICPPExecution bodyExec = CPPFunction.getFunctionBodyExecution(function);
@@ -346,6 +373,76 @@ public final class EvalFunctionCall extends CPPDependentEvaluation {
 		return EvalFixed.INCOMPLETE;
 	}
 
+	private static boolean areAllFixed(ICPPEvaluation[] evaluations, int from) {
+		for (int i = from; i < evaluations.length; i++) {
+			if (!(evaluations[i] instanceof EvalFixed))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether the result of a call is a value that does not depend on the activation
+	 * record of the call.
+	 */
+	private static boolean isReusable(ICPPEvaluation result) {
+		if (result == EvalFixed.INCOMPLETE || result instanceof EvalReference
+				|| result instanceof EvalCompositeAccess || result.isValueDependent()) {
+			return false;
+		}
+		return result.getValue() != IntegralValue.UNKNOWN;
+	}
+
+	/**
+	 * Values of constexpr evaluations may be modified in place, cached results are copied.
+	 */
+	private static ICPPEvaluation copyOf(ICPPEvaluation eval) {
+		return new EvalFixed(eval.getType(), eval.getValueCategory(), eval.getValue().clone());
+	}
+
+	/**
+	 * Identifies a call of a constexpr function by the function and the signatures of the
+	 * argument values. A call of a constexpr function with constant arguments has no side
+	 * effects, the result can be reused for identical calls.
+	 */
+	private static final class CallKey {
+		private final ICPPFunction fFunction;
+		private final char[] fArgumentSignature;
+
+		private CallKey(ICPPFunction function, char[] argumentSignature) {
+			fFunction = function;
+			fArgumentSignature = argumentSignature;
+		}
+
+		static CallKey create(ICPPFunction function, ICPPEvaluation[] arguments) {
+			SignatureBuilder builder = new SignatureBuilder();
+			try {
+				for (int i = 1; i < arguments.length; i++) {
+					builder.marshalEvaluation(arguments[i], true);
+				}
+			} catch (CoreException e) {
+				return null;
+			}
+			return new CallKey(function, builder.getSignature());
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * fFunction.hashCode() + CharArrayUtils.hash(fArgumentSignature);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof CallKey))
+				return false;
+			CallKey other = (CallKey) obj;
+			return fFunction.equals(other.fFunction)
+					&& CharArrayUtils.equals(fArgumentSignature, other.fArgumentSignature);
+		}
+	}
+
 	private ICPPFunction resolveFunctionBinding() {
 		ICPPFunction function = getOverload();
 		if (function == null) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,12 +18,19 @@ package org.eclipse.cdt.internal.core.index;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import org.eclipse.cdt.core.CCorePlugin;
@@ -41,6 +48,7 @@ import org.eclipse.cdt.core.index.IIndexFileSet;
 import org.eclipse.cdt.core.index.IIndexInclude;
 import org.eclipse.cdt.core.index.IIndexMacro;
 import org.eclipse.cdt.core.index.IIndexName;
+import org.eclipse.cdt.core.index.IIndexNameVisitor;
 import org.eclipse.cdt.core.index.IndexFilter;
 import org.eclipse.cdt.core.parser.ISignificantMacros;
 import org.eclipse.cdt.internal.core.dom.Linkage;
@@ -60,10 +68,27 @@ public class CIndex implements IIndex {
 	 */
 	private static final boolean SPECIALCASE_SINGLES = true;
 
+	/**
+	 * Maximum number of threads used for querying the fragments of indexes in parallel.
+	 */
+	private static final int MAX_QUERY_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
+	private static final ThreadPoolExecutor sQueryExecutor = createQueryExecutor();
+
 	private final IIndexFragment[] fFragments;
 	private int fReadLock;
 	private ICompositesFactory cppCF, cCF, fCF;
 
+	private static ThreadPoolExecutor createQueryExecutor() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_QUERY_THREADS, MAX_QUERY_THREADS,
+				10, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), runnable -> {
+					Thread thread = new Thread(runnable, "Index query"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
 	/**
 	 * Creates an index consisting of one or more fragments.
 	 * 
@@ -107,20 +132,13 @@ public class CIndex implements IIndex {
 		} else {
 			List<IIndexBinding[]> result = new ArrayList<>();
 			ILinkage[] linkages = Linkage.getIndexerLinkages();
+			SubMonitor progress = SubMonitor.convert(monitor, linkages.length);
 			for (ILinkage linkage : linkages) {
 				if (filter.acceptLinkage(linkage)) {
-					IIndexFragmentBinding[][] fragmentBindings = new IIndexFragmentBinding[fFragments.length][];
-					for (int i = 0; i < fFragments.length; i++) {
-						try {
-							IBinding[] part = fFragments[i].findBindings(patterns, isFullyQualified,
-									retargetFilter(linkage, filter), monitor);
-							fragmentBindings[i] = new IIndexFragmentBinding[part.length];
-							System.arraycopy(part, 0, fragmentBindings[i], 0, part.length);
-						} catch (CoreException e) {
-							CCorePlugin.log(e);
-							fragmentBindings[i] = IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
-						}
-					}
+					final int linkageID = linkage.getLinkageID();
+					IIndexFragmentBinding[][] fragmentBindings = findBindingsInFragments(filter,
+							progress.newChild(1), (fragment, fragmentMonitor) -> fragment.findBindings(patterns,
+									isFullyQualified, IndexFilter.getFilter(linkageID), fragmentMonitor));
 					ICompositesFactory factory = getCompositesFactory(linkage.getLinkageID());
 					result.add(factory.getCompositeBindings(fragmentBindings));
 				}
@@ -137,20 +155,13 @@ public class CIndex implements IIndex {
 		} else {
 			List<IIndexBinding[]> result = new ArrayList<>();
 			ILinkage[] linkages = Linkage.getIndexerLinkages();
+			SubMonitor progress = SubMonitor.convert(monitor, linkages.length);
 			for (ILinkage linkage : linkages) {
 				if (filter.acceptLinkage(linkage)) {
-					IIndexFragmentBinding[][] fragmentBindings = new IIndexFragmentBinding[fFragments.length][];
-					for (int i = 0; i < fFragments.length; i++) {
-						try {
-							IBinding[] part = fFragments[i].findMacroContainers(pattern,
-									retargetFilter(linkage, filter), monitor);
-							fragmentBindings[i] = new IIndexFragmentBinding[part.length];
-							System.arraycopy(part, 0, fragmentBindings[i], 0, part.length);
-						} catch (CoreException e) {
-							CCorePlugin.log(e);
-							fragmentBindings[i] = IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
-						}
-					}
+					final int linkageID = linkage.getLinkageID();
+					IIndexFragmentBinding[][] fragmentBindings = findBindingsInFragments(filter,
+							progress.newChild(1), (fragment, fragmentMonitor) -> fragment.findMacroContainers(
+									pattern, IndexFilter.getFilter(linkageID), fragmentMonitor));
 					ICompositesFactory factory = getCompositesFactory(linkage.getLinkageID());
 					result.add(factory.getCompositeBindings(fragmentBindings));
 				}
@@ -161,18 +172,24 @@ public class CIndex implements IIndex {
 
 	@Override
 	public IIndexName[] findNames(IBinding binding, int flags) throws CoreException {
-		ArrayList<IIndexFragmentName> result= new ArrayList<>();
+		ArrayList<IIndexName> result= new ArrayList<>();
+		findNames(binding, flags, result::add);
+		return result.toArray(new IIndexName[result.size()]);
+	}
+
+	@Override
+	public boolean findNames(IBinding binding, int flags, IIndexNameVisitor visitor) throws CoreException {
 		if (binding instanceof ICPPUsingDeclaration) {
 			IBinding[] bindings= ((ICPPUsingDeclaration) binding).getDelegates();
 			if (bindings == null || bindings.length == 0) {
-				return IIndexName.EMPTY_ARRAY;
+				return true;
 			}
 			if (bindings.length > 1) {
-				ArrayList<IIndexName> multi= new ArrayList<>();
 				for (IBinding b : bindings) {
-					multi.addAll(Arrays.asList(findNames(b, flags)));
+					if (!findNames(b, flags, visitor))
+						return false;
 				}
-				return multi.toArray(new IIndexName[multi.size()]);
+				return true;
 			}
 			binding= bindings[0];
 		}
@@ -186,25 +203,21 @@ public class CIndex implements IIndex {
 		HashSet<NameKey> encounteredNames = new HashSet<>();
 		for (IIndexFragment fragment : fFragments) {
 			if (fragment instanceof IWritableIndexFragment) {
-				final IIndexFragmentName[] names = fragment.findNames(binding, flags);
-				for (IIndexFragmentName name : names) {
-					if (encounteredNames.add(new NameKey(name, true))) {
-						result.add(name);
-					}
-				}
+				boolean proceed= fragment.findNames(binding, flags, name ->
+						!encounteredNames.add(new NameKey((IIndexFragmentName) name, true)) || visitor.visit(name));
+				if (!proceed)
+					return false;
 			}
 		}
 		for (IIndexFragment fragment : fFragments) {
 			if (!(fragment instanceof IWritableIndexFragment)) {
-				final IIndexFragmentName[] names = fragment.findNames(binding, flags);
-				for (IIndexFragmentName name : names) {
-					if (encounteredNames.add(new NameKey(name, false))) {
-						result.add(name);
-					}
-				}
+				boolean proceed= fragment.findNames(binding, flags, name ->
+						!encounteredNames.add(new NameKey((IIndexFragmentName) name, false)) || visitor.visit(name));
+				if (!proceed)
+					return false;
 			}
 		}
-		return result.toArray(new IIndexName[result.size()]);
+		return true;
 	}
 
 	@Override
@@ -438,6 +451,15 @@ public class CIndex implements IIndex {
 		return result;
 	}
 
+	@Override
+	public long getModificationCount() {
+		long result= 0;
+		for (IIndexFragment fragment : fFragments) {
+			result+= fragment.getModificationCount();
+		}
+		return result;
+	}
+
 	@Override
 	public IIndexBinding[] findBindings(char[][] names, IndexFilter filter, IProgressMonitor monitor)
 			throws CoreException {
@@ -508,6 +530,171 @@ public class CIndex implements IIndex {
 	 * Non-API
 	 */
 
+	/**
+	 * A query that is run on each of the fragments of the index.
+	 */
+	private interface FragmentQuery<T> {
+		T run(IIndexFragment fragment, IProgressMonitor monitor) throws CoreException;
+	}
+
+	/**
+	 * Progress monitor for a query run on a thread of the pool. Progress monitors are not
+	 * thread-safe, so only the cancellation of the monitor of the caller is forwarded.
+	 */
+	private static class FragmentMonitor extends NullProgressMonitor {
+		private final IProgressMonitor fParent;
+
+		FragmentMonitor(IProgressMonitor parent) {
+			fParent= parent;
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return super.isCanceled() || fParent.isCanceled();
+		}
+	}
+
+	/**
+	 * Runs a query on each of the fragments. When there are multiple fragments they are queried
+	 * in parallel, each one under its own read lock and with its own progress monitor. The calling
+	 * thread must hold the read lock on this index and takes part in running the queries, such
+	 * that they complete even when all threads of the pool are busy. Progress is reported by the
+	 * calling thread, one unit of work per fragment.
+	 * <p>
+	 * Queries run on the pool must not depend on the state of the calling thread, e.g. on the AST
+	 * being resolved, and must not share mutable inputs with each other.
+	 *
+	 * @param result an array with one element per fragment
+	 * @return the result array with the result of the query for the i-th fragment at index i,
+	 *     independent of the order in which the queries have completed.
+	 * @throws CoreException the first exception thrown by a query, in the order of the fragments
+	 */
+	private <T> T[] queryFragments(T[] result, IProgressMonitor monitor, FragmentQuery<T> query)
+			throws CoreException {
+		SubMonitor progress= SubMonitor.convert(monitor, fFragments.length);
+		if (fFragments.length == 1) {
+			result[0]= query.run(fFragments[0], progress.newChild(1));
+			return result;
+		}
+
+		List<FutureTask<T>> tasks= new ArrayList<>(fFragments.length);
+		for (IIndexFragment fragment : fFragments) {
+			final IProgressMonitor fragmentMonitor= SubMonitor.convert(new FragmentMonitor(progress));
+			FutureTask<T> task= new FutureTask<>(() -> {
+				fragment.acquireReadLock();
+				try {
+					return query.run(fragment, fragmentMonitor);
+				} finally {
+					fragment.releaseReadLock();
+				}
+			});
+			tasks.add(task);
+		}
+		for (int i = 1; i < tasks.size(); i++) {
+			try {
+				sQueryExecutor.execute(tasks.get(i));
+			} catch (RejectedExecutionException e) {
+				// The task is run by the calling thread.
+			}
+		}
+		// Run the tasks that have not been started by a pool thread, yet.
+		for (FutureTask<T> task : tasks) {
+			task.run();
+		}
+		boolean interrupted= false;
+		try {
+			for (int i = 0; i < result.length; i++) {
+				while (true) {
+					try {
+						result[i]= tasks.get(i).get();
+						break;
+					} catch (InterruptedException e) {
+						interrupted= true;
+					}
+				}
+				progress.worked(1);
+			}
+		} catch (ExecutionException e) {
+			Throwable cause= e.getCause();
+			if (cause instanceof CoreException)
+				throw (CoreException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new CoreException(CCorePlugin.createStatus(cause.getMessage(), cause));
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Runs a query for the bindings of one linkage on each of the fragments, see
+	 * {@link #queryFragments}. The query must select the bindings by linkage only, the bindings
+	 * are checked against the filter afterwards by the calling thread. Failures are logged and
+	 * result in an empty array for the fragment.
+	 */
+	private IIndexFragmentBinding[][] findBindingsInFragments(IndexFilter filter, IProgressMonitor monitor,
+			FragmentQuery<IBinding[]> query) throws CoreException {
+		IIndexFragmentBinding[][] result= queryFragments(new IIndexFragmentBinding[fFragments.length][],
+				monitor, (fragment, fragmentMonitor) -> {
+			try {
+				IBinding[] part = query.run(fragment, fragmentMonitor);
+				IIndexFragmentBinding[] bindings = new IIndexFragmentBinding[part.length];
+				System.arraycopy(part, 0, bindings, 0, part.length);
+				return bindings;
+			} catch (CoreException e) {
+				CCorePlugin.log(e);
+				return IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
+			}
+		});
+		for (int i = 0; i < result.length; i++) {
+			try {
+				List<IIndexFragmentBinding> accepted= new ArrayList<>(result[i].length);
+				for (IIndexFragmentBinding binding : result[i]) {
+					if (filter.acceptBinding(binding)) {
+						accepted.add(binding);
+					}
+				}
+				if (accepted.size() < result[i].length) {
+					result[i]= accepted.toArray(new IIndexFragmentBinding[accepted.size()]);
+				}
+			} catch (CoreException e) {
+				CCorePlugin.log(e);
+				result[i]= IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the IDs of the linkages accepted by the filter.
+	 */
+	private static BitSet getAcceptedLinkages(IndexFilter filter) {
+		BitSet result= new BitSet();
+		for (ILinkage linkage : Linkage.getIndexerLinkages()) {
+			if (filter.acceptLinkage(linkage)) {
+				result.set(linkage.getLinkageID());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a filter that accepts the linkages with the given IDs and all bindings.
+	 */
+	private static IndexFilter getLinkageFilter(final BitSet linkageIDs) {
+		return new IndexFilter() {
+			@Override
+			public boolean acceptLinkage(ILinkage linkage) {
+				return linkageIDs.get(linkage.getLinkageID());
+			}
+		};
+	}
+
 	private IIndexBinding[] flatten(List<IIndexBinding[]> bindingArrays) {
 		int size = 0;
 		for (int i = 0; i<bindingArrays.size(); i++) {
@@ -584,20 +771,13 @@ public class CIndex implements IIndex {
 		} else {
 			List<IIndexBinding[]> result = new ArrayList<>();
 			ILinkage[] linkages = Linkage.getIndexerLinkages();
+			SubMonitor progress = SubMonitor.convert(monitor, linkages.length);
 			for (ILinkage linkage : linkages) {
 				if (filter.acceptLinkage(linkage)) {
-					IIndexFragmentBinding[][] fragmentBindings = new IIndexFragmentBinding[fFragments.length][];
-					for (int i = 0; i < fFragments.length; i++) {
-						try {
-							IBinding[] part = fFragments[i].findBindingsForPrefix(prefix, filescope,
-									retargetFilter(linkage, filter), monitor);
-							fragmentBindings[i] = new IIndexFragmentBinding[part.length];
-							System.arraycopy(part, 0, fragmentBindings[i], 0, part.length);
-						} catch (CoreException e) {
-							CCorePlugin.log(e);
-							fragmentBindings[i] = IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
-						}
-					}
+					final int linkageID = linkage.getLinkageID();
+					IIndexFragmentBinding[][] fragmentBindings = findBindingsInFragments(filter,
+							progress.newChild(1), (fragment, fragmentMonitor) -> fragment.findBindingsForPrefix(
+									prefix, filescope, IndexFilter.getFilter(linkageID), fragmentMonitor));
 					ICompositesFactory factory = getCompositesFactory(linkage.getLinkageID());
 					result.add(factory.getCompositeBindings(fragmentBindings));
 				}
@@ -688,11 +868,27 @@ public class CIndex implements IIndex {
 		HashSet<IIndexFileLocation> handledIFLs= new HashSet<>();
 		SubMonitor loopMonitor =
 				SubMonitor.convert(monitor, Messages.CIndex_FindBindingsTask_label, fFragments.length);
-		for (IIndexFragment fragment : fFragments) {
+		IIndexMacro[][] fragmentMacros= null;
+		if (isPrefix && fFragments.length > 1) {
+			final BitSet linkageIDs= getAcceptedLinkages(filter);
+			fragmentMacros= queryFragments(new IIndexMacro[fFragments.length][], loopMonitor,
+					(fragment, fragmentMonitor) -> {
+						try {
+							return fragment.findMacros(name, isPrefix, caseSensitive,
+									getLinkageFilter(linkageIDs), fragmentMonitor);
+						} catch (CoreException e) {
+							CCorePlugin.log(e);
+							return null;
+						}
+					});
+		}
+		for (int i = 0; i < fFragments.length; i++) {
 			HashSet<IIndexFile> allowedFiles= new HashSet<>();
 			try {
-				IIndexMacro[] macros=
-						fragment.findMacros(name, isPrefix, caseSensitive, filter, loopMonitor.newChild(1));
+				IIndexMacro[] macros= fragmentMacros != null ? fragmentMacros[i] :
+						fFragments[i].findMacros(name, isPrefix, caseSensitive, filter, loopMonitor.newChild(1));
+				if (macros == null)
+					continue;
 				for (IIndexMacro indexMacro : macros) {
 					IIndexFile file= indexMacro.getFile();
 					if (!allowedFiles.contains(file)) {
@@ -728,6 +924,22 @@ public class CIndex implements IIndex {
 		return result;
 	}
 
+	public long getResultCacheHits() {
+		long result= 0;
+		for (IIndexFragment fragment : fFragments) {
+			result += fragment.getResultCacheHits();
+		}
+		return result;
+	}
+
+	public long getResultCacheMisses() {
+		long result= 0;
+		for (IIndexFragment fragment : fFragments) {
+			result += fragment.getResultCacheMisses();
+		}
+		return result;
+	}
+
 	public void resetCacheCounters() {
 		for (IIndexFragment fragment : fFragments) {
 			fragment.resetCacheCounters();
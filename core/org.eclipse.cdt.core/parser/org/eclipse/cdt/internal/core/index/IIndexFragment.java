@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,6 +22,7 @@ import org.eclipse.cdt.core.index.IIndex;
 import org.eclipse.cdt.core.index.IIndexFileLocation;
 import org.eclipse.cdt.core.index.IIndexLinkage;
 import org.eclipse.cdt.core.index.IIndexMacro;
+import org.eclipse.cdt.core.index.IIndexNameVisitor;
 import org.eclipse.cdt.core.index.IndexFilter;
 import org.eclipse.cdt.core.parser.ISignificantMacros;
 import org.eclipse.core.runtime.CoreException;
@@ -63,6 +64,12 @@ public interface IIndexFragment {
 	final int FIND_ALL_OCCURRENCES = IIndex.FIND_ALL_OCCURRENCES;
 
 	final int FIND_NON_LOCAL_ONLY= 0x10000;
+	/**
+	 * Restricts the references found to the names that specify a base class, see
+	 * {@link org.eclipse.cdt.core.index.IIndexName#isBaseSpecifier()}. Fragments that cannot
+	 * look them up directly may return other references, too.
+	 */
+	final int FIND_BASE_SPECIFIERS_ONLY= 0x20000;
 	/**
 	 * Property key for the fragment ID. The fragment ID should uniquely identify the fragments
 	 * usage within a logical index.
@@ -214,12 +221,26 @@ public interface IIndexFragment {
 	 * references, declarations or definitions, or a combination of those.
 	 * @param binding a binding for which names are searched for
 	 * @param flags a combination of {@link #FIND_DECLARATIONS}, {@link #FIND_DEFINITIONS},
-	 *     {@link #FIND_REFERENCES}, {@link #FIND_NON_LOCAL_ONLY}, and {@link #FIND_POTENTIAL_MATCHES}.
+	 *     {@link #FIND_REFERENCES}, {@link #FIND_NON_LOCAL_ONLY}, {@link #FIND_BASE_SPECIFIERS_ONLY}
+	 *     and {@link #FIND_POTENTIAL_MATCHES}.
 	 * @return an array of names
 	 * @throws CoreException
 	 */
 	IIndexFragmentName[] findNames(IBinding binding, int flags) throws CoreException;
 
+	/**
+	 * Passes the names that resolve to the given binding to a visitor, see
+	 * {@link #findNames(IBinding, int)}. The visitor is called with fragment names.
+	 * @return {@code false} if the visitor stopped the search, {@code true} otherwise
+	 */
+	default boolean findNames(IBinding binding, int flags, IIndexNameVisitor visitor) throws CoreException {
+		for (IIndexFragmentName name : findNames(binding, flags)) {
+			if (!visitor.visit(name))
+				return false;
+		}
+		return true;
+	}
+
 	/**
 	 * Acquires a read lock.
 	 * @throws InterruptedException
@@ -241,6 +262,11 @@ public interface IIndexFragment {
 	 */
 	long getLastWriteAccess();
 
+	/**
+	 * Returns the number of modifications made to the index.
+	 */
+	long getModificationCount();
+
 	/**
 	 * Returns all bindings with the given name, accepted by the given filter
 	 * @param monitor to report progress, may be <code>null</code>
@@ -303,6 +329,16 @@ public interface IIndexFragment {
 	 */
 	long getCacheMisses();
 
+	/**
+	 * Returns hits of the result cache since last reset of counters.
+	 */
+	long getResultCacheHits();
+
+	/**
+	 * Returns misses of the result cache since last reset of counters.
+	 */
+	long getResultCacheMisses();
+
 	/**
 	 * Creates an empty file set for this fragment
 	 * @since 5.0
@@ -327,7 +363,8 @@ public interface IIndexFragment {
 	/**
 	 * Caches an object with the key, the cache must be cleared at latest when the fragment no
 	 * longer holds a locks.
-	 * @param replace if <code>false</code> an existing entry will not be replaced.
+	 * @param replace if <code>false</code> an existing entry will not be replaced. Such entries
+	 *     are shared by identity, they are kept until the cache is cleared.
 	 * @return the value that is actually stored.
 	 */
 	Object putCachedResult(Object key, Object value, boolean replace);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -138,6 +138,19 @@ public interface IWritableIndex extends IIndex {
 	 * @param flushDatabase when true the changes are flushed to disk.
 	 */
 	void releaseWriteLock(boolean flushDatabase);
+
+	/**
+	 * Starts a batch of changes. Until the batch is ended, releasing the write lock does not
+	 * flush the changes to disk, they are committed at once by the next flush after the batch.
+	 * Batches may be nested. Has no effect unless the database is journaled, which is enabled
+	 * with the system property {@link org.eclipse.cdt.internal.core.pdom.db.Database#JOURNAL_PROPERTY}.
+	 */
+	void beginBatch();
+
+	/**
+	 * Ends a batch of changes started with {@link #beginBatch()}.
+	 */
+	void endBatch();
 	
 	/**
 	 * Resets the counters for cache-hits
@@ -154,6 +167,16 @@ public interface IWritableIndex extends IIndex {
 	 */
 	long getCacheMisses();
 
+	/**
+	 * Returns hits of the result cache since last reset of counters.
+	 */
+	long getResultCacheHits();
+
+	/**
+	 * Returns misses of the result cache since last reset of counters.
+	 */
+	long getResultCacheMisses();
+
 	/**
 	 * Returns the primary writable fragment, or <code>null</code> if there is 
 	 * no writable fragment.
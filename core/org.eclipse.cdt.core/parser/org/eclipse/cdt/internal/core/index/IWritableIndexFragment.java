@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -95,6 +95,18 @@ public interface IWritableIndexFragment extends IIndexFragment {
 	 */
 	void releaseWriteLock(int establishReadLockCount, boolean flush);
 
+	/**
+	 * Starts a batch of changes. Until the batch is ended, releasing the write lock does not
+	 * flush the changes to disk. Batches may be nested. Has no effect unless the database
+	 * is journaled, see {@link org.eclipse.cdt.internal.core.pdom.db.Database#JOURNAL_PROPERTY}.
+	 */
+	void beginBatch();
+
+	/**
+	 * Ends a batch of changes, the changes are flushed to disk with the next flush.
+	 */
+	void endBatch();
+
 	/**
 	 * Write the key, value mapping to the fragment properties. If a mapping for the
 	 * same key already exists, it is overwritten.
@@ -114,4 +126,16 @@ public interface IWritableIndexFragment extends IIndexFragment {
 	 * @return the size of the database in bytes
 	 */
 	long getDatabaseSizeBytes();
+
+	/**
+	 * Returns the total time in milliseconds threads have been waiting for a read lock on
+	 * this fragment.
+	 */
+	long getReadLockWaitTime();
+
+	/**
+	 * Returns the total time in milliseconds threads have been waiting for a write lock on
+	 * this fragment.
+	 */
+	long getWriteLockWaitTime();
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -145,6 +145,16 @@ public class WritableCIndex extends CIndex implements IWritableIndex {
 		}
 	}
 
+	@Override
+	public void beginBatch() {
+		getWritableFragment().beginBatch();
+	}
+
+	@Override
+	public void endBatch() {
+		getWritableFragment().endBatch();
+	}
+
 	private void checkThread() {
 		if (fThread == null) {
 			fThread= Thread.currentThread();
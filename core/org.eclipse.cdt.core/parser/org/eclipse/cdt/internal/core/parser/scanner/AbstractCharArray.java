@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2013 Wind River Systems, Inc. and others.
+ * Copyright (c) 2009, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -53,6 +53,24 @@ public abstract class AbstractCharArray {
 	 */
 	public abstract void arraycopy(int offset, char[] destination, int destinationPos, int length);
 
+	/**
+	 * Returns an array holding the characters of the chunk that contains the given offset, or
+	 * {@code null} if the characters are not available as an array. Allows for scanning runs of
+	 * characters without calling {@link #get(int)} for each of them. The array must not be modified.
+	 * @see #getChunkOffset(int)
+	 */
+	public char[] getChunk(int offset) {
+		return null;
+	}
+
+	/**
+	 * Returns the offset of the first character of the chunk that contains the given offset.
+	 * @see #getChunk(int)
+	 */
+	public int getChunkOffset(int offset) {
+		return 0;
+	}
+
 	/**
 	 * Returns the {@link CharSequence} representing a range in the character array.
 	 */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2015 IBM Corporation and others.
+ * Copyright (c) 2004, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -289,6 +289,8 @@ public class CPreprocessor implements ILexerLog, IScanner, IAdaptable {
 
 	private Token fPrefetchedTokens;
     private Token fLastToken;
+    // Images of the identifiers passed to the parser, shared by the names of the AST
+    private final CharArraySet fIdentifierImages= new CharArraySet(1024);
 
 	private InternalFileContent fRootContent;
 	private boolean fHandledEndOfTranslationUnit;
@@ -332,7 +334,8 @@ public class CPreprocessor implements ILexerLog, IScanner, IAdaptable {
 
         fExpressionEvaluator= new ExpressionEvaluator(this);
         fMacroDefinitionParser= new MacroDefinitionParser();
-        fMacroExpander= new MacroExpander(this, fMacroDictionary, fLocationMap, fLexOptions);
+        fMacroExpander= new MacroExpander(this, fMacroDictionary, fLocationMap, fLexOptions,
+        		fLocationMap.getMacroExpansionCache());
         fIncludeFileResolutionHeuristics= fFileContentProvider.getIncludeHeuristics();
 
         String contextPath= fFileContentProvider.getContextPath();
@@ -354,7 +357,7 @@ public class CPreprocessor implements ILexerLog, IScanner, IAdaptable {
     
 	private char[] detectIncludeGuard(String filePath, AbstractCharArray source, ScannerContext ctx) {
 		if (!fFileContentProvider.shouldIndexAllHeaderVersions(filePath)) {
-			final char[] guard = IncludeGuardDetection.detectIncludeGuard(source, fLexOptions, fPPKeywords);
+			final char[] guard = IncludeGuardDetection.detectIncludeGuardCached(source, fLexOptions, fPPKeywords);
 			if (guard != null) {
 				IFileNomination nom= fLocationMap.reportPragmaOnceSemantics(ctx.getLocationCtx());
 				fFileContentProvider.reportPragmaOnceSemantics(filePath, nom);
@@ -780,6 +783,10 @@ public class CPreprocessor implements ILexerLog, IScanner, IAdaptable {
     		fHandledCompletion= true;
     		break;
     		
+    	case IToken.tIDENTIFIER:
+    		shareImage(t1);
+    		break;
+
     	case IToken.t_PRAGMA:
     		handlePragmaOperator(t1);
     		return nextToken();
@@ -871,6 +878,18 @@ public class CPreprocessor implements ILexerLog, IScanner, IAdaptable {
     	return t1;
     }
 
+	/**
+	 * Replaces the image of an identifier with the one of the previous identifier with the same
+	 * name, such that the names created from the tokens do not keep a copy each.
+	 */
+	private void shareImage(Token identifier) {
+		if (identifier instanceof TokenWithImage) {
+			final char[] image= identifier.getCharImage();
+			final int idx= fIdentifierImages.addIndex(image, 0, image.length);
+			((TokenWithImage) identifier).setCharImage(fIdentifierImages.keyAt(idx));
+		}
+	}
+
     @Override
 	public void skipInactiveCode() throws OffsetLimitReachedException {
     	final Lexer lexer= fCurrentContext.getLexer();
@@ -941,6 +960,7 @@ public class CPreprocessor implements ILexerLog, IScanner, IAdaptable {
         			if (fCurrentContext == fRootContext && !fHandledEndOfTranslationUnit 
         					&& (options & STOP_AT_NL) == 0) {
         				fHandledEndOfTranslationUnit= true;
+        				fLocationMap.getMacroExpansionCache().clear();
         				fLocationMap.endTranslationUnit(ppToken.getEndOffset(), fCurrentContext.getSignificantMacros()); 
         			}
         			return ppToken;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2012 Wind River Systems, Inc. and others.
+ * Copyright (c) 2009, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -50,6 +50,11 @@ public final class CharArray extends AbstractCharArray {
 		System.arraycopy(fArray, offset, destination, destPos, length);
 	}
 
+	@Override
+	public char[] getChunk(int offset) {
+		return fArray;
+	}
+
 	@Override
 	public boolean isValidOffset(int offset) {
 		return offset < fArray.length;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2012 Wind River Systems, Inc. and others.
+ * Copyright (c) 2010, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -30,6 +30,13 @@ import org.eclipse.cdt.core.CCorePlugin;
 public class FileCharArray extends LazyCharArray {
 	private static final String UTF8_CHARSET_NAME = "UTF-8"; //$NON-NLS-1$
 
+	/**
+	 * System property for reading large files with ASCII content through a memory-mapped
+	 * buffer, see {@link MappedCharArray}. Note that on some platforms a file cannot be
+	 * changed or deleted while it is mapped.
+	 */
+	public static final String MAPPED_FILES_PROPERTY = "org.eclipse.cdt.core.parser.scanner.mappedFiles"; //$NON-NLS-1$
+
 	public static AbstractCharArray create(String fileName, String charSet, InputStream in)
 			throws IOException {
 		// No support for non-local files.
@@ -45,6 +52,11 @@ public class FileCharArray extends LazyCharArray {
 		if (lsize < CHUNK_SIZE) {
 			return decodeSmallFile(channel, (int) lsize, charSet);
 		}
+		if (Boolean.getBoolean(MAPPED_FILES_PROPERTY)) {
+			AbstractCharArray mapped= MappedCharArray.create(channel, lsize, charSet);
+			if (mapped != null)
+				return mapped;
+		}
 
 		return new FileCharArray(fileName, charSet);
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2013 Wind River Systems, Inc. and others.
+ * Copyright (c) 2011, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,18 +12,132 @@ package org.eclipse.cdt.internal.core.parser.scanner;
 
 import static org.eclipse.cdt.core.parser.OffsetLimitReachedException.ORIGIN_PREPROCESSOR_DIRECTIVE;
 
+import java.util.Arrays;
+
 import org.eclipse.cdt.core.parser.IPreprocessorDirective;
 import org.eclipse.cdt.core.parser.IToken;
 import org.eclipse.cdt.core.parser.Keywords;
 import org.eclipse.cdt.core.parser.OffsetLimitReachedException;
 import org.eclipse.cdt.core.parser.util.CharArrayIntMap;
 import org.eclipse.cdt.core.parser.util.CharArrayUtils;
+import org.eclipse.cdt.internal.core.parser.util.LRUCache;
 
 /**
  * Helper class for detecting include guards.
  */
 public class IncludeGuardDetection {
 	private static final String ONCE = "once"; //$NON-NLS-1$
+	private static final int MAX_CACHED_RESULTS = 4096;
+	private static final char[] NO_GUARD = {};
+
+	/**
+	 * Results of the detection for files that were scanned before, shared by all translation units.
+	 * Protected by itself.
+	 */
+	private static final LRUCache<ContentKey, char[]> sResults= new LRUCache<>(MAX_CACHED_RESULTS);
+	private static long sHits;
+	private static long sMisses;
+
+	/**
+	 * Identifies the content of a file together with the lexer options and the preprocessor
+	 * keywords that affect the detection.
+	 */
+	private static final class ContentKey {
+		final long fHash;
+		final int fLength;
+		final int fOptions;
+		final int fKeywords;
+
+		ContentKey(AbstractCharArray content, Lexer.LexerOptions lexOptions, CharArrayIntMap ppKeywords) {
+			fHash= content.getContentsHash();
+			fLength= content.getLength();
+			fKeywords= hashKeywords(ppKeywords);
+			int options= 0;
+			if (lexOptions.fSupportDollarInIdentifiers) options |= 1;
+			if (lexOptions.fSupportAtSignInIdentifiers) options |= 2;
+			if (lexOptions.fSupportMinAndMax) options |= 4;
+			if (lexOptions.fSupportSlashPercentComments) options |= 8;
+			if (lexOptions.fSupportUTFLiterals) options |= 16;
+			if (lexOptions.fSupportRawStringLiterals) options |= 32;
+			if (lexOptions.fSupportUserDefinedLiterals) options |= 64;
+			fOptions= options;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (fHash ^ (fHash >>> 32)) + 31 * fLength + fOptions + 17 * fKeywords;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ContentKey))
+				return false;
+			ContentKey other= (ContentKey) obj;
+			return fHash == other.fHash && fLength == other.fLength && fOptions == other.fOptions
+					&& fKeywords == other.fKeywords;
+		}
+
+		/**
+		 * Computes a hash of the keywords and the directives they stand for, independent of the
+		 * order in which they were added to the map.
+		 */
+		private static int hashKeywords(CharArrayIntMap ppKeywords) {
+			final int size= ppKeywords.size();
+			int hash= size;
+			for (int i= 0; i < size; i++) {
+				hash += Arrays.hashCode(ppKeywords.keyAt(i)) * 31 + ppKeywords.get(i);
+			}
+			return hash;
+		}
+	}
+
+	/**
+	 * Same as {@link #detectIncludeGuard(AbstractCharArray, Lexer.LexerOptions, CharArrayIntMap)},
+	 * but reuses the result for content that was scanned before. Saves a pass of the lexer over
+	 * every header that is included again, for example when the next translation unit is parsed.
+	 * The result is reused only for the same lexer options and preprocessor keywords.
+	 */
+	public static char[] detectIncludeGuardCached(AbstractCharArray content, Lexer.LexerOptions lexOptions,
+			CharArrayIntMap ppKeywords) {
+		if (!content.isValidOffset(0))
+			return detectIncludeGuard(content, lexOptions, ppKeywords);
+
+		final ContentKey key= new ContentKey(content, lexOptions, ppKeywords);
+		char[] guard;
+		synchronized (sResults) {
+			guard= sResults.get(key);
+			if (guard != null) {
+				sHits++;
+			} else {
+				sMisses++;
+			}
+		}
+		if (guard == null) {
+			guard= detectIncludeGuard(content, lexOptions, ppKeywords);
+			synchronized (sResults) {
+				sResults.put(key, guard == null ? NO_GUARD : guard);
+			}
+		}
+		return guard == NO_GUARD ? null : guard;
+	}
+
+	/**
+	 * Returns the number of calls to {@link #detectIncludeGuardCached} that reused a cached result.
+	 */
+	public static long getCacheHits() {
+		synchronized (sResults) {
+			return sHits;
+		}
+	}
+
+	/**
+	 * Returns the number of calls to {@link #detectIncludeGuardCached} that had to run the detection.
+	 */
+	public static long getCacheMisses() {
+		synchronized (sResults) {
+			return sMisses;
+		}
+	}
 
 	public static char[] detectIncludeGuard(AbstractCharArray content, Lexer.LexerOptions lexOptions,
 			CharArrayIntMap ppKeywords) {
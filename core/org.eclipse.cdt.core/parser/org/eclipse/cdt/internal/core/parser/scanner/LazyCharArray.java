@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2012 Wind River Systems, Inc. and others.
+ * Copyright (c) 2010, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -105,6 +105,18 @@ public abstract class LazyCharArray extends AbstractCharArray {
 		}
 	}
 
+	@Override
+	public final char[] getChunk(int offset) {
+		Chunk chunk= getChunkForOffset(offset);
+		return chunk != null ? getChunkData(chunk) : null;
+	}
+
+	@Override
+	public final int getChunkOffset(int offset) {
+		Chunk chunk= getChunkForOffset(offset);
+		return chunk != null ? chunk.fCharOffset : 0;
+	}
+
 	private void readAllChunks() {
 		if (fLength < 0) {
 			getChunkForOffset(Integer.MAX_VALUE);
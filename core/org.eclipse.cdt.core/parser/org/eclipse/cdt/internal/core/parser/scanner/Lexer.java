@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2015 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -49,6 +49,38 @@ final public class Lexer implements ITokenSequence {
 	
 	private static final int END_OF_INPUT = -1;
 	private static final int ORIGIN_LEXER = OffsetLimitReachedException.ORIGIN_LEXER;
+
+	// Classes of ASCII characters that can be skipped in runs. None of the characters needs
+	// to be handled by phases 1-3, such that the runs can be scanned in the input directly.
+	private static final byte CC_IDENTIFIER_PART = 1;
+	private static final byte CC_WHITESPACE = 2;
+	private static final byte CC_LINE_COMMENT = 4;
+	private static final byte[] CHAR_CLASSES = new byte[128];
+	static {
+		for (char c= 'a'; c <= 'z'; c++) {
+			CHAR_CLASSES[c] |= CC_IDENTIFIER_PART;
+		}
+		for (char c= 'A'; c <= 'Z'; c++) {
+			CHAR_CLASSES[c] |= CC_IDENTIFIER_PART;
+		}
+		for (char c= '0'; c <= '9'; c++) {
+			CHAR_CLASSES[c] |= CC_IDENTIFIER_PART;
+		}
+		CHAR_CLASSES['_'] |= CC_IDENTIFIER_PART;
+		CHAR_CLASSES[' '] |= CC_WHITESPACE;
+		CHAR_CLASSES['\t'] |= CC_WHITESPACE;
+		CHAR_CLASSES[0xb] |= CC_WHITESPACE;
+		CHAR_CLASSES['\f'] |= CC_WHITESPACE;
+		for (int c= 0; c < CHAR_CLASSES.length; c++) {
+			switch (c) {
+			case '\n': case '\r': case '?': case '\\':
+				break;
+			default:
+				CHAR_CLASSES[c] |= CC_LINE_COMMENT;
+				break;
+			}
+		}
+	}
 	
 	public final static class LexerOptions implements Cloneable {
 		public boolean fSupportDollarInIdentifiers= true;
@@ -82,6 +114,11 @@ final public class Lexer implements ITokenSequence {
 	private final int fStart;
 	private int fLimit;
 
+	// part of the input that is available as an array, see AbstractCharArray.getChunk()
+	private char[] fWindow;
+	private int fWindowOffset;
+	private int fWindowEnd;
+
 	// after phase 3 (newline, trigraph, line-splice)
 	private int fOffset;
 	private int fEndOffset;
@@ -147,6 +184,7 @@ final public class Lexer implements ITokenSequence {
 		fSupportContentAssist= true;
 		if (isValidOffset(offset)) {
 			fLimit= offset;
+			fWindowEnd= 0;
 		}
 		// re-initialize 
 		fOffset= fEndOffset= fStart;
@@ -275,6 +313,9 @@ final public class Lexer implements ITokenSequence {
 			case 0xb:  // vertical tab
 			case '\f': 
 			case '\r':
+				if (isInCharClass(d, CC_WHITESPACE)) {
+					advanceOverRun(CC_WHITESPACE);
+				}
 				continue;
 
 			case 'L':
@@ -707,7 +748,21 @@ final public class Lexer implements ITokenSequence {
 	private void blockComment(final int start, final char trigger) {
 		// We can ignore line-splices, trigraphs and windows newlines when searching for the '*'
 		int pos= fEndOffset;
-		while (isValidOffset(pos)) {
+		while (true) {
+			if (loadWindow(pos)) {
+				final char[] window= fWindow;
+				final int delta= fWindowOffset;
+				final int end= fWindowEnd - delta;
+				int i= pos - delta;
+				while (i < end && window[i] != trigger) {
+					i++;
+				}
+				pos= i + delta;
+				if (i == end)
+					continue;
+			} else if (!isValidOffset(pos)) {
+				break;
+			}
 			if (fInput.get(pos++) == trigger) {
 				fEndOffset= pos;
 				if (nextCharPhase3() == '/') {
@@ -731,7 +786,8 @@ final public class Lexer implements ITokenSequence {
 				fLog.handleComment(false, start, fOffset, fInput);
 				return;
 			}
-			c= nextCharPhase3();
+			advanceOverRun(CC_LINE_COMMENT);
+			c= fCharPhase3;
 		}
 	}
 	
@@ -963,8 +1019,8 @@ final public class Lexer implements ITokenSequence {
         		break;
         	}
         	
-        	length++;
-        	c= nextCharPhase3();
+        	length+= 1 + advanceOverRun(CC_IDENTIFIER_PART);
+        	c= fCharPhase3;
         }
 
         return newToken(tokenKind, start, length);
@@ -1083,6 +1139,23 @@ final public class Lexer implements ITokenSequence {
 	 */
 	private int nextCharPhase3() {
 		int pos= fEndOffset;
+		if (pos + 1 < fWindowEnd && pos >= fWindowOffset) {
+			// Fast path for characters that are not affected by phases 1-3.
+			final char c= fWindow[pos - fWindowOffset];
+			switch (c) {
+			case '\r':
+			case '?':
+			case '\\':
+				break;
+			default:
+				fOffset= pos;
+				fEndOffset= pos + 1;
+				fCharPhase3= c;
+				return c;
+			}
+		} else if (loadWindow(pos) && pos + 1 < fWindowEnd) {
+			return nextCharPhase3();
+		}
 		do {
 			if (!isValidOffset(pos + 1)) {
 				if (!isValidOffset(pos)) {
@@ -1147,6 +1220,59 @@ final public class Lexer implements ITokenSequence {
 		while (true);
 	}
 	
+	/**
+	 * Makes the part of the input that contains the given offset available in {@link #fWindow}.
+	 * Returns {@code false} if the offset is outside of the input or the input cannot provide
+	 * its characters as an array.
+	 */
+	private boolean loadWindow(int pos) {
+		if (pos >= fWindowOffset && pos < fWindowEnd)
+			return true;
+		if (!isValidOffset(pos))
+			return false;
+		final char[] chunk= fInput.getChunk(pos);
+		if (chunk == null)
+			return false;
+		fWindow= chunk;
+		fWindowOffset= fInput.getChunkOffset(pos);
+		fWindowEnd= fWindowOffset + chunk.length;
+		if (fLimit >= 0 && fLimit < fWindowEnd) {
+			fWindowEnd= fLimit;
+		}
+		return pos < fWindowEnd;
+	}
+
+	private static boolean isInCharClass(int c, byte charClass) {
+		return c >= 0 && c < CHAR_CLASSES.length && (CHAR_CLASSES[c] & charClass) != 0;
+	}
+
+	/**
+	 * Advances over the current character and the run of characters of the given class that
+	 * follows it. Returns the number of characters in the run.
+	 */
+	private int advanceOverRun(byte charClass) {
+		final int start= fEndOffset;
+		final boolean acceptNonAscii= charClass == CC_LINE_COMMENT;
+		int pos= start;
+		while (loadWindow(pos)) {
+			final char[] window= fWindow;
+			final int delta= fWindowOffset;
+			final int end= fWindowEnd - delta;
+			int i= pos - delta;
+			for (; i < end; i++) {
+				final char c= window[i];
+				if (c < CHAR_CLASSES.length ? (CHAR_CLASSES[c] & charClass) == 0 : !acceptNonAscii)
+					break;
+			}
+			pos= i + delta;
+			if (i < end)
+				break;
+		}
+		fEndOffset= pos;
+		nextCharPhase3();
+		return pos - start;
+	}
+
 	/**
 	 * Maps a trigraph to the character it encodes.
 	 * @param c trigraph without leading question marks.
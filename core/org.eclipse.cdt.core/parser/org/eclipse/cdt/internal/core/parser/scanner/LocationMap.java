@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -59,6 +59,7 @@ public class LocationMap implements ILocationResolver {
     private ArrayList<ASTComment> fComments= new ArrayList<>();
     private ArrayList<ASTMacroDefinition> fBuiltinMacros= new ArrayList<>();
 	private ArrayList<ASTPreprocessorName> fMacroReferences= new ArrayList<>();
+	private final MacroExpansionCache fMacroExpansionCache= new MacroExpansionCache();
 	
     private LocationCtxFile fRootContext;
     private LocationCtx fCurrentContext;
@@ -79,6 +80,14 @@ public class LocationMap implements ILocationResolver {
 		return fLexerOptions;
 	}
 
+	/**
+	 * Returns the cache used for the macro expansions of the translation unit. After the
+	 * translation unit has been preprocessed, the cache provides the statistics only.
+	 */
+	public MacroExpansionCache getMacroExpansionCache() {
+		return fMacroExpansionCache;
+	}
+
 	public void registerPredefinedMacro(IMacroBinding macro) {
 		registerPredefinedMacro(macro, null, -1);
 	}
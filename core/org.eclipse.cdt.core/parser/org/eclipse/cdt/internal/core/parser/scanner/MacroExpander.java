@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2015 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -36,6 +36,7 @@ public class MacroExpander {
 
 	private static final int ORIGIN = OffsetLimitReachedException.ORIGIN_MACRO_EXPANSION;
 	private static final TokenList EMPTY_TOKEN_LIST = new TokenList();
+	private static final Token[] NO_TOKENS = {};
 
 	/**
 	 * Marks the beginning and the end of the scope of a macro expansion. Necessary to properly
@@ -76,14 +77,31 @@ public class MacroExpander {
 	 */
 	private class TokenSource extends TokenList {
 		private final ITokenSequence fLexer;
+		private IdentityHashMap<Token, Token> fReadAhead;
 
 		public TokenSource(ITokenSequence lexer) {
 			fLexer= lexer;
 		}
 
+		/**
+		 * Appends a token that has been read from the lexer in advance. The end offset of the
+		 * expansion is updated when the token is fetched, as if it was read from the lexer then.
+		 */
+		public void appendReadAhead(Token t) {
+			if (fReadAhead == null) {
+				fReadAhead= new IdentityHashMap<Token, Token>();
+			}
+			fReadAhead.put(t, t);
+			append(t);
+		}
+
 		public Token fetchFirst() throws OffsetLimitReachedException {
 			Token t= removeFirst();
+			if (t != null && fReadAhead != null && fReadAhead.remove(t) != null) {
+				fEndOffset= t.getEndOffset();
+			}
 			if (t == null && fLexer != null) {
+				preventCaching();
 				t= fLexer.currentToken();
 				if (t.getType() != IToken.tEND_OF_INPUT) {
 					fEndOffset= t.getEndOffset();
@@ -111,6 +129,7 @@ public class MacroExpander {
 			}
 
 			if (fLexer != null) {
+				preventCaching();
 				t= fLexer.currentToken();
 				while (t.getType() == Lexer.tNEWLINE) {
 					t= fLexer.nextToken();
@@ -139,13 +158,27 @@ public class MacroExpander {
 	private ScannerContext fReportMacros;
 	private boolean fReportUndefined;
 
+	// for reusing expansions
+	private final MacroExpansionCache fCache;
+	private MacroExpansionCache.Entry fRecording;
+
 	public MacroExpander(ILexerLog log, CharArrayMap<PreprocessorMacro> macroDictionary,
 			LocationMap locationMap, LexerOptions lexOptions) {
+		this(log, macroDictionary, locationMap, lexOptions, null);
+	}
+
+	/**
+	 * Creates a macro expander that reuses the expansions stored in the cache.
+	 * @param cache cache for the expansions or {@code null}.
+	 */
+	public MacroExpander(ILexerLog log, CharArrayMap<PreprocessorMacro> macroDictionary,
+			LocationMap locationMap, LexerOptions lexOptions, MacroExpansionCache cache) {
 		fDictionary= macroDictionary;
 		fLocationMap= locationMap;
 		fDefinitionParser= new MacroDefinitionParser();
 		fLexOptions= lexOptions;
 		fLog= log;
+		fCache= locationMap != null ? cache : null;
 	}
 
 	/**
@@ -176,7 +209,26 @@ public class MacroExpander {
 		TokenSource input= new TokenSource(lexer);
 		TokenList firstExpansion= new TokenList();
 
+		MacroExpansionCache.Entry recording= null;
+		if (fCache != null && !completionMode && !macro.isDynamic()) {
+			final Token[] invocation= macro.isFunctionStyle() ?
+					readInvocation(macro, lexer, input) : NO_TOKENS;
+			if (invocation != null) {
+				final MacroExpansionCache.Entry entry= fCache.get(macro, protectIntrinsics,
+						identifier.getOffset(), invocation, fDictionary);
+				if (entry != null) {
+					TokenList result= replay(entry, identifier);
+					fReportMacros= null;
+					return result;
+				}
+				recording= new MacroExpansionCache.Entry(macro, protectIntrinsics, identifier.getOffset(),
+						invocation);
+				recording.addDependency(macro.getNameCharArray(), macro);
+			}
+		}
+
 		TokenList result;
+		fRecording= recording;
 		try {
 			firstExpansion.append(new ExpansionBoundary(macro, true));
 			expandOne(identifier, macro, forbidden, input, firstExpansion, null);
@@ -192,12 +244,150 @@ public class MacroExpander {
 			// For a better solution one would have to perform the expansion with artificial
 			// parameters and then check where the completion token ends up in the expansion.
 			result= e.getParameterTokens().cloneTokens();
+		} finally {
+			fRecording= null;
+		}
+		// Expansions without nested macros are cheaper to repeat than to look up.
+		if (recording != null && recording.fCacheable && !recording.fImplicitMacros.isEmpty()) {
+			recording.fTokens= result.cloneTokens();
+			for (Token t= recording.fTokens.first(); t != null; t= (Token) t.getNext()) {
+				recording.fTokenCount++;
+			}
+			fCache.put(recording);
 		}
 		postProcessTokens(result);
 		fReportMacros= null;
 		return result;
 	}
 
+	/**
+	 * Consumes the arguments of a function-style macro invocation from the lexer, including the
+	 * parenthesis, and appends them to the input. Returns copies of the tokens, or {@code null}
+	 * when the invocation is not complete. When there are too many arguments, the tokens following
+	 * the first superfluous one are left in the lexer, just like {@link #parseArguments} does.
+	 */
+	private Token[] readInvocation(PreprocessorMacro macro, ITokenSequence lexer, TokenSource input)
+			throws OffsetLimitReachedException {
+		final int argCount= macro.getParameterPlaceholderList().length;
+		final boolean hasVarargs= isVariadic(macro);
+		final ArrayList<Token> result= new ArrayList<Token>();
+		int nesting= 0;
+		int idx= 0;
+		while (true) {
+			final Token t= lexer.currentToken();
+			boolean tooManyArgs= false;
+			switch (t.getType()) {
+			case IToken.tEND_OF_INPUT:
+			case IToken.tCOMPLETION:
+				return null;
+			case Lexer.tNEWLINE:
+				break;
+			case IToken.tLPAREN:
+				tooManyArgs= nesting > 0 && argCount == 0;
+				nesting++;
+				break;
+			case IToken.tRPAREN:
+				if (nesting == 0)
+					return null;
+				nesting--;
+				tooManyArgs= nesting > 0 && argCount == 0;
+				break;
+			case IToken.tCOMMA:
+				if (nesting == 1 && idx < argCount - 1) {
+					idx++;
+					break;
+				}
+				//$FALL-THROUGH$
+			default:
+				if (nesting == 0)
+					return null;
+				tooManyArgs= argCount == 0 || (nesting == 1 && t.getType() == IToken.tCOMMA && !hasVarargs);
+				break;
+			}
+			lexer.nextToken();
+			if (t.getType() != Lexer.tNEWLINE) {
+				input.appendReadAhead(t);
+				if (tooManyArgs)
+					return null;
+				result.add(t.clone());
+				if (nesting == 0)
+					return result.toArray(new Token[result.size()]);
+			}
+		}
+	}
+
+	private static boolean isVariadic(PreprocessorMacro macro) {
+		final char[][] params= macro.getParameterList();
+		if (params == null || params.length == 0)
+			return false;
+		final char[] last= params[params.length - 1];
+		final int elen= Keywords.cpELLIPSIS.length;
+		return last.length >= elen && CharArrayUtils.equals(last, last.length - elen, elen, Keywords.cpELLIPSIS);
+	}
+
+	/**
+	 * Creates the result of an expansion from a cache entry, performs the side effects of the
+	 * original expansion.
+	 */
+	private TokenList replay(MacroExpansionCache.Entry entry, Token identifier) {
+		if (fReportMacros != null) {
+			for (Object macro : entry.fSignificantMacros) {
+				if (macro instanceof PreprocessorMacro) {
+					fReportMacros.significantMacro((PreprocessorMacro) macro);
+				} else if (fReportUndefined) {
+					fReportMacros.significantMacroUndefined((char[]) macro);
+				}
+			}
+		}
+		// Tokens from the arguments are moved to the location of the invocation.
+		final Object source= identifier.fSource;
+		final int delta= identifier.getOffset() - entry.fOffset;
+		for (int i = 0; i < entry.fImplicitMacros.size(); i++) {
+			ImageLocationInfo info= null;
+			if (fLexOptions.fCreateImageLocations) {
+				info= createImageLocationInfo(relocate(entry.fImplicitNames.get(i).clone(), source, delta));
+			}
+			fImplicitMacroExpansions.add(fLocationMap.encounterImplicitMacroExpansion(entry.fImplicitMacros.get(i), info));
+		}
+		final TokenList result= entry.fTokens.cloneTokens();
+		for (Token t= result.first(); t != null; t= (Token) t.getNext()) {
+			relocate(t, source, delta);
+		}
+		postProcessTokens(result);
+		return result;
+	}
+
+	private static Token relocate(Token t, Object source, int delta) {
+		if (delta != 0 && source != null && t.fSource == source) {
+			t.setOffset(t.getOffset() + delta, t.getEndOffset() + delta);
+		}
+		return t;
+	}
+
+	private void preventCaching() {
+		if (fRecording != null) {
+			fRecording.fCacheable= false;
+		}
+	}
+
+	private void reportSignificantMacro(PreprocessorMacro macro) {
+		if (fRecording != null) {
+			fRecording.fSignificantMacros.add(macro);
+		}
+		if (fReportMacros != null) {
+			fReportMacros.significantMacro(macro);
+		}
+	}
+
+	private void reportSignificantMacroUndefined(char[] name) {
+		if (fRecording != null) {
+			fRecording.fSignificantMacros.add(name);
+		}
+		if (fReportMacros != null && fReportUndefined) {
+			fReportMacros.significantMacroUndefined(name);
+		}
+	}
+
 	/**
 	 * Method for tracking macro expansions.
 	 * @since 5.0
@@ -258,8 +448,9 @@ public class MacroExpander {
 			IdentityHashMap<PreprocessorMacro, PreprocessorMacro> forbidden, TokenSource input,
 			TokenList result, MacroExpansionTracker tracker)
 			throws OffsetLimitReachedException {
-		if (fReportMacros != null)
-			fReportMacros.significantMacro(macro);
+		reportSignificantMacro(macro);
+		if (macro.isDynamic())
+			preventCaching();
 
 		if (macro.isFunctionStyle()) {
 			final int paramCount = macro.getParameterPlaceholderList().length;
@@ -364,6 +555,9 @@ public class MacroExpander {
 			case IToken.tIDENTIFIER:
 				final char[] image = t.getCharImage();
 				PreprocessorMacro macro= fDictionary.get(image);
+				if (fRecording != null) {
+					fRecording.addDependency(image, macro);
+				}
 				if (protect || (tracker != null && tracker.isDone())) {
 					result.append(t);
 				} else if (protectIntrinsics && Arrays.equals(image, Keywords.cDEFINED)) {
@@ -376,12 +570,10 @@ public class MacroExpander {
 					protect= true;
 				} else if (macro == null || (macro.isFunctionStyle() && !input.findLParenthesis())) {
 					// Tricky: Don't mark function-style macros if you don't find the left parenthesis
-					if (fReportMacros != null) {
-						if (macro != null) {
-							fReportMacros.significantMacro(macro);
-						} else if (fReportUndefined){
-							fReportMacros.significantMacroUndefined(image);
-						}
+					if (macro != null) {
+						reportSignificantMacro(macro);
+					} else {
+						reportSignificantMacroUndefined(image);
 					}
 					result.append(t);
 				} else if (forbidden.containsKey(macro)) {
@@ -394,6 +586,10 @@ public class MacroExpander {
 							info = createImageLocationInfo(t);
 						}
 						fImplicitMacroExpansions.add(fLocationMap.encounterImplicitMacroExpansion(macro, info));
+						if (fRecording != null) {
+							fRecording.fImplicitMacros.add(macro);
+							fRecording.fImplicitNames.add(t.clone());
+						}
 					}
 					TokenList replacement= new TokenList();
 
@@ -595,6 +791,7 @@ public class MacroExpander {
 	}
 
 	private void handleProblem(int problemID, char[] arg) {
+		preventCaching();
 		fLog.handleProblem(problemID, arg, fStartOffset, fEndOffset);
 	}
 
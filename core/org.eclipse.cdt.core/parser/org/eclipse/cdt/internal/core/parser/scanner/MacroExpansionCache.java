@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.parser.scanner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.eclipse.cdt.core.parser.util.CharArrayMap;
+
+/**
+ * Results of macro expansions of a translation unit, used by the {@link MacroExpander} to
+ * avoid expanding the same invocation of a macro again. An expansion is reused for an
+ * invocation of the same macro with identical argument tokens, as long as none of the macros
+ * involved in the expansion has been defined or undefined in the meantime.
+ * <p>
+ * In addition the cache counts the expansions and cache hits per macro.
+ */
+public final class MacroExpansionCache {
+	private static final int MAX_ENTRIES_PER_MACRO = 8;
+	private static final int MAX_CACHED_TOKENS = 1 << 16;
+
+	/**
+	 * The recorded expansion of a macro invocation.
+	 */
+	static final class Entry {
+		final PreprocessorMacro fMacro;
+		final boolean fProtectIntrinsics;
+		/** Offset of the macro name, the offsets of the arguments are relative to it. */
+		final int fOffset;
+		/** Argument tokens including the parenthesis, empty for object-style macros. */
+		final Token[] fInvocation;
+		/** All identifiers looked up in the macro dictionary, with the macro found or null. */
+		final CharArrayMap<PreprocessorMacro> fDependencies= new CharArrayMap<>();
+		/** Significant macros reported during the expansion, macros or names of undefined macros. */
+		final ArrayList<Object> fSignificantMacros= new ArrayList<>();
+		/** Macros of nested expansions together with the names of their invocations. */
+		final ArrayList<PreprocessorMacro> fImplicitMacros= new ArrayList<>();
+		final ArrayList<Token> fImplicitNames= new ArrayList<>();
+		/** The expansion before the offsets have been adjusted. */
+		TokenList fTokens;
+		int fTokenCount;
+		boolean fCacheable= true;
+
+		Entry(PreprocessorMacro macro, boolean protectIntrinsics, int offset, Token[] invocation) {
+			fMacro= macro;
+			fProtectIntrinsics= protectIntrinsics;
+			fOffset= offset;
+			fInvocation= invocation;
+		}
+
+		void addDependency(char[] name, PreprocessorMacro macro) {
+			if (!fDependencies.containsKey(name)) {
+				fDependencies.put(name, macro);
+			}
+		}
+
+		boolean matches(boolean protectIntrinsics, int offset, Token[] invocation) {
+			if (protectIntrinsics != fProtectIntrinsics || invocation.length != fInvocation.length)
+				return false;
+			for (int i= 0; i < invocation.length; i++) {
+				final Token t1= invocation[i];
+				final Token t2= fInvocation[i];
+				if (t1.getType() != t2.getType() || t1.getOffset() - offset != t2.getOffset() - fOffset
+						|| t1.getEndOffset() - offset != t2.getEndOffset() - fOffset
+						|| !Arrays.equals(t1.getCharImage(), t2.getCharImage())) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		boolean isValid(CharArrayMap<PreprocessorMacro> dictionary) {
+			for (char[] name : fDependencies.keys()) {
+				if (dictionary.get(name) != fDependencies.get(name))
+					return false;
+			}
+			return true;
+		}
+	}
+
+	private final IdentityHashMap<PreprocessorMacro, Entry[]> fEntries= new IdentityHashMap<>();
+	private final CharArrayMap<int[]> fCounts= new CharArrayMap<>();
+	private int fTokenCount;
+
+	/**
+	 * Returns a valid entry for the invocation of the macro, or {@code null}. Counts the
+	 * expansion of the macro.
+	 */
+	Entry get(PreprocessorMacro macro, boolean protectIntrinsics, int offset, Token[] invocation,
+			CharArrayMap<PreprocessorMacro> dictionary) {
+		final char[] name= macro.getNameCharArray();
+		int[] counts= fCounts.get(name);
+		if (counts == null) {
+			counts= new int[2];
+			fCounts.put(name, counts);
+		}
+		counts[0]++;
+
+		final Entry[] entries= fEntries.get(macro);
+		if (entries != null) {
+			for (int i= 0; i < entries.length; i++) {
+				final Entry entry= entries[i];
+				if (entry != null && entry.matches(protectIntrinsics, offset, invocation)) {
+					if (entry.isValid(dictionary)) {
+						counts[1]++;
+						return entry;
+					}
+					// One of the macros involved has been redefined.
+					entries[i]= null;
+					fTokenCount-= entry.fTokenCount;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Stores a recorded expansion.
+	 */
+	void put(Entry entry) {
+		if (fTokenCount + entry.fTokenCount > MAX_CACHED_TOKENS) {
+			fEntries.clear();
+			fTokenCount= 0;
+		}
+		Entry[] entries= fEntries.get(entry.fMacro);
+		if (entries == null) {
+			entries= new Entry[MAX_ENTRIES_PER_MACRO];
+			fEntries.put(entry.fMacro, entries);
+		}
+		final Entry last= entries[entries.length - 1];
+		if (last != null) {
+			fTokenCount-= last.fTokenCount;
+		}
+		System.arraycopy(entries, 0, entries, 1, entries.length - 1);
+		entries[0]= entry;
+		fTokenCount+= entry.fTokenCount;
+	}
+
+	/**
+	 * Removes the cached expansions, keeps the statistics.
+	 */
+	void clear() {
+		fEntries.clear();
+		fTokenCount= 0;
+	}
+
+	/**
+	 * Adds the number of expansions and cache hits per macro name to the given map.
+	 */
+	public void collectStatistics(Map<String, int[]> target) {
+		for (char[] name : fCounts.keys()) {
+			final int[] counts= fCounts.get(name);
+			final String key= String.valueOf(name);
+			int[] sum= target.get(key);
+			if (sum == null) {
+				sum= new int[2];
+				target.put(key, sum);
+			}
+			sum[0]+= counts[0];
+			sum[1]+= counts[1];
+		}
+	}
+
+	/**
+	 * Returns the number of expansions of the macro with the given name.
+	 */
+	public int getExpansionCount(char[] name) {
+		int[] counts= fCounts.get(name);
+		return counts == null ? 0 : counts[0];
+	}
+
+	/**
+	 * Returns the number of expansions of the macro with the given name that were taken from
+	 * the cache.
+	 */
+	public int getHitCount(char[] name) {
+		int[] counts= fCounts.get(name);
+		return counts == null ? 0 : counts[1];
+	}
+}
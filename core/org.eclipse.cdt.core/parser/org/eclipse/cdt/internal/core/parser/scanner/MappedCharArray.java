@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.parser.scanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Implementation of char array for a file with ASCII content, the characters are read directly
+ * from a memory-mapped buffer. Other than for {@link FileCharArray} the content is neither decoded
+ * nor held in memory, and the pages of the file are shared by all parsers that read it.
+ * The buffer is never modified, the array can be used by multiple threads.
+ */
+public final class MappedCharArray extends AbstractCharArray {
+	private static final int CHUNK_BITS= 12;  // 2^12 == 4K
+	private static final int CHUNK_SIZE= 1 << CHUNK_BITS;
+	private static final long NON_ASCII_MASK= 0x8080808080808080L;
+
+	private final ByteBuffer fBuffer;
+	private final int fStart;
+	private final int fLength;
+	private long fHash64;
+
+	/**
+	 * Maps the content of a file with the given size. Returns {@code null} if the charset is not
+	 * compatible with ASCII, or if the file contains characters other than ASCII.
+	 */
+	public static MappedCharArray create(FileChannel channel, long size, String charSet)
+			throws IOException {
+		if (size > Integer.MAX_VALUE || !Charset.isSupported(charSet))
+			return null;
+		final Charset charset= Charset.forName(charSet);
+		if (!charset.equals(StandardCharsets.UTF_8) && !charset.equals(StandardCharsets.US_ASCII) &&
+				!charset.equals(StandardCharsets.ISO_8859_1)) {
+			return null;
+		}
+
+		final ByteBuffer buffer= channel.map(MapMode.READ_ONLY, 0, size);
+		final int end= (int) size;
+		int start= 0;
+		if (charset.equals(StandardCharsets.UTF_8) && end >= 3 && buffer.get(0) == (byte) 0xEF &&
+				buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF) {
+			start= 3;
+		}
+		int pos= start;
+		for (; pos + 8 <= end; pos+= 8) {
+			if ((buffer.getLong(pos) & NON_ASCII_MASK) != 0)
+				return null;
+		}
+		for (; pos < end; pos++) {
+			if (buffer.get(pos) < 0)
+				return null;
+		}
+		return new MappedCharArray(buffer, start, end - start);
+	}
+
+	private MappedCharArray(ByteBuffer buffer, int start, int length) {
+		fBuffer= buffer;
+		fStart= start;
+		fLength= length;
+	}
+
+	@Override
+	public int tryGetLength() {
+		return fLength;
+	}
+
+	@Override
+	public int getLength() {
+		return fLength;
+	}
+
+	@Override
+	public boolean isValidOffset(int offset) {
+		return offset < fLength;
+	}
+
+	@Override
+	public char get(int offset) {
+		return (char) fBuffer.get(fStart + offset);
+	}
+
+	@Override
+	public void arraycopy(int offset, char[] destination, int destinationPos, int length) {
+		int pos= fStart + offset;
+		for (int i= 0; i < length; i++) {
+			destination[destinationPos + i]= (char) fBuffer.get(pos++);
+		}
+	}
+
+	/**
+	 * Returns the characters of the small chunk that contains the offset. The array is
+	 * created on every call and is not retained by this object.
+	 */
+	@Override
+	public char[] getChunk(int offset) {
+		if (!isValidOffset(offset))
+			return null;
+		final int chunkOffset= getChunkOffset(offset);
+		final char[] result= new char[Math.min(CHUNK_SIZE, fLength - chunkOffset)];
+		arraycopy(chunkOffset, result, 0, result.length);
+		return result;
+	}
+
+	@Override
+	public int getChunkOffset(int offset) {
+		return offset & ~(CHUNK_SIZE - 1);
+	}
+
+	@Override
+	public long getContentsHash() {
+		if (fHash64 == 0 && fLength != 0) {
+			StreamHasher hasher= new StreamHasher();
+			char[] chunk= new char[CHUNK_SIZE];
+			for (int offset= 0; offset < fLength; offset+= CHUNK_SIZE) {
+				final int length= Math.min(CHUNK_SIZE, fLength - offset);
+				if (length < CHUNK_SIZE) {
+					chunk= new char[length];
+				}
+				arraycopy(offset, chunk, 0, length);
+				hasher.addChunk(chunk);
+			}
+			fHash64= hasher.computeHash();
+		}
+		return fHash64;
+	}
+
+	@Override
+	public boolean hasError() {
+		return false;
+	}
+}
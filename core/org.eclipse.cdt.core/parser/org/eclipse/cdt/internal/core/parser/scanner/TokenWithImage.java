@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2008 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,4 +22,8 @@ public class TokenWithImage extends Token {
 	public char[] getCharImage() {
 		return fImage; 
 	}
+
+	void setCharImage(char[] image) {
+		fImage= image;
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -30,6 +30,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -61,10 +63,12 @@ import org.eclipse.cdt.core.parser.ISignificantMacros;
 import org.eclipse.cdt.core.parser.IncludeExportPatterns;
 import org.eclipse.cdt.core.parser.IncludeFileContentProvider;
 import org.eclipse.cdt.internal.core.dom.IIncludeFileResolutionHeuristics;
+import org.eclipse.cdt.internal.core.dom.parser.ASTNode;
 import org.eclipse.cdt.internal.core.index.FileContentKey;
 import org.eclipse.cdt.internal.core.index.IIndexFragment;
 import org.eclipse.cdt.internal.core.index.IIndexFragmentFile;
 import org.eclipse.cdt.internal.core.index.IWritableIndex;
+import org.eclipse.cdt.internal.core.index.IWritableIndexFragment;
 import org.eclipse.cdt.internal.core.index.IndexBasedFileContentProvider;
 import org.eclipse.cdt.internal.core.model.DebugLogConstants;
 import org.eclipse.cdt.internal.core.parser.IMacroDictionary;
@@ -72,12 +76,14 @@ import org.eclipse.cdt.internal.core.parser.ParserLogService;
 import org.eclipse.cdt.internal.core.parser.ParserSettings2;
 import org.eclipse.cdt.internal.core.parser.scanner.InternalFileContentProvider;
 import org.eclipse.cdt.internal.core.parser.scanner.InternalFileContentProvider.DependsOnOutdatedFileException;
+import org.eclipse.cdt.internal.core.parser.scanner.LocationMap;
 import org.eclipse.cdt.internal.core.parser.util.LRUCache;
 import org.eclipse.cdt.utils.EFSExtensionManager;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
@@ -326,6 +332,7 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 	private long fIncludedFileSizeLimit;
 	private InternalFileContentProvider fCodeReaderFactory;
 	private int fSwallowOutOfMemoryError= 5;
+	private int fParserThreadCount= 1;
 	/**
 	 * A queue of urgent indexing tasks that contribute additional files to this task.
 	 * The files from the urgent tasks are indexed before all not yet processed files.
@@ -385,6 +392,15 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 		fPragmaPrivatePattern = pattern;
 	}
 
+	/**
+	 * Sets the number of threads that parse the required sources and resolve their names. With more
+	 * than one thread the results are written to the index by the thread running this task, while
+	 * the parser threads continue with the next sources.
+	 */
+	public final void setParserThreadCount(int count) {
+		fParserThreadCount= Math.max(1, count);
+	}
+
 	/**
 	 * @see IPDOMIndexerTask#acceptUrgentTask(IPDOMIndexerTask)
 	 */
@@ -532,10 +548,17 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 			}
 
 			fIndex.resetCacheCounters();
+			final IWritableIndexFragment fragment= fIndex.getWritableFragment();
+			final long readLockWaitTime= fragment.getReadLockWaitTime();
+			final long writeLockWaitTime= fragment.getWriteLockWaitTime();
 			fIndex.acquireReadLock();
 
 			try {
 				try {
+					// With a journaled database (see Database.JOURNAL_PROPERTY) the changes for all
+					// files are committed at once rather than after each file. Otherwise every file
+					// is still flushed when its write lock is released.
+					fIndex.beginBatch();
 					SubMonitor progress = SubMonitor.convert(monitor, 20);
 					// Split into sources and headers, remove excluded sources.
 					HashMap<Integer, List<IIndexFileLocation>> files= new HashMap<>();
@@ -605,7 +628,10 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 					}
 					setResume(false, progress.split(1));
 				} finally {
+					fIndex.endBatch();
 					fIndex.flush();
+					fStatistics.fReadLockWaitTime= (int) (fragment.getReadLockWaitTime() - readLockWaitTime);
+					fStatistics.fWriteLockWaitTime= (int) (fragment.getWriteLockWaitTime() - writeLockWaitTime);
 				}
 			} catch (CoreException e) {
 				logException(e);
@@ -883,6 +909,7 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 				continue;
 
 			// First parse the required sources.
+			List<ParseRequest> parseRequests= fParserThreadCount > 1 ? new ArrayList<ParseRequest>() : null;
 			for (Iterator<IIndexFileLocation> it= filesAtPriority.iterator(); it.hasNext();) {
 				IIndexFileLocation ifl= it.next();
 				LocationTask locTask = map.find(ifl);
@@ -891,11 +918,20 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 				} else if (locTask.fKind == UpdateKind.REQUIRED_SOURCE) {
 					if (hasUrgentTasks())
 						return;
-					final Object tu = locTask.fTu;
-					final IScannerInfo scannerInfo = getScannerInfo(linkageID, tu);
-					parseFile(tu, getLanguage(tu, linkageID), ifl, scannerInfo, null, progress.split(1));
+					if (parseRequests != null) {
+						parseRequests.add(new ParseRequest(ifl, locTask));
+					} else {
+						final Object tu = locTask.fTu;
+						final IScannerInfo scannerInfo = getScannerInfo(linkageID, tu);
+						parseFile(tu, getLanguage(tu, linkageID), ifl, scannerInfo, null, progress.split(1));
+					}
 				}
 			}
+			if (parseRequests != null && !parseRequests.isEmpty()) {
+				new ParallelParser(linkageID, parseRequests).run(progress.split(parseRequests.size()));
+				if (hasUrgentTasks())
+					return;
+			}
 	
 			// Files with context.
 			for (Iterator<IIndexFileLocation> it= filesAtPriority.iterator(); it.hasNext();) {
@@ -1130,6 +1166,382 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 		return null;
 	}
 
+	/**
+	 * A required source to be parsed by one of the threads of a {@link ParallelParser}, together
+	 * with the result of parsing it.
+	 */
+	private static class ParseRequest {
+		final IIndexFileLocation fLocation;
+		final LocationTask fLocationTask;
+		IASTTranslationUnit fAST;
+		FileInAST[] fFileKeys;
+		PDOMWriter.Data fData;
+		int fStorageLinkageID= ILinkage.NO_LINKAGE_ID;
+		Throwable fError;
+		/** Estimated number of bytes the AST takes on the heap. */
+		long fSize;
+
+		ParseRequest(IIndexFileLocation location, LocationTask locTask) {
+			fLocation= location;
+			fLocationTask= locTask;
+		}
+	}
+
+	/**
+	 * Parses required sources and resolves their names on multiple threads. The resolved ASTs are
+	 * passed through a queue to the thread running the indexer task, which is the only one
+	 * writing to the index and updating the requests of the task. The index and the requests
+	 * are read while sources are parsed, so the results are written only while no source is
+	 * being parsed.
+	 * <p>
+	 * The writing thread does not hold up the parser threads for every result, otherwise they
+	 * would wait for the slowest of the parses in progress each time. It writes whenever no
+	 * source is being parsed. The parser threads are held up only when
+	 * {@link #RESULTS_PER_THREAD} results per thread are waiting, or when the task stops. The limit
+	 * is small, because headers that are waiting to be written are parsed again by other sources.
+	 * <p>
+	 * The ASTs waiting to be written may take up to half of the heap. While that share is used up,
+	 * the parser threads do not start parsing further sources.
+	 */
+	private class ParallelParser {
+		/** Heap used by an AST per offset of its sequence numbers, measured on large sources. */
+		private static final int AST_BYTES_PER_OFFSET= 40;
+		/** Number of waiting results per thread, at which the parser threads are held up. */
+		private static final int RESULTS_PER_THREAD= 2;
+		/** Interval for checking for urgent tasks while waiting for the parses in progress. */
+		private static final long URGENT_TASK_CHECK_INTERVAL= 100;
+
+		private final ParseRequest fEndOfWork= new ParseRequest(null, null);
+		private final int fLinkageID;
+		private final int fRequestCount;
+		private final Iterator<ParseRequest> fRequests;
+		private final int fThreadCount;
+		private final BlockingQueue<ParseRequest> fParsed= new LinkedBlockingQueue<>();
+		private final Object fGate= new Object();
+		// Number of sources being parsed, protected by fGate.
+		private int fActiveParses;
+		// Whether new parses have to wait for the results to be written, protected by fGate.
+		private boolean fWriteRequested;
+		// Whether the results are being written, protected by fGate.
+		private boolean fWriting;
+		private volatile boolean fStopped;
+		private final long fMaxPendingSize= Runtime.getRuntime().maxMemory() / 2;
+		private final Object fPendingSizeLock= new Object();
+		// Estimated size of the ASTs that are parsed but not yet written, protected by fPendingSizeLock.
+		private long fPendingSize;
+
+		ParallelParser(int linkageID, List<ParseRequest> requests) {
+			fLinkageID= linkageID;
+			fRequestCount= requests.size();
+			fRequests= requests.iterator();
+			fThreadCount= Math.min(fParserThreadCount, fRequestCount);
+		}
+
+		void run(IProgressMonitor monitor) throws CoreException, InterruptedException {
+			SubMonitor progress= SubMonitor.convert(monitor, fRequestCount);
+			for (int i = 0; i < fThreadCount; i++) {
+				Thread thread= new Thread(new Runnable() {
+					@Override
+					public void run() {
+						parseRequests();
+					}
+				}, "Indexer Parser " + (i + 1)); //$NON-NLS-1$
+				thread.setDaemon(true);
+				thread.start();
+			}
+
+			int runningThreads= fThreadCount;
+			try {
+				while (runningThreads > 0) {
+					ParseRequest request= fParsed.take();
+					awaitWriteAccess();
+					try {
+						// Write everything that is available while no source is being parsed.
+						do {
+							if (request == fEndOfWork) {
+								runningThreads--;
+							} else {
+								if (!fStopped)
+									write(request, progress.split(1));
+								released(request);
+							}
+						} while ((request= fParsed.poll()) != null);
+
+						// The result cache may contain objects from the ASTs that were just written.
+						fIndex.acquireWriteLock(progress.newChild(0));
+						try {
+							fIndex.clearResultCache();
+						} finally {
+							fIndex.releaseWriteLock();
+						}
+					} finally {
+						releaseWriteAccess();
+					}
+					if (hasUrgentTasks())
+						fStopped= true;
+				}
+			} finally {
+				fStopped= true;
+				released(null);
+				releaseWriteAccess();
+				boolean interrupted= false;
+				// Wait for the parser threads to finish.
+				while (runningThreads > 0) {
+					try {
+						if (fParsed.take() == fEndOfWork)
+							runningThreads--;
+					} catch (InterruptedException e) {
+						interrupted= true;
+					}
+				}
+				if (interrupted)
+					Thread.currentThread().interrupt();
+			}
+		}
+
+		private synchronized ParseRequest nextRequest() {
+			return !fStopped && fRequests.hasNext() ? fRequests.next() : null;
+		}
+
+		/**
+		 * Waits until no source is being parsed and keeps the parser threads from starting new
+		 * parses, until {@link #releaseWriteAccess()} is called. Runs on the thread of the indexer
+		 * task.
+		 */
+		private void awaitWriteAccess() throws InterruptedException {
+			synchronized (fGate) {
+				while (fActiveParses > 0) {
+					if (!fWriteRequested) {
+						if (fParsed.size() + 1 >= RESULTS_PER_THREAD * fThreadCount) {
+							fWriteRequested= true;
+						} else if (hasUrgentTasks()) {
+							fStopped= true;
+							fWriteRequested= true;
+						}
+					}
+					fGate.wait(URGENT_TASK_CHECK_INTERVAL);
+				}
+				fWriteRequested= false;
+				fWriting= true;
+			}
+		}
+
+		private void releaseWriteAccess() {
+			synchronized (fGate) {
+				fWriting= false;
+				fWriteRequested= false;
+				fGate.notifyAll();
+			}
+		}
+
+		/**
+		 * Waits until the results are not being written and no write is pending, then registers
+		 * a parse. Runs on the parser threads.
+		 */
+		private void beginParse() {
+			synchronized (fGate) {
+				boolean interrupted= false;
+				while (fWriting || fWriteRequested) {
+					try {
+						fGate.wait();
+					} catch (InterruptedException e) {
+						interrupted= true;
+					}
+				}
+				fActiveParses++;
+				if (interrupted)
+					Thread.currentThread().interrupt();
+			}
+		}
+
+		private void endParse() {
+			synchronized (fGate) {
+				fActiveParses--;
+				fGate.notifyAll();
+			}
+		}
+
+		/**
+		 * Runs on the parser threads.
+		 */
+		private void parseRequests() {
+			InternalFileContentProvider contentProvider= null;
+			try {
+				ParseRequest request;
+				while ((request= nextRequest()) != null) {
+					awaitHeap();
+					beginParse();
+					try {
+						// The source may have been parsed as part of another one meanwhile.
+						if (!fStopped && !request.fLocationTask.isCompleted()) {
+							if (contentProvider == null)
+								contentProvider= createFileContentProvider(fLinkageID);
+							parse(request, contentProvider);
+						}
+						// Deliver before the parse ends, such that the writing thread sees the result.
+						deliver(request);
+					} finally {
+						endParse();
+					}
+				}
+			} finally {
+				deliver(fEndOfWork);
+			}
+		}
+
+		/**
+		 * Waits until the ASTs that have not been written leave room for another one. Runs on
+		 * the parser threads.
+		 */
+		private void awaitHeap() {
+			synchronized (fPendingSizeLock) {
+				boolean interrupted= false;
+				while (!fStopped && fPendingSize > 0 && fPendingSize >= fMaxPendingSize) {
+					try {
+						fPendingSizeLock.wait();
+					} catch (InterruptedException e) {
+						interrupted= true;
+					}
+				}
+				if (interrupted)
+					Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * Accounts for the AST of a request that has been written or dropped, wakes up the parser
+		 * threads waiting for heap.
+		 */
+		private void released(ParseRequest request) {
+			synchronized (fPendingSizeLock) {
+				if (request != null)
+					fPendingSize-= request.fSize;
+				fPendingSizeLock.notifyAll();
+			}
+		}
+
+		private void deliver(ParseRequest request) {
+			// The queue is unbounded, the writing thread relies on receiving every request.
+			fParsed.add(request);
+		}
+
+		private void parse(ParseRequest request, InternalFileContentProvider contentProvider) {
+			final Object tu= request.fLocationTask.fTu;
+			final IProgressMonitor npm= new NullProgressMonitor();
+			try {
+				final IScannerInfo scannerInfo;
+				final AbstractLanguage language;
+				synchronized (this) {
+					scannerInfo= getScannerInfo(fLinkageID, tu);
+					language= getLanguage(tu, fLinkageID);
+				}
+				if (fShowActivity) {
+					trace("Indexer: parsing " + getLabel(request.fLocation).toOSString()); //$NON-NLS-1$
+				}
+				FileContent codeReader= fResolver.getCodeReader(tu);
+
+				long start= System.currentTimeMillis();
+				IASTTranslationUnit ast=
+						createAST(language, codeReader, scannerInfo, fASTOptions, null, contentProvider, npm);
+				synchronized (fStatistics) {
+					fStatistics.fParsingTime += System.currentTimeMillis() - start;
+					if (ast == null)
+						++fStatistics.fTooManyTokensCount;
+				}
+				if (ast == null)
+					return;
+
+				request.fFileKeys= selectFilesToWrite(fLinkageID, ast, codeReader, null);
+				PDOMWriter.Data data = new PDOMWriter.Data(ast, request.fFileKeys, fIndex);
+				int storageLinkageID = process(ast, data);
+				if (storageLinkageID != ILinkage.NO_LINKAGE_ID) {
+					data.fReplacementHeaders = extractReplacementHeaders(ast.getComments(), npm);
+					resolveSymbols(data, storageLinkageID, npm);
+				}
+				request.fAST= ast;
+				request.fData= data;
+				request.fStorageLinkageID= storageLinkageID;
+				if (ast instanceof ASTNode) {
+					request.fSize= (long) ((ASTNode) ast).getLength() * AST_BYTES_PER_OFFSET;
+					synchronized (fPendingSizeLock) {
+						fPendingSize+= request.fSize;
+					}
+				}
+			} catch (OperationCanceledException e) {
+			} catch (RuntimeException e) {
+				// A dependency on an outdated file is handled like in parseFile(), the file is not parsed.
+				if (!(e.getCause() instanceof DependsOnOutdatedFileException))
+					request.fError= e;
+			} catch (StackOverflowError | CoreException | AssertionError | OutOfMemoryError e) {
+				request.fError= e;
+			}
+		}
+
+		/**
+		 * Runs on the thread of the indexer task while no source is being parsed.
+		 */
+		private void write(ParseRequest request, IProgressMonitor monitor)
+				throws CoreException, InterruptedException {
+			final IPath path= getLabel(request.fLocation);
+			final IASTTranslationUnit ast= request.fAST;
+			final FileInAST[] fileKeys= request.fFileKeys;
+			Throwable th= request.fError;
+			request.fAST= null;
+			if (th == null && ast != null) {
+				SubMonitor progress= SubMonitor.convert(monitor, 2);
+				progress.subTask(getMessage(MessageKind.parsingFileTask,
+						path.lastSegment(), path.removeLastSegments(1).toString()));
+				try {
+					// Sources parsed at the same time may have included the same headers.
+					for (int i = 0; i < fileKeys.length; i++) {
+						final FileContentKey key= fileKeys[i].fileContentKey;
+						if (selectIndexFile(fLinkageID, key.getLocation(), key.getSignificantMacros()) != null)
+							fileKeys[i]= null;
+					}
+
+					final PDOMWriter.Data data= request.fData;
+					request.fData= null;
+					if (request.fStorageLinkageID != ILinkage.NO_LINKAGE_ID) {
+						storeSymbols(data, request.fStorageLinkageID, null, progress.split(1));
+
+						// Update task markers.
+						if (fTodoTaskUpdater != null) {
+							Set<IIndexFileLocation> locations= new HashSet<>();
+							for (FileInAST file : fileKeys) {
+								if (file != null)
+									locations.add(file.fileContentKey.getLocation());
+							}
+							fTodoTaskUpdater.updateTasks(ast.getComments(),
+									locations.toArray(new IIndexFileLocation[locations.size()]));
+						}
+					}
+
+					// Contributed processors are not required to be thread-safe, they run on this thread.
+					List<IPDOMASTProcessor> processors = PDOMASTProcessorManager.getProcessors(ast);
+					progress.setWorkRemaining(processors.size());
+					for (IPDOMASTProcessor processor : processors) {
+						PDOMWriter.Data processorData = new PDOMWriter.Data(ast, fileKeys, fIndex);
+						int storageLinkageID = processor.process(ast, processorData);
+						if (storageLinkageID != ILinkage.NO_LINKAGE_ID)
+							addSymbols(processorData, storageLinkageID, null, progress.split(1));
+					}
+				} catch (OperationCanceledException e) {
+					throw e;
+				} catch (CoreException | RuntimeException | Error e) {
+					th= e;
+				}
+			}
+			if (th != null) {
+				// Avoid parsing files again, that caused an exception to be thrown.
+				if (fileKeys != null)
+					withdrawRequests(fLinkageID, fileKeys);
+				if (th instanceof OutOfMemoryError && --fSwallowOutOfMemoryError < 0)
+					throw (OutOfMemoryError) th;
+				swallowError(path, th);
+			}
+		}
+	}
+
 	private AbstractLanguage getLanguage(Object tu, int linkageID) {
 		for (AbstractLanguage language : fResolver.getLanguages(tu, UnusedHeaderStrategy.useBoth)) {
 			if (language.getLinkageID() == linkageID) {
@@ -1200,6 +1612,15 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 	private final IASTTranslationUnit createAST(AbstractLanguage language, FileContent codeReader,
 			IScannerInfo scanInfo, int options, FileContext ctx, IProgressMonitor monitor)
 			throws CoreException {
+		if (fCodeReaderFactory == null) {
+			fCodeReaderFactory= createFileContentProvider(language.getLinkageID());
+		}
+		return createAST(language, codeReader, scanInfo, options, ctx, fCodeReaderFactory, monitor);
+	}
+
+	private IASTTranslationUnit createAST(AbstractLanguage language, FileContent codeReader,
+			IScannerInfo scanInfo, int options, FileContext ctx, InternalFileContentProvider contentProvider,
+			IProgressMonitor monitor) throws CoreException {
 		if (codeReader == null) {
 			return null;
 		}
@@ -1209,35 +1630,47 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 			}
 			return null;
 		}
-		final IIndexFile[] ctx2header = ctx == null ? null : new IIndexFile[] {ctx.fContext, ctx.fOldFile};
-		if (fCodeReaderFactory == null) {
-			InternalFileContentProvider fileContentProvider = createInternalFileContentProvider();
-			if (fIsFastIndexer) {
-				IndexBasedFileContentProvider ibfcp = new IndexBasedFileContentProvider(fIndex, fResolver,
-						language.getLinkageID(), fileContentProvider, this);
-				ibfcp.setContextToHeaderGap(ctx2header);
-				ibfcp.setFileSizeLimit(fIncludedFileSizeLimit);
-				ibfcp.setHeadersToIndexAllVersions(fHeadersToIndexAllVersions);
-				ibfcp.setIndexAllHeaderVersions(fIndexAllHeaderVersions);
-				fCodeReaderFactory= ibfcp;
-			} else {
-				fCodeReaderFactory= fileContentProvider;
-			}
-			fCodeReaderFactory.setIncludeResolutionHeuristics(createIncludeHeuristics());
-		} else if (fIsFastIndexer) {
-			final IndexBasedFileContentProvider ibfcp = (IndexBasedFileContentProvider) fCodeReaderFactory;
+		if (fIsFastIndexer) {
+			final IIndexFile[] ctx2header = ctx == null ? null : new IIndexFile[] {ctx.fContext, ctx.fOldFile};
+			final IndexBasedFileContentProvider ibfcp = (IndexBasedFileContentProvider) contentProvider;
 			ibfcp.setContextToHeaderGap(ctx2header);
 			ibfcp.setLinkage(language.getLinkageID());
 		}
 
-		IASTTranslationUnit ast= language.getASTTranslationUnit(codeReader, scanInfo, fCodeReaderFactory,
+		IASTTranslationUnit ast= language.getASTTranslationUnit(codeReader, scanInfo, contentProvider,
 				fIndex, options, getLogService());
 		if (monitor.isCanceled()) {
 			throw new OperationCanceledException();
 		}
+		if (ast != null) {
+			LocationMap locationMap= ast.getAdapter(LocationMap.class);
+			if (locationMap != null) {
+				synchronized (fStatistics) {
+					locationMap.getMacroExpansionCache().collectStatistics(fStatistics.fMacroExpansions);
+				}
+			}
+		}
 		return ast;
 	}
 
+	/**
+	 * Creates a file content provider for parsing. A file content provider keeps state about the
+	 * translation unit being parsed, it cannot be shared between threads.
+	 */
+	private InternalFileContentProvider createFileContentProvider(int linkageID) {
+		InternalFileContentProvider fileContentProvider = createInternalFileContentProvider();
+		if (fIsFastIndexer) {
+			IndexBasedFileContentProvider ibfcp = new IndexBasedFileContentProvider(fIndex, fResolver,
+					linkageID, fileContentProvider, this);
+			ibfcp.setFileSizeLimit(fIncludedFileSizeLimit);
+			ibfcp.setHeadersToIndexAllVersions(fHeadersToIndexAllVersions);
+			ibfcp.setIndexAllHeaderVersions(fIndexAllHeaderVersions);
+			fileContentProvider= ibfcp;
+		}
+		fileContentProvider.setIncludeResolutionHeuristics(createIncludeHeuristics());
+		return fileContentProvider;
+	}
+
 	private InternalFileContentProvider createInternalFileContentProvider() {
 		final IncludeFileContentProvider fileContentProvider = createReaderFactory();
 		if (fileContentProvider instanceof InternalFileContentProvider)
@@ -1249,30 +1682,7 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 	private void writeToIndex(final int linkageID, IASTTranslationUnit ast, FileContent codeReader,
 			FileContext ctx, IProgressMonitor monitor) throws CoreException, InterruptedException {
 		SubMonitor progress = SubMonitor.convert(monitor, 3);
-		HashSet<FileContentKey> enteredFiles= new HashSet<>();
-		ArrayList<FileInAST> orderedFileKeys= new ArrayList<>();
-
-		final IIndexFileLocation topIfl = fResolver.resolveASTPath(ast.getFilePath());
-		ISignificantMacros significantMacros = ast.isHeaderUnit() ?
-				ast.getSignificantMacros() : ISignificantMacros.NONE;
-		FileContentKey topKey = new FileContentKey(linkageID, topIfl, significantMacros);
-		enteredFiles.add(topKey);
-		IDependencyTree tree= ast.getDependencyTree();
-		IASTInclusionNode[] inclusions= tree.getInclusions();
-		for (IASTInclusionNode inclusion : inclusions) {
-			collectOrderedFileKeys(linkageID, inclusion, enteredFiles, orderedFileKeys);
-		}
-
-		IIndexFragmentFile newFile= selectIndexFile(linkageID, topIfl, significantMacros);
-		if (ctx != null) {
-			orderedFileKeys.add(new FileInAST(topKey, codeReader));
-			// File can be reused
-			ctx.fNewFile= newFile;
-		} else if (newFile == null) {
-			orderedFileKeys.add(new FileInAST(topKey, codeReader));
-		}
-
-		FileInAST[] fileKeys= orderedFileKeys.toArray(new FileInAST[orderedFileKeys.size()]);
+		FileInAST[] fileKeys= selectFilesToWrite(linkageID, ast, codeReader, ctx);
 		try {
 			// The default processing is handled by the indexer task.
 			PDOMWriter.Data data = new PDOMWriter.Data(ast, fileKeys, fIndex);
@@ -1309,6 +1719,37 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 		}
 	}
 
+	/**
+	 * Returns the files of the AST that need to be written to the index.
+	 */
+	private FileInAST[] selectFilesToWrite(int linkageID, IASTTranslationUnit ast, FileContent codeReader,
+			FileContext ctx) throws CoreException {
+		HashSet<FileContentKey> enteredFiles= new HashSet<>();
+		ArrayList<FileInAST> orderedFileKeys= new ArrayList<>();
+
+		final IIndexFileLocation topIfl = fResolver.resolveASTPath(ast.getFilePath());
+		ISignificantMacros significantMacros = ast.isHeaderUnit() ?
+				ast.getSignificantMacros() : ISignificantMacros.NONE;
+		FileContentKey topKey = new FileContentKey(linkageID, topIfl, significantMacros);
+		enteredFiles.add(topKey);
+		IDependencyTree tree= ast.getDependencyTree();
+		IASTInclusionNode[] inclusions= tree.getInclusions();
+		for (IASTInclusionNode inclusion : inclusions) {
+			collectOrderedFileKeys(linkageID, inclusion, enteredFiles, orderedFileKeys);
+		}
+
+		IIndexFragmentFile newFile= selectIndexFile(linkageID, topIfl, significantMacros);
+		if (ctx != null) {
+			orderedFileKeys.add(new FileInAST(topKey, codeReader));
+			// File can be reused
+			ctx.fNewFile= newFile;
+		} else if (newFile == null) {
+			orderedFileKeys.add(new FileInAST(topKey, codeReader));
+		}
+
+		return orderedFileKeys.toArray(new FileInAST[orderedFileKeys.size()]);
+	}
+
 	private void collectOrderedFileKeys(final int linkageID, IASTInclusionNode inclusion,
 			Set<FileContentKey> enteredFiles, List<FileInAST> orderedFileKeys) throws CoreException {
 		final IASTPreprocessorIncludeStatement include= inclusion.getIncludeDirective();
@@ -1330,6 +1771,8 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 		LinkageTask map = findRequestMap(linkageID);
 		if (map != null) {
 			for (FileInAST fileKey : fileKeys) {
+				if (fileKey == null)
+					continue;  // The file has been written by another AST.
 				LocationTask locTask = map.find(fileKey.fileContentKey.getLocation());
 				if (locTask != null) {
 					if (locTask.fCountedUnknownVersion) {
@@ -1435,10 +1878,16 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 					throw new DependsOnOutdatedFileException(request.fTu, task.fIndexFile);
 			}
 		}
-		IndexFileContent fc= fIndexContentCache.get(file);
+		// The cache is accessed by all parser threads.
+		IndexFileContent fc;
+		synchronized (fIndexContentCache) {
+			fc= fIndexContentCache.get(file);
+		}
 		if (fc == null) {
 			fc= new IndexFileContent(file);
-			fIndexContentCache.put(file, fc);
+			synchronized (fIndexContentCache) {
+				fIndexContentCache.put(file, fc);
+			}
 		}
 		return fc;
 	}
@@ -1491,7 +1940,10 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 
 	public IIndexFragmentFile[] getAvailableIndexFiles(int linkageID, IIndexFileLocation ifl)
 			throws CoreException {
-		IIndexFragmentFile[] files= fIndexFilesCache.get(ifl);
+		IIndexFragmentFile[] files;
+		synchronized (fIndexFilesCache) {
+			files= fIndexFilesCache.get(ifl);
+		}
 		if (files == null) {
 			IIndexFragmentFile[] fragFiles = fIndex.getWritableFiles(linkageID, ifl);
 			int j= 0;
@@ -1508,7 +1960,9 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 				files= new IIndexFragmentFile[j];
 				System.arraycopy(fragFiles, 0, files, 0, j);
 			}
-			fIndexFilesCache.put(ifl, files);
+			synchronized (fIndexFilesCache) {
+				fIndexFilesCache.put(ifl, files);
+			}
 		}
 		return files;
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,9 @@
 
 package org.eclipse.cdt.internal.core.pdom;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class IndexerStatistics {
 	public int fResolutionTime;
 	public int fParsingTime;
@@ -23,4 +26,13 @@ public class IndexerStatistics {
 	public int fPreprocessorProblemCount= 0;
 	public int fSyntaxProblemsCount= 0;
 	public int fTooManyTokensCount= 0;
+	/** Time readers of the index have been waiting for the index while the indexer was running. */
+	public int fReadLockWaitTime;
+	/** Time writers of the index have been waiting for the index while the indexer was running. */
+	public int fWriteLockWaitTime;
+	/**
+	 * Number of expansions and number of expansions reused from the cache of the macro expander,
+	 * by name of the macro.
+	 */
+	public final Map<String, int[]> fMacroExpansions= new HashMap<>();
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 QNX Software Systems and others.
+ * Copyright (c) 2005, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -59,10 +60,12 @@ import org.eclipse.cdt.core.index.IIndexLinkage;
 import org.eclipse.cdt.core.index.IIndexLocationConverter;
 import org.eclipse.cdt.core.index.IIndexMacro;
 import org.eclipse.cdt.core.index.IIndexMacroContainer;
+import org.eclipse.cdt.core.index.IIndexNameVisitor;
 import org.eclipse.cdt.core.index.IndexFilter;
 import org.eclipse.cdt.core.parser.ISignificantMacros;
 import org.eclipse.cdt.core.parser.util.ArrayUtil;
 import org.eclipse.cdt.core.parser.util.CharArrayUtils;
+import org.eclipse.cdt.core.parser.util.IContentAssistMatcher;
 import org.eclipse.cdt.internal.core.dom.Linkage;
 import org.eclipse.cdt.internal.core.index.IIndexCBindingConstants;
 import org.eclipse.cdt.internal.core.index.IIndexFragment;
@@ -72,12 +75,14 @@ import org.eclipse.cdt.internal.core.index.IIndexFragmentFileSet;
 import org.eclipse.cdt.internal.core.index.IIndexFragmentInclude;
 import org.eclipse.cdt.internal.core.index.IIndexFragmentName;
 import org.eclipse.cdt.internal.core.index.IIndexScope;
+import org.eclipse.cdt.internal.core.parser.util.ContentAssistMatcherFactory;
 import org.eclipse.cdt.internal.core.pdom.db.BTree;
 import org.eclipse.cdt.internal.core.pdom.db.ChunkCache;
 import org.eclipse.cdt.internal.core.pdom.db.DBProperties;
 import org.eclipse.cdt.internal.core.pdom.db.Database;
 import org.eclipse.cdt.internal.core.pdom.db.IBTreeComparator;
 import org.eclipse.cdt.internal.core.pdom.db.IBTreeVisitor;
+import org.eclipse.cdt.internal.core.pdom.db.PDOMStringPool;
 import org.eclipse.cdt.internal.core.pdom.dom.BindingCollector;
 import org.eclipse.cdt.internal.core.pdom.dom.CompoundRecordIterator;
 import org.eclipse.cdt.internal.core.pdom.dom.FindBinding;
@@ -94,6 +99,7 @@ import org.eclipse.cdt.internal.core.pdom.dom.PDOMMacro;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMMacroContainer;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMMacroReferenceName;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMName;
+import org.eclipse.cdt.internal.core.pdom.dom.PDOMNameIndex;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMNamedNode;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMNode;
 import org.eclipse.cdt.internal.core.pdom.tag.PDOMTagIndex;
@@ -112,6 +118,8 @@ public class PDOM extends PlatformObject implements IPDOM {
 	private static final int BLOCKED_WRITE_LOCK_OUTPUT_INTERVAL = 30000;
 	private static final int LONG_WRITE_LOCK_REPORT_THRESHOLD = 1000;
 	private static final int LONG_READ_LOCK_WAIT_REPORT_THRESHOLD = 1000;
+	/** Maximum total weight of the entries in the result cache, see {@link PDOMResultCache}. */
+	private static final int MAX_RESULT_CACHE_WEIGHT = 256 * 1024;
 	static boolean sDEBUG_LOCKS; // Initialized in the PDOMManager, because IBM needs PDOM independent of runtime plugin.
 
 	/**
@@ -289,10 +297,17 @@ public class PDOM extends PlatformObject implements IPDOM {
 	 *  209.0 - Alias templates and their instances take up more space than required, bug 516385.
 	 *  210.0 - Return type deduction, bug 408470.
 	 *  211.0 - Change representation of alias template instances, bug 516338.
+	 *  212.0 - Inline keys in the B-trees for bindings, macros and files.
+	 *  213.0 - Names of bindings and macros are stored in a string pool.
+	 *  214.0 - Trigram index for the strings of the string pool.
+	 *  215.0 - Pairs of initials of the pooled strings for camel case content assist.
+	 *  216.0 - Indexes of names by enclosing definition and of base specifiers.
+	 *  217.0 - Only the names of bindings are in the trigram index of the string pool.
+	 *  218.0 - Reference counts of bindings.
 	 */
-	private static final int MIN_SUPPORTED_VERSION= version(211, 0);
-	private static final int MAX_SUPPORTED_VERSION= version(211, Short.MAX_VALUE);
-	private static final int DEFAULT_VERSION = version(211, 0);
+	private static final int MIN_SUPPORTED_VERSION= version(218, 0);
+	private static final int MAX_SUPPORTED_VERSION= version(218, Short.MAX_VALUE);
+	private static final int DEFAULT_VERSION = version(218, 0);
 
 	private static int version(int major, int minor) {
 		return (major << 16) + minor;
@@ -329,7 +344,11 @@ public class PDOM extends PlatformObject implements IPDOM {
 	public static final int INDEX_OF_FILES_WITH_UNRESOLVED_INCLUDES = Database.DATA_AREA + 12;
 	public static final int PROPERTIES = Database.DATA_AREA + 16;
 	public static final int TAG_INDEX = Database.DATA_AREA + 20;
-	public static final int END= Database.DATA_AREA + 24;
+	public static final int STRING_POOL = Database.DATA_AREA + 24;
+	public static final int STRING_POOL_TRIGRAMS = Database.DATA_AREA + 28;
+	public static final int ENCLOSED_NAMES = Database.DATA_AREA + 32;
+	public static final int BASE_SPECIFIERS = Database.DATA_AREA + 36;
+	public static final int END= Database.DATA_AREA + 40;
 	static {
 		assert END <= Database.CHUNK_SIZE;
 	}
@@ -392,13 +411,18 @@ public class PDOM extends PlatformObject implements IPDOM {
 	protected Database db;
 	private BTree fileIndex;
 	private PDOMTagIndex tagIndex;
+	private PDOMStringPool stringPool;
+	private PDOMNameIndex enclosedNamesIndex;
+	private PDOMNameIndex baseSpecifierIndex;
 	private BTree indexOfDefectiveFiles;
 	private BTree indexOfFiledWithUnresolvedIncludes;
 	private final Map<Integer, PDOMLinkage> fLinkageIDCache = new HashMap<>();
 	private File fPath;
 	private final IIndexLocationConverter locationConverter;
 	private final Map<String, IPDOMLinkageFactory> fPDOMLinkageFactoryCache;
-	private final HashMap<Object, Object> fResultCache= new HashMap<>();
+	private final PDOMResultCache fResultCache= new PDOMResultCache(MAX_RESULT_CACHE_WEIGHT);
+	/** Linkages changed while holding the write lock, protected by the write lock. */
+	private final Set<Integer> fChangedLinkages= new HashSet<>();
 	private final Map<Long, WeakReference<IValue>> fVariableResultCache= new HashMap<>();
 	private List<IListener> listeners;
 	protected ChangeEvent fEvent= new ChangeEvent();
@@ -531,6 +555,36 @@ public class PDOM extends PlatformObject implements IPDOM {
 		return tagIndex;
 	}
 
+	/**
+	 * Returns the pool that stores the names of bindings and macros.
+	 */
+	public PDOMStringPool getStringPool() {
+		if (stringPool == null) {
+			stringPool = new PDOMStringPool(db, STRING_POOL, STRING_POOL_TRIGRAMS);
+		}
+		return stringPool;
+	}
+
+	/**
+	 * Returns the index of names by their enclosing definition.
+	 */
+	public PDOMNameIndex getEnclosedNamesIndex() {
+		if (enclosedNamesIndex == null) {
+			enclosedNamesIndex = PDOMNameIndex.createEnclosedNamesIndex(db, ENCLOSED_NAMES);
+		}
+		return enclosedNamesIndex;
+	}
+
+	/**
+	 * Returns the index of the names that specify a base class, by their binding.
+	 */
+	public PDOMNameIndex getBaseSpecifierIndex() {
+		if (baseSpecifierIndex == null) {
+			baseSpecifierIndex = PDOMNameIndex.createBaseSpecifierIndex(db, BASE_SPECIFIERS);
+		}
+		return baseSpecifierIndex;
+	}
+
 	/**
 	 * Returns the index of files that were read with I/O errors.
 	 */
@@ -794,6 +848,11 @@ public class PDOM extends PlatformObject implements IPDOM {
 			if (prefix != null) {
 				return findBindingsForPrefix(prefix, isFullyQualified, caseSensitive, filter, monitor);
 			}
+
+			char[][] fragments= extractFragments(patterns[patterns.length - 1]);
+			if (fragments != null) {
+				return findBindingsForFragments(fragments, patterns, isFullyQualified, filter, monitor);
+			}
 		}
 
 		BindingFinder finder = new BindingFinder(patterns, isFullyQualified, filter, monitor);
@@ -866,6 +925,133 @@ public class PDOM extends PlatformObject implements IPDOM {
 		return null;
 	}
 
+	/** Letters that form an escape sequence of a pattern with the preceding backslash, only. */
+	private static final String SINGLE_CHARACTER_ESCAPES= "tnrfaedDhHsSvVwWbBAGZzRX"; //$NON-NLS-1$
+
+	/**
+	 * Returns the fragments of at least three characters that are contained in every name
+	 * matching the pattern, or {@code null} if no such fragments can be determined.
+	 */
+	static char[][] extractFragments(Pattern pattern) {
+		final String p= pattern.pattern();
+		if (p.contains("(?")) //$NON-NLS-1$
+			return null;  // Flags may change the meaning of the pattern.
+
+		List<char[]> result= new ArrayList<>();
+		StringBuilder fragment= new StringBuilder();
+		for (int i= 0; i < p.length(); i++) {
+			final char c= p.charAt(i);
+			if (Character.isLetterOrDigit(c) || c == '_') {
+				fragment.append(c);
+				continue;
+			}
+			switch (c) {
+			case '{':
+				i= p.indexOf('}', i);
+				if (i < 0)
+					return null;
+				//$FALL-THROUGH$
+			case '*':
+			case '?':
+				// The quantified character is optional.
+				if (fragment.length() > 0)
+					fragment.setLength(fragment.length() - 1);
+				break;
+			case '\\':
+				// Escapes with more than one character, e.g. \x41, \u0041 or \p{Lu}, are not parsed.
+				if (++i < p.length() && Character.isLetterOrDigit(p.charAt(i))
+						&& SINGLE_CHARACTER_ESCAPES.indexOf(p.charAt(i)) < 0)
+					return null;
+				break;
+			case '[':
+			case '(':
+				i= skipGroup(p, i);
+				if (i < 0)
+					return null;
+				break;
+			case '|':
+				return null;
+			}
+			addFragment(fragment, result);
+		}
+		addFragment(fragment, result);
+		return result.isEmpty() ? null : result.toArray(new char[result.size()][]);
+	}
+
+	private static void addFragment(StringBuilder fragment, List<char[]> result) {
+		if (fragment.length() >= 3) {
+			char[] chars= new char[fragment.length()];
+			fragment.getChars(0, chars.length, chars, 0);
+			result.add(chars);
+		}
+		fragment.setLength(0);
+	}
+
+	/**
+	 * Returns the index of the bracket closing the character class or group that starts at
+	 * the given index, or -1.
+	 */
+	private static int skipGroup(String p, int i) {
+		int depth= 0;
+		boolean inClass= false;
+		for (; i < p.length(); i++) {
+			switch (p.charAt(i)) {
+			case '\\':
+				i++;
+				break;
+			case '[':
+				if (!inClass) {
+					inClass= true;
+					// A closing bracket at the start of a class is a literal.
+					if (i + 1 < p.length() && p.charAt(i + 1) == '^')
+						i++;
+					if (i + 1 < p.length() && p.charAt(i + 1) == ']')
+						i++;
+				}
+				break;
+			case ']':
+				inClass= false;
+				if (depth == 0)
+					return i;
+				break;
+			case '(':
+				if (!inClass)
+					depth++;
+				break;
+			case ')':
+				if (!inClass && --depth == 0)
+					return i;
+				break;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the bindings for patterns whose last segment requires the given fragments. The
+	 * candidates for the name of the bindings are looked up in the trigram index of the string
+	 * pool, such that only the bindings with matching names need to be visited.
+	 */
+	private IIndexFragmentBinding[] findBindingsForFragments(char[][] fragments, Pattern[] patterns,
+			boolean isFullyQualified, IndexFilter filter, IProgressMonitor monitor) throws CoreException {
+		final Pattern last= patterns[patterns.length - 1];
+		final boolean filescope= isFullyQualified && patterns.length == 1;
+		List<IIndexFragmentBinding> result= new ArrayList<>();
+		for (char[] name : getStringPool().findCandidates(fragments)) {
+			if (monitor.isCanceled())
+				return IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
+			if (!last.matcher(new String(name)).matches())
+				continue;
+			for (IIndexFragmentBinding binding : findBindings(name, filescope, true, filter, monitor)) {
+				if (patterns.length == 1
+						|| matches(binding.getOwner(), patterns, patterns.length - 2, isFullyQualified)) {
+					result.add(binding);
+				}
+			}
+		}
+		return result.toArray(new IIndexFragmentBinding[result.size()]);
+	}
+
 	@Override
 	public IIndexFragmentBinding[] findMacroContainers(Pattern pattern, IndexFilter filter,
 			IProgressMonitor monitor) throws CoreException {
@@ -953,6 +1139,33 @@ public class PDOM extends PlatformObject implements IPDOM {
 		return cand == null;
 	}
 
+	/**
+	 * Checks whether the owners of a binding match the patterns up to the given index.
+	 */
+	private boolean matches(IIndexFragmentBinding cand, Pattern[] patterns, int i, boolean isFullyQualified) {
+		if (i < 0)
+			return cand == null || !isFullyQualified;
+		if (cand == null)
+			return false;
+
+		char[] name= cand.getNameCharArray();
+		if (patterns[i].matcher(new String(name)).matches()
+				&& matches(cand.getOwner(), patterns, i - 1, isFullyQualified)) {
+			return true;
+		}
+		if (cand instanceof IEnumeration) {
+			if (cand instanceof ICPPEnumeration && ((ICPPEnumeration) cand).isScoped())
+				return false;
+			// Unscoped enumerations are not part of the qualified name.
+			return matches(cand.getOwner(), patterns, i, isFullyQualified);
+		}
+		if (cand instanceof ICPPNamespace && name.length == 0) {
+			// Anonymous namespaces are not part of the qualified name.
+			return matches(cand.getOwner(), patterns, i, isFullyQualified);
+		}
+		return false;
+	}
+
 	private long getFirstLinkageRecord() throws CoreException {
 		return db.getRecPtr(LINKAGES);
 	}
@@ -981,19 +1194,27 @@ public class PDOM extends PlatformObject implements IPDOM {
 	private int lockCount;
 	private int waitingReaders;
 	private long lastWriteAccess= 0;
+	private volatile long modificationCount= 0;
 	private long lastReadAccess= 0;
 	private long timeWriteLockAcquired;
+	// Accumulated times in nanoseconds threads have been waiting for a lock, protected by mutex.
+	private long readLockWaitTime;
+	private long writeLockWaitTime;
 
 	@Override
 	public void acquireReadLock() throws InterruptedException {
 		long t = sDEBUG_LOCKS ? System.nanoTime() : 0;
 		synchronized (mutex) {
-			++waitingReaders;
-			try {
-				while (lockCount < 0)
-					mutex.wait();
-			} finally {
-				--waitingReaders;
+			if (lockCount < 0) {
+				final long start= System.nanoTime();
+				++waitingReaders;
+				try {
+					while (lockCount < 0)
+						mutex.wait();
+				} finally {
+					--waitingReaders;
+					readLockWaitTime+= System.nanoTime() - start;
+				}
 			}
 			++lockCount;
 			db.setLocked(true);
@@ -1065,19 +1286,24 @@ public class PDOM extends PlatformObject implements IPDOM {
 
 			// Let the readers go first
 			long start= sDEBUG_LOCKS ? System.currentTimeMillis() : 0;
+			final long waitStart= System.nanoTime();
 			int count = 0;
-			while (lockCount > giveupReadLocks || waitingReaders > 0) {
-				mutex.wait(CANCELLATION_CHECK_INTERVAL);
-				if (monitor != null && monitor.isCanceled()) {
-					throw new OperationCanceledException();
-				}
-				count++;
-				if (monitor != null && count == LONG_WRITE_LOCK_REPORT_THRESHOLD / CANCELLATION_CHECK_INTERVAL) {
-					monitor.subTask(Messages.PDOM_waitingForWriteLock);
-				}
-				if (sDEBUG_LOCKS) {
-					start = reportBlockedWriteLock(start, giveupReadLocks);
+			try {
+				while (lockCount > giveupReadLocks || waitingReaders > 0) {
+					mutex.wait(CANCELLATION_CHECK_INTERVAL);
+					if (monitor != null && monitor.isCanceled()) {
+						throw new OperationCanceledException();
+					}
+					count++;
+					if (monitor != null && count == LONG_WRITE_LOCK_REPORT_THRESHOLD / CANCELLATION_CHECK_INTERVAL) {
+						monitor.subTask(Messages.PDOM_waitingForWriteLock);
+					}
+					if (sDEBUG_LOCKS) {
+						start = reportBlockedWriteLock(start, giveupReadLocks);
+					}
 				}
+			} finally {
+				writeLockWaitTime+= System.nanoTime() - waitStart;
 			}
 			lockCount= -1;
 			if (sDEBUG_LOCKS)
@@ -1094,16 +1320,25 @@ public class PDOM extends PlatformObject implements IPDOM {
 
 	@SuppressWarnings("nls")
 	public void releaseWriteLock(int establishReadLocks, boolean flush) {
+		// Results computed from a linkage that was changed are no longer valid.
+		for (Integer linkageID : fChangedLinkages) {
+			fResultCache.clearLinkage(linkageID);
+		}
+		fChangedLinkages.clear();
 		// When all locks are released we can clear the result cache.
 		if (establishReadLocks == 0) {
 			clearResultCache();
 		}
+		// Writing the changes to disk does not require the write lock. Downgrade to a read lock
+		// for the flush, such that readers don't have to wait for the disk.
+		final boolean flushWithReadLock= flush && !db.isBatchOpen();
 		try {
-			db.giveUpExclusiveLock(flush);
+			db.giveUpExclusiveLock(flush && !flushWithReadLock);
 		} catch (CoreException e) {
 			CCorePlugin.log(e);
 		}
 		assert lockCount == -1;
+		modificationCount++;
 		if (!fEvent.isTrivial())
 			lastWriteAccess= System.currentTimeMillis();
 		final ChangeEvent event= fEvent;
@@ -1118,10 +1353,23 @@ public class PDOM extends PlatformObject implements IPDOM {
 			}
 
 			if (lockCount < 0)
-				lockCount= establishReadLocks;
+				lockCount= flushWithReadLock ? establishReadLocks + 1 : establishReadLocks;
 			mutex.notifyAll();
 			db.setLocked(lockCount != 0);
 		}
+		if (flushWithReadLock) {
+			try {
+				db.flush();
+			} catch (CoreException e) {
+				CCorePlugin.log(e);
+			} finally {
+				synchronized (mutex) {
+					--lockCount;
+					mutex.notifyAll();
+					db.setLocked(lockCount != 0);
+				}
+			}
+		}
 		fireChange(event);
 	}
 
@@ -1137,10 +1385,33 @@ public class PDOM extends PlatformObject implements IPDOM {
 		return lastWriteAccess;
 	}
 
+	@Override
+	public long getModificationCount() {
+		return modificationCount;
+	}
+
 	public long getLastReadAccess() {
 		return lastReadAccess;
 	}
 
+	/**
+	 * Returns the total time in milliseconds threads have been waiting for a read lock.
+	 */
+	public long getReadLockWaitTime() {
+		synchronized (mutex) {
+			return readLockWaitTime / 1000000;
+		}
+	}
+
+	/**
+	 * Returns the total time in milliseconds threads have been waiting for a write lock.
+	 */
+	public long getWriteLockWaitTime() {
+		synchronized (mutex) {
+			return writeLockWaitTime / 1000000;
+		}
+	}
+
 	protected PDOMLinkage adaptLinkage(ILinkage linkage) throws CoreException {
 		return fLinkageIDCache.get(linkage.getLinkageID());
 	}
@@ -1205,37 +1476,57 @@ public class PDOM extends PlatformObject implements IPDOM {
 
 	@Override
 	public IIndexFragmentName[] findNames(IBinding binding, int options) throws CoreException {
-		ArrayList<IIndexFragmentName> names= new ArrayList<>();
 		IIndexFragmentBinding myBinding= adaptBinding(binding);
+		int capacity= 10;
+		if ((options & FIND_REFERENCES) != 0 && myBinding instanceof PDOMBinding) {
+			capacity+= ((PDOMBinding) myBinding).getReferenceCount();
+		}
+		ArrayList<IIndexFragmentName> names= new ArrayList<>(capacity);
+		findNames(binding, myBinding, options, name -> names.add((IIndexFragmentName) name));
+		return names.toArray(new IIndexFragmentName[names.size()]);
+	}
+
+	@Override
+	public boolean findNames(IBinding binding, int options, IIndexNameVisitor visitor) throws CoreException {
+		return findNames(binding, adaptBinding(binding), options, visitor);
+	}
+
+	private boolean findNames(IBinding binding, IIndexFragmentBinding myBinding, int options,
+			IIndexNameVisitor visitor) throws CoreException {
 		if (myBinding instanceof PDOMBinding) {
 			PDOMBinding pdomBinding = (PDOMBinding) myBinding;
-			findNamesForMyBinding(pdomBinding, options, names);
+			if (!findNamesForMyBinding(pdomBinding, options, visitor))
+				return false;
 			if ((options & SEARCH_ACROSS_LANGUAGE_BOUNDARIES) != 0) {
 				PDOMBinding[] xlangBindings= getCrossLanguageBindings(binding);
 				for (PDOMBinding xlangBinding : xlangBindings) {
-					findNamesForMyBinding(xlangBinding, options, names);
+					if (!findNamesForMyBinding(xlangBinding, options, visitor))
+						return false;
 				}
 			}
 		} else if (myBinding instanceof PDOMMacroContainer) {
 			final PDOMMacroContainer macroContainer = (PDOMMacroContainer) myBinding;
-			findNamesForMyBinding(macroContainer, options, names);
+			if (!findNamesForMyBinding(macroContainer, options, visitor))
+				return false;
 			if ((options & SEARCH_ACROSS_LANGUAGE_BOUNDARIES) != 0) {
 				PDOMMacroContainer[] xlangBindings= getCrossLanguageBindings(macroContainer);
 				for (PDOMMacroContainer xlangBinding : xlangBindings) {
-					findNamesForMyBinding(xlangBinding, options, names);
+					if (!findNamesForMyBinding(xlangBinding, options, visitor))
+						return false;
 				}
 			}
 		}
-		return names.toArray(new IIndexFragmentName[names.size()]);
+		return true;
 	}
 
-	private void findNamesForMyBinding(PDOMBinding pdomBinding, int options, ArrayList<IIndexFragmentName> names)
+	private boolean findNamesForMyBinding(PDOMBinding pdomBinding, int options, IIndexNameVisitor visitor)
 			throws CoreException {
 		PDOMName name;
 		if ((options & FIND_DECLARATIONS) != 0) {
 			for (name= pdomBinding.getFirstDeclaration(); name != null; name= name.getNextInBinding()) {
 				if (isCommitted(name) && !name.isPotentialMatch()) {
-					names.add(name);
+					if (!visitor.visit(name))
+						return false;
 				}
 			}
 		}
@@ -1243,41 +1534,59 @@ public class PDOM extends PlatformObject implements IPDOM {
 			for (name = pdomBinding.getFirstDefinition(); name != null; name= name.getNextInBinding()) {
 				boolean findPotentialMatches = (options & FIND_POTENTIAL_MATCHES) != 0;
 				if (isCommitted(name) && (!name.isPotentialMatch() || findPotentialMatches)) {
-					names.add(name);
+					if (!visitor.visit(name))
+						return false;
 				}
 			}
 		}
 		if ((options & FIND_REFERENCES) != 0) {
+			if ((options & FIND_BASE_SPECIFIERS_ONLY) != 0) {
+				for (long rec : getBaseSpecifierIndex().getNames(pdomBinding.getRecord())) {
+					name= new PDOMName(pdomBinding.getLinkage(), rec);
+					if (name.isReference() && isCommitted(name) && !name.isPotentialMatch()) {
+						if (!visitor.visit(name))
+							return false;
+					}
+				}
+				return true;
+			}
 			for (name = pdomBinding.getFirstReference(); name != null; name= name.getNextInBinding()) {
 				if (isCommitted(name) && !name.isPotentialMatch()) {
-					names.add(name);
+					if (!visitor.visit(name))
+						return false;
 				}
 			}
 			for (IPDOMIterator<PDOMName> iterator = pdomBinding.getExternalReferences(); iterator.hasNext();) {
 				name = iterator.next();
-				if (isCommitted(name) && !name.isPotentialMatch())
-					names.add(name);
+				if (isCommitted(name) && !name.isPotentialMatch()) {
+					if (!visitor.visit(name))
+						return false;
+				}
 			}
 		}
+		return true;
 	}
 
-	private void findNamesForMyBinding(PDOMMacroContainer container, int options, ArrayList<IIndexFragmentName> names)
+	private boolean findNamesForMyBinding(PDOMMacroContainer container, int options, IIndexNameVisitor visitor)
 			throws CoreException {
 		if ((options & FIND_DEFINITIONS) != 0) {
 			for (PDOMMacro macro= container.getFirstDefinition(); macro != null; macro= macro.getNextInContainer()) {
 				final IIndexFragmentName name = macro.getDefinition();
 				if (name != null && isCommitted(macro)) {
-					names.add(name);
+					if (!visitor.visit(name))
+						return false;
 				}
 			}
 		}
 		if ((options & FIND_REFERENCES) != 0) {
 			for (PDOMMacroReferenceName name = container.getFirstReference(); name != null; name= name.getNextInContainer()) {
 				if (isCommitted(name)) {
-					names.add(name);
+					if (!visitor.visit(name))
+						return false;
 				}
 			}
 		}
+		return true;
 	}
 
 	public IRecordIterator getDeclarationsDefintitionsRecordIterator(IIndexBinding binding) throws CoreException {
@@ -1343,9 +1652,85 @@ public class PDOM extends PlatformObject implements IPDOM {
 	@Override
 	public IIndexFragmentBinding[] findBindingsForContentAssist(char[] prefix, boolean filescope,
 			IndexFilter filter, IProgressMonitor monitor) throws CoreException {
+		char[] initials= extractInitials(prefix);
+		if (initials != null) {
+			return findBindingsForInitials(prefix, initials, filescope, filter, monitor);
+		}
 		return findBindingsForPrefixOrContentAssist(prefix, filescope, true, false, filter, monitor);
 	}
 
+	/**
+	 * Returns the initials that every name matching the content assist pattern must contain in
+	 * the same order, or {@code null} if the pattern is not a camel case pattern with at least
+	 * two such initials. The segments are determined like it is done by the
+	 * {@link org.eclipse.cdt.core.parser.util.SegmentMatcher}.
+	 */
+	static char[] extractInitials(char[] pattern) {
+		if (!ContentAssistMatcherFactory.getInstance().getShowCamelCaseMatches())
+			return null;
+
+		StringBuilder initials= new StringBuilder();
+		int i= 0;
+		while (i < pattern.length) {
+			char separator= 0;
+			for (; i < pattern.length && !Character.isLetterOrDigit(pattern[i]); i++) {
+				separator= pattern[i];
+			}
+			if (i == pattern.length)
+				break;
+
+			if (Character.isDigit(pattern[i])) {
+				while (++i < pattern.length && Character.isDigit(pattern[i])) {
+				}
+			} else {
+				// A segment that follows a separator other than an underscore does not need to
+				// start a segment of the name.
+				if (separator == 0 || separator == '_') {
+					initials.append(Character.toLowerCase(pattern[i]));
+				}
+				while (++i < pattern.length && Character.isLetter(pattern[i])
+						&& !Character.isUpperCase(pattern[i])) {
+				}
+			}
+		}
+		if (initials.length() < 2)
+			return null;
+		char[] result= new char[initials.length()];
+		initials.getChars(0, result.length, result, 0);
+		return result;
+	}
+
+	/**
+	 * Finds the bindings for a camel case pattern for content assist. The names that start with
+	 * the pattern come first, followed by the names that match the segments of the pattern.
+	 * The candidates for the latter are looked up in the string pool by the initials of the
+	 * pattern, names with fewer segments are ranked higher.
+	 */
+	private IIndexFragmentBinding[] findBindingsForInitials(char[] pattern, char[] initials,
+			boolean filescope, IndexFilter filter, IProgressMonitor monitor) throws CoreException {
+		IIndexFragmentBinding[] prefixMatches=
+				findBindingsForPrefixOrContentAssist(pattern, filescope, false, false, filter, monitor);
+		List<IIndexFragmentBinding> result= new ArrayList<>(Arrays.asList(prefixMatches));
+
+		IContentAssistMatcher matcher= ContentAssistMatcherFactory.getInstance().createMatcher(pattern);
+		List<char[]> names= new ArrayList<>();
+		for (char[] name : getStringPool().findCandidatesForInitials(initials)) {
+			if (!CharArrayUtils.equals(name, 0, pattern.length, pattern, true) && matcher.match(name)) {
+				names.add(name);
+			}
+		}
+		Collections.sort(names, (n1, n2) -> {
+			int cmp= PDOMStringPool.getInitials(n1).length - PDOMStringPool.getInitials(n2).length;
+			return cmp != 0 ? cmp : CharArrayUtils.compare(n1, n2);
+		});
+		for (char[] name : names) {
+			if (monitor != null && monitor.isCanceled())
+				break;
+			result.addAll(Arrays.asList(findBindings(name, filescope, true, filter, monitor)));
+		}
+		return result.toArray(new IIndexFragmentBinding[result.size()]);
+	}
+
 	private IIndexFragmentBinding[] findBindingsForPrefixOrContentAssist(char[] prefix, boolean filescope,
 			boolean isContentAssist, boolean caseSensitive, IndexFilter filter, IProgressMonitor monitor)
 			throws CoreException {
@@ -1488,22 +1873,40 @@ public class PDOM extends PlatformObject implements IPDOM {
 	private void clearCaches() {
 		fileIndex= null;
 		tagIndex = null;
+		stringPool = null;
+		enclosedNamesIndex = null;
+		baseSpecifierIndex = null;
 		indexOfDefectiveFiles= null;
 		indexOfFiledWithUnresolvedIncludes= null;
 		fLinkageIDCache.clear();
+		fResultCache.clear();
 		clearResultCache();
 	}
 
+	/**
+	 * Clears the transient entries of the result cache. Entries stored for a linkage are kept
+	 * until the linkage is changed.
+	 */
 	@Override
 	public void clearResultCache() {
-		synchronized (fResultCache) {
-			fResultCache.clear();
-		}
+		fResultCache.clearTransient();
 		synchronized (fVariableResultCache) {
 			fVariableResultCache.clear();
 		}
 	}
 
+	/**
+	 * Notifies the PDOM that the content of a linkage is changed while holding the write lock.
+	 * The results cached for the linkage are dropped right away and again when the write lock
+	 * is released.
+	 */
+	protected void linkageChanged(int linkageID) {
+		// The writer must not see stale results either.
+		if (fChangedLinkages.add(linkageID)) {
+			fResultCache.clearLinkage(linkageID);
+		}
+	}
+
 	@Override
 	public long getCacheHits() {
 		return db.getCacheHits();
@@ -1517,6 +1920,17 @@ public class PDOM extends PlatformObject implements IPDOM {
 	@Override
 	public void resetCacheCounters() {
 		db.resetCacheCounters();
+		fResultCache.resetCounters();
+	}
+
+	@Override
+	public long getResultCacheHits() {
+		return fResultCache.getHits();
+	}
+
+	@Override
+	public long getResultCacheMisses() {
+		return fResultCache.getMisses();
 	}
 
 	protected void flush() throws CoreException {
@@ -1525,9 +1939,7 @@ public class PDOM extends PlatformObject implements IPDOM {
 
 	@Override
 	public Object getCachedResult(Object key) {
-		synchronized (fResultCache) {
-			return fResultCache.get(key);
-		}
+		return fResultCache.get(key);
 	}
 
 	public void putCachedResult(Object key, Object result) {
@@ -1536,20 +1948,20 @@ public class PDOM extends PlatformObject implements IPDOM {
 
 	@Override
 	public Object putCachedResult(Object key, Object result, boolean replace) {
-		synchronized (fResultCache) {
-			Object old= fResultCache.put(key, result);
-			if (old != null && !replace) {
-				fResultCache.put(key, old);
-				return old;
-			}
-			return result;
-		}
+		return fResultCache.put(key, result, replace, PDOMResultCache.TRANSIENT);
+	}
+
+	/**
+	 * Caches a result that is computed from the given linkage only and does not reference
+	 * objects of an AST or bindings of the index. Unlike other results it is kept when the
+	 * locks are released, until the linkage is changed.
+	 */
+	public void putCachedResult(int linkageID, Object key, Object result) {
+		fResultCache.put(key, result, true, linkageID);
 	}
 
 	public void removeCachedResult(Object key) {
-		synchronized (fResultCache) {
-			fResultCache.remove(key);
-		}
+		fResultCache.remove(key);
 	}
 
 	public IValue getCachedVariableResult(Long key) {
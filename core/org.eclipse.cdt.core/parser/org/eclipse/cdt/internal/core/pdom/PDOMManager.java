@@ -18,7 +18,9 @@
  *******************************************************************************/
 package org.eclipse.cdt.internal.core.pdom;
 
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -75,6 +77,7 @@ import org.eclipse.cdt.internal.core.index.IndexerStateEvent;
 import org.eclipse.cdt.internal.core.index.provider.IndexProviderManager;
 import org.eclipse.cdt.internal.core.pdom.PDOM.IListener;
 import org.eclipse.cdt.internal.core.pdom.db.ChunkCache;
+import org.eclipse.cdt.internal.core.pdom.db.Database;
 import org.eclipse.cdt.internal.core.pdom.dom.IPDOMLinkageFactory;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMProjectIndexLocationConverter;
 import org.eclipse.cdt.internal.core.pdom.indexer.AbstractPDOMIndexer;
@@ -313,6 +316,8 @@ public class PDOMManager implements IWritableIndexManager, IListener {
 		long m1= Runtime.getRuntime().maxMemory() / 100L * cachePct;
 		long m2= Math.min(m1, cacheMax * 1024L * 1024L);
 		ChunkCache.getSharedInstance().setMaxSize(m2);
+		// A single index must not be able to evict all the chunks of the others.
+		ChunkCache.getSharedInstance().setMaxSizePerDatabase(m2 / 2);
 	}
 
 	private void updatePathCanonicalizationStrategy() {
@@ -1344,6 +1349,7 @@ public class PDOMManager implements IWritableIndexManager, IListener {
 		// make a copy of the database
 		String newName= createNewDatabaseName(project);
 		File newFile= fileFromDatabaseName(newName);
+		boolean compressed= false;
 		OutputStream out= new FileOutputStream(newFile);
 		try {
 			int version= 0;
@@ -1352,17 +1358,11 @@ public class PDOMManager implements IWritableIndexManager, IListener {
 				version= (version << 8) + (b & 0xff);
 				out.write(b);
 			}
-			if (version > PDOM.getMaxSupportedVersion()) {
-				final IStatus status = new Status(IStatus.WARNING, CCorePlugin.PLUGIN_ID, 0,
-						CCorePlugin.getResourceString("PDOMManager.unsupportedHigherVersion"), null); //$NON-NLS-1$
-				throw new CoreException(status);
+			compressed= version == Database.COMPRESSED_FORMAT;
+			if (!compressed) {
+				checkImportedVersion(version);
 			}
-			if (!PDOM.isSupportedVersion(version)) {
-				final IStatus status = new Status(IStatus.WARNING, CCorePlugin.PLUGIN_ID, 0,
-						CCorePlugin.getResourceString("PDOMManager.unsupportedVersion"), null); //$NON-NLS-1$
-				throw new CoreException(status);
-			}
-			byte[] buffer= new byte[2048];
+			byte[] buffer= new byte[64 * 1024];
 			int read;
 			while ((read= stream.read(buffer)) >= 0) {
 				out.write(buffer, 0, read);
@@ -1371,6 +1371,23 @@ public class PDOMManager implements IWritableIndexManager, IListener {
 			out.close();
 		}
 
+		if (compressed) {
+			// The project's database needs to be writable.
+			File compressedFile= new File(newFile.getPath() + ".compressed"); //$NON-NLS-1$
+			compressedFile.delete();
+			if (!newFile.renameTo(compressedFile)) {
+				throw new IOException("Cannot rename " + newFile); //$NON-NLS-1$
+			}
+			try {
+				Database.decompress(compressedFile, newFile);
+			} finally {
+				compressedFile.delete();
+			}
+			try (DataInputStream in= new DataInputStream(new FileInputStream(newFile))) {
+				checkImportedVersion(in.readInt());
+			}
+		}
+
 		WritablePDOM pdom= (WritablePDOM) getPDOM(project);
 		try {
 			pdom.acquireWriteLock(monitor);
@@ -1386,6 +1403,19 @@ public class PDOMManager implements IWritableIndexManager, IListener {
 		}
 	}
 
+	private static void checkImportedVersion(int version) throws CoreException {
+		if (version > PDOM.getMaxSupportedVersion()) {
+			final IStatus status = new Status(IStatus.WARNING, CCorePlugin.PLUGIN_ID, 0,
+					CCorePlugin.getResourceString("PDOMManager.unsupportedHigherVersion"), null); //$NON-NLS-1$
+			throw new CoreException(status);
+		}
+		if (!PDOM.isSupportedVersion(version)) {
+			final IStatus status = new Status(IStatus.WARNING, CCorePlugin.PLUGIN_ID, 0,
+					CCorePlugin.getResourceString("PDOMManager.unsupportedVersion"), null); //$NON-NLS-1$
+			throw new CoreException(status);
+		}
+	}
+
 	@Override
 	public void export(ICProject project, String location, int options, IProgressMonitor monitor) throws CoreException {
 		TeamPDOMExportOperation operation= new TeamPDOMExportOperation(project);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2012 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,6 +23,7 @@ import org.eclipse.cdt.core.dom.ast.IBinding;
 import org.eclipse.cdt.core.index.IIndexFileLocation;
 import org.eclipse.cdt.core.index.IIndexLinkage;
 import org.eclipse.cdt.core.index.IIndexMacro;
+import org.eclipse.cdt.core.index.IIndexNameVisitor;
 import org.eclipse.cdt.core.index.IndexFilter;
 import org.eclipse.cdt.core.parser.ISignificantMacros;
 import org.eclipse.cdt.internal.core.index.IIndexFragmentBinding;
@@ -151,6 +152,15 @@ public class PDOMProxy implements IPDOM {
 		return IIndexFragmentName.EMPTY_NAME_ARRAY;
 	}
 
+	@Override
+	public synchronized boolean findNames(IBinding binding, int flags, IIndexNameVisitor visitor)
+			throws CoreException {
+		if (fDelegate != null)
+			return fDelegate.findNames(binding, flags, visitor);
+
+		return true;
+	}
+
 	@Override
 	public synchronized long getCacheHits() {
 		if (fDelegate != null)
@@ -167,6 +177,22 @@ public class PDOMProxy implements IPDOM {
 		return 0;
 	}
 
+	@Override
+	public synchronized long getResultCacheHits() {
+		if (fDelegate != null)
+			return fDelegate.getResultCacheHits();
+
+		return 0;
+	}
+
+	@Override
+	public synchronized long getResultCacheMisses() {
+		if (fDelegate != null)
+			return fDelegate.getResultCacheMisses();
+
+		return 0;
+	}
+
 	@Deprecated
 	@Override
 	public synchronized IIndexFragmentFile getFile(int linkageID, IIndexFileLocation location) throws CoreException {
@@ -210,6 +236,14 @@ public class PDOMProxy implements IPDOM {
 		return 0;
 	}
 
+	@Override
+	public synchronized long getModificationCount() {
+		if (fDelegate != null)
+			return fDelegate.getModificationCount();
+
+		return 0;
+	}
+
 	@Override
 	public synchronized IIndexLinkage[] getLinkages() {
 		if (fDelegate != null)
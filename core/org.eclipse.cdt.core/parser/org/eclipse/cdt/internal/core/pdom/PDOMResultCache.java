@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom;
+
+import java.lang.ref.Reference;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.cdt.core.parser.util.CharArrayMap;
+
+/**
+ * Bounded cache for results computed from the index, see {@link PDOM#getCachedResult(Object)}.
+ * <p>
+ * The cache is split into stripes, each of which is a map in access order with its own lock.
+ * When the weight of the entries of a stripe exceeds its share of the maximum weight, the least
+ * recently used entries of the stripe are evicted. The weight of an entry is one, plus the length
+ * of its value if that is an array, or its size if it is a map or a collection. For a reference
+ * the weight of the referent at the time the entry is added is used.
+ * <p>
+ * Entries are either transient or belong to a linkage. Transient entries may reference objects of
+ * an AST or bindings of the index and are dropped when the locks on the index are released.
+ * Entries that belong to a linkage are computed from the database only and must not reference
+ * bindings, which cache results of name resolution. They survive the release of locks and are
+ * dropped when the content of their linkage is changed.
+ * <p>
+ * Transient entries that are added without replacing an existing entry are shared by identity,
+ * e.g. the caches of template instances that also hold instances created for an AST. Such entries
+ * cannot be recomputed, they are pinned: they are not evicted and do not count towards the weight
+ * of the cache.
+ */
+public final class PDOMResultCache {
+	/** Linkage ID used for transient entries. */
+	public static final int TRANSIENT = -1;
+
+	private static final int STRIPE_COUNT = 16;
+
+	private static final class Entry {
+		final Object fValue;
+		final int fLinkageID;
+		final int fWeight;
+
+		Entry(Object value, int linkageID) {
+			fValue= value;
+			fLinkageID= linkageID;
+			fWeight= 1 + getSize(value instanceof Reference ? ((Reference<?>) value).get() : value);
+		}
+
+		private static int getSize(Object value) {
+			if (value instanceof Object[])
+				return ((Object[]) value).length;
+			if (value instanceof long[])
+				return ((long[]) value).length;
+			if (value instanceof Map)
+				return ((Map<?, ?>) value).size();
+			if (value instanceof Collection)
+				return ((Collection<?>) value).size();
+			if (value instanceof CharArrayMap)
+				return ((CharArrayMap<?>) value).size();
+			return 0;
+		}
+	}
+
+	/**
+	 * Part of the cache with its own lock. Fields are protected by the stripe itself.
+	 */
+	private static final class Stripe {
+		final Map<Object, Entry> fMap= new LinkedHashMap<>(16, 0.75f, true);
+		final Map<Object, Entry> fPinned= new HashMap<>();
+		final int fMaxWeight;
+		int fWeight;
+		int fTransientCount;
+		long fHits;
+		long fMisses;
+		long fEvictions;
+
+		Stripe(int maxWeight) {
+			fMaxWeight= maxWeight;
+		}
+
+		void added(Entry entry) {
+			fWeight+= entry.fWeight;
+			if (entry.fLinkageID == TRANSIENT)
+				fTransientCount++;
+		}
+
+		void removed(Entry entry) {
+			fWeight-= entry.fWeight;
+			if (entry.fLinkageID == TRANSIENT)
+				fTransientCount--;
+		}
+
+		void evict() {
+			Iterator<Entry> it= fMap.values().iterator();
+			while (fWeight > fMaxWeight && it.hasNext()) {
+				Entry eldest= it.next();
+				it.remove();
+				removed(eldest);
+				fEvictions++;
+			}
+		}
+	}
+
+	private final Stripe[] fStripes;
+
+	/**
+	 * Creates a cache for entries with the given total weight.
+	 */
+	public PDOMResultCache(int maxWeight) {
+		fStripes= new Stripe[STRIPE_COUNT];
+		for (int i= 0; i < fStripes.length; i++) {
+			fStripes[i]= new Stripe(Math.max(1, maxWeight / STRIPE_COUNT));
+		}
+	}
+
+	private Stripe getStripe(Object key) {
+		int h= key.hashCode();
+		h^= h >>> 16;
+		return fStripes[h & (STRIPE_COUNT - 1)];
+	}
+
+	/**
+	 * Returns the cached value for the key, or {@code null}.
+	 */
+	public Object get(Object key) {
+		final Stripe stripe= getStripe(key);
+		synchronized (stripe) {
+			Entry entry= stripe.fMap.get(key);
+			if (entry == null) {
+				entry= stripe.fPinned.get(key);
+			}
+			if (entry == null) {
+				stripe.fMisses++;
+				return null;
+			}
+			stripe.fHits++;
+			return entry.fValue;
+		}
+	}
+
+	/**
+	 * Caches a value. A {@code null} value removes the entry for the key.
+	 * @param replace if {@code false} an existing entry will not be replaced. A transient value
+	 *     added this way is pinned until the transient entries are removed.
+	 * @param linkageID the linkage the value is computed from, or {@link #TRANSIENT}.
+	 * @return the value that is actually stored.
+	 */
+	public Object put(Object key, Object value, boolean replace, int linkageID) {
+		final Stripe stripe= getStripe(key);
+		synchronized (stripe) {
+			Entry old= stripe.fPinned.get(key);
+			if (old != null) {
+				if (!replace && value != null)
+					return old.fValue;
+				stripe.fPinned.remove(key);
+			}
+			old= stripe.fMap.get(key);
+			if (old != null) {
+				if (!replace && value != null)
+					return old.fValue;
+				stripe.fMap.remove(key);
+				stripe.removed(old);
+			}
+			if (value != null) {
+				Entry entry= new Entry(value, linkageID);
+				if (!replace && linkageID == TRANSIENT) {
+					stripe.fPinned.put(key, entry);
+				} else {
+					stripe.fMap.put(key, entry);
+					stripe.added(entry);
+					stripe.evict();
+				}
+			}
+			return value;
+		}
+	}
+
+	/**
+	 * Removes the entry for the key.
+	 */
+	public void remove(Object key) {
+		put(key, null, true, TRANSIENT);
+	}
+
+	/**
+	 * Removes the transient entries.
+	 */
+	public void clearTransient() {
+		for (Stripe stripe : fStripes) {
+			synchronized (stripe) {
+				stripe.fPinned.clear();
+				if (stripe.fTransientCount > 0) {
+					removeIf(stripe, TRANSIENT);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the entries of the given linkage.
+	 */
+	public void clearLinkage(int linkageID) {
+		for (Stripe stripe : fStripes) {
+			synchronized (stripe) {
+				removeIf(stripe, linkageID);
+			}
+		}
+	}
+
+	private static void removeIf(Stripe stripe, int linkageID) {
+		for (Iterator<Entry> it= stripe.fMap.values().iterator(); it.hasNext();) {
+			Entry entry= it.next();
+			if (entry.fLinkageID == linkageID) {
+				it.remove();
+				stripe.removed(entry);
+			}
+		}
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public void clear() {
+		for (Stripe stripe : fStripes) {
+			synchronized (stripe) {
+				stripe.fMap.clear();
+				stripe.fPinned.clear();
+				stripe.fWeight= 0;
+				stripe.fTransientCount= 0;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of entries in the cache.
+	 */
+	public int size() {
+		int result= 0;
+		for (Stripe stripe : fStripes) {
+			synchronized (stripe) {
+				result+= stripe.fMap.size() + stripe.fPinned.size();
+			}
+		}
+		return result;
+	}
+
+	public long getHits() {
+		long result= 0;
+		for (Stripe stripe : fStripes) {
+			synchronized (stripe) {
+				result+= stripe.fHits;
+			}
+		}
+		return result;
+	}
+
+	public long getMisses() {
+		long result= 0;
+		for (Stripe stripe : fStripes) {
+			synchronized (stripe) {
+				result+= stripe.fMisses;
+			}
+		}
+		return result;
+	}
+
+	public long getEvictions() {
+		long result= 0;
+		for (Stripe stripe : fStripes) {
+			synchronized (stripe) {
+				result+= stripe.fEvictions;
+			}
+		}
+		return result;
+	}
+
+	public void resetCounters() {
+		for (Stripe stripe : fStripes) {
+			synchronized (stripe) {
+				stripe.fHits= 0;
+				stripe.fMisses= 0;
+				stripe.fEvictions= 0;
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "PDOMResultCache: " + size() + " entries, " + getHits() + " hits, " + getMisses() //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ " misses, " + getEvictions() + " evictions"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
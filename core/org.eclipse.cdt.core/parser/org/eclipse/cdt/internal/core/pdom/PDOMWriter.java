@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2015 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -270,24 +270,52 @@ public abstract class PDOMWriter implements IPDOMASTProcessor {
 		if (data.isEmpty() || storageLinkageID == ILinkage.NO_LINKAGE_ID)
 			return;
 
+		SubMonitor progress = SubMonitor.convert(monitor, 2);
+		// Name resolution.
+		resolveSymbols(data, storageLinkageID, progress.split(1));
+
+		// Index update.
+		storeSymbols(data, storageLinkageID, ctx, progress.split(1));
+	}
+
+	/**
+	 * Resolves the names collected for the given AST, the first half of
+	 * {@link #addSymbols(Data, int, FileContext, IProgressMonitor)}. The index is not modified,
+	 * such that the method may be called for different ASTs on different threads at the same time.
+	 */
+	final protected void resolveSymbols(Data data, int storageLinkageID, IProgressMonitor monitor) {
+		if (data.isEmpty() || storageLinkageID == ILinkage.NO_LINKAGE_ID)
+			return;
+
 		if (fShowProblems) {
 			fShowInclusionProblems= true;
 			fShowScannerProblems= true;
 			fShowSyntaxProblems= true;
 		}
 
-		SubMonitor progress = SubMonitor.convert(monitor, 2);
-		// Name resolution.
-		resolveNames(data, progress.split(1));
+		resolveNames(data, monitor);
+	}
 
-		// Index update.
-		storeSymbolsInIndex(data, storageLinkageID, ctx, progress.split(1));
+	/**
+	 * Adds the symbols resolved by {@link #resolveSymbols(Data, int, IProgressMonitor)} to
+	 * the index, the second half of {@link #addSymbols(Data, int, FileContext, IProgressMonitor)}.
+	 * Files of the AST that have been replaced by {@code null} in the selected files of the data
+	 * are skipped.
+	 */
+	final protected void storeSymbols(Data data, int storageLinkageID, FileContext ctx,
+			IProgressMonitor monitor) throws InterruptedException, CoreException {
+		if (data.isEmpty() || storageLinkageID == ILinkage.NO_LINKAGE_ID)
+			return;
+
+		storeSymbolsInIndex(data, storageLinkageID, ctx, monitor);
 
 		if (!data.fStatuses.isEmpty()) {
 			List<IStatus> statuses = data.fStatuses;
 			String path= null;
-			if (data.fSelectedFiles.length > 0) {
-				path= data.fSelectedFiles[data.fSelectedFiles.length - 1].fileContentKey.getLocation().getURI().getPath();
+			FileInAST lastFile= data.fSelectedFiles.length > 0 ?
+					data.fSelectedFiles[data.fSelectedFiles.length - 1] : null;
+			if (lastFile != null) {
+				path= lastFile.fileContentKey.getLocation().getURI().getPath();
 			} else {
 				path= data.fAST.getFilePath().toString();
 			}
@@ -361,6 +389,9 @@ public abstract class PDOMWriter implements IPDOMASTProcessor {
 
 	private void resolveNames(Data data, IProgressMonitor monitor) {
 		long start= System.currentTimeMillis();
+		int problemBindingCount= 0;
+		int referenceCount= 0;
+		int declarationCount= 0;
 		Set<ICPPInternalDeclaredVariable> variables = new HashSet<>();
 		SubMonitor progress = SubMonitor.convert(monitor, data.fSelectedFiles.length);
 		for (FileInAST file : data.fSelectedFiles) {
@@ -391,7 +422,7 @@ public abstract class PDOMWriter implements IPDOMASTProcessor {
 							if (REPORT_UNKNOWN_BUILTINS ||
 									problemBinding.getID() != IProblemBinding.BINDING_NOT_FOUND ||
 									!CharArrayUtils.startsWith(problemBinding.getNameCharArray(), "__builtin_")) { //$NON-NLS-1$
-								fStatistics.fProblemBindingCount++;
+								problemBindingCount++;
 								if (fShowProblems) {
 									reportProblem(problemBinding);
 								}
@@ -404,13 +435,13 @@ public abstract class PDOMWriter implements IPDOMASTProcessor {
 								if (!isRequiredReference(name)) {
 									na[0]= null;
 								} else {
-									fStatistics.fReferenceCount++;
+									referenceCount++;
 								}
 							} else {
-								fStatistics.fReferenceCount++;
+								referenceCount++;
 							}
 						} else {
-							fStatistics.fDeclarationCount++;
+							declarationCount++;
 						}
 					} catch (RuntimeException | StackOverflowError e) {
 						if (!reported) {
@@ -434,7 +465,13 @@ public abstract class PDOMWriter implements IPDOMASTProcessor {
 			}
 		}
 
-		fStatistics.fResolutionTime += System.currentTimeMillis() - start;
+		// Names of different ASTs may be resolved concurrently.
+		synchronized (fStatistics) {
+			fStatistics.fProblemBindingCount += problemBindingCount;
+			fStatistics.fReferenceCount += referenceCount;
+			fStatistics.fDeclarationCount += declarationCount;
+			fStatistics.fResolutionTime += System.currentTimeMillis() - start;
+		}
 	}
 
 	private boolean isVariableIndexed(ICPPVariable variable) {
@@ -556,8 +593,12 @@ public abstract class PDOMWriter implements IPDOMASTProcessor {
 			}
 		}
 
-		fStatistics.fUnresolvedIncludesCount += unresolvedIncludes;
-		fStatistics.fPreprocessorProblemCount += ast.getPreprocessorProblemsCount() - unresolvedIncludes;
+		final List<IASTProblem> problems= visitor.getProblems();
+		synchronized (fStatistics) {
+			fStatistics.fUnresolvedIncludesCount += unresolvedIncludes;
+			fStatistics.fPreprocessorProblemCount += ast.getPreprocessorProblemsCount() - unresolvedIncludes;
+			fStatistics.fSyntaxProblemsCount += problems.size();
+		}
 		if (fShowScannerProblems || fShowInclusionProblems) {
 			final boolean reportAll= fShowScannerProblems && fShowInclusionProblems;
 			IASTProblem[] scannerProblems= ast.getPreprocessorProblems();
@@ -568,8 +609,6 @@ public abstract class PDOMWriter implements IPDOMASTProcessor {
 			}
 		}
 
-		final List<IASTProblem> problems= visitor.getProblems();
-		fStatistics.fSyntaxProblemsCount += problems.size();
 		if (fShowSyntaxProblems) {
 			for (IASTProblem problem : problems) {
 				reportProblem(problem);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,6 +32,7 @@ import org.eclipse.cdt.core.index.IIndexLocationConverter;
 import org.eclipse.cdt.core.model.ICProject;
 import org.eclipse.cdt.core.model.LanguageManager;
 import org.eclipse.cdt.internal.core.CCoreInternals;
+import org.eclipse.cdt.internal.core.pdom.db.Database;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMProjectIndexLocationConverter;
 import org.eclipse.cdt.internal.core.pdom.indexer.IndexerPreferences;
 import org.eclipse.cdt.internal.core.resources.ResourceLookup;
@@ -57,6 +58,12 @@ public class TeamPDOMExportOperation implements IWorkspaceRunnable {
 	 */
 	public static int EXPORT_OPTION_RESOURCE_SNAPSHOT = 1;
 
+	/**
+	 * Option constant (value:2) to indicate that the exported index should store its
+	 * chunks compressed. Read-only indexes can be used without decompressing them first.
+	 */
+	public static int EXPORT_OPTION_COMPRESSED_INDEX = 2;
+
 	private static final String RESOURCE_PREFIX = "res-"; //$NON-NLS-1$
 	private static final String CDT_PREFIX = "cdt-"; //$NON-NLS-1$
 	private static final String RESOURCE_SNAP_EXTENSION = "snap.zip"; //$NON-NLS-1$
@@ -90,9 +97,13 @@ public class TeamPDOMExportOperation implements IWorkspaceRunnable {
 	
 		File tmpPDOM= null;
 		File tmpChecksums= null;
+		File tmpCompressed= null;
 		try {
 			tmpPDOM = File.createTempFile("tmp", ".pdom");  //$NON-NLS-1$//$NON-NLS-2$
 			tmpChecksums= File.createTempFile("checksums", ".dat"); //$NON-NLS-1$ //$NON-NLS-2$
+			if ((fOptions & EXPORT_OPTION_COMPRESSED_INDEX) != 0) {
+				tmpCompressed= File.createTempFile("tmp", ".pdomz"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
 		} catch (IOException e) {
 			throw new CoreException(CCorePlugin.createStatus(Messages.TeamPDOMExportOperation_errorCreatingTempFile, e));
 		}
@@ -122,7 +133,12 @@ public class TeamPDOMExportOperation implements IWorkspaceRunnable {
 			}
 			
 			// Create archive.
-			createArchive(tmpPDOM, tmpChecksums);
+			if (tmpCompressed != null) {
+				Database.compress(tmpPDOM, tmpCompressed);
+				createArchive(tmpCompressed, tmpChecksums);
+			} else {
+				createArchive(tmpPDOM, tmpChecksums);
+			}
 			
 			// Store preferences.
 			progress.setTaskName(Messages.TeamPDOMExportOperation_taskExportIndex);
@@ -144,6 +160,9 @@ public class TeamPDOMExportOperation implements IWorkspaceRunnable {
 			if (tmpChecksums != null) {
 				tmpChecksums.delete();
 			}
+			if (tmpCompressed != null) {
+				tmpCompressed.delete();
+			}
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -21,6 +21,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -59,11 +61,13 @@ public class TeamPDOMImportOperation implements IWorkspaceRunnable {
 	private static final String PROJECT_VAR_REPLACEMENT_END = "}"; //$NON-NLS-1$
 	private static final String DOLLAR_OR_BACKSLASH_REPLACEMENT = "\\\\$0"; //$NON-NLS-1$
 	private static final Pattern DOLLAR_OR_BACKSLASH_PATTERN= Pattern.compile("[\\$\\\\]"); //$NON-NLS-1$
+	private static final int MAX_CHECKSUM_THREADS = 8;
 
 	private static final class FileAndChecksum {
 		public ITranslationUnit fFile;
 		public IIndexFragmentFile fIFile;
 		public byte[] fChecksum;
+		public File fLocation;
 		public FileAndChecksum(ITranslationUnit tu, IIndexFragmentFile ifile, byte[] checksum) {
 			fFile= tu;
 			fIFile= ifile;
@@ -270,41 +274,132 @@ public class TeamPDOMImportOperation implements IWorkspaceRunnable {
 		}
 	}
 	
-	private List<FileAndChecksum> getUnchangedWithDifferentTimestamp(Map<?, ?> checksums, List<FileAndChecksum> filesToCheck, IProgressMonitor monitor) {
-        MessageDigest md;
+	private List<FileAndChecksum> getUnchangedWithDifferentTimestamp(final Map<?, ?> checksums,
+			List<FileAndChecksum> filesToCheck, final IProgressMonitor monitor) {
 		try {
-			md = Checksums.getAlgorithm(checksums);
+			Checksums.getAlgorithm(checksums);
 		} catch (NoSuchAlgorithmException e) {
 			CCorePlugin.log(e);
 			return Collections.emptyList();
-		} 
+		}
 
+		// Only files with a different timestamp need to be hashed.
+		final List<FileAndChecksum> filesToHash= new ArrayList<>();
 		List<FileAndChecksum> result= new ArrayList<>();
 		for (FileAndChecksum cs : filesToCheck) {
 			checkMonitor(monitor);
-			
+
 			ITranslationUnit tu= cs.fFile;
 			if (tu != null) {
 				IPath location= tu.getLocation();
 				if (location != null) {
-					try {
-						final File file = location.toFile();
-						if (file.isFile()) {
-							IResource res= cs.fFile.getResource();
+					final File file = location.toFile();
+					if (file.isFile()) {
+						IResource res= cs.fFile.getResource();
+						try {
 							if (res == null || res.getLocalTimeStamp() != cs.fIFile.getTimestamp()) {
-								byte[] checksum= Checksums.computeChecksum(md, file);
-								if (Arrays.equals(checksum, cs.fChecksum)) {
-									result.add(cs);
-								}
+								cs.fLocation= file;
+								filesToHash.add(cs);
 							}
+						} catch (CoreException e) {
+							CCorePlugin.log(e);
+							result.add(cs);
 						}
-					} catch (IOException | CoreException e) {
-						CCorePlugin.log(e);
-						result.add(cs);
 					}
 				}
 			}
 		}
+
+		// Hashing is bound by reading the files, it is spread over multiple threads.
+		final File[] files= new File[filesToHash.size()];
+		final byte[][] expected= new byte[files.length][];
+		for (int i = 0; i < files.length; i++) {
+			files[i]= filesToHash.get(i).fLocation;
+			expected[i]= filesToHash.get(i).fChecksum;
+		}
+		final boolean[] unchanged;
+		try {
+			unchanged= checkUnchanged(checksums, files, expected,
+					Math.min(MAX_CHECKSUM_THREADS, Runtime.getRuntime().availableProcessors()), monitor);
+		} catch (NoSuchAlgorithmException e) {
+			CCorePlugin.log(e);
+			return Collections.emptyList();
+		}
+		checkMonitor(monitor);
+
+		for (int i = 0; i < unchanged.length; i++) {
+			if (unchanged[i]) {
+				result.add(filesToHash.get(i));
+			}
+		}
 		return result;
 	}
+
+	/**
+	 * Compares the checksums of the given files with the expected ones on up to {@code threadCount}
+	 * threads, including the calling one. A file that cannot be read is considered unchanged. When
+	 * a thread fails, the files it did not complete are hashed on the calling thread, such that the
+	 * result is the same as with a single thread.
+	 * <p>
+	 * Public for testing purposes only.
+	 */
+	public static boolean[] checkUnchanged(final Map<?, ?> checksums, final File[] files,
+			final byte[][] expected, int threadCount, final IProgressMonitor monitor)
+			throws NoSuchAlgorithmException {
+		final boolean[] unchanged= new boolean[files.length];
+		final boolean[] done= new boolean[files.length];
+		final AtomicInteger nextFile= new AtomicInteger();
+		final AtomicReference<Throwable> failure= new AtomicReference<>();
+		final Runnable hasher= new Runnable() {
+			@Override
+			public void run() {
+				try {
+					MessageDigest md= Checksums.getAlgorithm(checksums);
+					int i;
+					while (!monitor.isCanceled() && (i= nextFile.getAndIncrement()) < files.length) {
+						unchanged[i]= isUnchanged(md, files[i], expected[i]);
+						done[i]= true;
+					}
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			}
+		};
+		final Thread[] threads= new Thread[Math.max(0, Math.min(threadCount, files.length) - 1)];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i]= new Thread(hasher, "Team index checksums"); //$NON-NLS-1$
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+		hasher.run();
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OperationCanceledException();
+			}
+		}
+
+		Throwable e= failure.get();
+		if (e != null) {
+			CCorePlugin.log(e);
+			MessageDigest md= Checksums.getAlgorithm(checksums);
+			for (int i = 0; i < files.length && !monitor.isCanceled(); i++) {
+				if (!done[i]) {
+					unchanged[i]= isUnchanged(md, files[i], expected[i]);
+				}
+			}
+		}
+		return unchanged;
+	}
+
+	private static boolean isUnchanged(MessageDigest md, File file, byte[] expected) {
+		try {
+			return Arrays.equals(Checksums.computeChecksum(md, file), expected);
+		} catch (IOException e) {
+			CCorePlugin.log(e);
+			return true;
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -73,12 +73,14 @@ public class WritablePDOM extends PDOM implements IWritableIndexFragment {
 		if (uncommittedKey != null && uncommittedKey.equals(new FileContentKey(linkageID, location, sigMacros)))
 			return uncommittedFile;
 
+		linkageChanged(linkageID);
 		return super.addFile(linkageID, location, sigMacros);
 	}
 
 	@Override
 	public IIndexFragmentFile addUncommittedFile(int linkageID, IIndexFileLocation location,
 			ISignificantMacros significantMacros) throws CoreException {
+		linkageChanged(linkageID);
 		uncommittedKey = new FileContentKey(linkageID, location, significantMacros);
 		fileBeingUpdated = getFile(linkageID, location, significantMacros);
 		PDOMLinkage linkage= createLinkage(linkageID);
@@ -147,6 +149,7 @@ public class WritablePDOM extends PDOM implements IWritableIndexFragment {
 		assert sourceFile.getIndexFragment() == this;
 
 		PDOMFile pdomFile = (PDOMFile) sourceFile;
+		linkageChanged(pdomFile.getLinkageID());
 		pdomFile.addMacros(macros);
 		final ASTFilePathResolver origResolver= fPathResolver;
 		fPathResolver= pathResolver;
@@ -170,6 +173,7 @@ public class WritablePDOM extends PDOM implements IWritableIndexFragment {
 		assert file.getIndexFragment() == this;
 		IIndexFileLocation location = file.getLocation();
 		PDOMFile pdomFile = (PDOMFile) file;
+		linkageChanged(pdomFile.getLinkageID());
 		pdomFile.clear();
 		IIndexInclude include = pdomFile.getParsedInContext();
 		if (include != null) {
@@ -191,6 +195,16 @@ public class WritablePDOM extends PDOM implements IWritableIndexFragment {
 		super.flush();
 	}
 
+	@Override
+	public void beginBatch() {
+		getDB().beginBatch();
+	}
+
+	@Override
+	public void endBatch() {
+		getDB().endBatch();
+	}
+
 	@Override
 	public void setProperty(String propertyName, String value) throws CoreException {
 		if (IIndexFragment.PROPERTY_FRAGMENT_FORMAT_ID.equals(propertyName)
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 QNX Software Systems and others.
+ * Copyright (c) 2005, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -28,6 +28,10 @@ public class BTree {
 	private static final int DELMODE_DELETE_MINIMUM = 1;
 	private static final int DELMODE_DELETE_MAXIMUM = 2;
 
+	/** Number of characters of a name that make up its inline key, see {@link #getNameKey}. */
+	public static final int NAME_KEY_CHARS = 4;
+	private static final int KEY_SIZE = 8;
+
 	protected final Database db;
 	protected final long rootPointer;
 
@@ -37,9 +41,12 @@ public class BTree {
 	protected final int MIN_RECORDS; 
 	protected final int OFFSET_CHILDREN;
 	protected final int MEDIAN_RECORD;
+	protected final int OFFSET_KEYS;
 
 	protected final IBTreeComparator cmp;
-	
+	/** Provides the inline keys stored next to the records, or {@code null}. */
+	private final IBTreeKeyComparator keyCmp;
+
 	public BTree(Database db, long rootPointer, IBTreeComparator cmp) {
 		this(db, rootPointer, 8, cmp);
 	}
@@ -57,13 +64,35 @@ public class BTree {
 		this.db = db;
 		this.rootPointer = rootPointer;
 		this.cmp = cmp;
-		
+		this.keyCmp = cmp instanceof IBTreeKeyComparator ? (IBTreeKeyComparator) cmp : null;
+
 		this.DEGREE = degree;
 		this.MIN_RECORDS = DEGREE - 1;
 		this.MAX_RECORDS = 2 * DEGREE - 1;
 		this.MAX_CHILDREN = 2 * DEGREE;
 		this.OFFSET_CHILDREN = MAX_RECORDS * Database.INT_SIZE;
 		this.MEDIAN_RECORD = DEGREE - 1;
+		this.OFFSET_KEYS = OFFSET_CHILDREN + MAX_CHILDREN * Database.INT_SIZE;
+	}
+
+	/**
+	 * Computes an inline key for a name that is consistent with the order defined by
+	 * {@link IString#compareCompatibleWithIgnoreCase(char[])}. The key consists of the first
+	 * {@link #NAME_KEY_CHARS} characters of the name with lower case ASCII letters converted
+	 * to upper case. Missing characters of shorter names are replaced by the padding, such that
+	 * the keys for the range of names starting with a prefix can be computed with the paddings
+	 * 0 and 0xffff.
+	 */
+	public static long getNameKey(char[] name, char padding) {
+		long key= 0;
+		for (int i = 0; i < NAME_KEY_CHARS; i++) {
+			char c= i < name.length ? name[i] : padding;
+			if (c >= 'a' && c <= 'z') {
+				c -= 32;
+			}
+			key= (key << 16) | c;
+		}
+		return key;
 	}
 
 	protected long getRoot() throws CoreException {
@@ -86,6 +115,55 @@ public class BTree {
 		return chunk.getRecPtr(node + OFFSET_CHILDREN + index * Database.INT_SIZE);
 	}
 
+	private long getKey(Chunk chunk, long node, int index) {
+		return keyCmp == null ? 0 : chunk.getLong(node + OFFSET_KEYS + index * KEY_SIZE);
+	}
+
+	private void putKey(Chunk chunk, long node, int index, long key) {
+		if (keyCmp != null) {
+			chunk.putLong(node + OFFSET_KEYS + index * KEY_SIZE, key);
+		}
+	}
+
+	private long computeKey(long record) throws CoreException {
+		return keyCmp == null ? 0 : keyCmp.getKey(record);
+	}
+
+	/**
+	 * Copies a record together with its inline key.
+	 */
+	private void copyRecord(Chunk src, long srcNode, int srcIndex, Chunk dst, long dstNode, int dstIndex) {
+		putRecord(dst, dstNode, dstIndex, getRecord(src, srcNode, srcIndex));
+		putKey(dst, dstNode, dstIndex, getKey(src, srcNode, srcIndex));
+	}
+
+	/**
+	 * Compares two records, using the inline keys if possible.
+	 */
+	private int compare(long record1, long key1, long record2, long key2) throws CoreException {
+		if (keyCmp != null && key1 != key2) {
+			return Long.compareUnsigned(key1, key2);
+		}
+		return cmp.compare(record1, record2);
+	}
+
+	/**
+	 * Compares the record at the given index with the key of the visitor, using the inline
+	 * key of the record if possible.
+	 */
+	private int compare(IBTreeVisitor visitor, Chunk chunk, long node, int index, long record)
+			throws CoreException {
+		if (keyCmp != null && visitor instanceof IBTreeKeyVisitor) {
+			final IBTreeKeyVisitor keyVisitor = (IBTreeKeyVisitor) visitor;
+			final long key = getKey(chunk, node, index);
+			if (Long.compareUnsigned(key, keyVisitor.getMinKey()) < 0)
+				return -1;
+			if (Long.compareUnsigned(key, keyVisitor.getMaxKey()) > 0)
+				return 1;
+		}
+		return visitor.compare(record);
+	}
+
 	/**
 	 * Inserts the record into the b-tree. We don't insert if the key was already there,
 	 * in which case we return the record that matched. In other cases, we just return
@@ -96,21 +174,25 @@ public class BTree {
 	public long insert(long record) throws CoreException {
 		long root = getRoot();
 
+		final long key = computeKey(record);
+
 		// Is this our first time in.
 		if (root == 0) {
-			firstInsert(record);
+			firstInsert(record, key);
 			return record;
 		}
 
-		return insert(null, 0, 0, root, record);
+		return insert(null, 0, 0, root, record, key);
 	}
 
-	private long insert(Chunk pChunk, long parent, int iParent, long node, long record) throws CoreException {
+	private long insert(Chunk pChunk, long parent, int iParent, long node, long record, long key)
+			throws CoreException {
 		Chunk chunk = db.getChunk(node);
 
 		// If this node is full (last record isn't null), split it.
 		if (getRecord(chunk, node, MAX_RECORDS - 1) != 0) {
 			long median = getRecord(chunk, node, MEDIAN_RECORD); 
+			long medianKey = getKey(chunk, node, MEDIAN_RECORD);
 			if (median == record) {
 				// Found it, never mind.
 				return median;
@@ -120,7 +202,7 @@ public class BTree {
 				long newnode = allocateNode();
 				Chunk newchunk = db.getChunk(newnode);
 				for (int i = 0; i < MEDIAN_RECORD; ++i) {
-					putRecord(newchunk, newnode, i, getRecord(chunk, node, MEDIAN_RECORD + 1 + i));
+					copyRecord(chunk, node, MEDIAN_RECORD + 1 + i, newchunk, newnode, i);
 					putRecord(chunk, node, MEDIAN_RECORD + 1 + i, 0);
 					putChild(newchunk, newnode, i, getChild(chunk, node, MEDIAN_RECORD + 1 + i));
 					putChild(chunk, node, MEDIAN_RECORD + 1 + i, 0);
@@ -139,18 +221,19 @@ public class BTree {
 					for (int i = MAX_RECORDS - 2; i >= iParent; --i) {
 						long r = getRecord(pChunk, parent, i);
 						if (r != 0) {
-							putRecord(pChunk, parent, i + 1, r);
+							copyRecord(pChunk, parent, i, pChunk, parent, i + 1);
 							putChild(pChunk, parent, i + 2, getChild(pChunk, parent, i + 1));
 						}
 					}
 				}
 				putRecord(pChunk, parent, iParent, median);
+				putKey(pChunk, parent, iParent, medianKey);
 				putChild(pChunk, parent, iParent + 1, newnode);
 
 				putRecord(chunk, node, MEDIAN_RECORD, 0);
 
 				// Set the node to the correct one to follow.
-				if (cmp.compare(record, median) > 0) {
+				if (compare(record, key, median, medianKey) > 0) {
 					node = newnode;
 					chunk = newchunk;
 				}
@@ -170,7 +253,7 @@ public class BTree {
 			if (checkRec == 0) {
 				upper= middle;
 			} else {
-				int compare= cmp.compare(checkRec, record);
+				int compare= compare(checkRec, getKey(chunk, node, middle), record, key);
 				if (compare > 0) {
 					upper= middle;
 				} else if (compare < 0) {
@@ -185,30 +268,37 @@ public class BTree {
 		long child = getChild(chunk, node, i);
 		if (child != 0) {
 			// Visit the children.
-			return insert(chunk, node, i, child, record);
+			return insert(chunk, node, i, child, record, key);
 		} else {
 			// We are at the leaf, add us in.
 			// First copy everything after over one.
 			for (int j = MAX_RECORDS - 2; j >= i; --j) {
 				long r = getRecord(chunk, node, j);
 				if (r != 0)
-					putRecord(chunk, node, j + 1, r);
+					copyRecord(chunk, node, j, chunk, node, j + 1);
 			}
 			putRecord(chunk, node, i, record);
+			putKey(chunk, node, i, key);
 			return record;
 		}
 	}
 
-	private void firstInsert(long record) throws CoreException {
+	private void firstInsert(long record, long key) throws CoreException {
 		// Create the node and save it as root.
 		long root = allocateNode();
 		db.putRecPtr(rootPointer, root);
 		// Put the record in the first slot of the node.
-		putRecord(db.getChunk(root), root, 0, record); 
+		Chunk chunk = db.getChunk(root);
+		putRecord(chunk, root, 0, record); 
+		putKey(chunk, root, 0, key);
 	}
 
 	private long allocateNode() throws CoreException {
-		return db.malloc((2 * MAX_RECORDS + 1) * Database.INT_SIZE);
+		int size = (2 * MAX_RECORDS + 1) * Database.INT_SIZE;
+		if (keyCmp != null) {
+			size += MAX_RECORDS * KEY_SIZE;
+		}
+		return db.malloc(size);
 	}
 
 	/**
@@ -227,7 +317,7 @@ public class BTree {
 	 */
 	public void delete(long record) throws CoreException {
 		try {
-			deleteImp(record, getRoot(), DELMODE_NORMAL);
+			deleteImp(record, computeKey(record), getRoot(), DELMODE_NORMAL);
 		} catch (BTreeKeyNotFoundException e) {
 			// Contract of this method is to NO-OP upon this event.
 		}
@@ -275,6 +365,7 @@ public class BTree {
 	 * This implements a single downward pass (with minor exceptions) deletion
 	 * <p>
 	 * @param key the address of the record to delete
+	 * @param inlineKey the inline key of the record to delete
 	 * @param nodeRecord a node that (directly or indirectly) contains the specified key/record
 	 * @param mode one of DELMODE_NORMAL, DELMODE_DELETE_MINIMUM, DELMODE_DELETE_MAXIMUM
 	 * 	where DELMODE_NORMAL: locates the specified key/record using the comparator provided
@@ -284,7 +375,7 @@ public class BTree {
 	 * @return the address of the record removed from the B-tree
 	 * @throws CoreException
 	 */
-	private long deleteImp(long key, long nodeRecord, int mode)
+	private long deleteImp(long key, long inlineKey, long nodeRecord, int mode)
 	throws CoreException, BTreeKeyNotFoundException {
 		BTNode node = new BTNode(nodeRecord);
 
@@ -323,16 +414,18 @@ public class BTree {
 				BTNode succ = node.getChild(keyIndexInNode + 1);
 				if (succ != null && succ.keyCount > MIN_RECORDS) {
 					/* Case 2a: Delete key by overwriting it with its successor (which occurs in a leaf node) */
-					long subst = deleteImp(-1, succ.node, DELMODE_DELETE_MINIMUM);
+					long subst = deleteImp(-1, 0, succ.node, DELMODE_DELETE_MINIMUM);
 					putRecord(node.chunk, node.node, keyIndexInNode, subst);
+					putKey(node.chunk, node.node, keyIndexInNode, computeKey(subst));
 					return key;
 				}
 
 				BTNode pred = node.getChild(keyIndexInNode); 
 				if (pred != null && pred.keyCount > MIN_RECORDS) {
 					/* Case 2b: Delete key by overwriting it with its predecessor (which occurs in a leaf node) */
-					long subst = deleteImp(-1, pred.node, DELMODE_DELETE_MAXIMUM);
+					long subst = deleteImp(-1, 0, pred.node, DELMODE_DELETE_MAXIMUM);
 					putRecord(node.chunk, node.node, keyIndexInNode, subst);
+					putKey(node.chunk, node.node, keyIndexInNode, computeKey(subst));
 					return key;
 				}
 
@@ -340,7 +433,7 @@ public class BTree {
 				// assert(pred != null && succ != null);
 				if (pred != null) {
 					mergeNodes(succ, node, keyIndexInNode, pred);
-					return deleteImp(key, pred.node, mode);
+					return deleteImp(key, inlineKey, pred.node, mode);
 				}
 				return key;
 			} else {
@@ -352,7 +445,7 @@ public class BTree {
 				case DELMODE_NORMAL:
 					subtreeIndex = node.keyCount; 
 					for (int i= 0; i < node.keyCount; i++)
-						if (cmp.compare(getRecord(node.chunk, node.node, i), key)>0) {
+						if (compare(getRecord(node.chunk, node.node, i), getKey(node.chunk, node.node, i), key, inlineKey) > 0) {
 							subtreeIndex = i;
 							break;
 						}
@@ -368,41 +461,47 @@ public class BTree {
 				}
 
 				if (child.keyCount > MIN_RECORDS) {
-					return deleteImp(key, child.node, mode);
+					return deleteImp(key, inlineKey, child.node, mode);
 				} else {
 					BTNode sibR = node.getChild(subtreeIndex + 1);
 					if (sibR != null && sibR.keyCount > MIN_RECORDS) {
 						/* Case 3a (i): child will underflow upon deletion, take a key from rightSibling */
 						long rightKey = getRecord(node.chunk, node.node, subtreeIndex);
+						long rightInlineKey = getKey(node.chunk, node.node, subtreeIndex);
 						long leftmostRightSiblingKey = getRecord(sibR.chunk, sibR.node, 0);
-						append(child, rightKey, getChild(sibR.chunk, sibR.node, 0));
+						long leftmostRightSiblingInlineKey = getKey(sibR.chunk, sibR.node, 0);
+						append(child, rightKey, rightInlineKey, getChild(sibR.chunk, sibR.node, 0));
 						nodeContentDelete(sibR, 0, 1);
 						putRecord(node.chunk, node.node, subtreeIndex, leftmostRightSiblingKey);
-						return deleteImp(key, child.node, mode);
+						putKey(node.chunk, node.node, subtreeIndex, leftmostRightSiblingInlineKey);
+						return deleteImp(key, inlineKey, child.node, mode);
 					}
 
 					BTNode sibL = node.getChild(subtreeIndex - 1);
 					if (sibL != null && sibL.keyCount > MIN_RECORDS) {
 						/* Case 3a (ii): child will underflow upon deletion, take a key from leftSibling */
 						long leftKey = getRecord(node.chunk, node.node, subtreeIndex - 1);
-						prepend(child, leftKey, getChild(sibL.chunk, sibL.node, sibL.keyCount));
+						long leftInlineKey = getKey(node.chunk, node.node, subtreeIndex - 1);
+						prepend(child, leftKey, leftInlineKey, getChild(sibL.chunk, sibL.node, sibL.keyCount));
 						long rightmostLeftSiblingKey = getRecord(sibL.chunk, sibL.node, sibL.keyCount - 1);
+						long rightmostLeftSiblingInlineKey = getKey(sibL.chunk, sibL.node, sibL.keyCount - 1);
 						putRecord(sibL.chunk, sibL.node, sibL.keyCount - 1, 0);
 						putChild(sibL.chunk, sibL.node, sibL.keyCount, 0);
 						putRecord(node.chunk, node.node, subtreeIndex - 1, rightmostLeftSiblingKey);
-						return deleteImp(key, child.node, mode);
+						putKey(node.chunk, node.node, subtreeIndex - 1, rightmostLeftSiblingInlineKey);
+						return deleteImp(key, inlineKey, child.node, mode);
 					}
 
 					/* Case 3b (i,ii): leftSibling, child, rightSibling all have minimum number of keys */
 
 					if (sibL != null) { // merge child into leftSibling
 						mergeNodes(child, node, subtreeIndex - 1, sibL);
-						return deleteImp(key, sibL.node, mode);
+						return deleteImp(key, inlineKey, sibL.node, mode);
 					}
 
 					if (sibR != null) { // merge rightSibling into child
 						mergeNodes(sibR, node, subtreeIndex, child);
-						return deleteImp(key, child.node, mode);
+						return deleteImp(key, inlineKey, child.node, mode);
 					}
 
 					throw new BTreeKeyNotFoundException(
@@ -425,12 +524,13 @@ public class BTree {
 	public void mergeNodes(BTNode src, BTNode keyProvider, int kIndex, BTNode dst) 
 	throws CoreException {
 		nodeContentCopy(src, 0, dst, dst.keyCount + 1, src.keyCount + 1);
-		long midKey = getRecord(keyProvider.chunk, keyProvider.node, kIndex);
-		putRecord(dst.chunk, dst.node, dst.keyCount, midKey);
+		copyRecord(keyProvider.chunk, keyProvider.node, kIndex, dst.chunk, dst.node, dst.keyCount);
 		long keySucc = kIndex + 1 == MAX_RECORDS ? 0 : getRecord(keyProvider.chunk, keyProvider.node, kIndex + 1);
+		long keySuccInlineKey = kIndex + 1 == MAX_RECORDS ? 0 : getKey(keyProvider.chunk, keyProvider.node, kIndex + 1);
 		db.free(getChild(keyProvider.chunk, keyProvider.node,  kIndex + 1));
 		nodeContentDelete(keyProvider, kIndex + 1, 1);
 		putRecord(keyProvider.chunk, keyProvider.node, kIndex, keySucc);
+		putKey(keyProvider.chunk, keyProvider.node, kIndex, keySuccInlineKey);
 		if (kIndex == 0 && keySucc == 0) {
 			/*
 			 * The root node is excused from the property that a node must have a least MIN keys
@@ -450,11 +550,13 @@ public class BTree {
 	 * is not performed.
 	 * @param node the node to prepend to
 	 * @param key the new leftmost (least) key
+	 * @param inlineKey the inline key of the new leftmost key
 	 * @param child the new leftmost (least) subtree root
 	 */
-	private void prepend(BTNode node, long key, long child) {
+	private void prepend(BTNode node, long key, long inlineKey, long child) {
 		nodeContentCopy(node, 0, node, 1, node.keyCount + 1);
 		putRecord(node.chunk, node.node, 0, key);
+		putKey(node.chunk, node.node, 0, inlineKey);
 		putChild(node.chunk, node.node, 0, child);
 	}
 
@@ -463,10 +565,12 @@ public class BTree {
 	 * checking is not performed.
 	 * @param node
 	 * @param key
+	 * @param inlineKey
 	 * @param child
 	 */
-	private void append(BTNode node, long key, long child) {
+	private void append(BTNode node, long key, long inlineKey, long child) {
 		putRecord(node.chunk, node.node, node.keyCount, key);
+		putKey(node.chunk, node.node, node.keyCount, inlineKey);
 		putChild(node.chunk, node.node, node.keyCount + 1, child);
 	}
 
@@ -492,8 +596,7 @@ public class BTree {
 				putChild(dst.chunk, dst.node, dstIndex, srcChild);
 
 				if (srcIndex < src.keyCount) {
-					long srcKey = getRecord(src.chunk, src.node, srcIndex);
-					putRecord(dst.chunk, dst.node, dstIndex, srcKey);
+					copyRecord(src.chunk, src.node, srcIndex, dst.chunk, dst.node, dstIndex);
 				}
 			}
 		}
@@ -510,10 +613,13 @@ public class BTree {
 	 */
 	private void nodeContentDelete(BTNode node, int i, int length) {
 		for (int index= i; index <= MAX_RECORDS; index++) {
-			long newKey = (index + length) < node.keyCount ? getRecord(node.chunk, node.node, index + length) : 0;
 			long newChild = (index + length) < node.keyCount + 1 ? getChild(node.chunk, node.node, index + length) : 0;
 			if (index < MAX_RECORDS) {
-				putRecord(node.chunk, node.node, index, newKey);
+				if (index + length < node.keyCount) {
+					copyRecord(node.chunk, node.node, index + length, node.chunk, node.node, index);
+				} else {
+					putRecord(node.chunk, node.node, index, 0);
+				}
 			}
 			if (index < MAX_CHILDREN) {
 				putChild(node.chunk, node.node, index, newChild);
@@ -556,7 +662,7 @@ public class BTree {
 				if (checkRec == 0) {
 					upper= middle;
 				} else {
-					int compare= visitor.compare(checkRec);
+					int compare= compare(visitor, chunk, node, middle, checkRec);
 					if (compare >= 0) {
 						upper= middle;
 					} else {
@@ -572,7 +678,7 @@ public class BTree {
 				if (record == 0) 
 					break;
 
-				int compare= visitor.compare(record); 
+				int compare= compare(visitor, chunk, node, i, record);
 				if (compare > 0) {
 					// Start point is to the left.
 					return accept(getChild(chunk, node, i), visitor);
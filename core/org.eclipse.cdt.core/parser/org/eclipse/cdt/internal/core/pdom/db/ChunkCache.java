@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,16 +7,67 @@
  *
  * Contributors:
  *     Markus Schorn - initial API and implementation
- *******************************************************************************/ 
+ *******************************************************************************/
 package org.eclipse.cdt.internal.core.pdom.db;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A second-chance (clock) cache for the chunks of all databases sharing it.
+ * <p>
+ * The cache is split into stripes, each of which has its own page table and lock. The stripe
+ * of a chunk is determined by its database and its sequence number, see
+ * {@link #getStripe(Database, int)}. All accesses to the slot of a chunk in
+ * {@link Database#fChunks} have to be made while holding the lock of that stripe.
+ */
 public final class ChunkCache {
 	private static ChunkCache sSharedInstance= new ChunkCache();
-	
-	private Chunk[] fPageTable;
-	private boolean fTableIsFull;
-	private int fPointer;
-	
+
+	private static final int MAX_STRIPES = 16;
+	private static final int MIN_STRIPE_LENGTH = 64;
+	// Number of chunks added to a stripe between two checks of the available memory.
+	private static final int ADAPT_INTERVAL = 1024;
+	// Occupancy of the heap after garbage collection above which the stripes shrink.
+	private static final double HIGH_HEAP_OCCUPANCY = 0.85;
+	// Occupancy of the heap after garbage collection below which the stripes grow back.
+	private static final double LOW_HEAP_OCCUPANCY = 0.6;
+	// Minimum time between two samples of the heap occupancy.
+	private static final long SAMPLE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	/**
+	 * Part of the cache with its own page table. Fields are protected by the stripe itself.
+	 */
+	static final class Stripe {
+		final int fIndex;
+		Chunk[] fPageTable;
+		int fCount;		// Number of used slots, the used slots are [0, fCount).
+		int fLimit;		// Number of slots that may currently be used, adapts to available memory.
+		int fPointer;	// Position of the clock hand.
+		int fAddsUntilAdapt= ADAPT_INTERVAL;
+		long fHits;
+		long fMisses;
+		long fEvictions;
+
+		Stripe(int index, int length) {
+			fIndex= index;
+			fPageTable= new Chunk[length];
+			fLimit= length;
+		}
+	}
+
+	private final Stripe[] fStripes;
+	private final int fStripeMask;
+	private volatile int fMaxChunksPerDatabase= Integer.MAX_VALUE;
+	// The occupancy of the heap is sampled without holding the lock of a stripe.
+	private volatile double fHeapOccupancy;
+	private volatile long fNextSample= System.nanoTime();
+	private final AtomicBoolean fSampleRequested= new AtomicBoolean();
+
 	public static ChunkCache getSharedInstance() {
 		return sSharedInstance;
 	}
@@ -24,41 +75,106 @@ public final class ChunkCache {
 	public ChunkCache() {
 		this(5 * 1024 * 1024);
 	}
-	
+
 	public ChunkCache(long maxSize) {
-		fPageTable= new Chunk[computeLength(maxSize)];
+		final int length= computeLength(maxSize);
+		final int stripeCount= Math.min(MAX_STRIPES, Integer.highestOneBit(Math.max(1, length / MIN_STRIPE_LENGTH)));
+		fStripes= new Stripe[stripeCount];
+		fStripeMask= stripeCount - 1;
+		final int stripeLength= computeStripeLength(length);
+		for (int i= 0; i < stripeCount; i++) {
+			fStripes[i]= new Stripe(i, stripeLength);
+		}
 	}
-	
-	public synchronized void add(Chunk chunk, boolean locked) {
+
+	public int getStripeCount() {
+		return fStripes.length;
+	}
+
+	/**
+	 * Returns the stripe that caches the chunk with the given sequence number of a database.
+	 * The stripe must be locked while accessing the chunk's slot in the database.
+	 */
+	Stripe getStripe(Database db, int chunkIndex) {
+		return fStripes[(db.fCacheSeed + chunkIndex) & fStripeMask];
+	}
+
+	Stripe getStripe(int stripeIndex) {
+		return fStripes[stripeIndex];
+	}
+
+	/**
+	 * Returns the smallest positive chunk index of the database that maps to the given stripe.
+	 * The following indices of the stripe are at a distance of {@link #getStripeCount()}.
+	 */
+	int getFirstChunkIndex(Database db, Stripe stripe) {
+		final int index= (stripe.fIndex - db.fCacheSeed) & fStripeMask;
+		return index == 0 ? fStripes.length : index;
+	}
+
+	/**
+	 * Adds a chunk to the cache or marks it as recently used. The caller has to hold the lock of the
+	 * stripe of the chunk.
+	 */
+	void add(Stripe stripe, Chunk chunk, boolean locked) {
+		assert Thread.holdsLock(stripe);
 		if (locked) {
 			chunk.fLocked= true;
 		}
 		if (chunk.fCacheIndex >= 0) {
 			chunk.fCacheHitFlag= true;
+			stripe.fHits++;
 			return;
 		}
-		if (fTableIsFull) {
-			evictChunk();
-			chunk.fCacheIndex= fPointer;
-			fPageTable[fPointer]= chunk;
+		stripe.fMisses++;
+		if (--stripe.fAddsUntilAdapt <= 0) {
+			stripe.fAddsUntilAdapt= ADAPT_INTERVAL;
+			adaptToHeapOccupancy(stripe, fHeapOccupancy);
+			fSampleRequested.set(true);
+		}
+		while (stripe.fCount > stripe.fLimit) {
+			// The stripe has been shrunk.
+			evictChunk(stripe, null);
+			removeFromPageTable(stripe, stripe.fPointer);
+		}
+		final int index;
+		if (stripe.fCount < stripe.fLimit) {
+			index= stripe.fCount++;
 		} else {
-			chunk.fCacheIndex= fPointer;
-			fPageTable[fPointer]= chunk;
+			final Database db= chunk.fDatabase;
+			evictChunk(stripe, db.getCachedChunkCount() >= fMaxChunksPerDatabase ? db : null);
+			index= stripe.fPointer;
+		}
+		chunk.fCacheIndex= index;
+		stripe.fPageTable[index]= chunk;
+		chunk.fDatabase.fChunksInStripe[stripe.fIndex]++;
+	}
 
-			fPointer++;
-			if (fPointer == fPageTable.length) {
-				fPointer= 0;
-				fTableIsFull= true;
+	/**
+	 * Evicts a chunk from the page table and the chunk table.
+	 * After this method returns, {@link Stripe#fPointer} will contain
+	 * the index of the evicted chunk within the page table.
+	 * @param preferredDB if not {@code null}, a chunk of this database is evicted if possible.
+	 */
+	private void evictChunk(Stripe stripe, Database preferredDB) {
+		final Chunk[] pageTable= stripe.fPageTable;
+		final int count= stripe.fCount;
+		if (preferredDB != null && preferredDB.fChunksInStripe[stripe.fIndex] > 0) {
+			// The database exceeds its quota, look for one of its chunks. Only the reference
+			// flags of its own chunks are cleared, such that other databases are not penalized.
+			int pointer= stripe.fPointer;
+			for (int i= 0; i < 2 * count; i++) {
+				Chunk chunk= pageTable[pointer];
+				if (chunk.fDatabase == preferredDB) {
+					if (!chunk.fCacheHitFlag) {
+						stripe.fPointer= pointer;
+						break;
+					}
+					chunk.fCacheHitFlag= false;
+				}
+				pointer= (pointer + 1) % count;
 			}
 		}
-	}
-	
-	/**                                                                   
-	 * Evicts a chunk from the page table and the chunk table.            
-	 * After this method returns, {@link #fPointer}  will contain
-	 * the index of the evicted chunk within the page table.              
-	 */                                                                   
-	private void evictChunk() {
 		/*
 		 * Use the CLOCK algorithm to determine which chunk to evict.
 		 * i.e., if the chunk in the current slot of the page table has been
@@ -67,72 +183,220 @@ public final class ChunkCache {
 		 * chunk in the current slot.
 		 */
 		while (true) {
-			Chunk chunk = fPageTable[fPointer];
+			Chunk chunk = pageTable[stripe.fPointer];
 			if (chunk.fCacheHitFlag) {
 				chunk.fCacheHitFlag= false;
-				fPointer= (fPointer + 1) % fPageTable.length;
+				stripe.fPointer= (stripe.fPointer + 1) % count;
 			} else {
 				chunk.fDatabase.releaseChunk(chunk);
+				chunk.fDatabase.fChunksInStripe[stripe.fIndex]--;
 				chunk.fCacheIndex= -1;
-				fPageTable[fPointer] = null;
+				pageTable[stripe.fPointer] = null;
+				stripe.fEvictions++;
 				return;
 			}
 		}
 	}
 
-	public synchronized void remove(Chunk chunk) {
+	/**
+	 * Closes the gap at the given slot of the page table by moving the last used slot into it.
+	 */
+	private void removeFromPageTable(Stripe stripe, int idx) {
+		final int last= --stripe.fCount;
+		if (idx != last) {
+			final Chunk move= stripe.fPageTable[last];
+			stripe.fPageTable[idx]= move;
+			move.fCacheIndex= idx;
+		}
+		stripe.fPageTable[last]= null;
+		if (stripe.fPointer >= stripe.fCount) {
+			stripe.fPointer= 0;
+		}
+	}
+
+	/**
+	 * Removes a chunk from the cache. The caller has to hold the lock of the stripe of the chunk.
+	 */
+	void remove(Stripe stripe, Chunk chunk) {
+		assert Thread.holdsLock(stripe);
 		final int idx= chunk.fCacheIndex;
 		if (idx >= 0) {
-			if (fTableIsFull) {
-				fPointer= fPageTable.length-1;
-				fTableIsFull= false;
-			} else {
-				fPointer--;
-			}
 			chunk.fCacheIndex= -1;
-			final Chunk move= fPageTable[fPointer];
-			fPageTable[idx]= move;
-			move.fCacheIndex= idx;
-			fPageTable[fPointer]= null;
-		}	
+			chunk.fDatabase.fChunksInStripe[stripe.fIndex]--;
+			removeFromPageTable(stripe, idx);
+		}
+	}
+
+	/**
+	 * Samples the occupancy of the heap, if a stripe has asked for it and the last sample is old
+	 * enough. The stripes adapt to the sample the next time they check the available memory.
+	 * Must not be called while holding the lock of a stripe.
+	 */
+	void sampleHeapOccupancy() {
+		if (!fSampleRequested.get() || System.nanoTime() - fNextSample < 0)
+			return;
+		if (fSampleRequested.compareAndSet(true, false)) {
+			fHeapOccupancy= getHeapOccupancyAfterGC();
+			fNextSample= System.nanoTime() + SAMPLE_INTERVAL_NANOS;
+		}
+	}
+
+	/**
+	 * Adapts all stripes to the given occupancy of the heap. For testing purposes, only.
+	 * @param occupancy the fraction of the heap that is occupied after garbage collection.
+	 */
+	public void adaptToHeapOccupancy(double occupancy) {
+		for (Stripe stripe : fStripes) {
+			synchronized (stripe) {
+				adaptToHeapOccupancy(stripe, occupancy);
+			}
+		}
+	}
+
+	/**
+	 * Shrinks the stripe when the heap is getting full and lets it grow back up to its maximum
+	 * length when memory is available again. Chunks exceeding the limit of a shrunk stripe are
+	 * evicted when the next chunk is added to it.
+	 */
+	private void adaptToHeapOccupancy(Stripe stripe, double occupancy) {
+		final int length= stripe.fPageTable.length;
+		if (occupancy > HIGH_HEAP_OCCUPANCY) {
+			stripe.fLimit= Math.max(Math.min(MIN_STRIPE_LENGTH, length), stripe.fLimit * 3 / 4);
+		} else if (occupancy < LOW_HEAP_OCCUPANCY && stripe.fLimit < length) {
+			stripe.fLimit= Math.min(length, stripe.fLimit + Math.max(1, length / 4));
+		}
+	}
+
+	/**
+	 * Returns the fraction of the heap that was occupied after the last garbage collection,
+	 * or {@code 0} if this cannot be determined.
+	 */
+	private static double getHeapOccupancyAfterGC() {
+		double result= 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()) {
+				MemoryUsage usage= pool.getCollectionUsage();
+				if (usage != null && usage.getMax() > 0) {
+					result= Math.max(result, (double) usage.getUsed() / usage.getMax());
+				}
+			}
+		}
+		return result;
 	}
 
-	/**                                                                           
+	/**
 	 * Returns the maximum size of the chunk cache in bytes.
-	 */                                                                           
-	public synchronized long getMaxSize() {
-		return (long) fPageTable.length * Database.CHUNK_SIZE;
+	 */
+	public long getMaxSize() {
+		long length= 0;
+		for (Stripe stripe : fStripes) {
+			synchronized (stripe) {
+				length+= stripe.fPageTable.length;
+			}
+		}
+		return length * Database.CHUNK_SIZE;
 	}
 
-	/**                                                                           
+	/**
+	 * Returns the size the chunk cache is currently allowed to occupy in bytes. This is less than
+	 * {@link #getMaxSize()} when the cache has been shrunk because memory was getting low.
+	 */
+	public long getCurrentMaxSize() {
+		long length= 0;
+		for (Stripe stripe : fStripes) {
+			synchronized (stripe) {
+				length+= stripe.fLimit;
+			}
+		}
+		return length * Database.CHUNK_SIZE;
+	}
+
+	/**
 	 * Clears the page table and changes it to hold chunks with
-	 * maximum total memory of <code>maxSize</code>.       
-	 * @param maxSize the total size of the chunks in bytes.                
-	 */                                                                           
-	public synchronized void setMaxSize(long maxSize) {
-		final int newLength= computeLength(maxSize);
-		final int oldLength= fTableIsFull ? fPageTable.length : fPointer;
-		if (newLength > oldLength) {
-			Chunk[] newTable= new Chunk[newLength];
-			System.arraycopy(fPageTable, 0, newTable, 0, oldLength);
-			fTableIsFull= false;
-			fPointer= oldLength;
-			fPageTable= newTable;
-		} else {
-			for (int i= newLength; i < oldLength; i++) {
-				final Chunk chunk= fPageTable[i];
-				chunk.fDatabase.releaseChunk(chunk);
-				chunk.fCacheIndex= -1;
+	 * maximum total memory of <code>maxSize</code>.
+	 * @param maxSize the total size of the chunks in bytes.
+	 */
+	public void setMaxSize(long maxSize) {
+		final int newLength= computeStripeLength(computeLength(maxSize));
+		for (Stripe stripe : fStripes) {
+			synchronized (stripe) {
+				for (int i= newLength; i < stripe.fCount; i++) {
+					final Chunk chunk= stripe.fPageTable[i];
+					chunk.fDatabase.releaseChunk(chunk);
+					chunk.fDatabase.fChunksInStripe[stripe.fIndex]--;
+					chunk.fCacheIndex= -1;
+				}
+				Chunk[] newTable= new Chunk[newLength];
+				System.arraycopy(stripe.fPageTable, 0, newTable, 0, Math.min(newLength, stripe.fCount));
+				stripe.fPageTable= newTable;
+				stripe.fCount= Math.min(newLength, stripe.fCount);
+				stripe.fLimit= newLength;
+				stripe.fPointer= 0;
+			}
+		}
+	}
+
+	/**
+	 * Limits the number of chunks a single database may occupy, once the cache is full. A database
+	 * that exceeds its quota replaces its own chunks rather than the ones of other databases.
+	 * @param maxSize the total size of the chunks of a single database in bytes.
+	 */
+	public void setMaxSizePerDatabase(long maxSize) {
+		fMaxChunksPerDatabase= computeLength(maxSize);
+	}
+
+	/**
+	 * Returns the number of times a chunk was found in the cache.
+	 */
+	public long getHits() {
+		long result= 0;
+		for (Stripe stripe : fStripes) {
+			synchronized (stripe) {
+				result+= stripe.fHits;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of times a chunk had to be added to the cache.
+	 */
+	public long getMisses() {
+		long result= 0;
+		for (Stripe stripe : fStripes) {
+			synchronized (stripe) {
+				result+= stripe.fMisses;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of chunks that were evicted to make room for other chunks.
+	 */
+	public long getEvictions() {
+		long result= 0;
+		for (Stripe stripe : fStripes) {
+			synchronized (stripe) {
+				result+= stripe.fEvictions;
+			}
+		}
+		return result;
+	}
+
+	public void resetCounters() {
+		for (Stripe stripe : fStripes) {
+			synchronized (stripe) {
+				stripe.fHits= stripe.fMisses= stripe.fEvictions= 0;
 			}
-			Chunk[] newTable= new Chunk[newLength];
-			System.arraycopy(fPageTable, 0, newTable, 0, newLength);
-			fTableIsFull= true;
-			fPointer= 0;
-			fPageTable= newTable;
-		}       
-	}                                                                             
-
-	private int computeLength(long maxSize) {
+		}
+	}
+
+	private int computeStripeLength(int length) {
+		return (length + fStripes.length - 1) / fStripes.length;
+	}
+
+	private static int computeLength(long maxSize) {
 		long maxLength= Math.min(maxSize / Database.CHUNK_SIZE, Integer.MAX_VALUE);
 		return Math.max(1, (int) maxLength);
 	}
@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2017 QNX Software Systems and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.db;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Read access to a database file that stores its chunks deflate-compressed. The chunks are
+ * compressed in extents of {@link #CHUNKS_PER_EXTENT} consecutive chunks, an extent is
+ * decompressed as a whole when one of its chunks is read. Chunks that are in use stay
+ * uncompressed in the {@link ChunkCache}, the most recently decompressed extent is kept
+ * to serve reads of neighboring chunks.
+ * <p>
+ * The file starts with {@link #MAGIC}, which cannot be mistaken for the version of an
+ * uncompressed database, followed by the number of chunks, the number of chunks per extent,
+ * the number of extents and the file positions of the extents. The last position marks
+ * the end of the last extent.
+ */
+final class CompressedChunks {
+	static final int MAGIC = 0xCDC0DB01;
+	static final int CHUNKS_PER_EXTENT = 16;
+	private static final int HEADER_SIZE = 4 * Database.INT_SIZE;
+
+	private final int fChunkCount;
+	private final int fChunksPerExtent;
+	private final long[] fExtentPositions;
+	private final Inflater fInflater = new Inflater();
+	private int fCachedExtent = -1;
+	private final byte[] fExtent;
+	private byte[] fCompressed = new byte[0];
+
+	private CompressedChunks(int chunkCount, int chunksPerExtent, long[] extentPositions) {
+		fChunkCount = chunkCount;
+		fChunksPerExtent = chunksPerExtent;
+		fExtentPositions = extentPositions;
+		fExtent = new byte[chunksPerExtent * Database.CHUNK_SIZE];
+	}
+
+	/**
+	 * Returns the compressed chunks stored in the given file, or {@code null} if the file is not
+	 * compressed.
+	 */
+	static CompressedChunks open(FileChannel channel) throws IOException {
+		if (!isCompressed(channel))
+			return null;
+
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		readFully(channel, header, 0);
+		final int chunkCount = header.getInt(Database.INT_SIZE);
+		final int chunksPerExtent = header.getInt(2 * Database.INT_SIZE);
+		final int extentCount = header.getInt(3 * Database.INT_SIZE);
+		if (chunkCount < 0 || chunksPerExtent <= 0 || extentCount < 0
+				|| (long) extentCount * chunksPerExtent < chunkCount) {
+			throw new IOException("Invalid header of compressed database"); //$NON-NLS-1$
+		}
+		final ByteBuffer positions = ByteBuffer.allocate((extentCount + 1) * 8);
+		readFully(channel, positions, HEADER_SIZE);
+		positions.flip();
+		final long[] extentPositions = new long[extentCount + 1];
+		for (int i = 0; i < extentPositions.length; i++) {
+			extentPositions[i] = positions.getLong();
+		}
+		return new CompressedChunks(chunkCount, chunksPerExtent, extentPositions);
+	}
+
+	static boolean isCompressed(FileChannel channel) throws IOException {
+		if (channel.size() < HEADER_SIZE)
+			return false;
+		final ByteBuffer magic = ByteBuffer.allocate(Database.INT_SIZE);
+		readFully(channel, magic, 0);
+		return magic.getInt(0) == MAGIC;
+	}
+
+	/**
+	 * Returns the number of chunks of the uncompressed database.
+	 */
+	int getChunkCount() {
+		return fChunkCount;
+	}
+
+	/**
+	 * Reads an entire chunk into the buffer.
+	 */
+	synchronized void read(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+		if (buf.remaining() != Database.CHUNK_SIZE || (position & Database.OFFSET_IN_CHUNK_MASK) != 0)
+			throw new IOException("Compressed databases can only be read in chunks"); //$NON-NLS-1$
+
+		final int chunk = (int) (position / Database.CHUNK_SIZE);
+		if (chunk >= fChunkCount) {
+			buf.put(new byte[Database.CHUNK_SIZE]);
+			return;
+		}
+		loadExtent(channel, chunk / fChunksPerExtent);
+		buf.put(fExtent, (chunk % fChunksPerExtent) * Database.CHUNK_SIZE, Database.CHUNK_SIZE);
+	}
+
+	/**
+	 * Writes the uncompressed database to the target channel.
+	 */
+	synchronized void transferTo(FileChannel channel, FileChannel target) throws IOException {
+		for (int extent = 0; extent < fExtentPositions.length - 1; extent++) {
+			loadExtent(channel, extent);
+			final int chunks = Math.min(fChunksPerExtent, fChunkCount - extent * fChunksPerExtent);
+			final ByteBuffer buf = ByteBuffer.wrap(fExtent, 0, chunks * Database.CHUNK_SIZE);
+			while (buf.hasRemaining()) {
+				target.write(buf);
+			}
+		}
+	}
+
+	/**
+	 * Releases the decompressor, the chunks cannot be read afterwards.
+	 */
+	synchronized void close() {
+		fInflater.end();
+		fCachedExtent = -1;
+	}
+
+	private void loadExtent(FileChannel channel, int extent) throws IOException {
+		if (extent == fCachedExtent)
+			return;
+
+		fCachedExtent = -1;
+		final long start = fExtentPositions[extent];
+		final int length = (int) (fExtentPositions[extent + 1] - start);
+		if (fCompressed.length < length) {
+			fCompressed = new byte[length];
+		}
+		readFully(channel, ByteBuffer.wrap(fCompressed, 0, length), start);
+		fInflater.reset();
+		fInflater.setInput(fCompressed, 0, length);
+		try {
+			int inflated = 0;
+			while (!fInflater.finished() && inflated < fExtent.length) {
+				final int n = fInflater.inflate(fExtent, inflated, fExtent.length - inflated);
+				if (n == 0 && (fInflater.needsInput() || fInflater.needsDictionary()))
+					throw new IOException("Truncated extent in compressed database"); //$NON-NLS-1$
+				inflated += n;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException(e);
+		}
+		fCachedExtent = extent;
+	}
+
+	/**
+	 * Writes a compressed copy of the first {@code size} bytes of an uncompressed database file.
+	 */
+	static void compress(FileChannel source, long size, FileChannel target) throws IOException {
+		final int chunkCount = (int) (size / Database.CHUNK_SIZE);
+		final int extentCount = (chunkCount + CHUNKS_PER_EXTENT - 1) / CHUNKS_PER_EXTENT;
+		final long[] extentPositions = new long[extentCount + 1];
+		final byte[] extent = new byte[CHUNKS_PER_EXTENT * Database.CHUNK_SIZE];
+		final byte[] compressed = new byte[extent.length + 1024];
+		final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			long position = HEADER_SIZE + (long) extentPositions.length * 8;
+			for (int i = 0; i < extentCount; i++) {
+				final int chunks = Math.min(CHUNKS_PER_EXTENT, chunkCount - i * CHUNKS_PER_EXTENT);
+				final int length = chunks * Database.CHUNK_SIZE;
+				readFully(source, ByteBuffer.wrap(extent, 0, length), (long) i * extent.length);
+
+				extentPositions[i] = position;
+				deflater.reset();
+				deflater.setInput(extent, 0, length);
+				deflater.finish();
+				while (!deflater.finished()) {
+					final int n = deflater.deflate(compressed);
+					writeFully(target, ByteBuffer.wrap(compressed, 0, n), position);
+					position += n;
+				}
+			}
+			extentPositions[extentCount] = position;
+		} finally {
+			deflater.end();
+		}
+
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + extentPositions.length * 8);
+		header.putInt(MAGIC).putInt(chunkCount).putInt(CHUNKS_PER_EXTENT).putInt(extentCount);
+		for (long extentPosition : extentPositions) {
+			header.putLong(extentPosition);
+		}
+		header.flip();
+		writeFully(target, header, 0);
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+		while (buf.hasRemaining()) {
+			final int read = channel.read(buf, position);
+			if (read < 0)
+				throw new IOException("Unexpected end of compressed database"); //$NON-NLS-1$
+			position += read;
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+		while (buf.hasRemaining()) {
+			position += channel.write(buf, position);
+		}
+	}
+}
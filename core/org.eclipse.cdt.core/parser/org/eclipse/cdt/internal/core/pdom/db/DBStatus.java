@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2012 QNX Software Systems and others.
+ * Copyright (c) 2005, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -30,4 +30,20 @@ public class DBStatus extends Status {
 	public DBStatus(String msg) {
 		super(IStatus.ERROR, CCorePlugin.PLUGIN_ID, 0, msg, null);
 	}
+
+	/**
+	 * Creates an informational status reporting the usage counters of a chunk cache.
+	 */
+	public DBStatus(ChunkCache cache) {
+		super(IStatus.INFO, CCorePlugin.PLUGIN_ID, 0, getCacheStatistics(cache), null);
+	}
+
+	@SuppressWarnings("nls")
+	private static String getCacheStatistics(ChunkCache cache) {
+		return "Chunk cache[" + cache.getCurrentMaxSize() / 1024 / 1024 + "MB of "
+				+ cache.getMaxSize() / 1024 / 1024 + "MB]: "
+				+ cache.getHits() + " hits, "
+				+ cache.getMisses() + " misses, "
+				+ cache.getEvictions() + " evictions.";
+	}
 }
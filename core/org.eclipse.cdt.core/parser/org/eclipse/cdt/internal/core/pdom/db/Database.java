@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 QNX Software Systems and others.
+ * Copyright (c) 2005, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -91,29 +91,63 @@ public class Database {
 	public static final long MAX_DB_SIZE= ((long) 1 << (Integer.SIZE + BLOCK_SIZE_DELTA_BITS));
 
 	public static final int VERSION_OFFSET = 0;
+	/** Value found at {@link #VERSION_OFFSET} of a compressed database file. */
+	public static final int COMPRESSED_FORMAT = CompressedChunks.MAGIC;
 	public static final int DATA_AREA = (CHUNK_SIZE / BLOCK_SIZE_DELTA - MIN_BLOCK_DELTAS + 2) * INT_SIZE;
 
 	private static final int BLOCK_PREV_OFFSET = BLOCK_HEADER_SIZE;
 	private static final int BLOCK_NEXT_OFFSET = BLOCK_HEADER_SIZE + INT_SIZE;
 
+	/**
+	 * System property for reading and writing the database file through memory-mapped segments
+	 * rather than through positional reads and writes. The mappings are released by the garbage
+	 * collector, on Windows the file cannot be truncated or deleted before that happens.
+	 */
+	public static final String MAPPED_IO_PROPERTY = "org.eclipse.cdt.core.parser.pdom.db.mappedIO"; //$NON-NLS-1$
+
+	/**
+	 * System property for writing the changes to a writable database to a journal, such that
+	 * the database file is updated only when the changes are committed by a complete flush.
+	 * The journal is off by default. Batches of changes, see {@link #beginBatch()}, require
+	 * the journal, without it the indexer flushes the database after each file.
+	 */
+	public static final String JOURNAL_PROPERTY = "org.eclipse.cdt.core.parser.pdom.db.journal"; //$NON-NLS-1$
+
+	/** Size of the journal at which a batch is committed before it is complete. */
+	private static final long MAX_JOURNAL_SIZE = 64 * 1024 * 1024;
+
 	private final File fLocation;
 	private final boolean fReadOnly;
 	private RandomAccessFile fFile;
+	private final MappedFileSegments fMappedSegments;
+	private final Journal fJournal;
+	private CompressedChunks fCompressedChunks;
+	private final boolean fCompressed;
+	private volatile int fBatchDepth;
 	private boolean fExclusiveLock;	 // Necessary for any write operation.
 	private boolean fLocked;		 // Necessary for any operation.
 	private boolean fIsMarkedIncomplete;
 
 	private int fVersion;
 	private final Chunk fHeaderChunk;
-	private Chunk[] fChunks;
+	/**
+	 * The chunks of the database that are currently in memory. A slot may only be accessed while
+	 * holding the lock of the corresponding {@link ChunkCache.Stripe}.
+	 */
+	private volatile Chunk[] fChunks;
 	private int fChunksUsed;
 	private int fChunksAllocated;
 	private ChunkCache fCache;
+	/** Determines the stripes of the cache the chunks of this database are assigned to. */
+	final int fCacheSeed;
+	/** Number of chunks of this database in each stripe of the cache, protected by the stripe. */
+	final int[] fChunksInStripe;
 
 	private long malloced;
 	private long freed;
-	private long cacheHits;
-	private long cacheMisses;
+	// Hits and misses per stripe of the cache, protected by the stripe.
+	private final long[] cacheHits;
+	private final long[] cacheMisses;
 
 	/** Soft reference wrapper to keep track of the record for disposed strings. */
 	private static class SoftStringRef extends SoftReference<IString> {
@@ -140,13 +174,45 @@ public class Database {
 	 * @throws CoreException
 	 */
 	public Database(File location, ChunkCache cache, int version, boolean openReadOnly) throws CoreException {
+		this(location, cache, version, openReadOnly, Boolean.getBoolean(MAPPED_IO_PROPERTY));
+	}
+
+	/**
+	 * Construct a new Database object, creating a backing file if necessary.
+	 * @param location the local file path for the database
+	 * @param cache the cache to be used optimization
+	 * @param version the version number to store in the database (only applicable for new databases)
+	 * @param openReadOnly whether this Database object will ever need writing to
+	 * @param useMappedIO whether to access the file through memory-mapped segments
+	 * @throws CoreException
+	 */
+	public Database(File location, ChunkCache cache, int version, boolean openReadOnly,
+			boolean useMappedIO) throws CoreException {
 		try {
 			fLocation = location;
 			fReadOnly= openReadOnly;
 			fCache= cache;
+			fMappedSegments= useMappedIO ? new MappedFileSegments(openReadOnly) : null;
+			final File journalLocation= Journal.getLocation(location);
+			fJournal= !openReadOnly && Boolean.getBoolean(JOURNAL_PROPERTY) ? new Journal(journalLocation) : null;
+			fCacheSeed= System.identityHashCode(this);
+			fChunksInStripe= new int[cache.getStripeCount()];
+			cacheHits= new long[cache.getStripeCount()];
+			cacheMisses= new long[cache.getStripeCount()];
 			openFile();
+			fCompressedChunks= CompressedChunks.open(fFile.getChannel());
+			fCompressed= fCompressedChunks != null;
+			if (fCompressed && !openReadOnly) {
+				fCompressedChunks.close();
+				throw new IOException("Compressed database cannot be opened for writing: " + location); //$NON-NLS-1$
+			}
+			if (!openReadOnly) {
+				// Complete a commit that was interrupted by a crash.
+				Journal.recover(journalLocation, this);
+			}
 
-			int nChunksOnDisk = (int) (fFile.length() / CHUNK_SIZE);
+			int nChunksOnDisk = fCompressedChunks != null ?
+					fCompressedChunks.getChunkCount() : (int) (fFile.length() / CHUNK_SIZE);
 			fHeaderChunk= new Chunk(this, 0);
 			fHeaderChunk.fLocked= true;		// Never makes it into the cache, needed to satisfy assertions.
 			if (nChunksOnDisk <= 0) {
@@ -169,10 +235,18 @@ public class Database {
 	}
 
 	void read(ByteBuffer buf, long position) throws IOException {
+		if (fJournal != null && fJournal.read(buf, position)) {
+			return;
+		}
 		int retries= 0;
 		do {
 			try {
-				fFile.getChannel().read(buf, position);
+				final FileChannel channel= fFile.getChannel();
+				if (fCompressedChunks != null) {
+					fCompressedChunks.read(channel, buf, position);
+				} else if (fMappedSegments == null || !fMappedSegments.read(channel, buf, position)) {
+					channel.read(buf, position);
+				}
 				return;
 			} catch (ClosedChannelException e) {
 				// Bug 219834 file may have be closed by interrupting a thread during an I/O operation.
@@ -185,7 +259,10 @@ public class Database {
 		int retries= 0;
 		while (true) {
 			try {
-				fFile.getChannel().write(buf, position);
+				final FileChannel channel= fFile.getChannel();
+				if (fMappedSegments == null || !fMappedSegments.write(channel, buf, position)) {
+					channel.write(buf, position);
+				}
 				return;
 			} catch (ClosedChannelException e) {
 				// Bug 219834 file may have be closed by interrupting a thread during an I/O operation.
@@ -194,6 +271,16 @@ public class Database {
 		}
 	}
 
+	/**
+	 * Forces the changes made to the database file to be written to the storage device.
+	 */
+	void force() throws IOException {
+		if (fMappedSegments != null) {
+			fMappedSegments.force();
+		}
+		fFile.getChannel().force(false);
+	}
+
 	private void reopen(ClosedChannelException e, int attempt) throws ClosedChannelException, FileNotFoundException {
 		// Only if the current thread was not interrupted we try to reopen the file.
 		if (e instanceof ClosedByInterruptException || attempt >= 20) {
@@ -202,9 +289,17 @@ public class Database {
 		openFile();
 	}
 
+	/**
+	 * Writes the content of the database file to the target channel. A compressed database
+	 * is written uncompressed.
+	 */
 	public void transferTo(FileChannel target) throws IOException {
 		assert fLocked;
         final FileChannel from= fFile.getChannel();
+        if (fCompressedChunks != null) {
+        	fCompressedChunks.transferTo(from, target);
+        	return;
+        }
         long nRead = 0;
         long position = 0;
         long size = from.size();
@@ -243,8 +338,11 @@ public class Database {
 		fChunks = new Chunk[] {null};
 		fChunksUsed = fChunksAllocated = fChunks.length;
 		try {
+			if (fJournal != null) {
+				fJournal.clear();
+			}
 			fHeaderChunk.flush();	// Zero out header chunk.
-			fFile.getChannel().truncate(CHUNK_SIZE);	// Truncate database.
+			truncate();
 		} catch (IOException e) {
 			CCorePlugin.log(e);
 		}
@@ -268,13 +366,33 @@ public class Database {
 		clearStringCache();
 	}
 
+	private void truncate() throws IOException {
+		if (fMappedSegments == null) {
+			fFile.getChannel().truncate(CHUNK_SIZE);
+			return;
+		}
+		fMappedSegments.unmapAll();
+		try {
+			fFile.getChannel().truncate(CHUNK_SIZE);
+		} catch (IOException e) {
+			// On Windows a file cannot be truncated while parts of it are mapped. The mappings
+			// are released by the garbage collector only. The chunks beyond the header are no
+			// longer referenced, they are overwritten when the database grows again.
+		}
+	}
+
 	private void removeChunksFromCache() {
-		synchronized (fCache) {
-			for (int i= 1; i < fChunks.length; i++) {
-				Chunk chunk= fChunks[i];
-				if (chunk != null) {
-					fCache.remove(chunk);
-					fChunks[i]= null;
+		final int stripeCount= fCache.getStripeCount();
+		for (int s= 0; s < stripeCount; s++) {
+			final ChunkCache.Stripe stripe= fCache.getStripe(s);
+			synchronized (stripe) {
+				final Chunk[] chunks= fChunks;
+				for (int i= fCache.getFirstChunkIndex(this, stripe); i < chunks.length; i+= stripeCount) {
+					Chunk chunk= chunks[i];
+					if (chunk != null) {
+						fCache.remove(stripe, chunk);
+						chunks[i]= null;
+					}
 				}
 			}
 		}
@@ -291,25 +409,29 @@ public class Database {
 		long long_index = offset / CHUNK_SIZE;
 		assert long_index < Integer.MAX_VALUE;
 
-		synchronized (fCache) {
+		final int index = (int) long_index;
+		final ChunkCache.Stripe stripe= fCache.getStripe(this, index);
+		Chunk chunk;
+		synchronized (stripe) {
 			assert fLocked;
-			final int index = (int) long_index;
-			if (index < 0 || index >= fChunks.length) {
+			final Chunk[] chunks= fChunks;
+			if (index < 0 || index >= chunks.length) {
 				databaseCorruptionDetected();
 			}
-			Chunk chunk= fChunks[index];
+			chunk= chunks[index];
 			if (chunk == null) {
-				cacheMisses++;
+				cacheMisses[stripe.fIndex]++;
 				chunk = new Chunk(this, index);
 				chunk.read();
 				// Put the chunk in fChunks after it was read successfully.
-				fChunks[index] = chunk;
+				chunks[index] = chunk;
 			} else {
-				cacheHits++;
+				cacheHits[stripe.fIndex]++;
 			}
-			fCache.add(chunk, fExclusiveLock);
-			return chunk;
+			fCache.add(stripe, chunk, fExclusiveLock);
 		}
+		fCache.sampleHeapOccupancy();
+		return chunk;
 	}
 
 	private void databaseCorruptionDetected() throws CoreException {
@@ -371,40 +493,43 @@ public class Database {
 
 	private long createNewChunk() throws CoreException {
 		assert fExclusiveLock;
-		synchronized (fCache) {
-			final int newChunkIndex = fChunksUsed; // fChunks.length;
+		final int newChunkIndex = fChunksUsed; // fChunks.length;
 
-			final Chunk chunk = new Chunk(this, newChunkIndex);
-			chunk.fDirty = true;
+		final Chunk chunk = new Chunk(this, newChunkIndex);
+		chunk.fDirty = true;
 
-			if (newChunkIndex >= fChunksAllocated) {
-				int increment = Math.max(1024, fChunksAllocated / 20);
-				Chunk[] newchunks = new Chunk[fChunksAllocated + increment];
-				System.arraycopy(fChunks, 0, newchunks, 0, fChunksAllocated);
+		if (newChunkIndex >= fChunksAllocated) {
+			// Other threads may concurrently release chunks from the old array. Missing such a
+			// release is harmless, the chunk just stays in memory until it is released again.
+			int increment = Math.max(1024, fChunksAllocated / 20);
+			Chunk[] newchunks = new Chunk[fChunksAllocated + increment];
+			System.arraycopy(fChunks, 0, newchunks, 0, fChunksAllocated);
 
-				fChunks = newchunks;
-				fChunksAllocated += increment;
-			}
-			fChunksUsed += 1;
+			fChunks = newchunks;
+			fChunksAllocated += increment;
+		}
+		fChunksUsed += 1;
+		final ChunkCache.Stripe stripe= fCache.getStripe(this, newChunkIndex);
+		synchronized (stripe) {
 			fChunks[newChunkIndex] = chunk;
+			fCache.add(stripe, chunk, true);
+		}
+		fCache.sampleHeapOccupancy();
+		long address = (long) newChunkIndex * CHUNK_SIZE;
 
-			fCache.add(chunk, true);
-			long address = (long) newChunkIndex * CHUNK_SIZE;
-
-			/*
-			 * Non-dense pointers are at most 31 bits dense pointers are at most 35 bits Check the sizes here
-			 * and throw an exception if the address is too large. By throwing the CoreException with the
-			 * special status, the indexing operation should be stopped. This is desired since generally, once
-			 * the max size is exceeded, there are lots of errors.
-			 */
-			if (address >= MAX_DB_SIZE) {
-				Object bindings[] = { this.getLocation().getAbsolutePath(), MAX_DB_SIZE };
-				throw new CoreException(new Status(IStatus.ERROR, CCorePlugin.PLUGIN_ID,
-						CCorePlugin.STATUS_PDOM_TOO_LARGE, NLS.bind(
-								CCorePlugin.getResourceString("pdom.DatabaseTooLarge"), bindings), null)); //$NON-NLS-1$
-			}
-			return address;
+		/*
+		 * Non-dense pointers are at most 31 bits dense pointers are at most 35 bits Check the sizes here
+		 * and throw an exception if the address is too large. By throwing the CoreException with the
+		 * special status, the indexing operation should be stopped. This is desired since generally, once
+		 * the max size is exceeded, there are lots of errors.
+		 */
+		if (address >= MAX_DB_SIZE) {
+			Object bindings[] = { this.getLocation().getAbsolutePath(), MAX_DB_SIZE };
+			throw new CoreException(new Status(IStatus.ERROR, CCorePlugin.PLUGIN_ID,
+					CCorePlugin.STATUS_PDOM_TOO_LARGE, NLS.bind(
+							CCorePlugin.getResourceString("pdom.DatabaseTooLarge"), bindings), null)); //$NON-NLS-1$
 		}
+		return address;
 	}
 
 	/**
@@ -412,22 +537,23 @@ public class Database {
 	 */
 	private long createNewChunks(int numChunks) throws CoreException {
 		assert fExclusiveLock;
-		synchronized (fCache) {
-			final int oldLen= fChunks.length;
-			Chunk[] newchunks = new Chunk[oldLen + numChunks];
-			System.arraycopy(fChunks, 0, newchunks, 0, oldLen);
-			for (int i = oldLen; i < oldLen + numChunks; i++) {
-				newchunks[i]= null;
-			}
-			final Chunk chunk= new Chunk(this, oldLen + numChunks - 1);
-			chunk.fDirty= true;
+		final int oldLen= fChunks.length;
+		Chunk[] newchunks = new Chunk[oldLen + numChunks];
+		System.arraycopy(fChunks, 0, newchunks, 0, oldLen);
+		for (int i = oldLen; i < oldLen + numChunks; i++) {
+			newchunks[i]= null;
+		}
+		final Chunk chunk= new Chunk(this, oldLen + numChunks - 1);
+		chunk.fDirty= true;
+		fChunks= newchunks;
+		final ChunkCache.Stripe stripe= fCache.getStripe(this, chunk.fSequenceNumber);
+		synchronized (stripe) {
 			newchunks[ oldLen + numChunks - 1 ] = chunk;
-			fChunks= newchunks;
-			fCache.add(chunk, true);
-			fChunksAllocated=oldLen + numChunks;
-			fChunksUsed=oldLen + numChunks;
-			return (long) (oldLen + numChunks - 1) * CHUNK_SIZE;
+			fCache.add(stripe, chunk, true);
 		}
+		fChunksAllocated=oldLen + numChunks;
+		fChunksUsed=oldLen + numChunks;
+		return (long) (oldLen + numChunks - 1) * CHUNK_SIZE;
 	}
 
 	private long getFirstBlock(int blocksize) throws CoreException {
@@ -663,12 +789,27 @@ public class Database {
 		assert fExclusiveLock;
 		flush();
 		removeChunksFromCache();
+		if (fJournal != null) {
+			try {
+				fJournal.close();
+			} catch (IOException e) {
+				throw new CoreException(new DBStatus(e));
+			}
+		}
 
 		// Chunks have been removed from the cache, so we are fine.
 		fHeaderChunk.clear(0, CHUNK_SIZE);
 		fHeaderChunk.fDirty= false;
 		fChunks= new Chunk[] { null };
 		fChunksUsed = fChunksAllocated = fChunks.length;
+		if (fMappedSegments != null) {
+			fMappedSegments.unmapAll();
+		}
+		if (fCompressedChunks != null) {
+			// Releases the native memory of the decompressor.
+			fCompressedChunks.close();
+			fCompressedChunks= null;
+		}
 		try {
 			fFile.close();
 		} catch (IOException e) {
@@ -677,6 +818,77 @@ public class Database {
 		clearStringCache();
 	}
 
+	/**
+	 * Returns whether changes to the database are written to a journal before they are
+	 * committed to the database file.
+	 */
+	public boolean isJournaled() {
+		return fJournal != null;
+	}
+
+	/**
+	 * Returns whether the database file stores its chunks compressed. Compressed databases
+	 * can only be opened read-only.
+	 */
+	public boolean isCompressed() {
+		return fCompressed;
+	}
+
+	/**
+	 * Returns whether the given file contains a compressed database.
+	 */
+	public static boolean isCompressed(File location) throws CoreException {
+		try (RandomAccessFile file = new RandomAccessFile(location, "r")) { //$NON-NLS-1$
+			return CompressedChunks.isCompressed(file.getChannel());
+		} catch (IOException e) {
+			throw new CoreException(new DBStatus(e));
+		}
+	}
+
+	/**
+	 * Writes a compressed copy of a database file that is not in use. The chunks of the copy
+	 * are decompressed when they are read into the cache, such that the copy can be opened
+	 * read-only without decompressing it first.
+	 */
+	public static void compress(File source, File target) throws CoreException {
+		try (RandomAccessFile in = new RandomAccessFile(source, "r"); //$NON-NLS-1$
+				RandomAccessFile out = new RandomAccessFile(target, "rw")) { //$NON-NLS-1$
+			if (CompressedChunks.isCompressed(in.getChannel()))
+				throw new IOException("Database is already compressed: " + source); //$NON-NLS-1$
+			out.setLength(0);
+			CompressedChunks.compress(in.getChannel(), in.length(), out.getChannel());
+		} catch (IOException e) {
+			throw new CoreException(new DBStatus(e));
+		}
+	}
+
+	/**
+	 * Writes an uncompressed copy of a compressed database file that is not in use.
+	 */
+	public static void decompress(File source, File target) throws CoreException {
+		try (RandomAccessFile in = new RandomAccessFile(source, "r"); //$NON-NLS-1$
+				RandomAccessFile out = new RandomAccessFile(target, "rw")) { //$NON-NLS-1$
+			final CompressedChunks chunks = CompressedChunks.open(in.getChannel());
+			if (chunks == null)
+				throw new IOException("Database is not compressed: " + source); //$NON-NLS-1$
+			try {
+				out.setLength(0);
+				chunks.transferTo(in.getChannel(), out.getChannel());
+			} finally {
+				chunks.close();
+			}
+		} catch (IOException e) {
+			throw new CoreException(new DBStatus(e));
+		}
+	}
+
+	/**
+	 * Returns whether the database file is accessed through memory-mapped segments.
+	 */
+	public boolean isMemoryMapped() {
+		return fMappedSegments != null;
+	}
+
 	/**
      * This method is public for testing purposes only.
      */
@@ -685,7 +897,7 @@ public class Database {
 	}
 
 	/**
-	 * Called from any thread via the cache, protected by {@link #fCache}.
+	 * Called from any thread via the cache, protected by the stripe of the chunk.
 	 */
 	void releaseChunk(final Chunk chunk) {
 		if (!chunk.fLocked) {
@@ -693,6 +905,17 @@ public class Database {
 		}
 	}
 
+	/**
+	 * Returns the number of chunks of this database that are currently cached.
+	 */
+	int getCachedChunkCount() {
+		int count= 0;
+		for (int n : fChunksInStripe) {
+			count+= n;
+		}
+		return count;
+	}
+
 	/**
 	 * Returns the cache used for this database.
 	 * @since 4.0
@@ -714,33 +937,79 @@ public class Database {
 		fLocked= val;
 	}
 
-	public void giveUpExclusiveLock(final boolean flush) throws CoreException {
+	/**
+	 * Starts a batch of changes. Until the batch is ended, giving up the exclusive lock does not
+	 * flush the changes, they are committed together by the next call to {@link #flush()}.
+	 * Batches may be nested. Without a journal there is no batch, the changes are flushed
+	 * whenever the exclusive lock is given up with a flush, like before.
+	 */
+	public void beginBatch() {
+		if (fJournal != null) {
+			fBatchDepth++;
+		}
+	}
+
+	/**
+	 * Ends a batch of changes started with {@link #beginBatch()}. The changes of the batch are
+	 * committed by the next flush.
+	 */
+	public void endBatch() {
+		if (fJournal != null) {
+			assert fBatchDepth > 0;
+			fBatchDepth--;
+		}
+	}
+
+	/**
+	 * Returns whether a batch of changes is open, see {@link #beginBatch()}.
+	 */
+	public boolean isBatchOpen() {
+		return fBatchDepth > 0;
+	}
+
+	public void giveUpExclusiveLock(boolean flush) throws CoreException {
+		if (flush && fBatchDepth > 0) {
+			flush= false;
+		}
+		if (!flush && fJournal != null && fJournal.getSize() >= MAX_JOURNAL_SIZE) {
+			// Commit the batch early rather than letting the journal grow without bounds.
+			flush= true;
+		}
+		releaseExclusiveLock(flush);
+	}
+
+	private void releaseExclusiveLock(final boolean flush) throws CoreException {
 		if (fExclusiveLock) {
 			try {
 				ArrayList<Chunk> dirtyChunks= new ArrayList<>();
-				synchronized (fCache) {
-					for (int i= 1; i < fChunksUsed; i++) {
-						Chunk chunk= fChunks[i];
-						if (chunk != null) {
-							if (chunk.fCacheIndex < 0) {
-								// Locked chunk that has been removed from cache.
-								if (chunk.fDirty) {
-									dirtyChunks.add(chunk); // Keep in fChunks until it is flushed.
-								} else {
-									chunk.fLocked= false;
-									fChunks[i]= null;
-								}
-							} else if (chunk.fLocked) {
-								// Locked chunk, still in cache.
-								if (chunk.fDirty) {
-									if (flush) {
-										dirtyChunks.add(chunk);
+				final int stripeCount= fCache.getStripeCount();
+				for (int s= 0; s < stripeCount; s++) {
+					final ChunkCache.Stripe stripe= fCache.getStripe(s);
+					synchronized (stripe) {
+						final Chunk[] chunks= fChunks;
+						for (int i= fCache.getFirstChunkIndex(this, stripe); i < fChunksUsed; i+= stripeCount) {
+							Chunk chunk= chunks[i];
+							if (chunk != null) {
+								if (chunk.fCacheIndex < 0) {
+									// Locked chunk that has been removed from cache.
+									if (chunk.fDirty) {
+										dirtyChunks.add(chunk); // Keep in fChunks until it is flushed.
+									} else {
+										chunk.fLocked= false;
+										chunks[i]= null;
+									}
+								} else if (chunk.fLocked) {
+									// Locked chunk, still in cache.
+									if (chunk.fDirty) {
+										if (flush) {
+											dirtyChunks.add(chunk);
+										}
+									} else {
+										chunk.fLocked= false;
 									}
 								} else {
-									chunk.fLocked= false;
+									assert !chunk.fDirty; // Dirty chunks must be locked.
 								}
-							} else {
-								assert !chunk.fDirty; // Dirty chunks must be locked.
 							}
 						}
 					}
@@ -757,7 +1026,7 @@ public class Database {
 		assert fLocked;
 		if (fExclusiveLock) {
 			try {
-				giveUpExclusiveLock(true);
+				releaseExclusiveLock(true);
 			} finally {
 				setExclusiveLock();
 			}
@@ -766,11 +1035,16 @@ public class Database {
 
 		// Be careful as other readers may access chunks concurrently.
 		ArrayList<Chunk> dirtyChunks= new ArrayList<>();
-		synchronized (fCache) {
-			for (int i= 1; i < fChunksUsed; i++) {
-				Chunk chunk= fChunks[i];
-				if (chunk != null && chunk.fDirty) {
-					dirtyChunks.add(chunk);
+		final int stripeCount= fCache.getStripeCount();
+		for (int s= 0; s < stripeCount; s++) {
+			final ChunkCache.Stripe stripe= fCache.getStripe(s);
+			synchronized (stripe) {
+				final Chunk[] chunks= fChunks;
+				for (int i= fCache.getFirstChunkIndex(this, stripe); i < fChunksUsed; i+= stripeCount) {
+					Chunk chunk= chunks[i];
+					if (chunk != null && chunk.fDirty) {
+						dirtyChunks.add(chunk);
+					}
 				}
 			}
 		}
@@ -789,8 +1063,11 @@ public class Database {
 	}
 
 	private void flushAndUnlockChunks(final ArrayList<Chunk> dirtyChunks, boolean isComplete) throws CoreException {
-		assert !Thread.holdsLock(fCache);
 		synchronized (fHeaderChunk) {
+			if (fJournal != null) {
+				journalAndUnlockChunks(dirtyChunks, isComplete);
+				return;
+			}
 			final boolean haveDirtyChunks = !dirtyChunks.isEmpty();
 			if (haveDirtyChunks || fHeaderChunk.fDirty) {
 				markFileIncomplete();
@@ -801,19 +1078,14 @@ public class Database {
 						chunk.flush();
 					}
 				}
-
-				// Only after the chunks are flushed we may unlock and release them.
-				synchronized (fCache) {
-					for (Chunk chunk : dirtyChunks) {
-						chunk.fLocked= false;
-						if (chunk.fCacheIndex < 0) {
-							fChunks[chunk.fSequenceNumber]= null;
-						}
-					}
-				}
+				unlockChunks(dirtyChunks);
 			}
 
 			if (isComplete) {
+				if (fMappedSegments != null) {
+					// Changes to the mapped segments have to reach the file before it is marked complete.
+					fMappedSegments.force();
+				}
 				if (fHeaderChunk.fDirty || fIsMarkedIncomplete) {
 					fHeaderChunk.putInt(VERSION_OFFSET, fVersion);
 					fHeaderChunk.flush();
@@ -823,6 +1095,44 @@ public class Database {
 		}
 	}
 
+	/**
+	 * Appends the dirty chunks to the journal. The database file is not touched unless the
+	 * changes are complete, in which case they are committed together with the header chunk.
+	 */
+	private void journalAndUnlockChunks(final ArrayList<Chunk> dirtyChunks, boolean isComplete)
+			throws CoreException {
+		try {
+			for (Chunk chunk : dirtyChunks) {
+				if (chunk.fDirty) {
+					chunk.flushToJournal(fJournal);
+				}
+			}
+			unlockChunks(dirtyChunks);
+
+			if (isComplete) {
+				if (fHeaderChunk.fDirty) {
+					fHeaderChunk.putInt(VERSION_OFFSET, fVersion);
+					fHeaderChunk.flushToJournal(fJournal);
+				}
+				fJournal.commit(this);
+			}
+		} catch (IOException e) {
+			throw new CoreException(new DBStatus(e));
+		}
+	}
+
+	private void unlockChunks(final ArrayList<Chunk> flushedChunks) {
+		// Only after the chunks are flushed we may unlock and release them.
+		for (Chunk chunk : flushedChunks) {
+			synchronized (fCache.getStripe(this, chunk.fSequenceNumber)) {
+				chunk.fLocked= false;
+				if (chunk.fCacheIndex < 0) {
+					fChunks[chunk.fSequenceNumber]= null;
+				}
+			}
+		}
+	}
+
 	private void markFileIncomplete() throws CoreException {
 		if (!fIsMarkedIncomplete) {
 			fIsMarkedIncomplete= true;
@@ -836,15 +1146,29 @@ public class Database {
 	}
 
 	public void resetCacheCounters() {
-		cacheHits= cacheMisses= 0;
+		for (int s= 0; s < cacheHits.length; s++) {
+			synchronized (fCache.getStripe(s)) {
+				cacheHits[s]= cacheMisses[s]= 0;
+			}
+		}
 	}
 
 	public long getCacheHits() {
-		return cacheHits;
+		return sumCacheCounters(cacheHits);
 	}
 
 	public long getCacheMisses() {
-		return cacheMisses;
+		return sumCacheCounters(cacheMisses);
+	}
+
+	private long sumCacheCounters(long[] counters) {
+		long result= 0;
+		for (int s= 0; s < counters.length; s++) {
+			synchronized (fCache.getStripe(s)) {
+				result+= counters[s];
+			}
+		}
+		return result;
 	}
 
 	public long getSizeBytes() {
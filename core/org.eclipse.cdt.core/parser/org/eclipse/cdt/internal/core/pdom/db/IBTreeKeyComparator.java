@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2017 QNX Software Systems and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.db;
+
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * Comparator for B-trees that store an inline key next to each record. Comparisons that can be
+ * decided by the inline keys don't need to access the records.
+ * <p>
+ * The inline keys have to be consistent with the order defined by the comparator: when the
+ * key of one record is less than the key of another one (compared as unsigned values), then
+ * the first record has to be less than the second one. Records with equal keys are compared
+ * with {@link #compare(long, long)}.
+ * <p>
+ * Whether a B-tree stores inline keys depends on its comparator, a B-tree must therefore
+ * always be accessed with the same kind of comparator.
+ */
+public interface IBTreeKeyComparator extends IBTreeComparator {
+	/**
+	 * Computes the inline key for a record. Used for insert and delete.
+	 */
+	public long getKey(long record) throws CoreException;
+}
@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2017 QNX Software Systems and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.db;
+
+/**
+ * Visitor for B-trees with inline keys, see {@link IBTreeKeyComparator}. The visitor provides
+ * the range of inline keys of the records it compares equal to. Records with a key outside of
+ * the range are compared without calling {@link #compare(long)}. For B-trees without inline
+ * keys the range is ignored.
+ */
+public interface IBTreeKeyVisitor extends IBTreeVisitor {
+	/**
+	 * Returns the smallest inline key of a record the visitor may compare equal to.
+	 */
+	public long getMinKey();
+
+	/**
+	 * Returns the largest inline key of a record the visitor may compare equal to.
+	 */
+	public long getMaxKey();
+}
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2017 QNX Software Systems and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Append-only write-ahead log for the chunks of a database. Chunks written between two commits
+ * are appended to the journal rather than written to the database file, such that the database
+ * file always reflects the state of the last commit. A commit forces the records to the storage
+ * device, then appends a commit marker and forces the journal again. Only then the latest image
+ * of every journaled chunk is copied into the database file. Forcing the records before the
+ * marker is written ensures that a marker found after a crash commits only records that have
+ * reached the device. When a database is opened after a crash, the chunks of a
+ * complete commit are copied again and the chunks of an incomplete one are discarded.
+ * <p>
+ * A record consists of the sequence number of the chunk, a reserved int and the content of the
+ * chunk. A commit marker consists of {@link #COMMIT_MARKER} followed by the number of records
+ * it commits.
+ */
+final class Journal {
+	private static final int RECORD_HEADER_SIZE = 2 * Database.INT_SIZE;
+	private static final int RECORD_SIZE = RECORD_HEADER_SIZE + Database.CHUNK_SIZE;
+	private static final int COMMIT_MARKER = -1;
+
+	private final File fLocation;
+	private RandomAccessFile fFile;
+	/** Maps the sequence numbers of chunks to the position of their latest image in the journal. */
+	private final Map<Integer, Long> fChunkPositions = new TreeMap<>();
+	private long fSize;
+	private int fUncommittedRecords;
+
+	Journal(File location) {
+		fLocation = location;
+	}
+
+	/**
+	 * Returns the location of the journal for the given database file.
+	 */
+	static File getLocation(File databaseLocation) {
+		return new File(databaseLocation.getPath() + ".journal"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the number of bytes appended to the journal since the last commit.
+	 */
+	synchronized long getSize() {
+		return fSize;
+	}
+
+	/**
+	 * Appends the content of a chunk to the journal.
+	 */
+	synchronized void append(int sequenceNumber, byte[] content) throws IOException {
+		assert content.length == Database.CHUNK_SIZE;
+		final ByteBuffer buf = ByteBuffer.allocate(RECORD_SIZE);
+		buf.putInt(sequenceNumber).putInt(0).put(content);
+		buf.flip();
+		writeFully(getChannel(), buf, fSize);
+		fChunkPositions.put(sequenceNumber, fSize + RECORD_HEADER_SIZE);
+		fSize += RECORD_SIZE;
+		fUncommittedRecords++;
+	}
+
+	/**
+	 * Reads a chunk from the journal.
+	 * @return {@code false} if the journal does not contain an image of the chunk.
+	 */
+	synchronized boolean read(ByteBuffer buf, long position) throws IOException {
+		if (fChunkPositions.isEmpty() || buf.remaining() != Database.CHUNK_SIZE
+				|| (position & Database.OFFSET_IN_CHUNK_MASK) != 0) {
+			return false;
+		}
+		final Long journalPosition = fChunkPositions.get((int) (position / Database.CHUNK_SIZE));
+		if (journalPosition == null)
+			return false;
+
+		readFully(getChannel(), buf, journalPosition);
+		return true;
+	}
+
+	/**
+	 * Makes the chunks appended since the last commit durable and copies them into the database
+	 * file. Afterwards the journal is empty.
+	 */
+	synchronized void commit(Database db) throws IOException {
+		if (fChunkPositions.isEmpty())
+			return;
+
+		final FileChannel channel = getChannel();
+		channel.force(false);
+		final ByteBuffer marker = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+		marker.putInt(COMMIT_MARKER).putInt(fUncommittedRecords);
+		marker.flip();
+		writeFully(channel, marker, fSize);
+		channel.force(false);
+
+		apply(channel, fChunkPositions, db);
+		reset();
+	}
+
+	/**
+	 * Discards all chunks appended since the last commit.
+	 */
+	synchronized void clear() throws IOException {
+		if (fFile != null) {
+			reset();
+		}
+	}
+
+	/**
+	 * Closes and deletes the journal, chunks that have not been committed are lost.
+	 */
+	synchronized void close() throws IOException {
+		fChunkPositions.clear();
+		fSize = 0;
+		fUncommittedRecords = 0;
+		if (fFile != null) {
+			fFile.close();
+			fFile = null;
+		}
+		fLocation.delete();
+	}
+
+	private void reset() throws IOException {
+		fFile.getChannel().truncate(0);
+		fChunkPositions.clear();
+		fSize = 0;
+		fUncommittedRecords = 0;
+	}
+
+	private FileChannel getChannel() throws IOException {
+		if (fFile == null) {
+			fFile = new RandomAccessFile(fLocation, "rw"); //$NON-NLS-1$
+			fFile.getChannel().truncate(0);
+		}
+		return fFile.getChannel();
+	}
+
+	/**
+	 * Copies the chunks of the last complete commit found in the journal into the database file
+	 * and deletes the journal. Does nothing if there is no journal for the database.
+	 */
+	static void recover(File location, Database db) throws IOException {
+		if (!location.exists())
+			return;
+
+		try (RandomAccessFile file = new RandomAccessFile(location, "rw")) { //$NON-NLS-1$
+			final FileChannel channel = file.getChannel();
+			final long size = channel.size();
+			final Map<Integer, Long> committed = new TreeMap<>();
+			final Map<Integer, Long> pending = new TreeMap<>();
+			final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+			int pendingRecords = 0;
+			long position = 0;
+			while (position + RECORD_HEADER_SIZE <= size) {
+				header.clear();
+				readFully(channel, header, position);
+				final int sequenceNumber = header.getInt(0);
+				if (sequenceNumber == COMMIT_MARKER) {
+					if (header.getInt(Database.INT_SIZE) != pendingRecords)
+						break;
+					committed.putAll(pending);
+					pending.clear();
+					pendingRecords = 0;
+					position += RECORD_HEADER_SIZE;
+				} else {
+					if (sequenceNumber < 0 || position + RECORD_SIZE > size)
+						break;
+					pending.put(sequenceNumber, position + RECORD_HEADER_SIZE);
+					pendingRecords++;
+					position += RECORD_SIZE;
+				}
+			}
+			if (!committed.isEmpty()) {
+				apply(channel, committed, db);
+			}
+		}
+		location.delete();
+	}
+
+	private static void apply(FileChannel channel, Map<Integer, Long> chunkPositions, Database db)
+			throws IOException {
+		final ByteBuffer buf = ByteBuffer.allocate(Database.CHUNK_SIZE);
+		for (Map.Entry<Integer, Long> entry : chunkPositions.entrySet()) {
+			buf.clear();
+			readFully(channel, buf, entry.getValue());
+			buf.flip();
+			db.write(buf, (long) entry.getKey() * Database.CHUNK_SIZE);
+		}
+		db.force();
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+		while (buf.hasRemaining()) {
+			final int read = channel.read(buf, position);
+			if (read < 0)
+				throw new IOException("Unexpected end of journal"); //$NON-NLS-1$
+			position += read;
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+		while (buf.hasRemaining()) {
+			position += channel.write(buf, position);
+		}
+	}
+}
@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2017 QNX Software Systems and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.db;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Memory-mapped view of the database file. The file is mapped lazily in segments of
+ * {@link #SEGMENT_SIZE} bytes. A mapping never extends past the end of the file at the time
+ * it is created, so that mapping does not change the size of the file. The segment that contains
+ * the end of the file is therefore mapped in pieces of {@link #PIECE_SIZE} bytes, such that a
+ * growing file does not cause the segment to be mapped again. The segment is mapped as a whole
+ * once the file covers it. Transfers that cannot be served from a mapping are rejected and have
+ * to be performed through the file channel.
+ * <p>
+ * The mappings are released by the garbage collector only. Until then some platforms, namely
+ * Windows, refuse to truncate or delete the file.
+ */
+final class MappedFileSegments {
+	static final int SEGMENT_SIZE_BITS = 26;
+	static final long SEGMENT_SIZE = 1L << SEGMENT_SIZE_BITS;
+	static final int PIECE_SIZE_BITS = 20;
+	static final int PIECE_SIZE = 1 << PIECE_SIZE_BITS;
+	private static final int OFFSET_IN_SEGMENT_MASK = (int) SEGMENT_SIZE - 1;
+	private static final int OFFSET_IN_PIECE_MASK = PIECE_SIZE - 1;
+	private static final int PIECES_PER_SEGMENT = 1 << (SEGMENT_SIZE_BITS - PIECE_SIZE_BITS);
+
+	private final boolean fReadOnly;
+	private MappedByteBuffer[] fSegments = new MappedByteBuffer[0];
+	private final BitSet fDirtySegments = new BitSet();
+	// The segment that contains the end of the file, mapped in pieces.
+	private int fTailIndex = -1;
+	private final MappedByteBuffer[] fTailPieces = new MappedByteBuffer[PIECES_PER_SEGMENT];
+	private final BitSet fDirtyTailPieces = new BitSet();
+	private boolean fMappingFailed;
+
+	MappedFileSegments(boolean readOnly) {
+		fReadOnly = readOnly;
+	}
+
+	/**
+	 * Reads the remaining bytes of the buffer from the given position of the file.
+	 * @return {@code false} if the bytes are not available in a mapped segment.
+	 */
+	synchronized boolean read(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+		final ByteBuffer source = getMapping(channel, position, buf.remaining(), false);
+		if (source == null)
+			return false;
+
+		buf.put(source);
+		return true;
+	}
+
+	/**
+	 * Writes the remaining bytes of the buffer to the given position of the file.
+	 * @return {@code false} if the bytes cannot be written to a mapped segment.
+	 */
+	synchronized boolean write(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+		if (fReadOnly)
+			return false;
+
+		final ByteBuffer target = getMapping(channel, position, buf.remaining(), true);
+		if (target == null)
+			return false;
+
+		target.put(buf);
+		return true;
+	}
+
+	/**
+	 * Returns a view of the mapped bytes for a transfer of the given length at the given position
+	 * of the file, or {@code null} if the bytes cannot be mapped.
+	 */
+	private ByteBuffer getMapping(FileChannel channel, long position, int length, boolean forWrite)
+			throws IOException {
+		if (fMappingFailed)
+			return null;
+
+		final int index = (int) (position >>> SEGMENT_SIZE_BITS);
+		final int offset = (int) (position & OFFSET_IN_SEGMENT_MASK);
+		if (offset + length > SEGMENT_SIZE)
+			return null;  // The transfer crosses a segment boundary.
+
+		if (index < fSegments.length && fSegments[index] != null) {
+			if (forWrite)
+				fDirtySegments.set(index);
+			return view(fSegments[index], offset, length);
+		}
+
+		final int piece = offset >>> PIECE_SIZE_BITS;
+		final int offsetInPiece = offset & OFFSET_IN_PIECE_MASK;
+		if (index == fTailIndex && fTailPieces[piece] != null && offsetInPiece + length <= PIECE_SIZE) {
+			if (forWrite)
+				fDirtyTailPieces.set(piece);
+			return view(fTailPieces[piece], offsetInPiece, length);
+		}
+
+		final long start = (long) index << SEGMENT_SIZE_BITS;
+		final long fileSize = channel.size();
+		if (fileSize - start >= SEGMENT_SIZE) {
+			// The file covers the entire segment.
+			final MappedByteBuffer segment = map(channel, start, SEGMENT_SIZE);
+			if (segment == null)
+				return null;
+			if (index == fTailIndex) {
+				releaseTail();
+			}
+			if (index >= fSegments.length) {
+				fSegments = Arrays.copyOf(fSegments, index + 1);
+			}
+			fSegments[index] = segment;
+			if (forWrite)
+				fDirtySegments.set(index);
+			return view(segment, offset, length);
+		}
+
+		// The segment contains the end of the file.
+		final long pieceStart = start + ((long) piece << PIECE_SIZE_BITS);
+		if (offsetInPiece + length > PIECE_SIZE || fileSize - pieceStart < PIECE_SIZE)
+			return null;  // Don't extend the file through the mapping.
+		final MappedByteBuffer mapped = map(channel, pieceStart, PIECE_SIZE);
+		if (mapped == null)
+			return null;
+		if (index != fTailIndex) {
+			releaseTail();
+			fTailIndex = index;
+		}
+		fTailPieces[piece] = mapped;
+		if (forWrite)
+			fDirtyTailPieces.set(piece);
+		return view(mapped, offsetInPiece, length);
+	}
+
+	private MappedByteBuffer map(FileChannel channel, long start, long size) {
+		try {
+			return channel.map(fReadOnly ? MapMode.READ_ONLY : MapMode.READ_WRITE, start, size);
+		} catch (IOException e) {
+			// Most likely we ran out of address space, fall back to the channel.
+			fMappingFailed = true;
+			return null;
+		}
+	}
+
+	private static ByteBuffer view(MappedByteBuffer mapped, int offset, int length) {
+		final ByteBuffer result = mapped.duplicate();
+		result.limit(offset + length);
+		result.position(offset);
+		return result;
+	}
+
+	/**
+	 * Forces the changes to the pieces of the tail segment to the storage device and forgets
+	 * about the pieces.
+	 */
+	private void releaseTail() {
+		for (int i = fDirtyTailPieces.nextSetBit(0); i >= 0; i = fDirtyTailPieces.nextSetBit(i + 1)) {
+			fTailPieces[i].force();
+		}
+		fDirtyTailPieces.clear();
+		Arrays.fill(fTailPieces, null);
+		fTailIndex = -1;
+	}
+
+	/**
+	 * Forces the changes made to mapped segments since the last call to be written to the
+	 * storage device.
+	 */
+	synchronized void force() {
+		for (int i = fDirtySegments.nextSetBit(0); i >= 0; i = fDirtySegments.nextSetBit(i + 1)) {
+			fSegments[i].force();
+		}
+		fDirtySegments.clear();
+		for (int i = fDirtyTailPieces.nextSetBit(0); i >= 0; i = fDirtyTailPieces.nextSetBit(i + 1)) {
+			fTailPieces[i].force();
+		}
+		fDirtyTailPieces.clear();
+	}
+
+	/**
+	 * Forces the changes to the storage device and forgets about all mappings. Must be called
+	 * before the file is truncated or closed. The mappings themselves are released by the garbage
+	 * collector.
+	 */
+	synchronized void unmapAll() {
+		force();
+		fSegments = new MappedByteBuffer[0];
+		Arrays.fill(fTailPieces, null);
+		fTailIndex = -1;
+		fMappingFailed = false;
+	}
+}
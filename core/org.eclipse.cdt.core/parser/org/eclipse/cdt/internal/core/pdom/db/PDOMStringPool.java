@@ -0,0 +1,482 @@
+/*******************************************************************************
+ * Copyright (c) 2017 QNX Software Systems and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * A pool of reference counted strings in the Database. Each distinct string is stored only once,
+ * such that equal strings obtained from the pool can be compared by their record.
+ * <p>
+ * The pool is indexed by a BTree that is ordered by the 64-bit hash of the strings. The hash is
+ * stored as inline key, so the content of a pooled string is compared only when the hashes
+ * collide.
+ * <p>
+ * Optionally a second BTree indexes the pooled strings by their trigrams, i.e. by the sequences of three
+ * characters they contain, ignoring case. It is used to find the candidates for strings that
+ * contain a given fragment without visiting all strings of the pool. The same BTree indexes the
+ * strings by the ordered pairs of their initials, see {@link #getInitials(char[])}, which is used
+ * to find the candidates for camel case patterns. A string is added to the trigram index only
+ * once it is interned as searchable, such that names that are never searched by their fragments,
+ * e.g. the names of parameters, do not pay for the keys.
+ */
+public class PDOMStringPool {
+	private static final int STRING = 0;
+	private static final int REFERENCE_COUNT = STRING + Database.PTR_SIZE;
+	private static final int HASH = REFERENCE_COUNT + Database.INT_SIZE;
+	private static final int KEYS_INDEXED = HASH + 8;
+	private static final int RECORD_SIZE = KEYS_INDEXED + 1;
+
+	private static final int TRIGRAM_ENTRY = 0;
+	private static final int TRIGRAM = TRIGRAM_ENTRY + Database.PTR_SIZE;
+	private static final int TRIGRAM_RECORD_SIZE = TRIGRAM + 8;
+
+	/** Tag of the keys for pairs of initials, trigrams use the lower 48 bits only. */
+	private static final long INITIALS_TAG = 1L << 48;
+	/** Key for the strings with too many pairs of initials to be indexed. */
+	private static final long MANY_INITIALS = 1L << 49;
+	private static final int MAX_INITIAL_PAIRS = 32;
+
+	private static final long[] NO_KEYS = {};
+
+	private final Database db;
+	private final BTree index;
+	private final BTree trigramIndex;
+
+	private long fLookups;
+	private long fHits;
+	private long fContentCompares;
+
+	/**
+	 * Creates a pool without a trigram index.
+	 */
+	public PDOMStringPool(Database db, long ptr) {
+		this.db = db;
+		this.index = new BTree(db, ptr, new Comparator());
+		this.trigramIndex = null;
+	}
+
+	/**
+	 * Creates a pool with a trigram index, that is stored at the given pointer.
+	 */
+	public PDOMStringPool(Database db, long ptr, long trigramPtr) {
+		this.db = db;
+		this.index = new BTree(db, ptr, new Comparator());
+		this.trigramIndex = new BTree(db, trigramPtr, new TrigramComparator());
+	}
+
+	/**
+	 * Returns the record of the pooled string with the given content and adds a reference to it.
+	 * The string is added to the pool if it is not already there.
+	 */
+	public long intern(char[] chars) throws CoreException {
+		return intern(chars, true);
+	}
+
+	/**
+	 * Returns the record of the pooled string with the given content and adds a reference to it.
+	 * The string is added to the pool if it is not already there. Only searchable strings are
+	 * added to the trigram index, the keys of a string are kept until its last reference is
+	 * released.
+	 */
+	public long intern(char[] chars, boolean searchable) throws CoreException {
+		final long entry = find(chars);
+		if (entry != 0) {
+			fHits++;
+			db.putInt(entry + REFERENCE_COUNT, db.getInt(entry + REFERENCE_COUNT) + 1);
+			if (searchable) {
+				addKeys(entry, chars);
+			}
+			return db.getRecPtr(entry + STRING);
+		}
+
+		final long string = db.newString(chars).getRecord();
+		final long newEntry = db.malloc(RECORD_SIZE);
+		db.putRecPtr(newEntry + STRING, string);
+		db.putInt(newEntry + REFERENCE_COUNT, 1);
+		db.putLong(newEntry + HASH, getHash(chars));
+		index.insert(newEntry);
+		if (searchable) {
+			addKeys(newEntry, chars);
+		}
+		return string;
+	}
+
+	private void addKeys(long entry, char[] chars) throws CoreException {
+		if (trigramIndex != null && db.getByte(entry + KEYS_INDEXED) == 0) {
+			db.putByte(entry + KEYS_INDEXED, (byte) 1);
+			addTrigrams(entry, getTrigrams(chars));
+			addTrigrams(entry, getInitialPairs(chars));
+		}
+	}
+
+	private void addTrigrams(long entry, long[] trigrams) throws CoreException {
+		for (long trigram : trigrams) {
+			final long record = db.malloc(TRIGRAM_RECORD_SIZE);
+			db.putRecPtr(record + TRIGRAM_ENTRY, entry);
+			db.putLong(record + TRIGRAM, trigram);
+			trigramIndex.insert(record);
+		}
+	}
+
+	/**
+	 * Removes a reference from a string obtained by {@link #intern(char[])}. The string is deleted
+	 * with its last reference. Strings that are not part of the pool are deleted right away.
+	 */
+	public void release(long string) throws CoreException {
+		final IString str = db.getString(string);
+		final char[] chars = str.getChars();
+		final long entry = find(chars);
+		if (entry == 0 || db.getRecPtr(entry + STRING) != string) {
+			str.delete();
+			return;
+		}
+
+		final int references = db.getInt(entry + REFERENCE_COUNT) - 1;
+		if (references > 0) {
+			db.putInt(entry + REFERENCE_COUNT, references);
+			return;
+		}
+		if (trigramIndex != null && db.getByte(entry + KEYS_INDEXED) != 0) {
+			removeTrigrams(entry, getTrigrams(chars));
+			removeTrigrams(entry, getInitialPairs(chars));
+		}
+		index.delete(entry);
+		db.free(entry);
+		str.delete();
+	}
+
+	private void removeTrigrams(long entry, long[] trigrams) throws CoreException {
+		for (long trigram : trigrams) {
+			final TrigramFinder finder = new TrigramFinder(trigram, entry);
+			trigramIndex.accept(finder);
+			if (finder.record != 0) {
+				trigramIndex.delete(finder.record);
+				db.free(finder.record);
+			}
+		}
+	}
+
+	/**
+	 * Returns the content of the searchable strings that contain all trigrams of the given fragments,
+	 * ignoring case. The result is a superset of the strings that contain all of the fragments,
+	 * the caller has to check the candidates. Each of the fragments must consist of at least
+	 * three characters. The pool must have been created with a trigram index.
+	 */
+	public List<char[]> findCandidates(char[][] fragments) throws CoreException {
+		assert trigramIndex != null;
+		Set<Long> entries = null;
+		for (char[] fragment : fragments) {
+			assert fragment.length >= 3;
+			entries = collect(getTrigrams(fragment), entries);
+			if (entries.isEmpty())
+				return Collections.emptyList();
+		}
+		return entries == null ? Collections.<char[]>emptyList() : getStrings(entries);
+	}
+
+	/**
+	 * Returns the content of the searchable strings whose initials contain the given initials in the
+	 * same order, ignoring case. The result is a superset of the strings that match a camel case
+	 * pattern with these initials, the caller has to check the candidates. At least two initials
+	 * must be given. The pool must have been created with a trigram index.
+	 */
+	public List<char[]> findCandidatesForInitials(char[] initials) throws CoreException {
+		assert trigramIndex != null;
+		assert initials.length >= 2;
+		final Set<Long> entries = collect(getPairs(initials, Integer.MAX_VALUE), null);
+		entries.addAll(collect(new long[] { MANY_INITIALS }, null));
+		return getStrings(entries);
+	}
+
+	/**
+	 * Returns the entries that are indexed with all of the given keys, restricted to the
+	 * given entries unless they are {@code null}.
+	 */
+	private Set<Long> collect(long[] keys, Set<Long> entries) throws CoreException {
+		for (long key : keys) {
+			final TrigramCollector collector = new TrigramCollector(key, entries);
+			trigramIndex.accept(collector);
+			entries = collector.entries;
+			if (entries.isEmpty())
+				break;
+		}
+		return entries;
+	}
+
+	private List<char[]> getStrings(Set<Long> entries) throws CoreException {
+		final List<char[]> result = new ArrayList<>(entries.size());
+		for (long entry : entries) {
+			result.add(db.getString(db.getRecPtr(entry + STRING)).getChars());
+		}
+		return result;
+	}
+
+	private long find(char[] chars) throws CoreException {
+		fLookups++;
+		final Finder finder = new Finder(chars, getHash(chars));
+		index.accept(finder);
+		return finder.entry;
+	}
+
+	/**
+	 * Returns the number of lookups performed by {@link #intern(char[])} and {@link #release(long)}.
+	 */
+	public long getLookups() {
+		return fLookups;
+	}
+
+	/**
+	 * Returns the number of strings that did not have to be stored because they were found in the pool.
+	 */
+	public long getHits() {
+		return fHits;
+	}
+
+	/**
+	 * Returns the number of comparisons of string content performed by the lookups.
+	 */
+	public long getContentCompares() {
+		return fContentCompares;
+	}
+
+	/**
+	 * Computes the 64-bit FNV-1a hash of the given characters.
+	 */
+	static long getHash(char[] chars) {
+		long hash = 0xcbf29ce484222325L;
+		for (char c : chars) {
+			hash = (hash ^ c) * 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns the distinct trigrams of the given characters, ignoring case. Each trigram is
+	 * packed into a long.
+	 */
+	static long[] getTrigrams(char[] chars) {
+		if (chars.length < 3)
+			return NO_KEYS;
+		final long[] result = new long[chars.length - 2];
+		int count = 0;
+		outer: for (int i = 0; i < result.length; i++) {
+			final long trigram = ((long) Character.toLowerCase(chars[i]) << 32)
+					| ((long) Character.toLowerCase(chars[i + 1]) << 16) | Character.toLowerCase(chars[i + 2]);
+			for (int j = 0; j < count; j++) {
+				if (result[j] == trigram)
+					continue outer;
+			}
+			result[count++] = trigram;
+		}
+		return count == result.length ? result : Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Returns the initials of the segments of a name in camel case or underscore notation,
+	 * in lower case. These are the first character if it is a letter, the upper case letters and
+	 * the letters that follow an underscore.
+	 */
+	public static char[] getInitials(char[] chars) {
+		final StringBuilder result = new StringBuilder();
+		for (int i = 0; i < chars.length; i++) {
+			final char c = chars[i];
+			if (Character.isLetter(c)
+					&& (i == 0 || Character.isUpperCase(c) || chars[i - 1] == '_')) {
+				result.append(Character.toLowerCase(c));
+			}
+		}
+		final char[] initials = new char[result.length()];
+		result.getChars(0, initials.length, initials, 0);
+		return initials;
+	}
+
+	/**
+	 * Returns the keys for the distinct ordered pairs of the initials of the given characters.
+	 */
+	static long[] getInitialPairs(char[] chars) {
+		final long[] pairs = getPairs(getInitials(chars), MAX_INITIAL_PAIRS);
+		return pairs == null ? new long[] { MANY_INITIALS } : pairs;
+	}
+
+	/**
+	 * Returns the keys for the distinct ordered pairs of the initials, or {@code null} if there
+	 * are more than the given maximum.
+	 */
+	private static long[] getPairs(char[] initials, int max) {
+		if (initials.length < 2)
+			return NO_KEYS;
+		final long[] result = new long[Math.min(max, initials.length * (initials.length - 1) / 2)];
+		int count = 0;
+		for (int i = 0; i < initials.length; i++) {
+			outer: for (int j = i + 1; j < initials.length; j++) {
+				final long pair = INITIALS_TAG | ((long) initials[i] << 16) | initials[j];
+				for (int k = 0; k < count; k++) {
+					if (result[k] == pair)
+						continue outer;
+				}
+				if (count == result.length)
+					return null;
+				result[count++] = pair;
+			}
+		}
+		return count == result.length ? result : Arrays.copyOf(result, count);
+	}
+
+	private class Comparator implements IBTreeKeyComparator {
+		@Override
+		public int compare(long record1, long record2) throws CoreException {
+			int cmp = Long.compareUnsigned(getKey(record1), getKey(record2));
+			if (cmp == 0) {
+				fContentCompares++;
+				IString string1 = db.getString(db.getRecPtr(record1 + STRING));
+				IString string2 = db.getString(db.getRecPtr(record2 + STRING));
+				cmp = string1.compare(string2, true);
+			}
+			return cmp;
+		}
+
+		@Override
+		public long getKey(long record) throws CoreException {
+			return db.getLong(record + HASH);
+		}
+	}
+
+	private class Finder implements IBTreeKeyVisitor {
+		private final char[] chars;
+		private final long hash;
+		long entry;
+
+		Finder(char[] chars, long hash) {
+			this.chars = chars;
+			this.hash = hash;
+		}
+
+		@Override
+		public long getMinKey() {
+			return hash;
+		}
+
+		@Override
+		public long getMaxKey() {
+			return hash;
+		}
+
+		@Override
+		public int compare(long record) throws CoreException {
+			int cmp = Long.compareUnsigned(db.getLong(record + HASH), hash);
+			if (cmp == 0) {
+				fContentCompares++;
+				cmp = db.getString(db.getRecPtr(record + STRING)).compare(chars, true);
+			}
+			return cmp;
+		}
+
+		@Override
+		public boolean visit(long record) throws CoreException {
+			entry = record;
+			return false;
+		}
+	}
+
+	private class TrigramComparator implements IBTreeKeyComparator {
+		@Override
+		public int compare(long record1, long record2) throws CoreException {
+			int cmp = Long.compareUnsigned(getKey(record1), getKey(record2));
+			if (cmp == 0) {
+				cmp = Long.compare(db.getRecPtr(record1 + TRIGRAM_ENTRY), db.getRecPtr(record2 + TRIGRAM_ENTRY));
+			}
+			return cmp;
+		}
+
+		@Override
+		public long getKey(long record) throws CoreException {
+			return db.getLong(record + TRIGRAM);
+		}
+	}
+
+	private abstract class TrigramVisitor implements IBTreeKeyVisitor {
+		protected final long trigram;
+
+		TrigramVisitor(long trigram) {
+			this.trigram = trigram;
+		}
+
+		@Override
+		public long getMinKey() {
+			return trigram;
+		}
+
+		@Override
+		public long getMaxKey() {
+			return trigram;
+		}
+
+		@Override
+		public int compare(long record) throws CoreException {
+			return Long.compareUnsigned(db.getLong(record + TRIGRAM), trigram);
+		}
+	}
+
+	/**
+	 * Finds the record for a trigram of a given entry of the pool.
+	 */
+	private class TrigramFinder extends TrigramVisitor {
+		private final long entry;
+		long record;
+
+		TrigramFinder(long trigram, long entry) {
+			super(trigram);
+			this.entry = entry;
+		}
+
+		@Override
+		public int compare(long record) throws CoreException {
+			int cmp = super.compare(record);
+			if (cmp == 0) {
+				cmp = Long.compare(db.getRecPtr(record + TRIGRAM_ENTRY), entry);
+			}
+			return cmp;
+		}
+
+		@Override
+		public boolean visit(long record) throws CoreException {
+			this.record = record;
+			return false;
+		}
+	}
+
+	/**
+	 * Collects the entries of the pool that contain a trigram, restricted to a previous result.
+	 */
+	private class TrigramCollector extends TrigramVisitor {
+		private final Set<Long> previous;
+		final Set<Long> entries = new LinkedHashSet<>();
+
+		TrigramCollector(long trigram, Set<Long> previous) {
+			super(trigram);
+			this.previous = previous;
+		}
+
+		@Override
+		public boolean visit(long record) throws CoreException {
+			final long entry = db.getRecPtr(record + TRIGRAM_ENTRY);
+			if (previous == null || previous.contains(entry)) {
+				entries.add(entry);
+			}
+			return true;
+		}
+	}
+}
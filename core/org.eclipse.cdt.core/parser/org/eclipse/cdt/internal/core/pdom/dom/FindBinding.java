@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2014 Symbian Software Systems and others.
+ * Copyright (c) 2006, 2017 Symbian Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,8 +16,8 @@ import org.eclipse.cdt.core.dom.IPDOMVisitor;
 import org.eclipse.cdt.internal.core.index.IIndexBindingConstants;
 import org.eclipse.cdt.internal.core.pdom.db.BTree;
 import org.eclipse.cdt.internal.core.pdom.db.Database;
-import org.eclipse.cdt.internal.core.pdom.db.IBTreeComparator;
-import org.eclipse.cdt.internal.core.pdom.db.IBTreeVisitor;
+import org.eclipse.cdt.internal.core.pdom.db.IBTreeKeyComparator;
+import org.eclipse.cdt.internal.core.pdom.db.IBTreeKeyVisitor;
 import org.eclipse.cdt.internal.core.pdom.db.IString;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.OperationCanceledException;
@@ -26,7 +26,7 @@ import org.eclipse.core.runtime.OperationCanceledException;
  * Look up bindings in BTree objects and IPDOMNode objects
  */
 public class FindBinding {
-	public static class DefaultBindingBTreeComparator implements IBTreeComparator {
+	public static class DefaultBindingBTreeComparator implements IBTreeKeyComparator {
 		protected final PDOMLinkage linkage;
 		protected final Database database;
 
@@ -37,9 +37,12 @@ public class FindBinding {
 
 		@Override
 		public int compare(long record1, long record2) throws CoreException {
-			IString nm1 = PDOMNamedNode.getDBName(database, record1);
-			IString nm2 = PDOMNamedNode.getDBName(database, record2);
-			int cmp= nm1.compareCompatibleWithIgnoreCase(nm2);
+			int cmp= 0;
+			if (!PDOMNamedNode.hasSameDBName(database, record1, record2)) {
+				IString nm1 = PDOMNamedNode.getDBName(database, record1);
+				IString nm2 = PDOMNamedNode.getDBName(database, record2);
+				cmp= nm1.compareCompatibleWithIgnoreCase(nm2);
+			}
 			if (cmp == 0) {
 				long t1= PDOMBinding.getLocalToFileRec(database, record1);
 				long t2= PDOMBinding.getLocalToFileRec(database, record2);
@@ -56,11 +59,17 @@ public class FindBinding {
 			}
 			return cmp;
 		}
+
+		@Override
+		public long getKey(long record) throws CoreException {
+			return BTree.getNameKey(PDOMNamedNode.getDBName(database, record).getChars(), (char) 0);
+		}
 	}
 
-	public static class DefaultFindBindingVisitor implements IBTreeVisitor, IPDOMVisitor {
+	public static class DefaultFindBindingVisitor implements IBTreeKeyVisitor, IPDOMVisitor {
 		protected final PDOMLinkage fLinkage;
 		private final char[] fName;
+		private final long fKey;
 		private final int[] fConstants;
 		private final long fLocalToFile;
 		protected PDOMBinding fResult;
@@ -68,9 +77,22 @@ public class FindBinding {
 		protected DefaultFindBindingVisitor(PDOMLinkage linkage, char[] name, int[] constants, long localToFile) {
 			fLinkage = linkage;
 			fName = name;
+			fKey = BTree.getNameKey(name, (char) 0);
 			fConstants = constants;
 			fLocalToFile= localToFile;
 		}
+
+		// IBTreeKeyVisitor
+		@Override
+		public long getMinKey() {
+			return fKey;
+		}
+
+		// IBTreeKeyVisitor
+		@Override
+		public long getMaxKey() {
+			return fKey;
+		}
 		
 		// IBTreeVisitor
 		@Override
@@ -152,7 +174,7 @@ public class FindBinding {
 		}
 	}
 
-	public static class MacroBTreeComparator implements IBTreeComparator {
+	public static class MacroBTreeComparator implements IBTreeKeyComparator {
 		final private Database db;
 		
 		public MacroBTreeComparator(Database database) {
@@ -160,11 +182,17 @@ public class FindBinding {
 		}
 		@Override
 		public int compare(long record1, long record2) throws CoreException {
+			if (PDOMNamedNode.hasSameDBName(db, record1, record2))
+				return 0;
 			return compare(PDOMNamedNode.getDBName(db, record1), PDOMNamedNode.getDBName(db, record2));	// compare names
 		}
 		private int compare(IString nameInDB, IString nameInDB2) throws CoreException {
 			return nameInDB.compareCompatibleWithIgnoreCase(nameInDB2);
 		}
+		@Override
+		public long getKey(long record) throws CoreException {
+			return BTree.getNameKey(PDOMNamedNode.getDBName(db, record).getChars(), (char) 0);
+		}
 	}
 
 	public static PDOMBinding findBinding(BTree btree, final PDOMLinkage linkage, final char[] name, 
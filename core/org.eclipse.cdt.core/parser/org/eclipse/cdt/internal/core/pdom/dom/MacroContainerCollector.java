@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2012 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,7 +16,8 @@ import java.util.List;
 
 import org.eclipse.cdt.core.parser.util.IContentAssistMatcher;
 import org.eclipse.cdt.internal.core.parser.util.ContentAssistMatcherFactory;
-import org.eclipse.cdt.internal.core.pdom.db.IBTreeVisitor;
+import org.eclipse.cdt.internal.core.pdom.db.BTree;
+import org.eclipse.cdt.internal.core.pdom.db.IBTreeKeyVisitor;
 import org.eclipse.cdt.internal.core.pdom.db.IString;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -26,12 +27,14 @@ import org.eclipse.core.runtime.OperationCanceledException;
  * Visitor to find macros in a BTree.
  * @since 4.0.2
  */
-public final class MacroContainerCollector implements IBTreeVisitor {
+public final class MacroContainerCollector implements IBTreeKeyVisitor {
 	private final PDOMLinkage linkage;
 	private final char[] matchChars;
 	private final boolean prefixLookup;
 	private final IContentAssistMatcher contentAssistMatcher;
 	private final boolean caseSensitive;
+	private final long minKey;
+	private final long maxKey;
 	private IProgressMonitor monitor= null;
 	private int monitorCheckCounter= 0;
 	
@@ -69,6 +72,8 @@ public final class MacroContainerCollector implements IBTreeVisitor {
 			this.caseSensitive= caseSensitive;
 		}
 		this.linkage= linkage;
+		this.minKey= BTree.getNameKey(matchChars, (char) 0);
+		this.maxKey= this.prefixLookup ? BTree.getNameKey(matchChars, Character.MAX_VALUE) : minKey;
 	}
 	
 	/**
@@ -79,6 +84,16 @@ public final class MacroContainerCollector implements IBTreeVisitor {
 		monitor= pm;
 	}
 	
+	@Override
+	public long getMinKey() {
+		return minKey;
+	}
+
+	@Override
+	public long getMaxKey() {
+		return maxKey;
+	}
+
 	@Override
 	final public int compare(long record) throws CoreException {
 		if (monitor != null)
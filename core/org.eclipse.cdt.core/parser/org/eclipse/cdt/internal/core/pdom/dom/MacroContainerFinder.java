@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2012 Wind River Systems, Inc. and others.
+ * Copyright (c) 2008, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,16 +10,18 @@
  *******************************************************************************/
 package org.eclipse.cdt.internal.core.pdom.dom;
 
-import org.eclipse.cdt.internal.core.pdom.db.IBTreeVisitor;
+import org.eclipse.cdt.internal.core.pdom.db.BTree;
+import org.eclipse.cdt.internal.core.pdom.db.IBTreeKeyVisitor;
 import org.eclipse.cdt.internal.core.pdom.db.IString;
 import org.eclipse.core.runtime.CoreException;
 
 /**
  * Visitor to find a macro container in a BTree.
  */
-public final class MacroContainerFinder implements IBTreeVisitor {
+public final class MacroContainerFinder implements IBTreeKeyVisitor {
 	private final PDOMLinkage fLinkage;
 	private final char[] fName;
+	private final long fKey;
 	private PDOMMacroContainer fMacroContainer;
 		
 	/**
@@ -28,8 +30,19 @@ public final class MacroContainerFinder implements IBTreeVisitor {
 	 */
 	public MacroContainerFinder(PDOMLinkage linkage, char[] name) {
 		fName= name;
+		fKey= BTree.getNameKey(name, (char) 0);
 		fLinkage= linkage;
 	}
+
+	@Override
+	public long getMinKey() {
+		return fKey;
+	}
+
+	@Override
+	public long getMaxKey() {
+		return fKey;
+	}
 		
 	@Override
 	final public int compare(long record) throws CoreException {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2015 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,7 +18,8 @@ import org.eclipse.cdt.core.dom.IPDOMNode;
 import org.eclipse.cdt.core.dom.IPDOMVisitor;
 import org.eclipse.cdt.core.parser.util.IContentAssistMatcher;
 import org.eclipse.cdt.internal.core.parser.util.ContentAssistMatcherFactory;
-import org.eclipse.cdt.internal.core.pdom.db.IBTreeVisitor;
+import org.eclipse.cdt.internal.core.pdom.db.BTree;
+import org.eclipse.cdt.internal.core.pdom.db.IBTreeKeyVisitor;
 import org.eclipse.cdt.internal.core.pdom.db.IString;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -28,12 +29,14 @@ import org.eclipse.core.runtime.OperationCanceledException;
  * Visitor to find named nodes in a BTree or below a PDOMNode. Nested nodes are not visited.
  * @since 4.0
  */
-public class NamedNodeCollector implements IBTreeVisitor, IPDOMVisitor {
+public class NamedNodeCollector implements IBTreeKeyVisitor, IPDOMVisitor {
 	private final PDOMLinkage linkage;
 	private final char[] matchChars;
 	private final boolean prefixLookup;
 	private final IContentAssistMatcher contentAssistMatcher;
 	private final boolean caseSensitive;
+	private final long minKey;
+	private final long maxKey;
 	private IProgressMonitor monitor;
 	private int monitorCheckCounter;
 	
@@ -76,6 +79,8 @@ public class NamedNodeCollector implements IBTreeVisitor, IPDOMVisitor {
 			this.prefixLookup= prefixLookup;
 			this.caseSensitive= caseSensitive;
 		}
+		this.minKey= BTree.getNameKey(matchChars, (char) 0);
+		this.maxKey= this.prefixLookup ? BTree.getNameKey(matchChars, Character.MAX_VALUE) : minKey;
 	}
 	
 	/**
@@ -86,6 +91,16 @@ public class NamedNodeCollector implements IBTreeVisitor, IPDOMVisitor {
 		monitor= pm;
 	}
 		
+	@Override
+	public long getMinKey() {
+		return minKey;
+	}
+
+	@Override
+	public long getMaxKey() {
+		return maxKey;
+	}
+
 	@Override
 	final public int compare(long record) throws CoreException {
 		if (monitor != null)
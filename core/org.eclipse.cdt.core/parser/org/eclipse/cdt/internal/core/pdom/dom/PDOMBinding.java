@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 QNX Software Systems and others.
+ * Copyright (c) 2005, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -49,9 +49,10 @@ public abstract class PDOMBinding extends PDOMNamedNode implements IPDOMBinding
 	private static final int FIRST_REF = FIRST_DEF + Database.PTR_SIZE; // size 4
 	private static final int LOCAL_TO_FILE = FIRST_REF + Database.PTR_SIZE; // size 4
 	private static final int FIRST_EXTREF = LOCAL_TO_FILE + Database.PTR_SIZE; // size 4
+	private static final int REFERENCE_COUNT = FIRST_EXTREF + Database.PTR_SIZE; // size 4
 
 	@SuppressWarnings("hiding")
-	protected static final int RECORD_SIZE = FIRST_EXTREF + + Database.PTR_SIZE;
+	protected static final int RECORD_SIZE = REFERENCE_COUNT + Database.INT_SIZE;
 
 	private byte hasDeclaration= -1;
 
@@ -63,6 +64,11 @@ public abstract class PDOMBinding extends PDOMNamedNode implements IPDOMBinding
 		super(linkage, record);
 	}
 
+	@Override
+	protected boolean isNameSearched() {
+		return true;
+	}
+
 	@Override
 	@SuppressWarnings("unchecked")
 	public <T> T getAdapter(Class<T> adapter) {
@@ -133,6 +139,10 @@ public abstract class PDOMBinding extends PDOMNamedNode implements IPDOMBinding
 	}
 
 	public final void addReference(PDOMName name) throws CoreException {
+		if (!name.isPotentialMatch()) {
+			getDB().putInt(record + REFERENCE_COUNT, getDB().getInt(record + REFERENCE_COUNT) + 1);
+		}
+
 		// This needs to filter between the local and external lists because it can be used in
 		// contexts that don't know which type of list they are iterating over.  E.g., this is
 		// used when deleting names from a PDOMFile.
@@ -149,6 +159,21 @@ public abstract class PDOMBinding extends PDOMNamedNode implements IPDOMBinding
 		setFirstReference(name);
 	}
 
+	/**
+	 * Returns the number of references to this binding from all linkages, potential matches
+	 * are not counted.
+	 */
+	public int getReferenceCount() throws CoreException {
+		return getDB().getInt(record + REFERENCE_COUNT);
+	}
+
+	/**
+	 * Decrements the reference count of the binding with the given record.
+	 */
+	static void removeReferenceCount(Database db, long binding) throws CoreException {
+		db.putInt(binding + REFERENCE_COUNT, db.getInt(binding + REFERENCE_COUNT) - 1);
+	}
+
 	public PDOMName getFirstDeclaration() throws CoreException {
 		long namerec = getDB().getRecPtr(record + FIRST_DECL);
 		return namerec != 0 ? new PDOMName(getLinkage(), namerec) : null;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 QNX Software Systems and others.
+ * Copyright (c) 2005, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -48,8 +48,8 @@ import org.eclipse.cdt.internal.core.pdom.PDOM;
 import org.eclipse.cdt.internal.core.pdom.YieldableIndexLock;
 import org.eclipse.cdt.internal.core.pdom.db.BTree;
 import org.eclipse.cdt.internal.core.pdom.db.Database;
-import org.eclipse.cdt.internal.core.pdom.db.IBTreeComparator;
-import org.eclipse.cdt.internal.core.pdom.db.IBTreeVisitor;
+import org.eclipse.cdt.internal.core.pdom.db.IBTreeKeyComparator;
+import org.eclipse.cdt.internal.core.pdom.db.IBTreeKeyVisitor;
 import org.eclipse.cdt.internal.core.pdom.db.IString;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IStatus;
@@ -85,7 +85,12 @@ public class PDOMFile implements IIndexFragmentFile {
 
 	private static final int FLAG_PRAGMA_ONCE_SEMANTICS	= 0x01;
 
-	public static class Comparator implements IBTreeComparator {
+	/**
+	 * Orders files by the hash of their location, the location itself, the linkage and the
+	 * significant macros. The hash is stored as inline key in the file index, such that a lookup
+	 * does not need to compare the long and mostly equal prefixes of the locations.
+	 */
+	public static class Comparator implements IBTreeKeyComparator {
 		private Database db;
 
 		public Comparator(Database db) {
@@ -96,7 +101,10 @@ public class PDOMFile implements IIndexFragmentFile {
 		public int compare(long record1, long record2) throws CoreException {
 			IString name1 = db.getString(db.getRecPtr(record1 + LOCATION_REPRESENTATION));
 			IString name2 = db.getString(db.getRecPtr(record2 + LOCATION_REPRESENTATION));
-			int cmp= name1.compare(name2, true);
+			int cmp= Long.compareUnsigned(getLocationKey(name1.getChars()), getLocationKey(name2.getChars()));
+			if (cmp == 0) {
+				cmp= name1.compare(name2, true);
+			}
 			if (cmp == 0) {
 				cmp= db.get3ByteUnsignedInt(record1 + LINKAGE_ID) - db.get3ByteUnsignedInt(record2 + LINKAGE_ID);
 				if (cmp == 0) {
@@ -114,12 +122,28 @@ public class PDOMFile implements IIndexFragmentFile {
 			return cmp;
 		}
 		
+		@Override
+		public long getKey(long record) throws CoreException {
+			return getLocationKey(db.getString(db.getRecPtr(record + LOCATION_REPRESENTATION)).getChars());
+		}
+
 		private IString getString(long offset) throws CoreException {
 			long rec = db.getRecPtr(offset);
 			return rec != 0 ? db.getString(rec) : null;
 		}
 	}
 
+	/**
+	 * Computes the 64-bit FNV-1a hash of the internal representation of a file location.
+	 */
+	static long getLocationKey(char[] location) {
+		long hash= 0xcbf29ce484222325L;
+		for (char c : location) {
+			hash= (hash ^ c) * 0x100000001b3L;
+		}
+		return hash;
+	}
+
 	public PDOMFile(PDOMLinkage linkage, long record) {
 		fLinkage = linkage;
 		this.record = record;
@@ -836,10 +860,11 @@ public class PDOMFile implements IIndexFragmentFile {
 		return new PDOMFile(linkage, record);
 	}
 
-	private static class Finder implements IBTreeVisitor {
+	private static class Finder implements IBTreeKeyVisitor {
 		private static final long[] EMPTY = {};
 		private final Database db;
 		private final String rawKey;
+		private final long locationKey;
 		private long record;
 		private long[] records;
 		private final int linkageID;
@@ -851,6 +876,7 @@ public class PDOMFile implements IIndexFragmentFile {
 		public Finder(Database db, String internalRepresentation, int linkageID, ISignificantMacros sigMacros) {
 			this.db = db;
 			this.rawKey = internalRepresentation;
+			this.locationKey = getLocationKey(internalRepresentation.toCharArray());
 			this.linkageID= linkageID;
 			this.rawSignificantMacros = sigMacros == null ? null : sigMacros.encode();
 			assert linkageID >= 0 || rawSignificantMacros == null;
@@ -866,10 +892,23 @@ public class PDOMFile implements IIndexFragmentFile {
 			return records;
 		}
 
+		@Override
+		public long getMinKey() {
+			return locationKey;
+		}
+
+		@Override
+		public long getMaxKey() {
+			return locationKey;
+		}
+
 		@Override
 		public int compare(long record) throws CoreException {
 			IString name = db.getString(db.getRecPtr(record + PDOMFile.LOCATION_REPRESENTATION));
-			int cmp= name.compare(rawKey, true);
+			int cmp= Long.compareUnsigned(getLocationKey(name.getChars()), locationKey);
+			if (cmp == 0) {
+				cmp= name.compare(rawKey, true);
+			}
 			if (cmp == 0 && linkageID >= 0) {
 				cmp= db.get3ByteUnsignedInt(record + PDOMFile.LINKAGE_ID) - linkageID;
 				if (cmp == 0 && rawSignificantMacros != null) {
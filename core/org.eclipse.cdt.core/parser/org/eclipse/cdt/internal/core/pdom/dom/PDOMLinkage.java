@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 QNX Software Systems and others.
+ * Copyright (c) 2005, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -361,7 +361,7 @@ public abstract class PDOMLinkage extends PDOMNamedNode implements IIndexLinkage
 		getMacroIndex().accept(visitor);
 		PDOMMacroContainer container= visitor.getMacroContainer();
 		if (container != null) {
-			fPDOM.putCachedResult(key, container);
+			fPDOM.putCachedResult(getLinkageID(), key, container);
 		}
 		return container;
 	}
@@ -372,7 +372,7 @@ public abstract class PDOMLinkage extends PDOMNamedNode implements IIndexLinkage
 		if (result == null) {
 			result= new PDOMMacroContainer(this, name);
 			getMacroIndex().insert(result.getRecord());
-			fPDOM.putCachedResult(key, result);
+			fPDOM.putCachedResult(getLinkageID(), key, result);
 		}
 		return result;
 	}
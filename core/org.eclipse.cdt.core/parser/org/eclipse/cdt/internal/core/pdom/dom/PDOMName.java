@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2014 QNX Software Systems and others.
+ * Copyright (c) 2005, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,7 +12,7 @@
  *******************************************************************************/
 package org.eclipse.cdt.internal.core.pdom.dom;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.dom.ast.IASTFileLocation;
@@ -35,8 +35,8 @@ public final class PDOMName implements IIndexFragmentName {
 
 	private static final int FILE_REC_OFFSET     = 0;
 	private static final int FILE_NEXT_OFFSET	 = 4;
-	private static final int CALLER_REC_OFFSET   = 8;
-	private static final int BINDING_REC_OFFSET  = 12;
+	static final int CALLER_REC_OFFSET           = 8;
+	static final int BINDING_REC_OFFSET          = 12;
 	private static final int BINDING_PREV_OFFSET = 16;
 	private static final int BINDING_NEXT_OFFSET = 20;
 	private static final int NODE_OFFSET_OFFSET  = 24; // 3-byte unsigned int (sufficient for files <= 16mb)
@@ -99,6 +99,7 @@ public final class PDOMName implements IIndexFragmentName {
 		db.putRecPtr(record + FILE_REC_OFFSET, file.getRecord());
 		if (caller != null) {
 			db.putRecPtr(record + CALLER_REC_OFFSET, caller.getRecord());
+			linkage.getPDOM().getEnclosedNamesIndex().add(record);
 		}
 
 		// Record our location in the file
@@ -144,8 +145,11 @@ public final class PDOMName implements IIndexFragmentName {
 
 	@Override
 	public PDOMBinding getBinding() throws CoreException {
-		long bindingrec = getRecField(BINDING_REC_OFFSET);
-		return linkage.getBinding(bindingrec);
+		return linkage.getBinding(getBindingRecord());
+	}
+
+	private long getBindingRecord() throws CoreException {
+		return getRecField(BINDING_REC_OFFSET);
 	}
 
 	public void setBinding(PDOMBinding binding) throws CoreException {
@@ -269,8 +273,14 @@ public final class PDOMName implements IIndexFragmentName {
 
 	public void setIsBaseSpecifier() throws CoreException {
 		int flags= linkage.getDB().getByte(record + FLAGS) & 0xff;
+		if ((flags & INHERIT_FRIEND_INLINE_MASK) == IS_INHERITANCE_SPEC)
+			return;
 		flags |= IS_INHERITANCE_SPEC;
 		linkage.getDB().putByte(record + FLAGS, (byte) flags);
+		if ((flags & INHERIT_FRIEND_INLINE_MASK) == IS_INHERITANCE_SPEC) {
+			// The binding of the name is already set, it is the key of the index.
+			linkage.getPDOM().getBaseSpecifierIndex().add(record);
+		}
 	}
 
 	public void setIsInlineNamespace() throws CoreException {
@@ -389,6 +399,17 @@ public final class PDOMName implements IIndexFragmentName {
 	}
 
 	public void delete() throws CoreException {
+		// Delete from the adjacency lists
+		if (getEnclosingDefinitionRecord() != 0) {
+			linkage.getPDOM().getEnclosedNamesIndex().remove(record);
+		}
+		if (isBaseSpecifier()) {
+			linkage.getPDOM().getBaseSpecifierIndex().remove(record);
+		}
+		if (getFlags(DECL_DEF_REF_MASK) == IS_REFERENCE && !isPotentialMatch()) {
+			PDOMBinding.removeReferenceCount(linkage.getDB(), getBindingRecord());
+		}
+
 		// Delete from the binding chain
 		PDOMName prevName = getPrevInBinding();
 		PDOMName nextName = getNextInBinding();
@@ -422,15 +443,14 @@ public final class PDOMName implements IIndexFragmentName {
 
 	@Override
 	public IIndexName[] getEnclosedNames() throws CoreException {
-		ArrayList<PDOMName> result= new ArrayList<>();
-		PDOMName name= getNextInFile();
-		while (name != null) {
-			if (name.getEnclosingDefinitionRecord() == record) {
-				result.add(name);
-			}
-			name= name.getNextInFile();
+		long[] names= linkage.getPDOM().getEnclosedNamesIndex().getNames(record);
+		PDOMName[] result= new PDOMName[names.length];
+		for (int i = 0; i < names.length; i++) {
+			result[i]= new PDOMName(linkage, names[i]);
 		}
-		return result.toArray(new PDOMName[result.size()]);
+		// Report the names in the order of the file.
+		Arrays.sort(result, (n1, n2) -> Integer.compare(n1.getNodeOffset(), n2.getNodeOffset()));
+		return result;
 	}
 
 	/**
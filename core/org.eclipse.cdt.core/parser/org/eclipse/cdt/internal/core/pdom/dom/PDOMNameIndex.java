@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.dom;
+
+import java.util.Arrays;
+
+import org.eclipse.cdt.internal.core.pdom.db.BTree;
+import org.eclipse.cdt.internal.core.pdom.db.Database;
+import org.eclipse.cdt.internal.core.pdom.db.IBTreeKeyComparator;
+import org.eclipse.cdt.internal.core.pdom.db.IBTreeKeyVisitor;
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * An adjacency list of names, stored as a BTree that is ordered by a record the names point to.
+ * This is either the enclosing definition of the names, such that the calls made by a function
+ * can be found without walking all names of its file, or the binding of the names that specify
+ * a base class, such that the subclasses of a class can be found without walking all references
+ * to it.
+ * <p>
+ * The records of the names are stored in the BTree directly, the record they point to is the
+ * inline key.
+ */
+public final class PDOMNameIndex {
+	private final Database db;
+	private final BTree btree;
+	private final int offset;
+
+	private PDOMNameIndex(Database db, long ptr, int offset) {
+		this.db= db;
+		this.offset= offset;
+		this.btree= new BTree(db, ptr, new Comparator());
+	}
+
+	/**
+	 * Creates the index of names by their enclosing definition.
+	 */
+	public static PDOMNameIndex createEnclosedNamesIndex(Database db, long ptr) {
+		return new PDOMNameIndex(db, ptr, PDOMName.CALLER_REC_OFFSET);
+	}
+
+	/**
+	 * Creates the index of names specifying a base class by their binding.
+	 */
+	public static PDOMNameIndex createBaseSpecifierIndex(Database db, long ptr) {
+		return new PDOMNameIndex(db, ptr, PDOMName.BINDING_REC_OFFSET);
+	}
+
+	void add(long name) throws CoreException {
+		btree.insert(name);
+	}
+
+	void remove(long name) throws CoreException {
+		btree.delete(name);
+	}
+
+	/**
+	 * Returns the records of the names that point to the given record.
+	 */
+	public long[] getNames(final long target) throws CoreException {
+		final long[][] result= { new long[4] };
+		final int[] count= { 0 };
+		btree.accept(new IBTreeKeyVisitor() {
+			@Override
+			public long getMinKey() {
+				return target;
+			}
+
+			@Override
+			public long getMaxKey() {
+				return target;
+			}
+
+			@Override
+			public int compare(long name) throws CoreException {
+				return Long.compare(getKey(name), target);
+			}
+
+			@Override
+			public boolean visit(long name) throws CoreException {
+				if (count[0] == result[0].length) {
+					result[0]= Arrays.copyOf(result[0], count[0] * 2);
+				}
+				result[0][count[0]++]= name;
+				return true;
+			}
+		});
+		return Arrays.copyOf(result[0], count[0]);
+	}
+
+	private long getKey(long name) throws CoreException {
+		return db.getRecPtr(name + offset);
+	}
+
+	private class Comparator implements IBTreeKeyComparator {
+		@Override
+		public int compare(long name1, long name2) throws CoreException {
+			int cmp= Long.compare(getKey(name1), getKey(name2));
+			return cmp != 0 ? cmp : Long.compare(name1, name2);
+		}
+
+		@Override
+		public long getKey(long name) throws CoreException {
+			return PDOMNameIndex.this.getKey(name);
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 QNX Software Systems and others.
+ * Copyright (c) 2006, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,6 +20,7 @@ import org.eclipse.cdt.core.parser.util.CharArrayUtils;
 import org.eclipse.cdt.internal.core.index.IIndexFragmentBinding;
 import org.eclipse.cdt.internal.core.pdom.db.Database;
 import org.eclipse.cdt.internal.core.pdom.db.IString;
+import org.eclipse.cdt.internal.core.pdom.db.PDOMStringPool;
 import org.eclipse.core.runtime.CoreException;
 
 /**
@@ -48,7 +49,8 @@ public abstract class PDOMNamedNode extends PDOMNode {
 
 		fName= name;
 		final Database db = linkage.getDB();
-		db.putRecPtr(record + NAME, name != null ? db.newString(name).getRecord() : 0);
+		db.putRecPtr(record + NAME,
+				name != null ? linkage.getPDOM().getStringPool().intern(name, isNameSearched()) : 0);
 	}
 
 	/**
@@ -72,6 +74,14 @@ public abstract class PDOMNamedNode extends PDOMNode {
 		return db.getString(namerec);
 	}
 
+	/**
+	 * Returns whether two nodes share the record of their name. Names are taken from the string
+	 * pool of the PDOM, so nodes with equal names share the record unless they are linkages.
+	 */
+	public static boolean hasSameDBName(Database db, long record1, long record2) throws CoreException {
+		return db.getRecPtr(record1 + NAME) == db.getRecPtr(record2 + NAME);
+	}
+
 	public char[] getNameCharArray() throws CoreException {
 		if (fName != null)
 			return fName;
@@ -96,21 +106,40 @@ public abstract class PDOMNamedNode extends PDOMNode {
 
 		IString name= getDBName();
 		if (!name.equals(nameCharArray)) {
-			name.delete();
-			final Database db= getDB();
-			db.putRecPtr(record + NAME, db.newString(nameCharArray).getRecord());
+			final PDOMStringPool pool= getPDOM().getStringPool();
+			pool.release(name.getRecord());
+			getDB().putRecPtr(record + NAME, pool.intern(nameCharArray, isNameSearched()));
 		}
 		fName= nameCharArray;
 	}
 
+	/**
+	 * Returns whether the node can be found by fragments of its name, i.e. whether the name
+	 * needs to be added to the trigram index of the string pool. The method is called from the
+	 * constructor and must not depend on the state of the node.
+	 */
+	protected boolean isNameSearched() {
+		return false;
+	}
+
 	@Override
 	public void delete(PDOMLinkage linkage) throws CoreException {
+		releaseName();
+		super.delete(linkage);
+	}
+
+	/**
+	 * Releases the name of this node to the string pool and clears the reference to it. The record
+	 * of the name may be shared with other nodes, it must not be deleted directly.
+	 */
+	protected void releaseName() throws CoreException {
 		final Database db = getDB();
 		final long namerec= db.getRecPtr(record + NAME);
 		if (namerec != 0) {
-			db.free(namerec);
+			db.putRecPtr(record + NAME, 0);
+			getPDOM().getStringPool().release(namerec);
 		}
-		super.delete(linkage);
+		fName= null;
 	}
 
 	public boolean mayHaveChildren() {
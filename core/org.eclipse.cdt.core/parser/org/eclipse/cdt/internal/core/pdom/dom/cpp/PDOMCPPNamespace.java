@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 QNX Software Systems and others.
+ * Copyright (c) 2006, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.dom.ILinkage;
 import org.eclipse.cdt.core.dom.IPDOMVisitor;
 import org.eclipse.cdt.core.dom.ast.EScopeKind;
 import org.eclipse.cdt.core.dom.ast.IASTName;
@@ -234,10 +235,27 @@ class PDOMCPPNamespace extends PDOMCPPBinding
 		if (result != null) {
 			return result;
 		}
-		BindingCollector visitor = new BindingCollector(getLinkage(), name,
-				IndexFilter.CPP_DECLARED_OR_IMPLICIT_NO_INSTANCE, false, false, true);
-		getIndex().accept(visitor);
-		result = visitor.getBindings();
+		// The records of the bindings are kept until the linkage is changed, the bindings
+		// themselves only as long as the index is locked.
+		final String recordsKey= pdom.createKeyForCache(record + PDOMCPPLinkage.CACHE_MEMBER_RECORDS, name);
+		long[] records= (long[]) pdom.getCachedResult(recordsKey);
+		if (records == null) {
+			BindingCollector visitor = new BindingCollector(getLinkage(), name,
+					IndexFilter.CPP_DECLARED_OR_IMPLICIT_NO_INSTANCE, false, false, true);
+			getIndex().accept(visitor);
+			result = visitor.getBindings();
+			records= new long[result.length];
+			for (int i = 0; i < result.length; i++) {
+				records[i]= ((PDOMBinding) result[i]).getRecord();
+			}
+			pdom.putCachedResult(ILinkage.CPP_LINKAGE_ID, recordsKey, records);
+		} else {
+			final PDOMLinkage linkage= getLinkage();
+			result= new IBinding[records.length];
+			for (int i = 0; i < records.length; i++) {
+				result[i]= linkage.getBinding(records[i]);
+			}
+		}
 		pdom.putCachedResult(key, result);
 		return result;
 	}
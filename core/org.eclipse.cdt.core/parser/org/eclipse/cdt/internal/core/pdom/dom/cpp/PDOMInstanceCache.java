@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2008, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,9 +10,12 @@
  *******************************************************************************/ 
 package org.eclipse.cdt.internal.core.pdom.dom.cpp;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 
 import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.dom.ILinkage;
 import org.eclipse.cdt.core.dom.ast.DOMException;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateArgument;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateInstance;
@@ -21,10 +24,18 @@ import org.eclipse.cdt.internal.core.index.IndexCPPSignatureUtil;
 import org.eclipse.cdt.internal.core.pdom.PDOM;
 import org.eclipse.cdt.internal.core.pdom.dom.NamedNodeCollector;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMBinding;
+import org.eclipse.cdt.internal.core.pdom.dom.PDOMLinkage;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMNamedNode;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMNode;
 import org.eclipse.core.runtime.CoreException;
 
+/**
+ * Instances of a template of the index. The records of the instances stored in the index are
+ * collected once and shared by all translation units until the linkage is changed, the objects
+ * for them are created again while the locks on the index are held. Instances created while
+ * resolving names of an AST are added on top of them and are discarded together with the locks
+ * on the index.
+ */
 public class PDOMInstanceCache {
 	
 	public static PDOMInstanceCache getCache(PDOMBinding binding) {
@@ -36,21 +47,49 @@ public class PDOMInstanceCache {
 			return (PDOMInstanceCache) cache;
 		}
 		
-		PDOMInstanceCache newCache= new PDOMInstanceCache();
+		PDOMInstanceCache newCache= new PDOMInstanceCache(binding.getLinkage(), getIndexInstances(binding));
+		newCache= (PDOMInstanceCache) pdom.putCachedResult(key, newCache, false);
+		return newCache;
+	}
+
+	/**
+	 * Returns the records of the instances of the template that are stored in the index, by
+	 * signature of their arguments. The map does not reference any objects of the index or of
+	 * an AST, it is kept when the locks on the index are released.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Map<String, Long> getIndexInstances(PDOMBinding binding) {
+		final PDOM pdom= binding.getPDOM();
+		final Long key = binding.getRecord() + PDOMCPPLinkage.CACHE_INDEX_INSTANCES;
+		Object cached= pdom.getCachedResult(key);
+		if (cached instanceof Map) {
+			return (Map<String, Long>) cached;
+		}
+
+		Map<String, Long> result= new HashMap<>();
 		try {
-			newCache.populate(binding);
+			populate(binding, result);
 		} catch (CoreException e) {
 			CCorePlugin.log(e);
+			return result;
 		}
-		
-		newCache= (PDOMInstanceCache) pdom.putCachedResult(key, newCache, false);
-		return newCache;
+		result= Collections.unmodifiableMap(result);
+		pdom.putCachedResult(ILinkage.CPP_LINKAGE_ID, key, result);
+		return result;
 	}
 	
+	private final PDOMLinkage fLinkage;
+	private final Map<String, Long> fIndexInstances;
 	private final HashMap<String, ICPPTemplateInstance> fMap;
 	private ICPPDeferredClassInstance fDeferredInstance;
 
 	public PDOMInstanceCache() {
+		this(null, Collections.<String, Long>emptyMap());
+	}
+
+	private PDOMInstanceCache(PDOMLinkage linkage, Map<String, Long> indexInstances) {
+		fLinkage= linkage;
+		fIndexInstances= indexInstances;
 		fMap= new HashMap<>();
 	}
 	
@@ -67,7 +106,14 @@ public class PDOMInstanceCache {
 	synchronized public final ICPPTemplateInstance getInstance(ICPPTemplateArgument[] arguments) {		
 		try {
 			String key= IndexCPPSignatureUtil.getTemplateArgString(arguments, true);
-			return fMap.get(key);
+			ICPPTemplateInstance result= fMap.get(key);
+			if (result == null) {
+				result= getIndexInstance(fIndexInstances.get(key));
+				if (result != null) {
+					fMap.put(key, result);
+				}
+			}
+			return result;
 		} catch (CoreException e) {
 			CCorePlugin.log(e);
 		} catch (DOMException e) {
@@ -75,7 +121,15 @@ public class PDOMInstanceCache {
 		return null;
 	}
 	
-	private void populate(PDOMBinding binding) throws CoreException {
+	private ICPPTemplateInstance getIndexInstance(Long record) throws CoreException {
+		if (record == null)
+			return null;
+		PDOMBinding instance= fLinkage.getBinding(record);
+		return instance instanceof ICPPTemplateInstance ? (ICPPTemplateInstance) instance : null;
+	}
+
+	private static void populate(PDOMBinding binding, Map<String, Long> result)
+			throws CoreException {
 		PDOMNode parent= binding.getParentNode();
 		if (parent == null) {
 			parent= binding.getLinkage();
@@ -88,13 +142,28 @@ public class PDOMInstanceCache {
 				ICPPTemplateInstance inst= (ICPPTemplateInstance) node;
 				if (binding.equals(inst.getTemplateDefinition())) {
 					ICPPTemplateArgument[] args= inst.getTemplateArguments();
-					addInstance(args, inst);
+					try {
+						result.put(IndexCPPSignatureUtil.getTemplateArgString(args, true), node.getRecord());
+					} catch (DOMException e) {
+					}
 				}
 			}
 		}
 	}
 
 	synchronized public ICPPTemplateInstance[] getAllInstances() {
+		try {
+			for (Map.Entry<String, Long> entry : fIndexInstances.entrySet()) {
+				if (!fMap.containsKey(entry.getKey())) {
+					ICPPTemplateInstance instance= getIndexInstance(entry.getValue());
+					if (instance != null) {
+						fMap.put(entry.getKey(), instance);
+					}
+				}
+			}
+		} catch (CoreException e) {
+			CCorePlugin.log(e);
+		}
 		return fMap.values().toArray(new ICPPTemplateInstance[fMap.size()]);
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2014 Symbian Software Systems and others.
+ * Copyright (c) 2007, 2017 Symbian Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,6 +23,7 @@ import org.eclipse.cdt.core.model.ICProject;
 import org.eclipse.cdt.core.model.LanguageManager;
 import org.eclipse.cdt.internal.core.CCoreInternals;
 import org.eclipse.cdt.internal.core.pdom.WritablePDOM;
+import org.eclipse.cdt.internal.core.pdom.db.Database;
 import org.eclipse.cdt.internal.core.pdom.indexer.IndexerPreferences;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IStatus;
@@ -47,6 +48,7 @@ public class GeneratePDOM {
 	protected String indexerID;
 	protected boolean deleteOnExit;
 	protected boolean checkIndexStatus;
+	protected boolean compress;
 
 	/**
 	 * Runnable to export a PDOM.
@@ -77,6 +79,15 @@ public class GeneratePDOM {
 		this.deleteOnExit= deleteOnExit;
 	}
 
+	/**
+	 * When set, the chunks of the exported PDOM are stored compressed. The exported PDOM can
+	 * be used as a read-only index without decompressing it. By default this is not set.
+	 * @param compress
+	 */
+	public void setCompress(boolean compress) {
+		this.compress= compress;
+	}
+
 	/**
 	 * Executes the PDOM generation 
 	 * @return {@link IStatus#OK} if the generated content is complete, {@link IStatus#ERROR} otherwise.
@@ -144,6 +155,20 @@ public class GeneratePDOM {
 			} finally {
 				exportedPDOM.releaseWriteLock();
 			}
+
+			if (compress) {
+				File uncompressed= new File(targetLocation.getPath() + ".tmp"); //$NON-NLS-1$
+				uncompressed.delete();
+				if (!targetLocation.renameTo(uncompressed)) {
+					fail(MessageFormat.format(Messages.GeneratePDOM_GenericGenerationFailed,
+							new Object[] { targetLocation }));
+				}
+				try {
+					Database.compress(uncompressed, targetLocation);
+				} finally {
+					uncompressed.delete();
+				}
+			}
 		} catch (InterruptedException ie) {
 			String msg= MessageFormat.format(Messages.GeneratePDOM_GenericGenerationFailed, new Object[] {ie.getMessage()});
 			throw new CoreException(CCorePlugin.createStatus(msg, ie));
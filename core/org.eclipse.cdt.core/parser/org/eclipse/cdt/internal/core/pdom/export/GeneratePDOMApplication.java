@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2012 Symbian Software Systems and others.
+ * Copyright (c) 2007, 2017 Symbian Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -49,6 +49,7 @@ public class GeneratePDOMApplication implements IApplication {
 	public static final String OPT_TARGET= "-target"; //$NON-NLS-1$
 	public static final String OPT_QUIET= "-quiet"; //$NON-NLS-1$
 	public static final String OPT_INDEXER_ID= "-indexer"; //$NON-NLS-1$
+	public static final String OPT_COMPRESS= "-compress"; //$NON-NLS-1$
 
 	/**
 	 * Applications needing to fail in an expected way (without stack dump), should throw
@@ -94,6 +95,7 @@ public class GeneratePDOMApplication implements IApplication {
 		}
 		String target= CLIUtil.getArg(arguments, OPT_TARGET, 1).get(0); 
 		boolean quiet= arguments.get(OPT_QUIET)!=null;
+		boolean compress= arguments.get(OPT_COMPRESS)!=null;
 
 		String indexerID= IPDOMManager.ID_FAST_INDEXER;
 		List<String> indexerIDs= arguments.get(OPT_INDEXER_ID);
@@ -124,6 +126,7 @@ public class GeneratePDOMApplication implements IApplication {
 			File targetLocation = new File(target);
 
 			GeneratePDOM generate = new GeneratePDOM(pprovider,	appArgs, targetLocation, indexerID);
+			generate.setCompress(compress);
 			output(Messages.GeneratePDOMApplication_GenerationStarts);
 			IStatus status = generate.run(); // CoreException handled in start method
 			if(!status.isOK()){
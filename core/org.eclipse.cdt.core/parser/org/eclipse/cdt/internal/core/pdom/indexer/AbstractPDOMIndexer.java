@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -38,6 +38,8 @@ public abstract class AbstractPDOMIndexer implements IPDOMIndexer {
 		fProperties.put(IndexerPreferences.KEY_SKIP_MACRO_REFERENCES, String.valueOf(false)); 
 		fProperties.put(IndexerPreferences.KEY_INDEX_ALL_HEADER_VERSIONS, String.valueOf(false));
 		fProperties.put(IndexerPreferences.KEY_INDEX_ALL_VERSIONS_SPECIFIC_HEADERS, ""); //$NON-NLS-1$
+		fProperties.put(IndexerPreferences.KEY_PARSER_THREADS, String.valueOf(IndexerPreferences.DEFAULT_PARSER_THREADS));
+		fProperties.put(IndexerPreferences.KEY_REBUILD_PARSER_THREADS, String.valueOf(IndexerPreferences.DEFAULT_REBUILD_PARSER_THREADS));
 	}
 
 	@Override
@@ -61,7 +63,9 @@ public abstract class AbstractPDOMIndexer implements IPDOMIndexer {
 			String key = (String) entry.getKey();
 			String val = (String) entry.getValue();
 
-			if (val != null) { // relevant property
+			// The number of parser threads does not affect the content of the index.
+			if (val != null && !IndexerPreferences.KEY_PARSER_THREADS.equals(key)
+					&& !IndexerPreferences.KEY_REBUILD_PARSER_THREADS.equals(key)) { // relevant property
 				String v2= (String) props.get(key);
 				if (v2 != null && !val.equals(v2)) {
 					return true;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2016 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,11 +12,14 @@
  *******************************************************************************/
 package org.eclipse.cdt.internal.core.pdom.indexer;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -36,6 +39,7 @@ import org.eclipse.cdt.internal.core.pdom.AbstractIndexerTask;
 import org.eclipse.cdt.internal.core.pdom.ITodoTaskUpdater;
 import org.eclipse.cdt.internal.core.pdom.IndexerProgress;
 import org.eclipse.cdt.internal.core.pdom.db.ChunkCache;
+import org.eclipse.cdt.internal.core.pdom.db.DBStatus;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -70,6 +74,8 @@ public abstract class PDOMIndexerTask extends AbstractIndexerTask implements IPD
 		setFileSizeLimits(fileLimit * 1024 * 1024, includedFileLimit * 1024 * 1024);
 		setIndexAllHeaderVersions(checkProperty(IndexerPreferences.KEY_INDEX_ALL_HEADER_VERSIONS));
 		setHeadersToIndexAllVersions(getStringSet(IndexerPreferences.KEY_INDEX_ALL_VERSIONS_SPECIFIC_HEADERS));
+		setParserThreadCount(getIntProperty(IndexerPreferences.KEY_PARSER_THREADS,
+				IndexerPreferences.DEFAULT_PARSER_THREADS));
 		if (checkProperty(IndexerPreferences.KEY_SKIP_ALL_REFERENCES)) {
 			setSkipReferences(SKIP_ALL_REFERENCES);
 		} else {
@@ -294,6 +300,9 @@ public abstract class PDOMIndexerTask extends AbstractIndexerTask implements IPD
 					+ fStatistics.fParsingTime + " parser, "    //$NON-NLS-1$
 					+ fStatistics.fResolutionTime + " resolution, "    //$NON-NLS-1$
 					+ fStatistics.fAddToIndexTime + " index update.");    //$NON-NLS-1$
+			System.out.println(indent + " Lock waits: "     //$NON-NLS-1$
+					+ fStatistics.fReadLockWaitTime + " readers, "    //$NON-NLS-1$
+					+ fStatistics.fWriteLockWaitTime + " writers.");    //$NON-NLS-1$
 			System.out.println(indent + " Errors: "    //$NON-NLS-1$
 					+ fStatistics.fErrorCount + " internal, "    //$NON-NLS-1$
 					+ fStatistics.fUnresolvedIncludesCount + " include, "     //$NON-NLS-1$
@@ -319,6 +328,15 @@ public abstract class PDOMIndexerTask extends AbstractIndexerTask implements IPD
 					+ ChunkCache.getSharedInstance().getMaxSize() / 1024 / 1024 + "MB]: " +    //$NON-NLS-1$
 					+ hits + " hits, "      //$NON-NLS-1$
 					+ misses + "(" + nfPercent.format(missPct) + ") misses.");      //$NON-NLS-1$ //$NON-NLS-2$
+			System.out.println(indent + " " + new DBStatus(ChunkCache.getSharedInstance()).getMessage()); //$NON-NLS-1$
+			long resultMisses= index.getResultCacheMisses();
+			long resultHits= index.getResultCacheHits();
+			long resultTries= resultMisses + resultHits;
+			double resultMissPct= resultTries == 0 ? 0.0 : (double) resultMisses / (double) resultTries;
+			System.out.println(indent + " Result cache: "    //$NON-NLS-1$
+					+ resultHits + " hits, "      //$NON-NLS-1$
+					+ resultMisses + "(" + nfPercent.format(resultMissPct) + ") misses.");      //$NON-NLS-1$ //$NON-NLS-2$
+			traceMacroExpansions(indent, nfPercent);
 
 			if (Boolean.parseBoolean(System.getProperty("SHOW_COMPRESSED_INDEXER_INFO"))) {    //$NON-NLS-1$
 				Calendar cal = Calendar.getInstance();
@@ -371,6 +389,31 @@ public abstract class PDOMIndexerTask extends AbstractIndexerTask implements IPD
 		}
 	}
 
+	private void traceMacroExpansions(String indent, NumberFormat nfPercent) {
+		List<Map.Entry<String, int[]>> macros;
+		synchronized (fStatistics) {
+			macros= new ArrayList<>(fStatistics.fMacroExpansions.entrySet());
+		}
+		long expansions= 0;
+		long hits= 0;
+		for (Map.Entry<String, int[]> entry : macros) {
+			expansions+= entry.getValue()[0];
+			hits+= entry.getValue()[1];
+		}
+		double hitPct= expansions == 0 ? 0.0 : (double) hits / (double) expansions;
+		StringBuilder buf= new StringBuilder();
+		buf.append(indent).append(" Macro expansions: ") //$NON-NLS-1$
+				.append(expansions).append(" total, ") //$NON-NLS-1$
+				.append(hits).append('(').append(nfPercent.format(hitPct)).append(") reused."); //$NON-NLS-1$
+		Collections.sort(macros, (e1, e2) -> Integer.compare(e2.getValue()[0], e1.getValue()[0]));
+		for (int i= 0; i < macros.size() && i < 10; i++) {
+			Map.Entry<String, int[]> entry= macros.get(i);
+			buf.append(i == 0 ? " Most frequent: " : ", ").append(entry.getKey()) //$NON-NLS-1$ //$NON-NLS-2$
+					.append('=').append(entry.getValue()[0]).append('/').append(entry.getValue()[1]);
+		}
+		System.out.println(buf);
+	}
+
 	protected ICProject getCProject() {
 		return fIndexer.project;
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -122,12 +122,35 @@ public class PDOMRebuildTask implements IPDOMIndexerTask {
 			final PDOMIndexerTask pdomIndexerTask = (PDOMIndexerTask) delegate;
 			pdomIndexerTask.setUpdateFlags(IIndexManager.UPDATE_ALL);
 			pdomIndexerTask.setWriteInfoToLog();
+			int threads= getRebuildParserThreadCount();
+			if (threads > 0) {
+				pdomIndexerTask.setParserThreadCount(threads);
+			}
 		}
 		synchronized (this) {
 			fDelegate= delegate;
 		}
 	}
 
+	/**
+	 * Returns the number of parser threads to use for the rebuild, or 0 to use the number
+	 * configured for all indexer tasks. The index is empty while it is rebuilt, so there are
+	 * no earlier writes that would have to be ordered before parsing a source.
+	 */
+	private int getRebuildParserThreadCount() {
+		String value= fIndexer.getProperty(IndexerPreferences.KEY_REBUILD_PARSER_THREADS);
+		if (value != null) {
+			try {
+				int threads= Integer.parseInt(value);
+				if (threads < 0)
+					return Runtime.getRuntime().availableProcessors();
+				return threads;
+			} catch (NumberFormatException e) {
+			}
+		}
+		return IndexerPreferences.DEFAULT_REBUILD_PARSER_THREADS;
+	}
+
 	@Override
 	public synchronized IndexerProgress getProgressInformation() {
 		return fDelegate != null ? fDelegate.getProgressInformation() : fProgress;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -94,10 +94,16 @@ public class ProjectIndexerInputAdapter extends IndexerInputAdapter {
 		if (fIflCache == null) {
 			return doResolveASTPath(astPath);
 		}
-		IIndexFileLocation result= fIflCache.get(astPath);
+		// The indexer may resolve paths on multiple threads.
+		IIndexFileLocation result;
+		synchronized (fIflCache) {
+			result= fIflCache.get(astPath);
+		}
 		if (result == null) {
 			result = doResolveASTPath(astPath);
-			fIflCache.put(astPath, result);
+			synchronized (fIflCache) {
+				fIflCache.put(astPath, result);
+			}
 		}
 		return result;
 	}
@@ -114,7 +120,10 @@ public class ProjectIndexerInputAdapter extends IndexerInputAdapter {
 		if (!fExistsCache.isFile(includePath)) {
 			return null;
 		}
-		IIndexFileLocation result= fIflCache.get(includePath);
+		IIndexFileLocation result;
+		synchronized (fIflCache) {
+			result= fIflCache.get(includePath);
+		}
 		if (result == null) {
 			result = doResolveASTPath(includePath);
 			if (result.getFullPath() == null && !UNCPathConverter.isUNC(includePath)) {
@@ -122,10 +131,14 @@ public class ProjectIndexerInputAdapter extends IndexerInputAdapter {
 				String canonicalPath= PathCanonicalizationStrategy.getCanonicalPath(location);
 				if (!includePath.equals(canonicalPath)) {
 					result= IndexLocationFactory.getExternalIFL(canonicalPath);
-					fIflCache.put(canonicalPath, result);
+					synchronized (fIflCache) {
+						fIflCache.put(canonicalPath, result);
+					}
 				}
 			}
-			fIflCache.put(includePath, result);
+			synchronized (fIflCache) {
+				fIflCache.put(includePath, result);
+			}
 		}
 		return result;
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2014 QNX Software Systems and others.
+ * Copyright (c) 2006, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,7 +17,6 @@ package org.eclipse.cdt.internal.ui.search;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -59,6 +58,7 @@ import org.eclipse.cdt.core.index.IIndexFile;
 import org.eclipse.cdt.core.index.IIndexFileLocation;
 import org.eclipse.cdt.core.index.IIndexManager;
 import org.eclipse.cdt.core.index.IIndexName;
+import org.eclipse.cdt.core.index.IIndexNameVisitor;
 import org.eclipse.cdt.core.index.IndexLocationFactory;
 import org.eclipse.cdt.core.model.CoreModel;
 import org.eclipse.cdt.core.model.ICElement;
@@ -88,6 +88,9 @@ public abstract class CSearchQuery implements ISearchQuery {
 			CElementLabels.ALL_FULLY_QUALIFIED |
 			CElementLabels.TEMPLATE_ARGUMENTS;
 
+	/** Number of matches after which the matches found so far are added to the search result. */
+	private static final int BATCH_SIZE = 200;
+
 	protected CSearchResult result;
 	protected int flags;
 
@@ -95,6 +98,13 @@ public abstract class CSearchQuery implements ISearchQuery {
 	protected ICProject[] projects;
 	private Set<String> fullPathFilter;
 
+	// The index locked by run(), and the state of the lock.
+	private IIndex fLockedIndex;
+	private boolean fMayReleaseLock;
+	private boolean fLockReleased;
+	private boolean fIndexChanged;
+	private IProgressMonitor fMonitor;
+
 	protected CSearchQuery(ICElement[] scope, int flags) {
 		result = new CSearchResult(this);
 		this.flags = flags;
@@ -224,48 +234,193 @@ public abstract class CSearchQuery implements ISearchQuery {
 		return false; // i.e. keep it
 	}
 
-	private void createMatchesFromNames(IIndex index, Map<IIndexFile, Set<Match>> fileMatches,
-			Collection<IIndexName> names, boolean isPolymorphicOnly) throws CoreException {
-		if (names == null)
-			return;
+	/**
+	 * Converts names to matches and publishes them to the search result in batches, such that
+	 * the matches show up while the search is still running. The names themselves are not kept.
+	 * If possible the read lock on the index is released while a batch is published, such that
+	 * the indexer can make progress.
+	 */
+	private class MatchCollector implements IIndexNameVisitor {
+		private final IIndex fIndex;
+		private final ICProject fPreferred = getPreferredProject();
+		// All matches found so far, used to filter duplicates.
+		private final Map<IIndexFileLocation, Set<Match>> fFileMatches = new HashMap<>();
+		// Matches that are not yet published.
+		private final Map<IIndexFileLocation, Set<Match>> fPending = new HashMap<>();
+		private final Map<IIndexFileLocation, Long> fTimestamps = new HashMap<>();
+		// The published line elements by line number, used to add matches on a line that has
+		// already been published by a previous batch to its element.
+		private final Map<IIndexFileLocation, Map<Integer, LineSearchElement>> fLineElements = new HashMap<>();
+		// Published line elements that have been replaced by elements with additional matches.
+		private final List<LineSearchElement> fReplacedElements = new ArrayList<>();
+		private Map<IPath, ITextEditor> fDirtyEditors;
+		private int fPendingCount;
+		private boolean fPolymorphicOnly;
+		private boolean fStopped;
+
+		MatchCollector(IIndex index) {
+			fIndex = index;
+		}
 
-		ICProject preferred = getPreferredProject();
-		for (IIndexName name : names) {
-			if (!filterName(name)) {
-				if (!isPolymorphicOnly || name.couldBePolymorphicMethodCall()) {
-					IASTFileLocation loc = name.getFileLocation();
-					IIndexFile file = name.getFile();
-					Set<Match> matches = fileMatches.get(file);
-					if (matches == null) {
-						matches = new HashSet<>();
-						fileMatches.put(file, matches);
+		void setPolymorphicOnly(boolean polymorphicOnly) {
+			fPolymorphicOnly = polymorphicOnly;
+		}
+
+		@Override
+		public boolean visit(IIndexName name) throws CoreException {
+			if (fMonitor != null && fMonitor.isCanceled())
+				throw new OperationCanceledException();
+			if (fullPathFilter != null) {
+				String fullPath = name.getFile().getLocation().getFullPath();
+				if (fullPath == null || !accept(fullPath))
+					return true;
+			}
+			add(name);
+			if (fPendingCount >= BATCH_SIZE) {
+				flush();
+			}
+			return !fStopped;
+		}
+
+		void add(IIndexName name) throws CoreException {
+			if (filterName(name))
+				return;
+			if (fPolymorphicOnly && !name.couldBePolymorphicMethodCall())
+				return;
+
+			IASTFileLocation loc = name.getFileLocation();
+			IIndexFile file = name.getFile();
+			IIndexFileLocation location = file.getLocation();
+			Set<Match> matches = fFileMatches.get(location);
+			if (matches == null) {
+				matches = new HashSet<>();
+				fFileMatches.put(location, matches);
+			}
+			int nodeOffset = loc.getNodeOffset();
+			int nodeLength = loc.getNodeLength();
+			ICElement enclosingElement = null;
+			IIndexName enclosingDefinition = name.getEnclosingDefinition();
+			if (enclosingDefinition != null) {
+				enclosingElement = IndexUI.getCElementForName(fPreferred, fIndex, enclosingDefinition);
+			} else {
+				// Get names from the external search providers.
+				for (IExternalSearchProvider provider : CSearchProviderManager.INSTANCE.getExternalSearchProviders()) {
+					enclosingElement = provider.getEnclosingElement(name);
+					if (enclosingElement != null)
+						break;
+				}
+			}
+
+			boolean isWriteAccess = name.isWriteAccess();
+			Match match = new Match(nodeOffset, nodeLength, fPolymorphicOnly, enclosingElement, isWriteAccess);
+			if (matches.add(match)) {
+				Set<Match> pending = fPending.get(location);
+				if (pending == null) {
+					pending = new HashSet<>();
+					fPending.put(location, pending);
+					if (!fTimestamps.containsKey(location)) {
+						fTimestamps.put(location, file.getTimestamp());
 					}
-					int nodeOffset = loc.getNodeOffset();
-					int nodeLength = loc.getNodeLength();
-					ICElement enclosingElement = null;
-					IIndexName enclosingDefinition = name.getEnclosingDefinition();
-					if (enclosingDefinition != null) {
-						enclosingElement = IndexUI.getCElementForName(preferred, index, enclosingDefinition);
-					} else {
-						// Get names from the external search providers.
-						for (IExternalSearchProvider provider : CSearchProviderManager.INSTANCE.getExternalSearchProviders()) {
-							enclosingElement = provider.getEnclosingElement(name);
-							if (enclosingElement != null)
-								break;
+				}
+				pending.add(match);
+				fPendingCount++;
+			}
+		}
+
+		/**
+		 * Publishes the pending matches. Sets the collector to stopped, if the index was changed
+		 * while the read lock was released.
+		 */
+		void flush() {
+			if (fPendingCount == 0)
+				return;
+			final List<CSearchMatch> searchMatches = new ArrayList<>();
+			if (canReleaseLock(fIndex)) {
+				// Creating the line elements involves reading the files, don't block the indexer.
+				if (!runWithoutLock(fIndex, () -> createSearchMatches(searchMatches))) {
+					fIndexChanged = true;
+					fStopped = true;
+				}
+			} else {
+				createSearchMatches(searchMatches);
+			}
+			for (LineSearchElement element : fReplacedElements) {
+				result.removeMatches(result.getMatches(element));
+			}
+			fReplacedElements.clear();
+			result.addMatches(searchMatches.toArray(new CSearchMatch[searchMatches.size()]));
+			fPending.clear();
+			fPendingCount = 0;
+		}
+
+		private void createSearchMatches(List<CSearchMatch> searchMatches) {
+			if (fDirtyEditors == null) {
+				// Compute mapping from paths to dirty text editors.
+				fDirtyEditors = new HashMap<>();
+				for (IEditorPart editorPart : CUIPlugin.getDirtyEditors()) {
+					if (editorPart instanceof ITextEditor) {
+						ITextEditor textEditor = (ITextEditor)editorPart;
+						IEditorInput editorInput = editorPart.getEditorInput();
+						if (editorInput instanceof IPathEditorInput) {
+							IPathEditorInput pathEditorInput = (IPathEditorInput)editorInput;
+							fDirtyEditors.put(pathEditorInput.getPath(), textEditor);
 						}
 					}
-
-					boolean isWriteAccess = name.isWriteAccess();
-					matches.add(new Match(nodeOffset, nodeLength, isPolymorphicOnly, enclosingElement,
-							isWriteAccess));
+				}
+			}
+			// For each file with matches create line elements with matches.
+			for (Entry<IIndexFileLocation, Set<Match>> entry : fPending.entrySet()) {
+				IIndexFileLocation location = entry.getKey();
+				Set<Match> matches = entry.getValue();
+				LineSearchElement[] lineElements = {};
+				// Check if there is dirty text editor corresponding to file and convert matches.
+				IPath absolutePath = IndexLocationFactory.getAbsolutePath(location);
+				ITextEditor textEditor = fDirtyEditors.get(absolutePath);
+				if (textEditor != null) {
+					matches = convertMatchesPositions(location, fTimestamps.get(location), matches);
+					// Scan dirty editor and group matches by line elements.
+					IEditorInput input = textEditor.getEditorInput();
+					IDocument document = textEditor.getDocumentProvider().getDocument(input);
+					Match[] matchesArray = matches.toArray(new Match[matches.size()]);
+					lineElements = LineSearchElement.createElements(location, matchesArray, document);
+				} else {
+					// Scan file and group matches by line elements.
+					Match[] matchesArray = matches.toArray(new Match[matches.size()]);
+					lineElements = LineSearchElement.createElements(location, matchesArray);
+				}
+				Map<Integer, LineSearchElement> publishedElements = fLineElements.get(location);
+				if (publishedElements == null) {
+					publishedElements = new HashMap<>();
+					fLineElements.put(location, publishedElements);
+				}
+				// Create real PDOMSearchMatch with corresponding line elements.
+				for (LineSearchElement searchElement : lineElements) {
+					LineSearchElement published = publishedElements.get(searchElement.getLineNumber());
+					if (published != null) {
+						// Replace the element of a previous batch, rather than showing the line twice.
+						searchElement = LineSearchElement.merge(published, searchElement.getMatches());
+						fReplacedElements.add(published);
+					}
+					publishedElements.put(searchElement.getLineNumber(), searchElement);
+					for (Match lineMatch : searchElement.getMatches()) {
+						int offset = lineMatch.getOffset();
+						int length = lineMatch.getLength();
+						CSearchMatch match = new CSearchMatch(searchElement, offset, length);
+						if (lineMatch.isPolymorphicCall())
+							match.setIsPolymorphicCall();
+						if (lineMatch.isWriteAccess()) {
+							match.setIsWriteAccess();
+						}
+						searchMatches.add(match);
+					}
 				}
 			}
 		}
 	}
 
-	private Set<Match> convertMatchesPositions(IIndexFile file, Set<Match> matches) throws CoreException {
-		IPath path = IndexLocationFactory.getPath(file.getLocation());
-		long timestamp = file.getTimestamp();
+	private static Set<Match> convertMatchesPositions(IIndexFileLocation location, long timestamp,
+			Set<Match> matches) {
+		IPath path = IndexLocationFactory.getPath(location);
 		IPositionConverter converter = CCorePlugin.getPositionTrackerManager().findPositionConverter(path, timestamp);
 		if (converter != null) {
 			Set<Match> convertedMatches = new HashSet<>();
@@ -284,62 +439,6 @@ public abstract class CSearchQuery implements ISearchQuery {
 		return matches;
 	}
 
-	private void collectNames(IIndex index, Collection<IIndexName> names,
-			Collection<IIndexName> polymorphicNames) throws CoreException {
-		// group all matched names by files
-		Map<IIndexFile, Set<Match>> fileMatches = new HashMap<>();
-		createMatchesFromNames(index, fileMatches, names, false);
-		createMatchesFromNames(index, fileMatches, polymorphicNames, true);
-		// compute mapping from paths to dirty text editors
-		IEditorPart[] dirtyEditors = CUIPlugin.getDirtyEditors();
-		Map<IPath, ITextEditor> pathsDirtyEditors = new HashMap<>();
-		for (IEditorPart editorPart : dirtyEditors) {
-			if (editorPart instanceof ITextEditor) {
-				ITextEditor textEditor = (ITextEditor)editorPart;
-				IEditorInput editorInput = editorPart.getEditorInput();
-				if (editorInput instanceof IPathEditorInput) {
-					IPathEditorInput pathEditorInput = (IPathEditorInput)editorInput;
-					pathsDirtyEditors.put(pathEditorInput.getPath(), textEditor);
-				}
-			}
-		}
-		// for each file with matches create line elements with matches
-		for (Entry<IIndexFile, Set<Match>> entry : fileMatches.entrySet()) {
-			IIndexFile file = entry.getKey();
-			Set<Match> matches = entry.getValue();
-			LineSearchElement[] lineElements = {};
-			// check if there is dirty text editor corresponding to file and convert matches
-			IPath absolutePath = IndexLocationFactory.getAbsolutePath(file.getLocation());
-			if (pathsDirtyEditors.containsKey(absolutePath)) {
-				matches = convertMatchesPositions(file, matches);
-				// scan dirty editor and group matches by line elements
-				ITextEditor textEditor = pathsDirtyEditors.get(absolutePath);
-				IEditorInput input = textEditor.getEditorInput();
-				IDocument document = textEditor.getDocumentProvider().getDocument(input);
-				Match[] matchesArray = matches.toArray(new Match[matches.size()]);
-				lineElements = LineSearchElement.createElements(file.getLocation(), matchesArray, document);
-			} else {
-				// scan file and group matches by line elements
-				Match[] matchesArray = matches.toArray(new Match[matches.size()]);
-				lineElements = LineSearchElement.createElements(file.getLocation(), matchesArray);
-			}
-			// create real PDOMSearchMatch with corresponding line elements
-			for (LineSearchElement searchElement : lineElements) {
-				for (Match lineMatch : searchElement.getMatches()) {
-					int offset = lineMatch.getOffset();
-					int length = lineMatch.getLength();
-					CSearchMatch match = new CSearchMatch(searchElement, offset, length);
-					if (lineMatch.isPolymorphicCall())
-						match.setIsPolymorphicCall();
-					if (lineMatch.isWriteAccess()) {
-						match.setIsWriteAccess();
-					}
-					result.addMatch(match);
-				}
-			}
-		}
-	}
-
 	protected void createMatches(IIndex index, IBinding binding) throws CoreException {
 		createMatches(index, new IBinding[] { binding });
 	}
@@ -347,13 +446,13 @@ public abstract class CSearchQuery implements ISearchQuery {
 	protected void createMatches(IIndex index, IBinding[] bindings) throws CoreException {
 		if (bindings == null)
 			return;
-		List<IIndexName> names= new ArrayList<>();
-		List<IIndexName> polymorphicNames= null;
+		MatchCollector collector= new MatchCollector(index);
 		HashSet<IBinding> handled= new HashSet<>();
 
 		for (IBinding binding : bindings) {
 			if (binding != null && handled.add(binding)) {
-				createMatches1(index, binding, names);
+				if (!index.findNames(binding, flags, collector))
+					return;
 			}
 		}
 
@@ -363,51 +462,39 @@ public abstract class CSearchQuery implements ISearchQuery {
 					List<? extends IBinding> specializations = IndexUI.findSpecializations(index, binding);
 					for (IBinding spec : specializations) {
 						if (spec != null && handled.add(spec)) {
-							createMatches1(index, spec, names);
+							if (!index.findNames(spec, flags, collector))
+								return;
 						}
 					}
 
 					if (binding instanceof ICPPMethod) {
 						ICPPMethod m= (ICPPMethod) binding;
 						ICPPMethod[] msInBases = ClassTypeHelper.findOverridden(m);
-						if (msInBases.length > 0) {
-							if (polymorphicNames == null) {
-								polymorphicNames= new ArrayList<>();
-							}
-							for (ICPPMethod mInBase : msInBases) {
-								if (mInBase != null && handled.add(mInBase)) {
-									createMatches1(index, mInBase, polymorphicNames);
-								}
+						collector.setPolymorphicOnly(true);
+						for (ICPPMethod mInBase : msInBases) {
+							if (mInBase != null && handled.add(mInBase)) {
+								if (!index.findNames(mInBase, flags, collector))
+									return;
 							}
 						}
+						collector.setPolymorphicOnly(false);
 					}
 				}
 			}
 		}
 
 		// Get names from the external search providers.
+		List<IIndexName> names= new ArrayList<>();
 		for (IExternalSearchProvider provider : CSearchProviderManager.INSTANCE.getExternalSearchProviders()) {
 			for (IBinding binding : bindings) {
 				provider.findNames(binding, flags, projects, index, names);
 			}
 		}
-
-		if (!(names.isEmpty() && (polymorphicNames == null || polymorphicNames.isEmpty()))) {
-			collectNames(index, names, polymorphicNames);
+		for (IIndexName name : names) {
+			collector.add(name);
 		}
-	}
 
-	private void createMatches1(IIndex index, IBinding binding, List<IIndexName> names) throws CoreException {
-		IIndexName[] bindingNames= index.findNames(binding, flags);
-		if (fullPathFilter == null) {
-			names.addAll(Arrays.asList(bindingNames));
-		} else {
-			for (IIndexName name : bindingNames) {
-				String fullPath= name.getFile().getLocation().getFullPath();
-				if (fullPath != null && accept(fullPath))
-					names.add(name);
-			}
-		}
+		collector.flush();
 	}
 
 	private boolean accept(String fullPath) {
@@ -523,16 +610,63 @@ public abstract class CSearchQuery implements ISearchQuery {
 			} catch (InterruptedException e) {
 				return Status.CANCEL_STATUS;
 			}
+			fLockedIndex = index;
+			fMayReleaseLock = true;
+			fLockReleased = false;
+			fIndexChanged = false;
+			fMonitor = monitor;
 			try {
-				return runWithIndex(index, monitor);
+				IStatus status = runWithIndex(index, monitor);
+				if (fIndexChanged) {
+					// The index was modified while the lock was released, the matches may be
+					// incomplete. Start over and hold the lock until the search is complete.
+					result.removeAll();
+					fMayReleaseLock = false;
+					status = runWithIndex(index, monitor);
+				}
+				return status;
 			} finally {
-				index.releaseReadLock();
+				fLockedIndex = null;
+				fMonitor = null;
+				if (!fLockReleased) {
+					index.releaseReadLock();
+				}
 			}
 		} catch (CoreException e) {
 			return e.getStatus();
 		}
 	}
 
+	/**
+	 * Checks whether the read lock on the given index can be released temporarily. This is the
+	 * case when the lock has been obtained by {@link #run(IProgressMonitor)}.
+	 */
+	private boolean canReleaseLock(IIndex index) {
+		return fMayReleaseLock && index == fLockedIndex;
+	}
+
+	/**
+	 * Releases the read lock on the index while running the given runnable.
+	 * @return {@code false} if the index was modified while the lock was released.
+	 */
+	private boolean runWithoutLock(IIndex index, Runnable runnable) {
+		long modificationCount = index.getModificationCount();
+		index.releaseReadLock();
+		fLockReleased = true;
+		try {
+			runnable.run();
+		} finally {
+			try {
+				index.acquireReadLock();
+				fLockReleased = false;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OperationCanceledException();
+			}
+		}
+		return index.getModificationCount() == modificationCount;
+	}
+
 	abstract protected IStatus runWithIndex(IIndex index, IProgressMonitor monitor);
 
 	/**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2012 QNX Software Systems and others.
+ * Copyright (c) 2009, 2017 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -220,6 +220,29 @@ public class LineSearchElement extends CSearchElement {
 		return result.toArray(new LineSearchElement[result.size()]);
 	}
 
+	/**
+	 * Creates an element for the line of the given element, with the matches of the element and
+	 * the given matches. The given matches have to be on the same line as the element.
+	 */
+	static LineSearchElement merge(LineSearchElement element, Match[] matches) {
+		Match[] allMatches= new Match[element.fMatches.length + matches.length];
+		System.arraycopy(element.fMatches, 0, allMatches, 0, element.fMatches.length);
+		System.arraycopy(matches, 0, allMatches, element.fMatches.length, matches.length);
+		Arrays.sort(allMatches, MATCHES_COMPARATOR);
+		List<Match> lineMatches= new ArrayList<Match>();
+		int minOffset= 0;
+		for (Match match : allMatches) {
+			// Skip matches overlapped by the previous one.
+			if (match.getOffset() >= minOffset) {
+				lineMatches.add(match);
+				minOffset= match.getOffset() + match.getLength();
+			}
+		}
+		return new LineSearchElement(element.getLocation(),
+				lineMatches.toArray(new Match[lineMatches.size()]), element.fNumber, element.fContent,
+				element.fOffset);
+	}
+
 	private static LineSearchElement[] collectLineElements(AbstractCharArray buf, Match[] matches,
 			IIndexFileLocation fileLocation) {
 		List<LineSearchElement> result = new ArrayList<LineSearchElement>();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2014 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2017 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,6 +32,7 @@ import org.eclipse.cdt.core.index.IIndexName;
 import org.eclipse.cdt.core.model.ICElement;
 import org.eclipse.cdt.ui.CUIPlugin;
 
+import org.eclipse.cdt.internal.core.index.IIndexFragment;
 import org.eclipse.cdt.internal.core.model.ext.ICElementHandle;
 
 import org.eclipse.cdt.internal.ui.viewsupport.IndexUI;
@@ -218,7 +219,8 @@ class THGraph {
 				IBinding binding = IndexUI.elementToBinding(index, elem);
 				if (binding != null) {
 					// TODO(nathanridge): Also find subclasses referenced via decltype-specifiers rather than names.
-					IIndexName[] names= index.findNames(binding, IIndex.FIND_REFERENCES | IIndex.FIND_DEFINITIONS);
+					IIndexName[] names= index.findNames(binding,
+							IIndex.FIND_REFERENCES | IIndex.FIND_DEFINITIONS | IIndexFragment.FIND_BASE_SPECIFIERS_ONLY);
 					for (IIndexName indexName : names) {
 						if (monitor.isCanceled()) {
 							return;